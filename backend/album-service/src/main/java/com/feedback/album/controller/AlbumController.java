@@ -1,6 +1,7 @@
 package com.feedback.album.controller;
 
 import com.feedback.album.dtos.AlbumDTO;
+import com.feedback.album.dtos.AlbumPageDTO;
 import com.feedback.album.service.AlbumService;
 import com.feedback.album.service.KafkaLogger;
 
@@ -9,6 +10,7 @@ import org.springframework.http.ResponseEntity;
 
 import java.util.List;
 
+
 @RestController
 @RequestMapping("/api/albums")
 public class AlbumController {
@@ -23,14 +25,15 @@ public class AlbumController {
 	}
 
 
-	// Get all albums for a user or by artist
+	// Get albums a page at a time (pass the returned nextCursor as after for the next page), or by artist
 	@GetMapping
-	public ResponseEntity<List<AlbumDTO>> getAllAlbums(@RequestParam(required = false) String userId, @RequestParam(required = false) String artistId) {
+	public ResponseEntity<AlbumPageDTO> getAllAlbums(@RequestParam(required = false) String userId, @RequestParam(required = false) String artistId,
+			@RequestParam(required = false) Integer size, @RequestParam(required = false) String after) {
 		if (artistId != null && !artistId.isBlank()) {
-			return ResponseEntity.ok(albumService.findByArtistId(artistId));
+			return ResponseEntity.ok(albumService.findByArtistId(artistId, size, after));
 		}
 		kafkaLogger.log("Retrieved all albums");
-		return ResponseEntity.ok(albumService.getAllAlbums());
+		return ResponseEntity.ok(albumService.getAllAlbums(size, after));
 	}
 
 
@@ -81,11 +84,17 @@ public class AlbumController {
 	}
 
 
-	// Search albums by name
+	// Search albums by title, best matches first (pass the returned nextCursor as after for the next page)
 	@GetMapping("/search")
-	public ResponseEntity<List<AlbumDTO>> searchAlbums(@RequestParam String query) {
+	public ResponseEntity<AlbumPageDTO> searchAlbums(@RequestParam String query, @RequestParam(required = false) Integer size, @RequestParam(required = false) String after) {
 		kafkaLogger.log("Searched albums with query: " + query);
-		return ResponseEntity.ok(albumService.searchByTitle(query));
+		return ResponseEntity.ok(albumService.searchByTitle(query, size, after));
+	}
+
+	// Albums for up to AlbumService.MAX_BATCH_IDS IDs in one call, in the order given; unknown IDs are left out
+	@PostMapping("/batch-get")
+	public List<AlbumDTO> batchGet(@RequestBody List<String> ids) {
+		return albumService.getByIds(ids);
 	}
 
 }
@@ -5,6 +5,7 @@ import java.util.Set;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
@@ -34,7 +35,8 @@ public class Album {
     @Column(columnDefinition = "TEXT")
     private String href;
 
-    @ManyToOne
+    // lazy: DTOs only need the artist's ID, which the proxy has without a query
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "artist_id")
     private Artist artist;
 
@@ -1,16 +1,11 @@
 package com.feedback.album.model;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import jakarta.persistence.FetchType;
 import jakarta.persistence.JoinColumn;
-import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
-import jakarta.persistence.ManyToMany;
 import jakarta.persistence.Table;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -41,13 +36,7 @@ public class Playlist { //Playlist Columns: playlist_id, name, owner_id, is_publ
     @JoinColumn(name = "owner_id")
     private Listener owner;
 
-    @ManyToMany
-    @JoinTable(
-        name = "playlists_songs",
-        joinColumns = @JoinColumn(name = "playlist_id"),
-        inverseJoinColumns = @JoinColumn(name = "song_id")
-    )
-    private List<Song> songs = new ArrayList<>();
+    // tracks are playlists_songs rows that only playlist-service writes (its PlaylistEntry, kept in order)
 
     public Playlist(String playlistId, String name, String href, Boolean isPublic, Listener owner) {
         this.playlistId = playlistId;
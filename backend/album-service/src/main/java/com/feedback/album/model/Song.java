@@ -10,6 +10,7 @@ import jakarta.persistence.ManyToMany;
 import jakarta.persistence.Table;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
+import org.hibernate.annotations.ColumnDefault;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -31,6 +32,11 @@ public class Song {
     @Column(name = "duration_ms", nullable = false)
     private Integer durationMs;
 
+    // all-time plays, maintained by song-service; read here to rank search results
+    @ColumnDefault("0")
+    @Column(name = "play_count", nullable = false, insertable = false, updatable = false)
+    private Long playCount = 0L;
+
     @ManyToMany // defining the junction table to represent many to many
     @JoinTable(
         name = "artists_songs",
@@ -39,9 +45,6 @@ public class Song {
     )
     private Set<Artist> artists = new HashSet<>();
 
-    @ManyToMany(mappedBy = "songs")
-    private Set<Playlist> playlists = new HashSet<>();
-
     // kenneth added this: many:many for albums and songs
     @ManyToMany
     @JoinTable(
@@ -1,17 +1,45 @@
 package com.feedback.album.repository;
 
 import com.feedback.album.model.Album;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface AlbumRepository extends JpaRepository<Album, String> {
+    // Catalog pages in album ID order: the first page, then each page after the last ID of the one before
+    List<Album> findAllByOrderByAlbumIdAsc(Limit limit);
+
+    List<Album> findByAlbumIdGreaterThanOrderByAlbumIdAsc(String afterId, Limit limit);
+
+    // An artist's albums a page at a time in album ID order, read from idx_album_artist (schema.sql)
+    List<Album> findByArtist_ArtistIdOrderByAlbumIdAsc(String artistId, Limit limit);
+
+    List<Album> findByArtist_ArtistIdAndAlbumIdGreaterThanOrderByAlbumIdAsc(String artistId, String afterId, Limit limit);
+
     // Find albums by title
     List<Album> findByTitle(String title);
 
-    // Find albums by partial title (case-insensitive)
-    List<Album> findByTitleContainingIgnoreCase(String titlePart);
+    // Search by title, tolerant of typos: pg_trgm word similarity (:query <% title) is answered from the
+    // idx_album_title_trgm GIN index (schema.sql) instead of an ILIKE scan of the whole table. Matches are ranked
+    // by similarity, boosted logarithmically by all-time plays of their songs, with the ID as a stable tie-breaker
+    @Query(value = "SELECT a.* FROM album a "
+            + "CROSS JOIN LATERAL (SELECT COALESCE(SUM(s.play_count), 0) AS plays FROM albums_songs x "
+            + "JOIN song s ON s.song_id = x.song_id WHERE x.album_id = a.album_id) popularity "
+            + "WHERE :query <% a.title "
+            + "ORDER BY word_similarity(:query, a.title) * (1 + :boost * ln(1 + popularity.plays)) DESC, a.album_id "
+            + "LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Album> search(@Param("query") String query, @Param("boost") double boost, @Param("limit") int limit,
+            @Param("offset") int offset);
 
     // Find albums by release year
     List<Album> findByReleaseYear(Integer releaseYear); 
-}
\ No newline at end of file
+
+    // song IDs for a whole list of albums in one query, instead of loading each album's songs lazily
+    @Query("SELECT new com.feedback.album.repository.LinkedId(al.albumId, s.songId) "
+            + "FROM Album al JOIN al.songs s WHERE al.albumId IN :albumIds")
+    List<LinkedId> findSongIds(@Param("albumIds") Collection<String> albumIds);
+}
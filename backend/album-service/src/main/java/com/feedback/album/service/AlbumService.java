@@ -1,24 +1,41 @@
 package com.feedback.album.service;
 
 import com.feedback.album.dtos.AlbumDTO;
+import com.feedback.album.dtos.AlbumPageDTO;
 import com.feedback.album.exception.InvalidRequestException;
 import com.feedback.album.exception.ResourceNotFoundException;
 import com.feedback.album.model.Album;
 import com.feedback.album.model.Artist;
 import com.feedback.album.repository.AlbumRepository;
+import com.feedback.album.repository.LinkedId;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import com.feedback.album.service.ArtistService;
 import com.feedback.album.dtos.ArtistDTO;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
 public class AlbumService {
 
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+    // most IDs one batch lookup may ask for
+    public static final int MAX_BATCH_IDS = 200;
+    // search is ranked, so it pages by offset; deeper than this nobody is still reading
+    public static final int MAX_SEARCH_RESULTS = 1000;
+    // how much all-time plays lift a match: score = similarity * (1 + boost * ln(1 + plays))
+    static final double POPULARITY_BOOST = 0.05;
+
     private final AlbumRepository repository;
     private final ArtistService artistService;
 
@@ -36,10 +53,19 @@ public class AlbumService {
     }
 
     
-    public List<AlbumDTO> getAllAlbums() {
-        return repository.findAll().stream()
-                .map(this::albumToDto)
-                .toList();
+    // one page of the catalog in album ID order; after is the previous page's nextCursor
+    public AlbumPageDTO getAllAlbums(Integer limit, String after) {
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        // one extra row tells us whether there is another page without a count query
+        Limit fetch = Limit.of(pageSize + 1);
+        List<Album> albums = after == null || after.isBlank()
+                ? repository.findAllByOrderByAlbumIdAsc(fetch)
+                : repository.findByAlbumIdGreaterThanOrderByAlbumIdAsc(decodeCursor(after), fetch);
+
+        boolean hasMore = albums.size() > pageSize;
+        List<AlbumDTO> page = albumsToDtos(albums.subList(0, Math.min(pageSize, albums.size())));
+        String nextCursor = hasMore ? encodeCursor(page.get(page.size() - 1).albumId()) : null;
+        return new AlbumPageDTO(page, nextCursor);
     }
 
     
@@ -51,14 +77,39 @@ public class AlbumService {
                 .map(this::albumToDto);
     }
 
-    
-    public List<AlbumDTO> searchByTitle(String titlePart) {
-        if (titlePart == null || titlePart.isBlank()) {
+    // albums for the given IDs in one query, in the order asked for; unknown IDs are left out
+    public List<AlbumDTO> getByIds(List<String> ids) {
+        List<String> wanted = batchIds(ids);
+        if (wanted.isEmpty()) {
             return List.of();
         }
-        return repository.findByTitleContainingIgnoreCase(titlePart).stream()
-                .map(this::albumToDto)
-                .toList();
+        Map<String, Album> albums = repository.findAllById(wanted).stream()
+                .collect(Collectors.toMap(Album::getAlbumId, Function.identity()));
+        return albumsToDtos(wanted.stream()
+                .map(albums::get)
+                .filter(Objects::nonNull)
+                .toList());
+    }
+
+    
+    // typo-tolerant title search, best matches first (albums with popular songs ahead among similar titles);
+    // after is the previous page's nextCursor. Results stop after MAX_SEARCH_RESULTS
+    public AlbumPageDTO searchByTitle(String query, Integer limit, String after) {
+        if (query == null || query.isBlank()) {
+            return new AlbumPageDTO(List.of(), null);
+        }
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        int offset = after == null || after.isBlank() ? 0 : decodeOffset(after);
+        int fetch = Math.min(pageSize + 1, MAX_SEARCH_RESULTS - offset);
+        if (fetch <= 0) {
+            return new AlbumPageDTO(List.of(), null);
+        }
+        List<Album> albums = repository.search(query.trim(), POPULARITY_BOOST, fetch, offset);
+
+        boolean hasMore = albums.size() > pageSize;
+        List<AlbumDTO> page = albumsToDtos(albums.subList(0, Math.min(pageSize, albums.size())));
+        String nextCursor = hasMore ? encodeCursor(String.valueOf(offset + pageSize)) : null;
+        return new AlbumPageDTO(page, nextCursor);
     }
 
     
@@ -70,25 +121,30 @@ public class AlbumService {
         if (releaseYear < 1900 || releaseYear > 2100) {
             throw new InvalidRequestException("Release year must be between 1900 and 2100");
         }
-        return repository.findByReleaseYear(releaseYear).stream()
-                .map(this::albumToDto)
-                .toList();
+        return albumsToDtos(repository.findByReleaseYear(releaseYear));
     }
 
     
-    public List<AlbumDTO> findByArtistId(String artistId) {
+    // one page of an artist's albums in album ID order; after is the previous page's nextCursor.
+    // artist-service is only asked whether the artist exists when it has no albums at all
+    public AlbumPageDTO findByArtistId(String artistId, Integer limit, String after) {
         if (artistId == null || artistId.isBlank()) {
-            return List.of();
+            return new AlbumPageDTO(List.of(), null);
         }
-        // Verify artist exists
-        if (!artistService.existsById(artistId)) {
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        Limit fetch = Limit.of(pageSize + 1);
+        boolean firstPage = after == null || after.isBlank();
+        List<Album> albums = firstPage
+                ? repository.findByArtist_ArtistIdOrderByAlbumIdAsc(artistId, fetch)
+                : repository.findByArtist_ArtistIdAndAlbumIdGreaterThanOrderByAlbumIdAsc(artistId, decodeCursor(after), fetch);
+        if (firstPage && albums.isEmpty() && !artistService.existsById(artistId)) {
             throw new ResourceNotFoundException("Artist", artistId);
         }
-        return repository.findAll().stream()
-                .filter(album -> album.getArtist() != null 
-                    && album.getArtist().getArtistId().equals(artistId))
-                .map(this::albumToDto)
-                .toList();
+
+        boolean hasMore = albums.size() > pageSize;
+        List<AlbumDTO> page = albumsToDtos(albums.subList(0, Math.min(pageSize, albums.size())));
+        String nextCursor = hasMore ? encodeCursor(page.get(page.size() - 1).albumId()) : null;
+        return new AlbumPageDTO(page, nextCursor);
     }
 
     
@@ -185,6 +241,67 @@ public class AlbumService {
         }
     }
 
+    // cursors are opaque to clients: the last album ID of a page, base64url-encoded
+    private static String encodeCursor(String albumId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(albumId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("after", cursor);
+        }
+    }
+
+    // search cursors carry the offset of the next page
+    private static int decodeOffset(String cursor) {
+        try {
+            int offset = Integer.parseInt(decodeCursor(cursor));
+            if (offset < 0) {
+                throw new InvalidRequestException("after", cursor);
+            }
+            return offset;
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("after", cursor);
+        }
+    }
+
+    // the distinct non-blank IDs of a batch lookup, in the order given
+    private static List<String> batchIds(List<String> ids) {
+        if (ids == null) {
+            return List.of();
+        }
+        List<String> wanted = ids.stream()
+                .filter(id -> id != null && !id.isBlank())
+                .distinct()
+                .toList();
+        if (wanted.size() > MAX_BATCH_IDS) {
+            throw new InvalidRequestException("At most " + MAX_BATCH_IDS + " IDs can be looked up at once");
+        }
+        return wanted;
+    }
+
+    // DTOs for a list of albums; song IDs are read in one query per LinkedId.CHUNK_SIZE albums,
+    // where going through every album's lazy songs would cost a query per album
+    private List<AlbumDTO> albumsToDtos(List<Album> albums) {
+        if (albums.isEmpty()) {
+            return List.of();
+        }
+        Map<String, List<String>> songIds = LinkedId.groupInChunks(
+                albums.stream().map(Album::getAlbumId).toList(), repository::findSongIds);
+        return albums.stream()
+                .map(album -> new AlbumDTO(
+                        album.getAlbumId(),
+                        album.getTitle(),
+                        album.getReleaseYear(),
+                        album.getHref(),
+                        album.getArtist() != null ? album.getArtist().getArtistId() : null,
+                        songIds.getOrDefault(album.getAlbumId(), List.of())
+                ))
+                .toList();
+    }
+
     private AlbumDTO albumToDto(Album album) {
         String artistId = album.getArtist() != null ? album.getArtist().getArtistId() : null;
 
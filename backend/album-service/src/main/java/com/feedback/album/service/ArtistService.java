@@ -1,11 +1,14 @@
 package com.feedback.album.service;
 
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import com.feedback.album.dtos.ArtistDTO;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 
 @FeignClient("artist-service")
 public interface ArtistService {
@@ -13,6 +16,10 @@ public interface ArtistService {
     @GetMapping("/api/artists/find-by-id/{id}")
     public ArtistDTO findById(@PathVariable String id);   
 
+    // up to 200 artists in one call, in the order asked for; unknown IDs are left out
+    @PostMapping("/api/artists/batch-get")
+    public List<ArtistDTO> findAllById(@RequestBody List<String> ids);
+
     @GetMapping("/api/artists/exists/{id}")
     public boolean existsById(@PathVariable String id);
 }
@@ -0,0 +1,89 @@
+package com.feedback.album.repository;
+
+import com.feedback.album.dtos.AlbumDTO;
+import com.feedback.album.model.Album;
+import com.feedback.album.model.Artist;
+import com.feedback.album.model.Song;
+import com.feedback.album.service.AlbumService;
+import com.feedback.album.service.ArtistService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// counts the statements a large result costs against an embedded database; schema.sql is Postgres-only
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class AlbumRepositoryTest {
+
+    @Autowired
+    private AlbumRepository albumRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private AlbumService service;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        service = new AlbumService(albumRepository, mock(ArtistService.class));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private void saveAlbums(int count) {
+        Artist artist = new Artist("AR1", "Artist", null);
+        entityManager.persist(artist);
+        for (int i = 0; i < count; i++) {
+            Album album = new Album(String.format("AL%05d", i), "Album", 2025, null);
+            album.setArtist(artist);
+            Song song = new Song(String.format("S%05d", i), "Song", 1000, null);
+            song.getAlbums().add(album);
+            entityManager.persist(album);
+            entityManager.persist(song);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    public void testThousandAlbumsCostTwoStatements() {
+        saveAlbums(LinkedId.CHUNK_SIZE);
+
+        List<AlbumDTO> albums = service.findByReleaseYear(2025);
+
+        assertEquals(LinkedId.CHUNK_SIZE, albums.size());
+        AlbumDTO first = albums.stream().filter(album -> album.albumId().equals("AL00000")).findFirst().orElseThrow();
+        assertEquals("AR1", first.artistId());
+        assertEquals(List.of("S00000"), first.songIds());
+        // the albums, then one query for their song IDs; the artist ID comes from the lazy reference
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testOneAlbumPastAChunkCostsOneMoreQuery() {
+        saveAlbums(LinkedId.CHUNK_SIZE + 1);
+
+        List<AlbumDTO> albums = service.findByReleaseYear(2025);
+
+        assertEquals(LinkedId.CHUNK_SIZE + 1, albums.size());
+        assertTrue(albums.stream().allMatch(album -> album.songIds().size() == 1));
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+}
@@ -1,24 +1,31 @@
 package com.feedback.album.service;
 
 import com.feedback.album.dtos.AlbumDTO;
+import com.feedback.album.dtos.AlbumPageDTO;
 import com.feedback.album.exception.InvalidRequestException;
 import com.feedback.album.exception.ResourceNotFoundException;
 import com.feedback.album.model.Album;
 import com.feedback.album.model.Artist;
 import com.feedback.album.repository.AlbumRepository;
+import com.feedback.album.repository.LinkedId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -43,13 +50,43 @@ public class AlbumServiceTest {
     }
 
     @Test
-    public void testGetAllAlbums() {
-        when(albumRepository.findAll()).thenReturn(List.of(sampleAlbum));
+    public void testGetAllAlbumsPagesByCursor() {
+        Album second = new Album("A2", "Second Album", 2021, "href2");
+        Album third = new Album("A3", "Third Album", 2022, "href3");
+        when(albumRepository.findAllByOrderByAlbumIdAsc(Limit.of(3))).thenReturn(List.of(sampleAlbum, second, third));
+        when(albumRepository.findByAlbumIdGreaterThanOrderByAlbumIdAsc("A2", Limit.of(3))).thenReturn(List.of(third));
+
+        AlbumPageDTO first = service.getAllAlbums(2, null);
+        AlbumPageDTO next = service.getAllAlbums(2, first.nextCursor());
+
+        assertEquals(List.of("Test Album", "Second Album"), first.albums().stream().map(AlbumDTO::title).toList());
+        assertNotNull(first.nextCursor());
+        assertEquals("Third Album", next.albums().get(0).title());
+        assertNull(next.nextCursor());
+    }
 
-        List<AlbumDTO> result = service.getAllAlbums();
+    @Test
+    public void testGetAllAlbumsReadsSongIdsOncePerPage() {
+        Album second = new Album("A2", "Second Album", 2021, "href2");
+        second.setArtist(sampleArtist);
+        when(albumRepository.findAllByOrderByAlbumIdAsc(Limit.of(3))).thenReturn(List.of(sampleAlbum, second));
+        when(albumRepository.findSongIds(List.of("A1", "A2")))
+                .thenReturn(List.of(new LinkedId("A1", "S1"), new LinkedId("A2", "S2"), new LinkedId("A2", "S3")));
+
+        AlbumPageDTO result = service.getAllAlbums(2, null);
+
+        assertEquals(List.of("S1"), result.albums().get(0).songIds());
+        assertEquals(List.of("S2", "S3"), result.albums().get(1).songIds());
+        assertEquals("ART1", result.albums().get(1).artistId());
+        // two statements however many albums are on the page: the albums, then their songs
+        verify(albumRepository).findAllByOrderByAlbumIdAsc(Limit.of(3));
+        verify(albumRepository).findSongIds(List.of("A1", "A2"));
+        verifyNoMoreInteractions(albumRepository);
+    }
 
-        assertEquals(1, result.size());
-        assertEquals("Test Album", result.get(0).title());
+    @Test
+    public void testGetAllAlbumsInvalidCursorThrows() {
+        assertThrows(InvalidRequestException.class, () -> service.getAllAlbums(10, "not a cursor!"));
     }
 
     @Test
@@ -78,18 +115,66 @@ public class AlbumServiceTest {
     }
 
     @Test
-    public void testSearchByTitle() {
-        when(albumRepository.findByTitleContainingIgnoreCase("test")).thenReturn(List.of(sampleAlbum));
+    public void testGetByIdsKeepsRequestedOrder() {
+        Album other = new Album("A2", "Second Album", 2021, "href2");
+        when(albumRepository.findAllById(List.of("A2", "UNKNOWN", "A1"))).thenReturn(List.of(sampleAlbum, other));
+
+        List<AlbumDTO> result = service.getByIds(List.of("A2", "UNKNOWN", "A1"));
 
-        List<AlbumDTO> result = service.searchByTitle("test");
+        assertEquals(List.of("A2", "A1"), result.stream().map(AlbumDTO::albumId).toList());
+        assertEquals(List.of(), service.getByIds(List.of()));
+    }
+
+    @Test
+    public void testGetByIdsQueriesEachIdOnce() {
+        when(albumRepository.findAllById(List.of("A1"))).thenReturn(List.of(sampleAlbum));
+
+        List<AlbumDTO> result = service.getByIds(Arrays.asList("A1", "A1", null, " "));
 
         assertEquals(1, result.size());
     }
 
+    @Test
+    public void testGetByIdsTooManyThrows() {
+        List<String> ids = IntStream.rangeClosed(0, AlbumService.MAX_BATCH_IDS)
+                .mapToObj(i -> "A" + i)
+                .toList();
+
+        assertThrows(InvalidRequestException.class, () -> service.getByIds(ids));
+    }
+
+    @Test
+    public void testSearchByTitleSuccess() {
+        when(albumRepository.search("test", AlbumService.POPULARITY_BOOST, AlbumService.DEFAULT_LIMIT + 1, 0)).thenReturn(List.of(sampleAlbum));
+
+        AlbumPageDTO result = service.searchByTitle(" test ", null, null);
+
+        assertEquals(1, result.albums().size());
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    public void testSearchByTitlePagesByOffset() {
+        when(albumRepository.search("test", AlbumService.POPULARITY_BOOST, 2, 0)).thenReturn(List.of(sampleAlbum, sampleAlbum));
+        when(albumRepository.search("test", AlbumService.POPULARITY_BOOST, 2, 1)).thenReturn(List.of(sampleAlbum));
+
+        AlbumPageDTO first = service.searchByTitle("test", 1, null);
+        AlbumPageDTO next = service.searchByTitle("test", 1, first.nextCursor());
+
+        assertEquals(1, first.albums().size());
+        assertNotNull(first.nextCursor());
+        assertNull(next.nextCursor());
+    }
+
     @Test
     public void testSearchByTitleBlankReturnsEmpty() {
-        assertTrue(service.searchByTitle("").isEmpty());
-        assertTrue(service.searchByTitle(null).isEmpty());
+        assertTrue(service.searchByTitle("", null, null).albums().isEmpty());
+        assertTrue(service.searchByTitle(null, null, null).albums().isEmpty());
+    }
+
+    @Test
+    public void testSearchByTitleInvalidCursorThrows() {
+        assertThrows(InvalidRequestException.class, () -> service.searchByTitle("test", 10, "bm90LWEtbnVtYmVy"));
     }
 
     @Test
@@ -113,28 +198,48 @@ public class AlbumServiceTest {
     }
 
     @Test
-    public void testFindByArtistIdSuccess() {
+    public void testFindByArtistIdPagesWithoutAskingArtistService() {
+        Album second = new Album("A2", "Second Album", 2021, "href2");
         sampleAlbum.setArtist(sampleArtist);
+        second.setArtist(sampleArtist);
+        when(albumRepository.findByArtist_ArtistIdOrderByAlbumIdAsc("ART1", Limit.of(2))).thenReturn(List.of(sampleAlbum, second));
+        when(albumRepository.findByArtist_ArtistIdAndAlbumIdGreaterThanOrderByAlbumIdAsc("ART1", "A1", Limit.of(2)))
+                .thenReturn(List.of(second));
+
+        AlbumPageDTO first = service.findByArtistId("ART1", 1, null);
+        AlbumPageDTO next = service.findByArtistId("ART1", 1, first.nextCursor());
+
+        assertEquals("A1", first.albums().get(0).albumId());
+        assertEquals("A2", next.albums().get(0).albumId());
+        assertNull(next.nextCursor());
+        verify(artistService, never()).existsById(any());
+    }
 
+    @Test
+    public void testFindByArtistIdWithoutAlbumsReturnsEmptyPage() {
+        when(albumRepository.findByArtist_ArtistIdOrderByAlbumIdAsc("ART1", Limit.of(AlbumService.DEFAULT_LIMIT + 1)))
+                .thenReturn(List.of());
         when(artistService.existsById("ART1")).thenReturn(true);
-        when(albumRepository.findAll()).thenReturn(List.of(sampleAlbum));
 
-        List<AlbumDTO> result = service.findByArtistId("ART1");
+        AlbumPageDTO result = service.findByArtistId("ART1", null, null);
 
-        assertEquals(1, result.size());
+        assertTrue(result.albums().isEmpty());
+        assertNull(result.nextCursor());
     }
 
     @Test
     public void testFindByArtistIdBlankReturnsEmpty() {
-        assertTrue(service.findByArtistId("").isEmpty());
-        assertTrue(service.findByArtistId(null).isEmpty());
+        assertTrue(service.findByArtistId("", null, null).albums().isEmpty());
+        assertTrue(service.findByArtistId(null, null, null).albums().isEmpty());
     }
 
     @Test
     public void testFindByArtistIdNotFoundThrows() {
+        when(albumRepository.findByArtist_ArtistIdOrderByAlbumIdAsc("ART1", Limit.of(AlbumService.DEFAULT_LIMIT + 1)))
+                .thenReturn(List.of());
         when(artistService.existsById("ART1")).thenReturn(false);
 
-        assertThrows(ResourceNotFoundException.class, () -> service.findByArtistId("ART1"));
+        assertThrows(ResourceNotFoundException.class, () -> service.findByArtistId("ART1", null, null));
     }
 
     @Test
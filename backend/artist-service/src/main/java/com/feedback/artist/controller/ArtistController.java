@@ -1,7 +1,9 @@
 package com.feedback.artist.controller;
 
 import com.feedback.artist.dtos.ArtistDTO;
+import com.feedback.artist.dtos.ArtistPageDTO;
 import com.feedback.artist.service.ArtistService;
+import com.feedback.artist.service.HistoryService;
 import com.feedback.artist.service.KafkaLogger;
 import com.feedback.artist.service.SpotifyApiService;
 import org.springframework.web.bind.annotation.*;
@@ -19,21 +21,23 @@ public class ArtistController {
 	private final ArtistService artistService;
 	private final SpotifyApiService spotifyApiService;
 	private final KafkaLogger kafkaLogger;
+	private final HistoryService historyService;
 
-	public ArtistController(ArtistService artistService, SpotifyApiService spotifyApiService, KafkaLogger kafkaLogger) {
+	public ArtistController(ArtistService artistService, SpotifyApiService spotifyApiService, KafkaLogger kafkaLogger, HistoryService historyService) {
 		this.kafkaLogger = kafkaLogger;
 		this.artistService = artistService;
 		this.spotifyApiService = spotifyApiService;
+		this.historyService = historyService;
 	}
 
-	// Get all artists
+	// Get artists a page at a time (pass the returned nextCursor as after for the next page), or search by name
 	@GetMapping
-	public ResponseEntity<List<ArtistDTO>> getAllArtists(@RequestParam(required = false) Integer page, @RequestParam(required = false) Integer size, @RequestParam(required = false) String query) {
+	public ResponseEntity<ArtistPageDTO> getAllArtists(@RequestParam(required = false) Integer size, @RequestParam(required = false) String after, @RequestParam(required = false) String query) {
 		if (query != null && !query.isBlank()) {
-			return ResponseEntity.ok(artistService.searchByName(query));
+			return ResponseEntity.ok(artistService.searchByName(query, size, after));
 		}
 		kafkaLogger.log("Retrieved all Artists");
-		return ResponseEntity.ok(artistService.getAllArtists());
+		return ResponseEntity.ok(artistService.getAllArtists(size, after));
 	}
 
 	// Get specific artist by ID
@@ -87,13 +91,18 @@ public class ArtistController {
 			.orElse(ResponseEntity.notFound().build());
 	}
 
-	// Get top artists (Spotify integration)
+	// Get top artists (Spotify integration, or our own play counts when listenerId is given and Spotify can't be used)
 	@GetMapping("/top")
 	public ResponseEntity<List<Map<String, Object>>> getTopArtists(
 			@RequestParam(required = false, defaultValue = "medium_term") String time_range,
+			@RequestParam(required = false) String listenerId,
+			@RequestParam(required = false, defaultValue = "20") int limit,
 			@RequestHeader(value = "X-Spotify-Token", required = false) String spotifyToken) {
 		
 		if (spotifyToken == null || spotifyToken.isBlank()) {
+			if (listenerId != null && !listenerId.isBlank()) {
+				return ResponseEntity.ok(getLocalTopArtists(listenerId, time_range, limit));
+			}
 			return ResponseEntity.status(401).body(List.of());
 		}
 		
@@ -136,16 +145,44 @@ public class ArtistController {
 			kafkaLogger.log("Retrieved top artists from Spotify");
 			return ResponseEntity.ok(artists);
 		} catch (Exception e) {
+			// Spotify down or token expired: serve our own counts if we know who is asking
+			if (listenerId != null && !listenerId.isBlank()) {
+				return ResponseEntity.ok(getLocalTopArtists(listenerId, time_range, limit));
+			}
 			return ResponseEntity.status(500).body(List.of());
 		}
 	}
 
+	// Top artists from history-service's play counters, in the same format as the Spotify path
+	private List<Map<String, Object>> getLocalTopArtists(String listenerId, String timeRange, int limit) {
+		List<Map<String, Object>> items = historyService.getTopItems(listenerId, "artists", timeRange, limit);
+		List<Map<String, Object>> artists = new ArrayList<>();
+		if (items == null) {
+			return artists;
+		}
+		for (Map<String, Object> item : items) {
+			Map<String, Object> artist = new HashMap<>();
+			artist.put("id", item.get("id"));
+			artist.put("name", item.get("name"));
+			artist.put("plays", item.get("plays"));
+			artists.add(artist);
+		}
+		kafkaLogger.log("Retrieved local top artists for listener " + listenerId);
+		return artists;
+	}
+
 	@GetMapping("/find-by-id/{id}")
     public ArtistDTO findById(@PathVariable String id) {
 		kafkaLogger.log("Finding Artist with ID: " + id);
         return artistService.getById(id).orElse(null);
     }   
 
+	// Artists for up to ArtistService.MAX_BATCH_IDS IDs in one call, in the order given; unknown IDs are left out
+	@PostMapping("/batch-get")
+	public List<ArtistDTO> batchGet(@RequestBody List<String> ids) {
+		return artistService.getByIds(ids);
+	}
+
     @GetMapping("/exists/{id}")
     public boolean existsById(@PathVariable String id) {
         boolean exists = artistService.existsById(id);
@@ -0,0 +1,9 @@
+package com.feedback.artist.dtos;
+
+import java.util.List;
+
+// nextCursor is passed back as ?after= for the next page; null when there are no more
+public record ArtistPageDTO(
+        List<ArtistDTO> artists,
+        String nextCursor
+) {}
@@ -1,14 +1,37 @@
 package com.feedback.artist.repository;
 
 import com.feedback.artist.model.Artist;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ArtistRepository extends JpaRepository<Artist, String> {
+    // Catalog pages in artist ID order: the first page, then each page after the last ID of the one before
+    List<Artist> findAllByOrderByArtistIdAsc(Limit limit);
+
+    List<Artist> findByArtistIdGreaterThanOrderByArtistIdAsc(String afterId, Limit limit);
+
     // Find artists by name
     List<Artist> findByName(String name);
 
-    // Find artists by partial name (case-insensitive)
-    List<Artist> findByNameContainingIgnoreCase(String namePart);
-}
\ No newline at end of file
+    // Search by name, tolerant of typos: pg_trgm word similarity (:query <% name) is answered from the
+    // idx_artist_name_trgm GIN index (schema.sql) instead of an ILIKE scan of the whole table. Matches are ranked
+    // by similarity, boosted logarithmically by all-time plays of their songs, with the ID as a stable tie-breaker
+    @Query(value = "SELECT a.* FROM artist a "
+            + "CROSS JOIN LATERAL (SELECT COALESCE(SUM(s.play_count), 0) AS plays FROM artists_songs x "
+            + "JOIN song s ON s.song_id = x.song_id WHERE x.artist_id = a.artist_id) popularity "
+            + "WHERE :query <% a.name "
+            + "ORDER BY word_similarity(:query, a.name) * (1 + :boost * ln(1 + popularity.plays)) DESC, a.artist_id "
+            + "LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Artist> search(@Param("query") String query, @Param("boost") double boost, @Param("limit") int limit,
+            @Param("offset") int offset);
+
+    // album IDs for a whole list of artists in one query, instead of loading each artist's albums lazily
+    @Query("SELECT new com.feedback.artist.repository.LinkedId(al.artist.artistId, al.albumId) "
+            + "FROM Album al WHERE al.artist.artistId IN :artistIds")
+    List<LinkedId> findAlbumIds(@Param("artistIds") Collection<String> artistIds);
+}
@@ -0,0 +1,29 @@
+package com.feedback.artist.repository;
+
+import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// one row of a relationship read by IDs only: an entity's ID and the ID of something linked to it
+public record LinkedId(String id, String linkedId) {
+
+    // IDs bound into one IN list; a statement can bind at most 65535 parameters
+    public static final int CHUNK_SIZE = 1000;
+
+    // linked IDs grouped by the ID they belong to
+    public static Map<String, List<String>> group(List<LinkedId> links) {
+        return links.stream()
+                .collect(Collectors.groupingBy(LinkedId::id, Collectors.mapping(LinkedId::linkedId, Collectors.toList())));
+    }
+
+    // the links of any number of IDs, read CHUNK_SIZE IDs per query and grouped by the ID they belong to
+    public static Map<String, List<String>> groupInChunks(List<String> ids, Function<List<String>, List<LinkedId>> lookup) {
+        Map<String, List<String>> grouped = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            grouped.putAll(group(lookup.apply(ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size())))));
+        }
+        return grouped;
+    }
+}
@@ -1,21 +1,38 @@
 package com.feedback.artist.service;
 
 import com.feedback.artist.dtos.ArtistDTO;
+import com.feedback.artist.dtos.ArtistPageDTO;
 import com.feedback.artist.exception.InvalidRequestException;
 import com.feedback.artist.exception.ResourceNotFoundException;
 import com.feedback.artist.model.Artist;
 import com.feedback.artist.repository.ArtistRepository;
+import com.feedback.artist.repository.LinkedId;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
 public class ArtistService {
 
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+    // most IDs one batch lookup may ask for
+    public static final int MAX_BATCH_IDS = 200;
+    // search is ranked, so it pages by offset; deeper than this nobody is still reading
+    public static final int MAX_SEARCH_RESULTS = 1000;
+    // how much all-time plays lift a match: score = similarity * (1 + boost * ln(1 + plays))
+    static final double POPULARITY_BOOST = 0.05;
+
     private final ArtistRepository repository;
 
     public ArtistService(ArtistRepository repository) {
@@ -23,10 +40,19 @@ public class ArtistService {
     }
 
     
-    public List<ArtistDTO> getAllArtists() {
-        return repository.findAll().stream()
-                .map(this::artistToDto)
-                .toList();
+    // one page of the catalog in artist ID order; after is the previous page's nextCursor
+    public ArtistPageDTO getAllArtists(Integer limit, String after) {
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        // one extra row tells us whether there is another page without a count query
+        Limit fetch = Limit.of(pageSize + 1);
+        List<Artist> artists = after == null || after.isBlank()
+                ? repository.findAllByOrderByArtistIdAsc(fetch)
+                : repository.findByArtistIdGreaterThanOrderByArtistIdAsc(decodeCursor(after), fetch);
+
+        boolean hasMore = artists.size() > pageSize;
+        List<ArtistDTO> page = artistsToDtos(artists.subList(0, Math.min(pageSize, artists.size())));
+        String nextCursor = hasMore ? encodeCursor(page.get(page.size() - 1).artistId()) : null;
+        return new ArtistPageDTO(page, nextCursor);
     }
 
     
@@ -45,24 +71,47 @@ public class ArtistService {
         return repository.existsById(id);
     }
 
+    // artists for the given IDs in one query, in the order asked for; unknown IDs are left out
+    public List<ArtistDTO> getByIds(List<String> ids) {
+        List<String> wanted = batchIds(ids);
+        if (wanted.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Artist> artists = repository.findAllById(wanted).stream()
+                .collect(Collectors.toMap(Artist::getArtistId, Function.identity()));
+        return artistsToDtos(wanted.stream()
+                .map(artists::get)
+                .filter(Objects::nonNull)
+                .toList());
+    }
+
     
     public List<ArtistDTO> findByName(String name) {
         if (name == null || name.isBlank()) {
             return List.of();
         }
-        return repository.findByName(name).stream()
-                .map(this::artistToDto)
-                .toList();
+        return artistsToDtos(repository.findByName(name));
     }
 
     
-    public List<ArtistDTO> searchByName(String namePart) {
-        if (namePart == null || namePart.isBlank()) {
-            return List.of();
+    // typo-tolerant name search, best matches first (artists with popular songs ahead among similar names);
+    // after is the previous page's nextCursor. Results stop after MAX_SEARCH_RESULTS
+    public ArtistPageDTO searchByName(String query, Integer limit, String after) {
+        if (query == null || query.isBlank()) {
+            return new ArtistPageDTO(List.of(), null);
         }
-        return repository.findByNameContainingIgnoreCase(namePart).stream()
-                .map(this::artistToDto)
-                .toList();
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        int offset = after == null || after.isBlank() ? 0 : decodeOffset(after);
+        int fetch = Math.min(pageSize + 1, MAX_SEARCH_RESULTS - offset);
+        if (fetch <= 0) {
+            return new ArtistPageDTO(List.of(), null);
+        }
+        List<Artist> artists = repository.search(query.trim(), POPULARITY_BOOST, fetch, offset);
+
+        boolean hasMore = artists.size() > pageSize;
+        List<ArtistDTO> page = artistsToDtos(artists.subList(0, Math.min(pageSize, artists.size())));
+        String nextCursor = hasMore ? encodeCursor(String.valueOf(offset + pageSize)) : null;
+        return new ArtistPageDTO(page, nextCursor);
     }
 
     
@@ -127,6 +176,65 @@ public class ArtistService {
         }
     }
 
+    // cursors are opaque to clients: the last artist ID of a page, base64url-encoded
+    private static String encodeCursor(String artistId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(artistId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("after", cursor);
+        }
+    }
+
+    // search cursors carry the offset of the next page
+    private static int decodeOffset(String cursor) {
+        try {
+            int offset = Integer.parseInt(decodeCursor(cursor));
+            if (offset < 0) {
+                throw new InvalidRequestException("after", cursor);
+            }
+            return offset;
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("after", cursor);
+        }
+    }
+
+    // the distinct non-blank IDs of a batch lookup, in the order given
+    private static List<String> batchIds(List<String> ids) {
+        if (ids == null) {
+            return List.of();
+        }
+        List<String> wanted = ids.stream()
+                .filter(id -> id != null && !id.isBlank())
+                .distinct()
+                .toList();
+        if (wanted.size() > MAX_BATCH_IDS) {
+            throw new InvalidRequestException("At most " + MAX_BATCH_IDS + " IDs can be looked up at once");
+        }
+        return wanted;
+    }
+
+    // DTOs for a list of artists; album IDs are read in one query per LinkedId.CHUNK_SIZE artists,
+    // where going through every artist's lazy albums would cost a query per artist
+    private List<ArtistDTO> artistsToDtos(List<Artist> artists) {
+        if (artists.isEmpty()) {
+            return List.of();
+        }
+        Map<String, List<String>> albumIds = LinkedId.groupInChunks(
+                artists.stream().map(Artist::getArtistId).toList(), repository::findAlbumIds);
+        return artists.stream()
+                .map(artist -> new ArtistDTO(
+                        artist.getArtistId(),
+                        artist.getName(),
+                        artist.getHref(),
+                        albumIds.getOrDefault(artist.getArtistId(), List.of())
+                ))
+                .toList();
+    }
+
     private ArtistDTO artistToDto(Artist artist) {
         List<String> albumIds = artist.getAlbums().stream()
                 .map(album -> album.getAlbumId())
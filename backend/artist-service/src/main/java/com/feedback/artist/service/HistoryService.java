@@ -0,0 +1,17 @@
+package com.feedback.artist.service;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+@FeignClient("history-service")
+public interface HistoryService {
+
+    // top items counted from our own history, used when Spotify can't be asked
+    @GetMapping("/api/history/top")
+    public List<Map<String, Object>> getTopItems(@RequestParam String listenerId, @RequestParam String type,
+            @RequestParam("time_range") String timeRange, @RequestParam int limit);
+}
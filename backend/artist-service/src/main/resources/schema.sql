@@ -0,0 +1,15 @@
+-- Runs after Hibernate has updated the schema (spring.jpa.defer-datasource-initialization).
+-- Every statement is idempotent, so it is safe on each startup. The catalog services share the database and
+-- create some of the same objects (pg_trgm, idx_album_artist), and two concurrent CREATE ... IF NOT EXISTS of
+-- one object can still fail, so each service holds the same advisory lock while its script runs.
+SELECT pg_advisory_lock(hashtext('catalog-schema'));
+
+-- trigram index for typo-tolerant name search (ArtistRepository.search)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_artist_name_trgm ON artist USING gin (name gin_trgm_ops);
+-- search sums the plays of each match's songs
+CREATE INDEX IF NOT EXISTS idx_artists_songs_artist ON artists_songs (artist_id);
+-- listing artists reads their album IDs by artist (ArtistRepository.findAlbumIds)
+CREATE INDEX IF NOT EXISTS idx_album_artist ON album (artist_id, album_id);
+
+SELECT pg_advisory_unlock(hashtext('catalog-schema'));
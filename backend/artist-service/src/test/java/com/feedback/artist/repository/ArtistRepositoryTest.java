@@ -0,0 +1,82 @@
+package com.feedback.artist.repository;
+
+import com.feedback.artist.dtos.ArtistDTO;
+import com.feedback.artist.model.Album;
+import com.feedback.artist.model.Artist;
+import com.feedback.artist.service.ArtistService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// counts the statements a large result costs against an embedded database; schema.sql is Postgres-only
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class ArtistRepositoryTest {
+
+    @Autowired
+    private ArtistRepository artistRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private ArtistService service;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        service = new ArtistService(artistRepository);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private void saveArtists(int count) {
+        for (int i = 0; i < count; i++) {
+            Artist artist = new Artist(String.format("AR%05d", i), "Same Name", null);
+            Album album = new Album(String.format("AL%05d", i), "Album", 2025, null);
+            album.setArtist(artist);
+            entityManager.persist(artist);
+            entityManager.persist(album);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    public void testThousandArtistsCostTwoStatements() {
+        saveArtists(LinkedId.CHUNK_SIZE);
+
+        List<ArtistDTO> artists = service.findByName("Same Name");
+
+        assertEquals(LinkedId.CHUNK_SIZE, artists.size());
+        assertEquals(List.of("AL00000"), artists.stream()
+                .filter(artist -> artist.artistId().equals("AR00000")).findFirst().orElseThrow().albumIds());
+        // the artists, then one query for their album IDs
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testOneArtistPastAChunkCostsOneMoreQuery() {
+        saveArtists(LinkedId.CHUNK_SIZE + 1);
+
+        List<ArtistDTO> artists = service.findByName("Same Name");
+
+        assertEquals(LinkedId.CHUNK_SIZE + 1, artists.size());
+        assertTrue(artists.stream().allMatch(artist -> artist.albumIds().size() == 1));
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+}
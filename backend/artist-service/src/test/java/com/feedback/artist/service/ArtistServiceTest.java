@@ -1,11 +1,13 @@
 package com.feedback.artist.service;
 
 import com.feedback.artist.dtos.ArtistDTO;
+import com.feedback.artist.dtos.ArtistPageDTO;
 import com.feedback.artist.exception.InvalidRequestException;
 import com.feedback.artist.exception.ResourceNotFoundException;
 import com.feedback.artist.model.Album;
 import com.feedback.artist.model.Artist;
 import com.feedback.artist.repository.ArtistRepository;
+import com.feedback.artist.repository.LinkedId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,10 +19,13 @@ import static org.mockito.Mockito.*;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
 @ExtendWith(MockitoExtension.class)
 public class ArtistServiceTest {
@@ -45,13 +50,49 @@ public class ArtistServiceTest {
     }
 
     @Test
-    public void testGetAllArtists() {
-        when(repository.findAll()).thenReturn(List.of(sampleArtist));
+    public void testGetAllArtistsPagesByCursor() {
+        Artist second = new Artist("A2", "Second Artist", "href2");
+        Artist third = new Artist("A3", "Third Artist", "href3");
+        when(repository.findAllByOrderByArtistIdAsc(Limit.of(3))).thenReturn(List.of(sampleArtist, second, third));
+        when(repository.findByArtistIdGreaterThanOrderByArtistIdAsc("A2", Limit.of(3))).thenReturn(List.of(third));
+
+        ArtistPageDTO first = service.getAllArtists(2, null);
+        ArtistPageDTO next = service.getAllArtists(2, first.nextCursor());
+
+        assertEquals(List.of("A1", "A2"), first.artists().stream().map(ArtistDTO::artistId).toList());
+        assertEquals(List.of("A3"), next.artists().stream().map(ArtistDTO::artistId).toList());
+        assertNull(next.nextCursor());
+    }
 
-        List<ArtistDTO> result = service.getAllArtists();
+    @Test
+    public void testGetAllArtistsDefaultsAndCapsPageSize() {
+        when(repository.findAllByOrderByArtistIdAsc(Limit.of(ArtistService.DEFAULT_LIMIT + 1))).thenReturn(List.of(sampleArtist));
+        when(repository.findAllByOrderByArtistIdAsc(Limit.of(ArtistService.MAX_LIMIT + 1))).thenReturn(List.of(sampleArtist));
 
-        assertEquals(1, result.size());
-        assertEquals("A1", result.get(0).artistId());
+        assertEquals(1, service.getAllArtists(null, null).artists().size());
+        assertEquals(1, service.getAllArtists(1_000_000, null).artists().size());
+    }
+
+    @Test
+    public void testGetAllArtistsReadsAlbumIdsOncePerPage() {
+        Artist second = new Artist("A2", "Second Artist", "href2");
+        when(repository.findAllByOrderByArtistIdAsc(Limit.of(3))).thenReturn(List.of(sampleArtist, second));
+        when(repository.findAlbumIds(List.of("A1", "A2")))
+                .thenReturn(List.of(new LinkedId("A2", "ALB2"), new LinkedId("A2", "ALB3")));
+
+        ArtistPageDTO result = service.getAllArtists(2, null);
+
+        assertEquals(List.of(), result.artists().get(0).albumIds());
+        assertEquals(List.of("ALB2", "ALB3"), result.artists().get(1).albumIds());
+        // two statements however many artists are on the page: the artists, then their albums
+        verify(repository).findAllByOrderByArtistIdAsc(Limit.of(3));
+        verify(repository).findAlbumIds(List.of("A1", "A2"));
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    public void testGetAllArtistsInvalidCursorThrows() {
+        assertThrows(InvalidRequestException.class, () -> service.getAllArtists(10, "not a cursor!"));
     }
 
     @Test
@@ -79,6 +120,35 @@ public class ArtistServiceTest {
         assertThrows(InvalidRequestException.class, () -> service.getById(null));
     }
 
+    @Test
+    public void testGetByIdsKeepsRequestedOrder() {
+        Artist other = new Artist("A2", "Second Artist", "href2");
+        when(repository.findAllById(List.of("A2", "UNKNOWN", "A1"))).thenReturn(List.of(sampleArtist, other));
+
+        List<ArtistDTO> result = service.getByIds(List.of("A2", "UNKNOWN", "A1"));
+
+        assertEquals(List.of("A2", "A1"), result.stream().map(ArtistDTO::artistId).toList());
+        assertEquals(List.of(), service.getByIds(List.of()));
+    }
+
+    @Test
+    public void testGetByIdsQueriesEachIdOnce() {
+        when(repository.findAllById(List.of("A1"))).thenReturn(List.of(sampleArtist));
+
+        List<ArtistDTO> result = service.getByIds(Arrays.asList("A1", "A1", null, " "));
+
+        assertEquals(1, result.size());
+    }
+
+    @Test
+    public void testGetByIdsTooManyThrows() {
+        List<String> ids = IntStream.rangeClosed(0, ArtistService.MAX_BATCH_IDS)
+                .mapToObj(i -> "A" + i)
+                .toList();
+
+        assertThrows(InvalidRequestException.class, () -> service.getByIds(ids));
+    }
+
     @Test
     public void testFindByNameSuccess() {
         when(repository.findByName("Test Artist")).thenReturn(List.of(sampleArtist));
@@ -97,17 +167,36 @@ public class ArtistServiceTest {
 
     @Test
     public void testSearchByNameSuccess() {
-        when(repository.findByNameContainingIgnoreCase("test")).thenReturn(List.of(sampleArtist));
+        when(repository.search("test", ArtistService.POPULARITY_BOOST, ArtistService.DEFAULT_LIMIT + 1, 0)).thenReturn(List.of(sampleArtist));
 
-        List<ArtistDTO> result = service.searchByName("test");
+        ArtistPageDTO result = service.searchByName(" test ", null, null);
 
-        assertEquals(1, result.size());
+        assertEquals(1, result.artists().size());
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    public void testSearchByNamePagesByOffset() {
+        when(repository.search("test", ArtistService.POPULARITY_BOOST, 2, 0)).thenReturn(List.of(sampleArtist, sampleArtist));
+        when(repository.search("test", ArtistService.POPULARITY_BOOST, 2, 1)).thenReturn(List.of(sampleArtist));
+
+        ArtistPageDTO first = service.searchByName("test", 1, null);
+        ArtistPageDTO next = service.searchByName("test", 1, first.nextCursor());
+
+        assertEquals(1, first.artists().size());
+        assertNotNull(first.nextCursor());
+        assertNull(next.nextCursor());
     }
 
     @Test
     public void testSearchByNameBlankReturnsEmpty() {
-        assertTrue(service.searchByName("").isEmpty());
-        assertTrue(service.searchByName(null).isEmpty());
+        assertTrue(service.searchByName("", null, null).artists().isEmpty());
+        assertTrue(service.searchByName(null, null, null).artists().isEmpty());
+    }
+
+    @Test
+    public void testSearchByNameInvalidCursorThrows() {
+        assertThrows(InvalidRequestException.class, () -> service.searchByName("test", 10, "bm90LWEtbnVtYmVy"));
     }
 
     @Test
@@ -0,0 +1,90 @@
+package com.feedback.history.columnar;
+
+import java.time.LocalDate;
+
+/**
+ * Per-listener Fenwick (binary indexed) trees over daily play counts and listening time.
+ * Adding a play and summing any day range are both O(log n) in the number of days covered,
+ * so "March 3 to June 17" costs the same as "yesterday".
+ *
+ * The trees cover a window of days starting at {@code baseDay}. A play outside the window
+ * grows it (to a power of two, so regrowth is rare); days outside the window count as zero.
+ */
+public final class DailyRangeIndex {
+
+    private static final int INITIAL_DAYS = 64;
+
+    private long baseDay;
+    private int capacity;
+    // 1-based Fenwick arrays; index i covers day baseDay + i - 1
+    private long[] plays;
+    private long[] listeningMs;
+
+    public DailyRangeIndex(LocalDate firstDay) {
+        this.baseDay = firstDay.toEpochDay();
+        this.capacity = INITIAL_DAYS;
+        this.plays = new long[capacity + 1];
+        this.listeningMs = new long[capacity + 1];
+    }
+
+    public synchronized void add(LocalDate day, long playCount, long durationMs) {
+        long epochDay = day.toEpochDay();
+        if (epochDay < baseDay || epochDay >= baseDay + capacity) {
+            grow(epochDay);
+        }
+        for (int i = (int) (epochDay - baseDay) + 1; i <= capacity; i += i & -i) {
+            plays[i] += playCount;
+            listeningMs[i] += durationMs;
+        }
+    }
+
+    // {plays, listeningMs} over [from, to], both inclusive
+    public synchronized long[] sum(LocalDate from, LocalDate to) {
+        long first = Math.max(from.toEpochDay(), baseDay);
+        long last = Math.min(to.toEpochDay(), baseDay + capacity - 1);
+        if (first > last) {
+            return new long[] {0, 0};
+        }
+        int hi = (int) (last - baseDay) + 1;
+        int lo = (int) (first - baseDay);
+        return new long[] {prefix(plays, hi) - prefix(plays, lo), prefix(listeningMs, hi) - prefix(listeningMs, lo)};
+    }
+
+    private static long prefix(long[] tree, int index) {
+        long sum = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // re-lays the trees over a window that also covers epochDay
+    private void grow(long epochDay) {
+        long newBase = Math.min(baseDay, epochDay);
+        long newEnd = Math.max(baseDay + capacity, epochDay + 1);
+        int newCapacity = capacity;
+        while (newCapacity < newEnd - newBase) {
+            newCapacity *= 2;
+        }
+        int shift = (int) (baseDay - newBase);
+        long[] newPlays = new long[newCapacity + 1];
+        long[] newListeningMs = new long[newCapacity + 1];
+        // point values out of the old trees, into their new slots
+        for (int i = 1; i <= capacity; i++) {
+            newPlays[i + shift] = prefix(plays, i) - prefix(plays, i - 1);
+            newListeningMs[i + shift] = prefix(listeningMs, i) - prefix(listeningMs, i - 1);
+        }
+        // linear-time Fenwick build: push each node into its parent
+        for (int i = 1; i <= newCapacity; i++) {
+            int parent = i + (i & -i);
+            if (parent <= newCapacity) {
+                newPlays[parent] += newPlays[i];
+                newListeningMs[parent] += newListeningMs[i];
+            }
+        }
+        baseDay = newBase;
+        capacity = newCapacity;
+        plays = newPlays;
+        listeningMs = newListeningMs;
+    }
+}
@@ -0,0 +1,324 @@
+package com.feedback.history.columnar;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One listener's plays as two parallel primitive columns in memory-mapped files:
+ * played-at as epoch seconds ({@code long}) and the dictionary-encoded song ({@code int}).
+ * The data lives in the page cache rather than on the heap, and every query is a tight
+ * loop over the columns that allocates nothing; callers pass in their own output arrays.
+ *
+ * Timestamps are wall-clock seconds (the {@code LocalDateTime} read as UTC), so day and hour
+ * buckets fall out of plain division. Plays normally arrive in time order, which lets range
+ * queries binary search; if an older play is appended the columns fall back to a full scan.
+ *
+ * {@link #release()} closes the files and unmaps them, keeping only the row count on the heap; the next
+ * read or append maps them again. That lets a caller keep columns for every listener while holding file
+ * handles and mappings for only the ones in use.
+ */
+public final class PlayColumns implements Closeable {
+
+    public static final long SECONDS_PER_HOUR = 3600;
+    public static final long SECONDS_PER_DAY = 86400;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Path timeFile;
+    private final Path songFile;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // null while released; all mapped in one arena, so closing it unmaps them together
+    private Arena arena;
+    private MemorySegment times;
+    private MemorySegment songs;
+    private int capacity = INITIAL_CAPACITY;
+    private int size;
+    private boolean sorted = true;
+
+    private PlayColumns(Path timeFile, Path songFile) {
+        this.timeFile = timeFile;
+        this.songFile = songFile;
+    }
+
+    // files are scratch space: they are truncated on open and rebuilt from Postgres
+    public static PlayColumns open(Path directory, String baseName) throws IOException {
+        PlayColumns columns = new PlayColumns(directory.resolve(baseName + ".ts"), directory.resolve(baseName + ".song"));
+        columns.lock.writeLock().lock();
+        try {
+            columns.map(INITIAL_CAPACITY, true);
+        } finally {
+            columns.lock.writeLock().unlock();
+        }
+        return columns;
+    }
+
+    public void append(long epochSecond, int songId) {
+        lock.writeLock().lock();
+        try {
+            if (times == null || size == capacity) {
+                map(size == capacity ? capacity * 2 : capacity, false);
+            }
+            if (size > 0 && epochSecond < time(size - 1)) {
+                sorted = false;
+            }
+            times.setAtIndex(ValueLayout.JAVA_LONG, size, epochSecond);
+            songs.setAtIndex(ValueLayout.JAVA_INT, size, songId);
+            size++;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not grow play columns", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isMapped() {
+        lock.readLock().lock();
+        try {
+            return times != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // closes the files and unmaps them; the rows stay on disk and are mapped again when next used
+    public void release() {
+        lock.writeLock().lock();
+        try {
+            if (arena != null) {
+                arena.close();
+                arena = null;
+                times = null;
+                songs = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // unmaps the columns and deletes their files, leaving them empty
+    public void delete() throws IOException {
+        lock.writeLock().lock();
+        try {
+            release();
+            size = 0;
+            sorted = true;
+            Files.deleteIfExists(timeFile);
+            Files.deleteIfExists(songFile);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // plays with fromSecond <= playedAt < toSecond
+    public int count(long fromSecond, long toSecond) {
+        lockMapped();
+        try {
+            if (sorted) {
+                return lowerBound(toSecond) - lowerBound(fromSecond);
+            }
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                long t = time(i);
+                if (t >= fromSecond && t < toSecond) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the plays in [fromSecond, toSecond) to {@code countsBySong} (indexed by song code)
+     * and returns how many plays were counted. Songs coded after the array was sized are skipped.
+     */
+    public int countBySong(long fromSecond, long toSecond, int[] countsBySong) {
+        lockMapped();
+        try {
+            int start = sorted ? lowerBound(fromSecond) : 0;
+            int end = sorted ? lowerBound(toSecond) : size;
+            int total = 0;
+            for (int i = start; i < end; i++) {
+                if (!sorted) {
+                    long t = time(i);
+                    if (t < fromSecond || t >= toSecond) {
+                        continue;
+                    }
+                }
+                int code = songs.getAtIndex(ValueLayout.JAVA_INT, i);
+                if (code < countsBySong.length) {
+                    countsBySong[code]++;
+                    total++;
+                }
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the plays in [fromSecond, toSecond) to fixed-width buckets: play {@code t} lands in
+     * {@code buckets[((t - originSecond) / bucketSeconds) % buckets.length]}. With an origin of 0,
+     * an hour width and 24 buckets this is the hour-of-day histogram; with day-wide buckets
+     * starting at {@code fromSecond} it is plays per day.
+     */
+    public void histogram(long fromSecond, long toSecond, long originSecond, long bucketSeconds, int[] buckets) {
+        lockMapped();
+        try {
+            if (!sorted) {
+                for (int i = 0; i < size; i++) {
+                    long t = time(i);
+                    if (t >= fromSecond && t < toSecond) {
+                        buckets[bucketIndex(t, originSecond, bucketSeconds, buckets.length)]++;
+                    }
+                }
+                return;
+            }
+            // in time order the bucket only changes at its end: divide once per bucket rather than
+            // once per play, and count the run in a local instead of re-incrementing the same slot
+            int end = lowerBound(toSecond);
+            long bucketEnd = Long.MIN_VALUE;
+            int index = 0;
+            int run = 0;
+            for (int i = lowerBound(fromSecond); i < end; i++) {
+                long t = time(i);
+                if (t >= bucketEnd) {
+                    buckets[index] += run;
+                    run = 0;
+                    long bucket = Math.floorDiv(t - originSecond, bucketSeconds);
+                    bucketEnd = originSecond + (bucket + 1) * bucketSeconds;
+                    index = (int) Math.floorMod(bucket, (long) buckets.length);
+                }
+                run++;
+            }
+            buckets[index] += run;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Picks the {@code topCodes.length} highest non-zero counts, highest first, into
+     * {@code topCodes}/{@code topCounts} and returns how many were filled. Insertion into the
+     * small output arrays, so nothing is allocated.
+     */
+    public static int topN(int[] countsBySong, int songCount, int[] topCodes, int[] topCounts) {
+        int filled = 0;
+        for (int code = 0; code < songCount; code++) {
+            int count = countsBySong[code];
+            if (count == 0 || (filled == topCodes.length && count <= topCounts[filled - 1])) {
+                continue;
+            }
+            int i = filled < topCodes.length ? filled++ : filled - 1;
+            while (i > 0 && topCounts[i - 1] < count) {
+                topCodes[i] = topCodes[i - 1];
+                topCounts[i] = topCounts[i - 1];
+                i--;
+            }
+            topCodes[i] = code;
+            topCounts[i] = count;
+        }
+        return filled;
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+
+    private static int bucketIndex(long second, long originSecond, long bucketSeconds, int bucketCount) {
+        return (int) Math.floorMod(Math.floorDiv(second - originSecond, bucketSeconds), (long) bucketCount);
+    }
+
+    // first index whose time is >= second (columns must be sorted)
+    private int lowerBound(long second) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (time(mid) < second) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // takes the read lock with the columns mapped, mapping them first if they were released
+    private void lockMapped() {
+        while (true) {
+            lock.readLock().lock();
+            if (times != null) {
+                return;
+            }
+            lock.readLock().unlock();
+            lock.writeLock().lock();
+            try {
+                if (times == null) {
+                    map(capacity, false);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not map play columns", e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private long time(int index) {
+        return times.getAtIndex(ValueLayout.JAVA_LONG, index);
+    }
+
+    // called holding the write lock. Mapping past the end of a file grows it; the mappings live on after
+    // the channels close, until the arena is closed
+    private void map(int newCapacity, boolean truncate) throws IOException {
+        Arena mapped = Arena.ofShared();
+        MemorySegment newTimes;
+        MemorySegment newSongs;
+        try (FileChannel timeChannel = openChannel(timeFile, truncate);
+                FileChannel songChannel = openChannel(songFile, truncate)) {
+            newTimes = timeChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) newCapacity * Long.BYTES, mapped);
+            newSongs = songChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) newCapacity * Integer.BYTES, mapped);
+        } catch (IOException | RuntimeException e) {
+            // the old mapping, if any, is left as it was
+            mapped.close();
+            throw e;
+        }
+        if (arena != null) {
+            arena.close();
+        }
+        arena = mapped;
+        times = newTimes;
+        songs = newSongs;
+        capacity = newCapacity;
+    }
+
+    private static FileChannel openChannel(Path file, boolean truncate) throws IOException {
+        return truncate
+                ? FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)
+                : FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+}
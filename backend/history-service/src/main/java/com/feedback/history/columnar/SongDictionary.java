@@ -0,0 +1,39 @@
+package com.feedback.history.columnar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps song IDs to dense int codes so the play columns store 4 bytes per play instead of a
+ * Spotify ID string. Codes are handed out in first-seen order and never reused.
+ */
+public final class SongDictionary {
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> songIds = new ArrayList<>();
+
+    public synchronized int encode(String songId) {
+        Integer code = codes.get(songId);
+        if (code == null) {
+            code = songIds.size();
+            codes.put(songId, code);
+            songIds.add(songId);
+        }
+        return code;
+    }
+
+    // the song's code, or null if it has never been encoded
+    public synchronized Integer find(String songId) {
+        return codes.get(songId);
+    }
+
+    public synchronized String decode(int code) {
+        return songIds.get(code);
+    }
+
+    public synchronized int size() {
+        return songIds.size();
+    }
+}
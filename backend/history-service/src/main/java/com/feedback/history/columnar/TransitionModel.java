@@ -0,0 +1,196 @@
+package com.feedback.history.columnar;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Sparse counts of "song A was followed by song B", over song codes from a {@link SongDictionary}.
+ * Globally it is one {@link IntIntHashMap} row per from-song (indexed by its dense code) plus the
+ * row's total; per listener it is one {@link LongIntHashMap} keyed by the packed (from, to) pair,
+ * which a listener's few thousand transitions keep small enough to scan. Not thread-safe.
+ */
+public final class TransitionModel {
+
+    // share of a suggestion's score that comes from the listener's own transitions, when they have any
+    static final double PERSONAL_WEIGHT = 0.7;
+
+    private IntIntHashMap[] rows = new IntIntHashMap[1024];
+    private int[] rowTotals = new int[1024];
+    private final Map<String, LongIntHashMap> byListener = new HashMap<>();
+    private long distinctTransitions;
+
+    public void record(String listenerId, int from, int to) {
+        ensureRow(from);
+        if (rows[from] == null) {
+            rows[from] = new IntIntHashMap();
+        }
+        if (rows[from].increment(to, 1) == 1) {
+            distinctTransitions++;
+        }
+        rowTotals[from]++;
+        if (listenerId != null) {
+            byListener.computeIfAbsent(listenerId, id -> new LongIntHashMap()).increment(pair(from, to), 1);
+        }
+    }
+
+    /**
+     * The songs most often played right after {@code from}, best first. Each is scored by how likely
+     * it is to follow globally, blended with the listener's own likelihood when they have played
+     * {@code from} followed by anything.
+     */
+    public List<Suggestion> next(int from, String listenerId, int limit) {
+        IntIntHashMap row = from >= 0 && from < rows.length ? rows[from] : null;
+        if (row == null) {
+            return List.of();
+        }
+        int globalTotal = rowTotals[from];
+
+        IntIntHashMap personal = new IntIntHashMap();
+        LongIntHashMap listener = listenerId != null ? byListener.get(listenerId) : null;
+        if (listener != null) {
+            listener.forEach((key, count) -> {
+                if ((int) (key >>> 32) == from) {
+                    personal.increment((int) key, count);
+                }
+            });
+        }
+        int[] personalTotal = {0};
+        personal.forEach((to, count) -> personalTotal[0] += count);
+
+        PriorityQueue<Suggestion> best = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(Suggestion::score)
+                .thenComparing(Suggestion::songCode, Comparator.reverseOrder()));
+        // the listener's transitions are in the global row too, so scoring the row covers them
+        row.forEach((to, global) -> {
+            int own = personal.get(to);
+            double globalShare = (double) global / globalTotal;
+            double score = personalTotal[0] > 0
+                    ? PERSONAL_WEIGHT * own / personalTotal[0] + (1 - PERSONAL_WEIGHT) * globalShare
+                    : globalShare;
+            // popular songs have tens of thousands of successors; only allocate for ones that make the cut
+            if (best.size() == limit && score <= best.peek().score()) {
+                return;
+            }
+            best.offer(new Suggestion(to, global, own, score));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        });
+
+        List<Suggestion> suggestions = new ArrayList<>(best);
+        suggestions.sort(Comparator.comparingDouble(Suggestion::score).reversed().thenComparingInt(Suggestion::songCode));
+        return suggestions;
+    }
+
+    // drops the listener's own transitions; their plays stay in the global rows, which count no one by name
+    public void removeListener(String listenerId) {
+        byListener.remove(listenerId);
+    }
+
+    public long distinctTransitions() {
+        return distinctTransitions;
+    }
+
+    public int listenerCount() {
+        return byListener.size();
+    }
+
+    // global rows, then each listener's pairs; counts only, the row totals are summed again on read
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(rows.length);
+        for (int from = 0; from < rows.length; from++) {
+            IntIntHashMap row = rows[from];
+            if (row == null || row.size() == 0) {
+                continue;
+            }
+            out.writeInt(from);
+            out.writeInt(row.size());
+            IOException[] failure = {null};
+            row.forEach((to, count) -> {
+                try {
+                    out.writeInt(to);
+                    out.writeInt(count);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            rethrow(failure[0]);
+        }
+        out.writeInt(-1);
+
+        out.writeInt(byListener.size());
+        for (Map.Entry<String, LongIntHashMap> entry : byListener.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue().size());
+            IOException[] failure = {null};
+            entry.getValue().forEach((pair, count) -> {
+                try {
+                    out.writeLong(pair);
+                    out.writeInt(count);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            rethrow(failure[0]);
+        }
+    }
+
+    public static TransitionModel readFrom(DataInput in) throws IOException {
+        TransitionModel model = new TransitionModel();
+        // presize to the writer's row count
+        model.ensureRow(in.readInt() - 1);
+        for (int from = in.readInt(); from >= 0; from = in.readInt()) {
+            int entries = in.readInt();
+            model.ensureRow(from);
+            IntIntHashMap row = new IntIntHashMap(entries);
+            for (int i = 0; i < entries; i++) {
+                int to = in.readInt();
+                int count = in.readInt();
+                row.increment(to, count);
+                model.rowTotals[from] += count;
+            }
+            model.rows[from] = row;
+            model.distinctTransitions += entries;
+        }
+
+        int listeners = in.readInt();
+        for (int l = 0; l < listeners; l++) {
+            String listenerId = in.readUTF();
+            int entries = in.readInt();
+            LongIntHashMap pairs = new LongIntHashMap(entries);
+            for (int i = 0; i < entries; i++) {
+                pairs.increment(in.readLong(), in.readInt());
+            }
+            model.byListener.put(listenerId, pairs);
+        }
+        return model;
+    }
+
+    private void ensureRow(int from) {
+        if (from >= rows.length) {
+            int capacity = Math.max(rows.length * 2, Integer.highestOneBit(from) << 1);
+            rows = Arrays.copyOf(rows, capacity);
+            rowTotals = Arrays.copyOf(rowTotals, capacity);
+        }
+    }
+
+    private static long pair(int from, int to) {
+        return (long) from << 32 | to;
+    }
+
+    private static void rethrow(IOException failure) throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // score is between 0 and 1; globalCount and listenerCount are the raw transition counts
+    public record Suggestion(int songCode, int globalCount, int listenerCount, double score) {}
+}
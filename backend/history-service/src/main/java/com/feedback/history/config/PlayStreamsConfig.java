@@ -0,0 +1,54 @@
+package com.feedback.history.config;
+
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.kstream.KStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.EnableKafkaStreams;
+import org.springframework.kafka.annotation.KafkaStreamsDefaultConfiguration;
+import org.springframework.kafka.config.KafkaStreamsConfiguration;
+
+import com.feedback.history.streams.PlayAggregator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@EnableKafkaStreams
+public class PlayStreamsConfig {
+
+    @Value("${spring.kafka.bootstrap-servers:kafka:9092}")
+    private String bootstrapServers;
+
+    @Value("${history.plays.topic:play-events}")
+    private String playsTopic;
+
+    @Value("${history.plays.application-id:history-service-play-aggregator-v2}")
+    private String applicationId;
+
+    @Value("${history.plays.state-dir:/tmp/kafka-streams}")
+    private String stateDir;
+
+    @Bean(name = KafkaStreamsDefaultConfiguration.DEFAULT_STREAMS_CONFIG_BEAN_NAME)
+    public KafkaStreamsConfiguration kafkaStreamsConfiguration() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, applicationId);
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir);
+        props.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.StringSerde.class);
+        props.put(StreamsConfig.DEFAULT_VALUE_SERDE_CLASS_CONFIG, Serdes.StringSerde.class);
+        // store updates, changelog writes and consumed offsets commit atomically, so a crash never double counts
+        props.put(StreamsConfig.PROCESSING_GUARANTEE_CONFIG, StreamsConfig.EXACTLY_ONCE_V2);
+        // keep a warm copy of each store on another instance so failover doesn't wait on a full changelog replay
+        props.put(StreamsConfig.NUM_STANDBY_REPLICAS_CONFIG, 1);
+        return new KafkaStreamsConfiguration(props);
+    }
+
+    @Bean
+    public KStream<String, String> playStream(StreamsBuilder streamsBuilder) {
+        return PlayAggregator.addTo(streamsBuilder, playsTopic);
+    }
+}
@@ -1,12 +1,18 @@
 package com.feedback.history.controller;
 
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -18,10 +24,42 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.feedback.history.dtos.ChartDTO;
+import com.feedback.history.dtos.DiscoveryDTO;
+import com.feedback.history.dtos.HeatmapDTO;
 import com.feedback.history.dtos.HistoryDTO;
+import com.feedback.history.dtos.JobStatusDTO;
+import com.feedback.history.dtos.NextSongDTO;
+import com.feedback.history.dtos.PlayAnalyticsDTO;
+import com.feedback.history.dtos.PlayStatsDTO;
+import com.feedback.history.dtos.SessionDTO;
+import com.feedback.history.dtos.SessionPageDTO;
+import com.feedback.history.dtos.SimilarityDTO;
+import com.feedback.history.dtos.TopItemDTO;
+import com.feedback.history.dtos.TrendingDTO;
+import com.feedback.history.dtos.UniquesDTO;
+import com.feedback.history.dtos.WindowTotalDTO;
+import com.feedback.history.dtos.YearInReviewDTO;
+import com.feedback.history.service.ChartService;
+import com.feedback.history.service.DiscoveryService;
+import com.feedback.history.service.HeatmapService;
+import com.feedback.history.service.HistoryExportService;
 import com.feedback.history.service.HistoryService;
+import com.feedback.history.service.ListenerPurgeService;
+import com.feedback.history.service.ListeningTotalsService;
+import com.feedback.history.service.PlayAnalyticsService;
+import com.feedback.history.service.PlayStatsService;
+import com.feedback.history.service.SessionService;
 import com.feedback.history.service.SpotifyApiService;
+import com.feedback.history.service.TasteSimilarityService;
+import com.feedback.history.service.TopItemsService;
+import com.feedback.history.service.TransitionService;
+import com.feedback.history.service.TrendingService;
+import com.feedback.history.service.UniqueMetricsService;
+import com.feedback.history.service.YearInReviewJob;
+import com.feedback.history.service.YearInReviewService;
 
 @RestController
 @RequestMapping("/api/history")
@@ -29,10 +67,48 @@ public class HistoryController {
 
 	private final HistoryService historyService;
 	private final SpotifyApiService spotifyApiService;
+	private final HistoryExportService historyExportService;
+	private final TopItemsService topItemsService;
+	private final PlayStatsService playStatsService;
+	private final PlayAnalyticsService playAnalyticsService;
+	private final UniqueMetricsService uniqueMetricsService;
+	private final SessionService sessionService;
+	private final YearInReviewService yearInReviewService;
+	private final YearInReviewJob yearInReviewJob;
+	private final HeatmapService heatmapService;
+	private final ListeningTotalsService listeningTotalsService;
+	private final DiscoveryService discoveryService;
+	private final TasteSimilarityService tasteSimilarityService;
+	private final TransitionService transitionService;
+	private final ChartService chartService;
+	private final TrendingService trendingService;
+	private final ListenerPurgeService listenerPurgeService;
 
-	public HistoryController(HistoryService historyService, SpotifyApiService spotifyApiService) {
+	public HistoryController(HistoryService historyService, SpotifyApiService spotifyApiService, HistoryExportService historyExportService,
+			TopItemsService topItemsService, PlayStatsService playStatsService, PlayAnalyticsService playAnalyticsService,
+			UniqueMetricsService uniqueMetricsService, SessionService sessionService, YearInReviewService yearInReviewService,
+			YearInReviewJob yearInReviewJob, HeatmapService heatmapService, ListeningTotalsService listeningTotalsService,
+			DiscoveryService discoveryService, TasteSimilarityService tasteSimilarityService,
+			TransitionService transitionService, ChartService chartService,
+			TrendingService trendingService, ListenerPurgeService listenerPurgeService) {
 		this.historyService = historyService;
 		this.spotifyApiService = spotifyApiService;
+		this.historyExportService = historyExportService;
+		this.topItemsService = topItemsService;
+		this.playStatsService = playStatsService;
+		this.playAnalyticsService = playAnalyticsService;
+		this.uniqueMetricsService = uniqueMetricsService;
+		this.sessionService = sessionService;
+		this.yearInReviewService = yearInReviewService;
+		this.yearInReviewJob = yearInReviewJob;
+		this.heatmapService = heatmapService;
+		this.listeningTotalsService = listeningTotalsService;
+		this.discoveryService = discoveryService;
+		this.tasteSimilarityService = tasteSimilarityService;
+		this.transitionService = transitionService;
+		this.chartService = chartService;
+		this.trendingService = trendingService;
+		this.listenerPurgeService = listenerPurgeService;
 	}
 
 	// Get listening history for a user with optional filters (uses Spotify API if token provided)
@@ -146,27 +222,18 @@ public class HistoryController {
 			System.out.println("No Spotify token provided for history request");
 		}
 		
-		// Fallback to database
-		List<HistoryDTO> dbHistory;
-		if (listenerId != null && !listenerId.isBlank()) {
-			dbHistory = historyService.findByListenerId(listenerId);
-		} else {
-			dbHistory = historyService.getAllHistory();
-		}
-		
-		if (historyLimit > 0) {
-			dbHistory = dbHistory.stream().limit(historyLimit).toList();
-		}
-		
-		// Convert to map format
-		List<Map<String, Object>> historyMaps = dbHistory.stream()
-			.map(dto -> {
+		// Fallback to database: one labeled query instead of placeholders or a song-service call per row
+		List<Map<String, Object>> historyMaps = historyService.getHistoryViews(listenerId, historyLimit).stream()
+			.map(view -> {
 				Map<String, Object> map = new HashMap<>();
-				map.put("id", dto.historyId());
-				map.put("songName", dto.songId()); // Song ID as placeholder
-				map.put("artistName", "Unknown Artist");
-				if (dto.playedAt() != null) {
-					map.put("playedAt", dto.playedAt().toString());
+				map.put("id", view.historyId());
+				map.put("songId", view.songId());
+				map.put("songName", view.songName() != null ? view.songName() : view.songId());
+				map.put("artistName", view.artistName() != null ? view.artistName() : "Unknown Artist");
+				map.put("albumName", view.albumName());
+				map.put("href", view.href());
+				if (view.playedAt() != null) {
+					map.put("playedAt", view.playedAt().toString());
 				}
 				return map;
 			})
@@ -181,6 +248,50 @@ public class HistoryController {
 		return ResponseEntity.ok(historyService.getRecentHistoryByListener(listenerId, limit));
 	}
 
+	// Export a listener's full history as NDJSON or CSV, streamed from a DB cursor (gzip if the client accepts it)
+	@GetMapping("/export")
+	public ResponseEntity<StreamingResponseBody> exportHistory(
+			@RequestParam String listenerId,
+			@RequestParam(defaultValue = "ndjson") String format,
+			@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+		// validate up front so bad requests still get a normal error body
+		historyExportService.validateListenerId(listenerId);
+		HistoryExportService.Format exportFormat = historyExportService.parseFormat(format);
+		boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+		StreamingResponseBody body = out -> {
+			if (gzip) {
+				GZIPOutputStream gzipOut = new GZIPOutputStream(out, 16 * 1024);
+				historyExportService.export(listenerId, exportFormat, gzipOut);
+				gzipOut.finish();
+			} else {
+				historyExportService.export(listenerId, exportFormat, out);
+			}
+		};
+
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+			.contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+			.header(HttpHeaders.CONTENT_DISPOSITION,
+				"attachment; filename=\"history-" + listenerId.replaceAll("[^A-Za-z0-9_-]", "_") + "." + exportFormat.getExtension() + "\"")
+			.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		if (gzip) {
+			response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+		}
+		return response.body(body);
+	}
+
+	// Top songs/artists/albums from our own play counters (time_range mirrors Spotify, or pass from/to dates)
+	@GetMapping("/top")
+	public ResponseEntity<List<TopItemDTO>> getTopItems(
+			@RequestParam String listenerId,
+			@RequestParam(defaultValue = "songs") String type,
+			@RequestParam(required = false, defaultValue = "medium_term") String time_range,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+			@RequestParam(required = false) Integer limit) {
+		return ResponseEntity.ok(topItemsService.getTopItems(listenerId, type, time_range, from, to, limit));
+	}
+
 	// Add a listening history record
 	@PostMapping
 	public ResponseEntity<HistoryDTO> addHistoryRecord(@RequestBody HistoryDTO historyDTO) {
@@ -195,19 +306,164 @@ public class HistoryController {
 		return ResponseEntity.noContent().build();
 	}
 
-	// Get listening statistics for a user
+	// Account deletion (called by listener-service once the plays are gone): deletes up to limit rows derived
+	// from the listener's plays and returns how many; fewer than limit means none are left
+	@DeleteMapping("/listeners/{listenerId}/data")
+	public ResponseEntity<Integer> purgeListenerData(@PathVariable String listenerId,
+			@RequestParam(defaultValue = "1000") int limit) {
+		return ResponseEntity.ok(listenerPurgeService.purge(listenerId, limit));
+	}
+
+	// Get listening statistics for a user (served from the play aggregator, not Postgres)
 	@GetMapping("/stats")
 	public ResponseEntity<Map<String, Object>> getHistoryStats(@RequestParam String listenerId) {
-		List<HistoryDTO> history = historyService.findByListenerId(listenerId);
-		Map<String, Object> stats = Map.of(
-			"totalSongsPlayed", history.size(),
-			"totalListeningTime", "0 hours",
-			"topGenre", "N/A",
-			"currentStreak", 0
-		);
+		PlayStatsDTO playStats = playStatsService.getStats(listenerId);
+		long totalHours = playStats.totalListeningMs() / 3_600_000;
+		Map<String, Object> stats = new HashMap<>();
+		stats.put("totalSongsPlayed", playStats.totalPlays());
+		stats.put("totalListeningTime", totalHours + " hours");
+		stats.put("totalListeningTimeMs", playStats.totalListeningMs());
+		stats.put("topGenre", "N/A");
+		stats.put("currentStreak", playStats.currentStreak());
+		stats.put("firstPlayedAt", playStats.firstPlayedAt());
+		stats.put("lastPlayedAt", playStats.lastPlayedAt());
 		return ResponseEntity.ok(stats);
 	}
 
+	// Plays per day for a user between two dates (inclusive)
+	@GetMapping("/stats/daily")
+	public ResponseEntity<Map<LocalDate, Long>> getDailyPlayCounts(
+			@RequestParam String listenerId,
+			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+		return ResponseEntity.ok(playStatsService.getDailyCounts(listenerId, from, to));
+	}
+
+	// All-time most played songs for a user
+	@GetMapping("/stats/songs")
+	public ResponseEntity<List<TopItemDTO>> getSongPlayCounts(@RequestParam String listenerId, @RequestParam(defaultValue = "10") int limit) {
+		return ResponseEntity.ok(playStatsService.getTopSongs(listenerId, limit));
+	}
+
+	// Play count, top songs and hour/weekday histograms for a user, from the in-memory play columns
+	@GetMapping("/analytics")
+	public ResponseEntity<PlayAnalyticsDTO> getPlayAnalytics(
+			@RequestParam String listenerId,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+			@RequestParam(required = false) Integer limit) {
+		return ResponseEntity.ok(playAnalyticsService.getAnalytics(listenerId, from, to, limit));
+	}
+
+	// Approximate distinct listeners and songs across all users between two dates (defaults to today)
+	@GetMapping("/metrics/uniques")
+	public ResponseEntity<UniquesDTO> getUniques(
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+		return ResponseEntity.ok(uniqueMetricsService.getUniques(from, to));
+	}
+
+	// A listener's listening sessions, newest first; pass the returned nextBefore as before for the next page
+	@GetMapping("/sessions")
+	public ResponseEntity<SessionPageDTO> getSessions(
+			@RequestParam String listenerId,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+			@RequestParam(required = false) Integer limit) {
+		return ResponseEntity.ok(sessionService.getSessions(listenerId, before, limit));
+	}
+
+	@GetMapping("/sessions/{sessionId}")
+	public ResponseEntity<SessionDTO> getSession(@PathVariable Long sessionId) {
+		return ResponseEntity.ok(sessionService.getSession(sessionId));
+	}
+
+	// The plays that make up a session, oldest first
+	@GetMapping("/sessions/{sessionId}/plays")
+	public ResponseEntity<List<HistoryDTO>> getSessionPlays(@PathVariable Long sessionId) {
+		return ResponseEntity.ok(sessionService.getSessionPlays(sessionId));
+	}
+
+	// Precomputed year in review for a listener (defaults to last year)
+	@GetMapping("/wrapped/{listenerId}")
+	public ResponseEntity<YearInReviewDTO> getYearInReview(@PathVariable String listenerId, @RequestParam(required = false) Integer year) {
+		return ResponseEntity.ok(yearInReviewService.getReview(listenerId, year));
+	}
+
+	// Start (or resume) the year in review batch job for every listener
+	@PostMapping("/wrapped/jobs")
+	public ResponseEntity<JobStatusDTO> startYearInReviewJob(@RequestParam int year) {
+		return ResponseEntity.accepted().body(yearInReviewJob.start(year));
+	}
+
+	@GetMapping("/wrapped/jobs/{year}")
+	public ResponseEntity<JobStatusDTO> getYearInReviewJob(@PathVariable int year) {
+		return ResponseEntity.ok(yearInReviewJob.getStatus(year));
+	}
+
+	// Retry the listeners a finished year in review job could not compute
+	@PostMapping("/wrapped/jobs/{year}/retry")
+	public ResponseEntity<JobStatusDTO> retryYearInReviewJob(@PathVariable int year) {
+		return ResponseEntity.accepted().body(yearInReviewJob.retryFailed(year));
+	}
+
+	// Hour-of-week and calendar play heatmaps for a listener (defaults to this year)
+	@GetMapping("/heatmap")
+	public ResponseEntity<HeatmapDTO> getHeatmap(@RequestParam String listenerId, @RequestParam(required = false) Integer year) {
+		return ResponseEntity.ok(heatmapService.getHeatmap(listenerId, year));
+	}
+
+	// Plays and listening time for several date windows in one call, e.g. window=2025-03-03..2025-06-17 (repeatable);
+	// without windows, this week vs last week
+	@GetMapping("/totals/compare")
+	public ResponseEntity<List<WindowTotalDTO>> compareTotals(@RequestParam String listenerId,
+			@RequestParam(name = "window", required = false) List<String> windows) {
+		return ResponseEntity.ok(listeningTotalsService.compare(listenerId, windows));
+	}
+
+	// Songs heard for the first time vs repeat plays between two dates (defaults to this week)
+	@GetMapping("/discoveries")
+	public ResponseEntity<DiscoveryDTO> getDiscoveries(@RequestParam String listenerId,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+		return ResponseEntity.ok(discoveryService.getDiscoveries(listenerId, from, to));
+	}
+
+	// Estimated overlap (Jaccard) of the songs and artists two listeners have played
+	@GetMapping("/similarity")
+	public ResponseEntity<SimilarityDTO> getSimilarity(@RequestParam String listenerId, @RequestParam String otherListenerId) {
+		return ResponseEntity.ok(tasteSimilarityService.compare(listenerId, otherListenerId));
+	}
+
+	// Listeners with the most similar taste, most similar first
+	@GetMapping("/similar-listeners")
+	public ResponseEntity<List<SimilarityDTO>> getSimilarListeners(@RequestParam String listenerId,
+			@RequestParam(required = false) Integer limit) {
+		return ResponseEntity.ok(tasteSimilarityService.findSimilarListeners(listenerId, limit));
+	}
+
+	// Songs most often played right after this one, globally or blended with the listener's own habits
+	@GetMapping("/transitions/{songId}/next")
+	public ResponseEntity<List<NextSongDTO>> getNextSongs(@PathVariable String songId,
+			@RequestParam(required = false) String listenerId, @RequestParam(required = false) Integer limit) {
+		return ResponseEntity.ok(transitionService.getNextSongs(songId, listenerId, limit));
+	}
+
+	// Top songs or artists over the last day or week, worldwide or for one country (refreshed every few minutes)
+	@GetMapping("/charts")
+	public ResponseEntity<ChartDTO> getChart(@RequestParam(required = false) String country,
+			@RequestParam(required = false, defaultValue = "day") String window,
+			@RequestParam(required = false, defaultValue = "songs") String type,
+			@RequestParam(required = false) Integer limit) {
+		return ResponseEntity.ok(chartService.getChart(country, window, type, limit));
+	}
+
+	// Songs with the highest recently-weighted play counts, worldwide or for one country
+	@GetMapping("/trending")
+	public ResponseEntity<TrendingDTO> getTrending(@RequestParam(required = false) String country,
+			@RequestParam(required = false) Integer limit) {
+		return ResponseEntity.ok(trendingService.getTrending(country, limit));
+	}
+
 	@PostMapping("/create")
 	public ResponseEntity<HistoryDTO> create(@RequestBody HistoryDTO historyDTO) {
 		HistoryDTO created = historyService.create(historyDTO);
@@ -0,0 +1,13 @@
+package com.feedback.history.dtos;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// country is null for the worldwide chart; computedAt is when the chart snapshot was taken
+public record ChartDTO(
+        String country,
+        String window,
+        String type,
+        LocalDateTime computedAt,
+        List<ChartEntryDTO> entries
+) {}
@@ -0,0 +1,9 @@
+package com.feedback.history.dtos;
+
+// plays is an estimate from a heavy-hitter sketch: at most error too high
+public record ChartEntryDTO(
+        int rank,
+        String id,
+        long plays,
+        long error
+) {}
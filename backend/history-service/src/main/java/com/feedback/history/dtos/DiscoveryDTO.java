@@ -0,0 +1,17 @@
+package com.feedback.history.dtos;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// first listens vs repeat plays over [from, to]; discoveryRatio is discoveries per play (0 to 1),
+// newSongIds the most recently discovered songs, newest first
+public record DiscoveryDTO(
+        String listenerId,
+        LocalDate from,
+        LocalDate to,
+        long discoveries,
+        long repeats,
+        double discoveryRatio,
+        long songsHeard,
+        List<String> newSongIds
+) {}
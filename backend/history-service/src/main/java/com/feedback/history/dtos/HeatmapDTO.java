@@ -0,0 +1,9 @@
+package com.feedback.history.dtos;
+
+// hourOfWeek[isoWeekday - 1][hour]; calendar[dayOfYear - 1], one entry per day of the year
+public record HeatmapDTO(
+        String listenerId,
+        Integer year,
+        int[][] hourOfWeek,
+        int[] calendar
+) {}
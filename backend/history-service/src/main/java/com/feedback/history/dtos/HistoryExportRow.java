@@ -0,0 +1,13 @@
+package com.feedback.history.dtos;
+
+import java.time.LocalDateTime;
+
+// flat, unmanaged row used by the history export so rows never enter the persistence context
+public record HistoryExportRow(
+        Long historyId,
+        LocalDateTime playedAt,
+        String listenerId,
+        String songId,
+        String songName,
+        Integer durationMs
+) {}
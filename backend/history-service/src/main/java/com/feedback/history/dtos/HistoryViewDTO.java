@@ -0,0 +1,17 @@
+package com.feedback.history.dtos;
+
+import java.time.LocalDateTime;
+
+// a history row with the labels a history page shows; artistName joins all of the song's artists
+public record HistoryViewDTO(
+        Long historyId,
+        LocalDateTime playedAt,
+        String listenerId,
+        String songId,
+        String songName,
+        String artistName,
+        String albumId,
+        String albumName,
+        Integer durationMs,
+        String href
+) {}
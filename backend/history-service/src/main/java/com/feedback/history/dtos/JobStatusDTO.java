@@ -0,0 +1,13 @@
+package com.feedback.history.dtos;
+
+import java.time.LocalDateTime;
+
+public record JobStatusDTO(
+        String jobName,
+        String status,
+        String lastListenerId,
+        Long processed,
+        Long failed,
+        LocalDateTime startedAt,
+        LocalDateTime updatedAt
+) {}
@@ -0,0 +1,10 @@
+package com.feedback.history.dtos;
+
+// a song suggested to play after another; score (0 to 1) blends how often it follows globally
+// and, when a listener is given, how often it follows for them
+public record NextSongDTO(
+        String songId,
+        long globalCount,
+        long listenerCount,
+        double score
+) {}
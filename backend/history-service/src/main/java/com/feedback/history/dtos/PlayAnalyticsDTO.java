@@ -0,0 +1,15 @@
+package com.feedback.history.dtos;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// playsByHour is indexed by hour of day (0-23), playsByWeekday by ISO day of week minus one (0 = Monday)
+public record PlayAnalyticsDTO(
+        String listenerId,
+        LocalDate from,
+        LocalDate to,
+        long totalPlays,
+        List<TopItemDTO> topSongs,
+        int[] playsByHour,
+        int[] playsByWeekday
+) {}
@@ -0,0 +1,10 @@
+package com.feedback.history.dtos;
+
+import java.time.LocalDateTime;
+
+// minimal row used to rebuild the in-memory play columns on startup
+public record PlayColumnRow(
+        String listenerId,
+        String songId,
+        LocalDateTime playedAt
+) {}
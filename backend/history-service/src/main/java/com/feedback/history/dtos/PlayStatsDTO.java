@@ -0,0 +1,12 @@
+package com.feedback.history.dtos;
+
+import java.time.LocalDateTime;
+
+public record PlayStatsDTO(
+        String listenerId,
+        long totalPlays,
+        long totalListeningMs,
+        LocalDateTime firstPlayedAt,
+        LocalDateTime lastPlayedAt,
+        int currentStreak
+) {}
@@ -0,0 +1,12 @@
+package com.feedback.history.dtos;
+
+import java.time.LocalDateTime;
+
+public record SessionDTO(
+        Long sessionId,
+        String listenerId,
+        LocalDateTime startedAt,
+        LocalDateTime endedAt,
+        Integer playCount,
+        Long totalDurationMs
+) {}
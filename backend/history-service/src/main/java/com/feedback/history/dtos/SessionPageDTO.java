@@ -0,0 +1,10 @@
+package com.feedback.history.dtos;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// nextBefore is passed back as ?before= for the next (older) page; null when there are no more
+public record SessionPageDTO(
+        List<SessionDTO> sessions,
+        LocalDateTime nextBefore
+) {}
@@ -0,0 +1,8 @@
+package com.feedback.history.dtos;
+
+// estimated Jaccard similarity (0 to 1) of the songs and artists two listeners have played
+public record SimilarityDTO(
+        String listenerId,
+        String otherListenerId,
+        double similarity
+) {}
@@ -0,0 +1,8 @@
+package com.feedback.history.dtos;
+
+public record TopItemDTO(
+        String id,
+        String name,
+        String artistName,
+        Long plays
+) {}
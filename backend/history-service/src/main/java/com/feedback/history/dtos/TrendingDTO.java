@@ -0,0 +1,12 @@
+package com.feedback.history.dtos;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// country is null for the worldwide list; scores are decayed to computedAt
+public record TrendingDTO(
+        String country,
+        double halfLifeHours,
+        LocalDateTime computedAt,
+        List<TrendingEntryDTO> entries
+) {}
@@ -0,0 +1,8 @@
+package com.feedback.history.dtos;
+
+// score is the song's plays, each weighted down by half for every half-life since it was played
+public record TrendingEntryDTO(
+        int rank,
+        String id,
+        double score
+) {}
@@ -0,0 +1,12 @@
+package com.feedback.history.dtos;
+
+import java.time.LocalDate;
+
+// approximate distinct counts over [from, to]; standardError is relative (0.008 = 0.8%)
+public record UniquesDTO(
+        LocalDate from,
+        LocalDate to,
+        long uniqueListeners,
+        long uniqueSongs,
+        double standardError
+) {}
@@ -0,0 +1,10 @@
+package com.feedback.history.dtos;
+
+import java.time.LocalDate;
+
+public record WindowTotalDTO(
+        LocalDate from,
+        LocalDate to,
+        long plays,
+        long listeningMs
+) {}
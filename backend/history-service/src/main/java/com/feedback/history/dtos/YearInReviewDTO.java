@@ -0,0 +1,19 @@
+package com.feedback.history.dtos;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record YearInReviewDTO(
+        String listenerId,
+        Integer year,
+        Long totalPlays,
+        Long totalListeningMs,
+        List<TopItemDTO> topSongs,
+        List<TopItemDTO> topArtists,
+        LocalDate peakDay,
+        Long peakDayPlays,
+        LocalDateTime longestSessionStartedAt,
+        Long longestSessionMs,
+        LocalDateTime computedAt
+) {}
@@ -0,0 +1,22 @@
+package com.feedback.history.events;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// published by HistoryService whenever a history row is written, inside the same transaction.
+// analytics that are derived from plays hang off this instead of growing HistoryService
+public record PlayRecordedEvent(
+        Long historyId,
+        String listenerId,
+        String country,
+        String songId,
+        Integer durationMs,
+        List<String> artistIds,
+        List<String> albumIds,
+        LocalDateTime playedAt
+) {
+    public PlayRecordedEvent {
+        artistIds = artistIds != null ? artistIds : List.of();
+        albumIds = albumIds != null ? albumIds : List.of();
+    }
+}
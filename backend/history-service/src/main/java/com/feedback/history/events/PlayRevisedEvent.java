@@ -0,0 +1,23 @@
+package com.feedback.history.events;
+
+import java.time.LocalDateTime;
+
+// published by HistoryService when a history row is edited or deleted, inside the same transaction.
+// the before fields describe the play as it was; the after fields are null when the row was deleted
+public record PlayRevisedEvent(
+        Long historyId,
+        String beforeListenerId,
+        String beforeSongId,
+        LocalDateTime beforePlayedAt,
+        String afterListenerId,
+        String afterSongId,
+        LocalDateTime afterPlayedAt
+) {
+    public static PlayRevisedEvent deleted(Long historyId, String listenerId, String songId, LocalDateTime playedAt) {
+        return new PlayRevisedEvent(historyId, listenerId, songId, playedAt, null, null, null);
+    }
+
+    public boolean isDelete() {
+        return afterSongId == null;
+    }
+}
@@ -0,0 +1,7 @@
+package com.feedback.history.exception;
+
+public class StatsUnavailableException extends RuntimeException {
+    public StatsUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,71 @@
+package com.feedback.history.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// one ranked line of a chart (top songs or artists, worldwide or for one country, over a day or a week).
+// the whole table is replaced by each snapshot of the in-memory heavy-hitter sketches
+@Entity
+@Data
+@Table(name = "chart_entry")
+@IdClass(ChartEntryId.class)
+@NoArgsConstructor
+public class ChartEntry {
+
+    public static final String GLOBAL = "GLOBAL";
+    public static final String DAY = "DAY";
+    public static final String WEEK = "WEEK";
+    public static final String SONG = "SONG";
+    public static final String ARTIST = "ARTIST";
+
+    // country code, or GLOBAL
+    @Id
+    @Column(name = "scope", length = 10)
+    private String scope;
+
+    @Id
+    @Column(name = "chart_window", length = 8)
+    private String chartWindow;
+
+    @Id
+    @Column(name = "item_type", length = 8)
+    private String itemType;
+
+    // 1-based
+    @Id
+    @Column(name = "chart_rank")
+    private int rank;
+
+    @Column(name = "item_id", nullable = false, length = 64)
+    private String itemId;
+
+    // estimated plays in the window (an upper bound; plays - error is a lower bound)
+    @Column(name = "plays", nullable = false)
+    private long plays;
+
+    @Column(name = "error", nullable = false)
+    private long error;
+
+    @Column(name = "computed_at", nullable = false)
+    private LocalDateTime computedAt;
+
+    public ChartEntry(String scope, String chartWindow, String itemType, int rank, String itemId, long plays,
+            long error, LocalDateTime computedAt) {
+        this.scope = scope;
+        this.chartWindow = chartWindow;
+        this.itemType = itemType;
+        this.rank = rank;
+        this.itemId = itemId;
+        this.plays = plays;
+        this.error = error;
+        this.computedAt = computedAt;
+    }
+}
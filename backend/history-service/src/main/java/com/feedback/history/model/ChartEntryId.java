@@ -0,0 +1,17 @@
+package com.feedback.history.model;
+
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChartEntryId implements Serializable {
+    private String scope;
+    private String chartWindow;
+    private String itemType;
+    private int rank;
+}
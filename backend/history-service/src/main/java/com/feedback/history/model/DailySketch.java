@@ -0,0 +1,41 @@
+package com.feedback.history.model;
+
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// one serialized HyperLogLog per metric per day (distinct listeners, distinct songs).
+// unions over any date range give platform-wide unique counts without COUNT(DISTINCT) over history
+@Entity
+@Data
+@Table(name = "daily_sketch")
+@IdClass(DailySketchId.class)
+@NoArgsConstructor
+public class DailySketch {
+
+    public static final String LISTENERS = "LISTENERS";
+    public static final String SONGS = "SONGS";
+
+    @Id
+    @Column(name = "metric", length = 16)
+    private String metric;
+
+    @Id
+    @Column(name = "day")
+    private LocalDate day;
+
+    @Column(name = "registers", nullable = false)
+    private byte[] registers;
+
+    public DailySketch(String metric, LocalDate day) {
+        this.metric = metric;
+        this.day = day;
+    }
+}
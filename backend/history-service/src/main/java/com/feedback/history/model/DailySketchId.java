@@ -0,0 +1,16 @@
+package com.feedback.history.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySketchId implements Serializable {
+    private String metric;
+    private LocalDate day;
+}
@@ -0,0 +1,35 @@
+package com.feedback.history.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// when a listener first played a song. written only when a play is new to them,
+// so "discovered this week" is an index range count instead of NOT EXISTS over history
+@Entity
+@Data
+@Table(name = "first_listen", indexes = {
+    @Index(name = "idx_first_listen_listener_played_at", columnList = "listener_id, first_played_at")
+})
+@IdClass(FirstListenId.class)
+@NoArgsConstructor
+public class FirstListen {
+    @Id
+    @Column(name = "listener_id", length = 64)
+    private String listenerId;
+
+    @Id
+    @Column(name = "song_id", length = 64)
+    private String songId;
+
+    @Column(name = "first_played_at", nullable = false)
+    private LocalDateTime firstPlayedAt;
+}
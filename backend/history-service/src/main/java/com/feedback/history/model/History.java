@@ -7,6 +7,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
@@ -17,7 +18,12 @@ import lombok.NoArgsConstructor;
 
 @Entity
 @Data
-@Table(name = "history")
+@Table(name = "history", indexes = {
+    // serves per-listener scans ordered by time (exports, recent history)
+    @Index(name = "idx_history_listener_played_at", columnList = "listener_id, played_at"),
+    // serves the latest plays across all listeners (HistoryRepository.findLatestViews)
+    @Index(name = "idx_history_played_at", columnList = "played_at, history_id")
+})
 @NoArgsConstructor
 public class History {
     @Id
@@ -0,0 +1,56 @@
+package com.feedback.history.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// progress of a resumable batch job: every listener up to lastListenerId is done, or, for jobs that walk
+// a table by numeric ID, every row from lastId to endId
+@Entity
+@Data
+@Table(name = "job_checkpoint")
+@NoArgsConstructor
+public class JobCheckpoint {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @Column(name = "job_name", length = 64)
+    private String jobName;
+
+    @Column(name = "last_listener_id", length = 64)
+    private String lastListenerId;
+
+    @Column(name = "last_id")
+    private Long lastId;
+
+    @Column(name = "end_id")
+    private Long endId;
+
+    @Column(name = "processed", nullable = false)
+    private Long processed = 0L;
+
+    @Column(name = "failed", nullable = false)
+    private Long failed = 0L;
+
+    @Column(name = "status", nullable = false, length = 16)
+    private String status = RUNNING;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public JobCheckpoint(String jobName) {
+        this.jobName = jobName;
+    }
+}
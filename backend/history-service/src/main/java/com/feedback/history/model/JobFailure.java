@@ -0,0 +1,41 @@
+package com.feedback.history.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// a listener a batch job could not process, kept until a later retry succeeds
+@Entity
+@Data
+@Table(name = "job_failure")
+@IdClass(JobFailureId.class)
+@NoArgsConstructor
+public class JobFailure {
+    @Id
+    @Column(name = "job_name", length = 64)
+    private String jobName;
+
+    @Id
+    @Column(name = "listener_id", length = 64)
+    private String listenerId;
+
+    @Column(name = "error", length = 500)
+    private String error;
+
+    @Column(name = "failed_at", nullable = false)
+    private LocalDateTime failedAt;
+
+    public JobFailure(String jobName, String listenerId, String error) {
+        this.jobName = jobName;
+        this.listenerId = listenerId;
+        this.error = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+        this.failedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,31 @@
+package com.feedback.history.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// every song a listener has heard, as a serialized RoaringBitmap of song codes (see SongCode).
+// loaded once per listener so each play is checked in memory
+@Entity
+@Data
+@Table(name = "listener_song_bitmap")
+@NoArgsConstructor
+public class ListenerSongBitmap {
+    @Id
+    @Column(name = "listener_id", length = 64)
+    private String listenerId;
+
+    @Column(name = "songs", nullable = false)
+    private byte[] songs;
+
+    @Column(name = "song_count", nullable = false)
+    private long songCount;
+
+    public ListenerSongBitmap(String listenerId) {
+        this.listenerId = listenerId;
+    }
+}
@@ -0,0 +1,37 @@
+package com.feedback.history.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// per-listener, per-year play counters stored as fixed-size Postgres int arrays (1-based in SQL):
+// hour_of_week[(ISO weekday - 1) * 24 + hour + 1] and calendar[day of year]
+@Entity
+@Data
+@Table(name = "listening_heatmap")
+@IdClass(ListeningHeatmapId.class)
+@NoArgsConstructor
+public class ListeningHeatmap {
+
+    public static final int HOURS_PER_WEEK = 7 * 24;
+    public static final int MAX_DAYS_PER_YEAR = 366;
+
+    @Id
+    @Column(name = "listener_id", length = 64)
+    private String listenerId;
+
+    @Id
+    @Column(name = "heatmap_year")
+    private Integer year;
+
+    @Column(name = "hour_of_week", columnDefinition = "integer[]", nullable = false)
+    private int[] hourOfWeek = new int[HOURS_PER_WEEK];
+
+    @Column(name = "calendar", columnDefinition = "integer[]", nullable = false)
+    private int[] calendar = new int[MAX_DAYS_PER_YEAR];
+}
@@ -0,0 +1,60 @@
+package com.feedback.history.model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// a run of plays by one listener with no silence longer than the inactivity gap between them.
+// maintained incrementally from history inserts; the plays themselves stay in history
+@Entity
+@Data
+@Table(name = "listening_session", indexes = {
+    @Index(name = "idx_listening_session_listener_started_at", columnList = "listener_id, started_at")
+})
+@NoArgsConstructor
+public class ListeningSession {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "session_id")
+    private Long sessionId;
+
+    @Column(name = "listener_id", nullable = false, length = 64)
+    private String listenerId;
+
+    // when the first play started
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    // when the last play started (upper bound for looking its plays up in history)
+    @Column(name = "last_played_at", nullable = false)
+    private LocalDateTime lastPlayedAt;
+
+    // when the last play finished
+    @Column(name = "ended_at", nullable = false)
+    private LocalDateTime endedAt;
+
+    @Column(name = "play_count", nullable = false)
+    private Integer playCount = 0;
+
+    @Column(name = "total_duration_ms", nullable = false)
+    private Long totalDurationMs = 0L;
+
+    public ListeningSession(String listenerId, LocalDateTime playedAt, long durationMs) {
+        this.listenerId = listenerId;
+        this.startedAt = playedAt;
+        this.lastPlayedAt = playedAt;
+        this.endedAt = playedAt.plus(Duration.ofMillis(durationMs));
+        this.playCount = 1;
+        this.totalDurationMs = durationMs;
+    }
+}
@@ -0,0 +1,56 @@
+package com.feedback.history.model;
+
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// per-listener daily play counter for one song, artist or album.
+// maintained incrementally from history inserts so top-N never has to scan raw history
+@Entity
+@Data
+@Table(name = "play_count", indexes = {
+    @Index(name = "idx_play_count_listener_type_day", columnList = "listener_id, item_type, day")
+})
+@IdClass(PlayCountId.class)
+@NoArgsConstructor
+public class PlayCount {
+
+    public static final String SONG = "SONG";
+    public static final String ARTIST = "ARTIST";
+    public static final String ALBUM = "ALBUM";
+
+    @Id
+    @Column(name = "listener_id", length = 64)
+    private String listenerId;
+
+    @Id
+    @Column(name = "item_type", length = 8)
+    private String itemType;
+
+    @Id
+    @Column(name = "item_id", length = 64)
+    private String itemId;
+
+    @Id
+    @Column(name = "day")
+    private LocalDate day;
+
+    @Column(name = "play_count", nullable = false)
+    private Long playCount = 0L;
+
+    public PlayCount(String listenerId, String itemType, String itemId, LocalDate day, Long playCount) {
+        this.listenerId = listenerId;
+        this.itemType = itemType;
+        this.itemId = itemId;
+        this.day = day;
+        this.playCount = playCount;
+    }
+}
@@ -0,0 +1,18 @@
+package com.feedback.history.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlayCountId implements Serializable {
+    private String listenerId;
+    private String itemType;
+    private String itemId;
+    private LocalDate day;
+}
@@ -0,0 +1,68 @@
+package com.feedback.history.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// a play waiting to be published to the play-events topic. Written in the same transaction as its history
+// row, so a committed play is always published eventually; PlayOutboxRelay deletes it once Kafka has it.
+// An edited or deleted history row queues revision rows: -1 plays to take the old listener, song and day
+// back out, and +1 for the new ones after an edit
+@Entity
+@Data
+@Table(name = "play_outbox")
+@NoArgsConstructor
+public class PlayOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "outbox_id")
+    private Long outboxId;
+
+    @Column(name = "history_id", nullable = false)
+    private Long historyId;
+
+    @Column(name = "listener_id", length = 64, nullable = false)
+    private String listenerId;
+
+    @Column(name = "song_id", length = 64, nullable = false)
+    private String songId;
+
+    @Column(name = "duration_ms")
+    private Integer durationMs;
+
+    @Column(name = "played_at", nullable = false)
+    private LocalDateTime playedAt;
+
+    // +1 or -1; null on rows queued before revisions were published, which are plays
+    @Column(name = "plays")
+    private Integer plays;
+
+    // true for rows queued by an edit or delete rather than by the insert or the backfill
+    @Column(name = "revision")
+    private Boolean revision;
+
+    public PlayOutbox(Long historyId, String listenerId, String songId, Integer durationMs, LocalDateTime playedAt) {
+        this.historyId = historyId;
+        this.listenerId = listenerId;
+        this.songId = songId;
+        this.durationMs = durationMs;
+        this.playedAt = playedAt;
+    }
+
+    public int playsOrOne() {
+        return plays != null ? plays : 1;
+    }
+
+    public boolean isRevision() {
+        return Boolean.TRUE.equals(revision);
+    }
+}
@@ -0,0 +1,26 @@
+package com.feedback.history.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// dense int code per song, handed out once and never reused, so per-listener song sets can be bitmaps
+@Entity
+@Data
+@Table(name = "song_code")
+@NoArgsConstructor
+public class SongCode {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "code")
+    private Integer code;
+
+    @Column(name = "song_id", nullable = false, unique = true, length = 64)
+    private String songId;
+}
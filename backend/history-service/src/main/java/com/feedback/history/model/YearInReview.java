@@ -0,0 +1,63 @@
+package com.feedback.history.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// precomputed yearly summary for one listener, written by the year-in-review batch job
+@Entity
+@Data
+@Table(name = "year_in_review")
+@IdClass(YearInReviewId.class)
+@NoArgsConstructor
+public class YearInReview {
+
+    @Id
+    @Column(name = "listener_id", length = 64)
+    private String listenerId;
+
+    @Id
+    @Column(name = "review_year")
+    private Integer year;
+
+    @Column(name = "total_plays", nullable = false)
+    private Long totalPlays = 0L;
+
+    @Column(name = "total_listening_ms", nullable = false)
+    private Long totalListeningMs = 0L;
+
+    // JSON arrays of {id, name, artistName, plays}
+    @Column(name = "top_songs", columnDefinition = "TEXT")
+    private String topSongs;
+
+    @Column(name = "top_artists", columnDefinition = "TEXT")
+    private String topArtists;
+
+    @Column(name = "peak_day")
+    private LocalDate peakDay;
+
+    @Column(name = "peak_day_plays")
+    private Long peakDayPlays;
+
+    @Column(name = "longest_session_started_at")
+    private LocalDateTime longestSessionStartedAt;
+
+    @Column(name = "longest_session_ms")
+    private Long longestSessionMs;
+
+    @Column(name = "computed_at", nullable = false)
+    private LocalDateTime computedAt;
+
+    public YearInReview(String listenerId, Integer year) {
+        this.listenerId = listenerId;
+        this.year = year;
+    }
+}
@@ -0,0 +1,15 @@
+package com.feedback.history.model;
+
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class YearInReviewId implements Serializable {
+    private String listenerId;
+    private Integer year;
+}
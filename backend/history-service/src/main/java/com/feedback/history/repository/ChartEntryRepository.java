@@ -0,0 +1,21 @@
+package com.feedback.history.repository;
+
+import com.feedback.history.model.ChartEntry;
+import com.feedback.history.model.ChartEntryId;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface ChartEntryRepository extends JpaRepository<ChartEntry, ChartEntryId> {
+
+    List<ChartEntry> findByScopeAndChartWindowAndItemTypeOrderByRank(String scope, String chartWindow, String itemType,
+            Limit limit);
+
+    // cleared and refilled in one transaction, so readers see either the old charts or the new ones
+    @Modifying
+    @Query(value = "DELETE FROM chart_entry", nativeQuery = true)
+    int deleteAllEntries();
+}
@@ -0,0 +1,23 @@
+package com.feedback.history.repository;
+
+import com.feedback.history.model.DailySketch;
+import com.feedback.history.model.DailySketchId;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public interface DailySketchRepository extends JpaRepository<DailySketch, DailySketchId> {
+
+    List<DailySketch> findByMetricAndDayBetween(String metric, LocalDate from, LocalDate to);
+
+    // row-locked read for the merge-and-write flush, so concurrent instances don't overwrite each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d from DailySketch d where d.metric = :metric and d.day = :day")
+    Optional<DailySketch> findForUpdate(@Param("metric") String metric, @Param("day") LocalDate day);
+}
@@ -0,0 +1,63 @@
+package com.feedback.history.repository;
+
+import com.feedback.history.model.FirstListen;
+import com.feedback.history.model.FirstListenId;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface FirstListenRepository extends JpaRepository<FirstListen, FirstListenId> {
+
+    long countByListenerIdAndFirstPlayedAtBetween(String listenerId, LocalDateTime start, LocalDateTime end);
+
+    List<FirstListen> findByListenerIdAndFirstPlayedAtBetweenOrderByFirstPlayedAtDesc(String listenerId,
+            LocalDateTime start, LocalDateTime end, Limit limit);
+
+    // keeps the earliest time if two instances record the same first listen, or a play is backdated before it;
+    // a play after the stored time writes nothing
+    @Modifying
+    @Query(value = "INSERT INTO first_listen (listener_id, song_id, first_played_at) "
+            + "VALUES (:listenerId, :songId, :playedAt) ON CONFLICT (listener_id, song_id) "
+            + "DO UPDATE SET first_played_at = EXCLUDED.first_played_at "
+            + "WHERE first_listen.first_played_at > EXCLUDED.first_played_at", nativeQuery = true)
+    int recordFirstListen(@Param("listenerId") String listenerId, @Param("songId") String songId,
+            @Param("playedAt") LocalDateTime playedAt);
+
+    // first listens for a listener's existing history, the first time we see them
+    @Modifying
+    @Query(value = "INSERT INTO first_listen (listener_id, song_id, first_played_at) "
+            + "SELECT h.listener_id, h.song_id, MIN(h.played_at) FROM history h "
+            + "WHERE h.listener_id = :listenerId AND h.song_id IS NOT NULL GROUP BY h.listener_id, h.song_id "
+            + "ON CONFLICT (listener_id, song_id) DO NOTHING", nativeQuery = true)
+    int backfillFromHistory(@Param("listenerId") String listenerId);
+
+    // after a play was edited or deleted: the first listen moves to the earliest play left in history
+    @Modifying
+    @Query(value = "UPDATE first_listen f SET first_played_at = m.first_played_at "
+            + "FROM (SELECT MIN(h.played_at) AS first_played_at FROM history h "
+            + "WHERE h.listener_id = :listenerId AND h.song_id = :songId) m "
+            + "WHERE f.listener_id = :listenerId AND f.song_id = :songId AND m.first_played_at IS NOT NULL "
+            + "AND f.first_played_at <> m.first_played_at", nativeQuery = true)
+    int recomputeFromHistory(@Param("listenerId") String listenerId, @Param("songId") String songId);
+
+    // ...or goes away with the listener's last play of the song
+    @Modifying
+    @Query(value = "DELETE FROM first_listen f WHERE f.listener_id = :listenerId AND f.song_id = :songId "
+            + "AND NOT EXISTS (SELECT 1 FROM history h WHERE h.listener_id = :listenerId AND h.song_id = :songId)",
+            nativeQuery = true)
+    int deleteWithoutPlays(@Param("listenerId") String listenerId, @Param("songId") String songId);
+
+    @Query(value = "SELECT c.code FROM first_listen f JOIN song_code c ON c.song_id = f.song_id "
+            + "WHERE f.listener_id = :listenerId", nativeQuery = true)
+    List<Integer> findSongCodes(@Param("listenerId") String listenerId);
+
+    @Modifying
+    @Query(value = "DELETE FROM first_listen WHERE ctid IN ("
+            + "SELECT ctid FROM first_listen WHERE listener_id = :listenerId LIMIT :limit)", nativeQuery = true)
+    int deleteListenerChunk(@Param("listenerId") String listenerId, @Param("limit") int limit);
+}
@@ -1,14 +1,97 @@
 package com.feedback.history.repository;
 
+import com.feedback.history.dtos.HistoryExportRow;
+import com.feedback.history.dtos.PlayColumnRow;
 import com.feedback.history.model.History;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 // kenneth: wrote this so that it matched up with Omar's model
 
 public interface HistoryRepository extends JpaRepository<History, Long> {
+    // rows pulled per round trip while streaming an export (keeps the JDBC cursor bounded)
+    String EXPORT_FETCH_SIZE = "500";
+
+    // history row labeled with its song, artists and album (read model for history pages)
+    interface HistoryView {
+        Long getHistoryId();
+        LocalDateTime getPlayedAt();
+        String getListenerId();
+        String getSongId();
+        String getSongName();
+        Integer getDurationMs();
+        String getHref();
+        String getArtistNames();
+        String getAlbumId();
+        String getAlbumTitle();
+    }
+
+    // plays and listening time per listener per day (used to rebuild in-memory indexes)
+    interface DailyListening {
+        String getListenerId();
+        LocalDate getDay();
+        Long getPlays();
+        Long getListeningMs();
+    }
+
+    // one song ("s:" + ID) or artist ("a:" + ID) a listener has played
+    interface ListenerItem {
+        String getListenerId();
+        String getItem();
+    }
+
+    // plays of one song (type S) or artist (type A) by listeners from one country in one hour
+    interface ChartPlays {
+        String getCountry();
+        String getItemType();
+        String getItemId();
+        LocalDateTime getHour();
+        Long getPlays();
+    }
+
+    // one listener's play count, listening time and first and last play
+    interface ListenerTotals {
+        Long getPlays();
+        Long getListeningMs();
+        LocalDateTime getFirstPlayedAt();
+        LocalDateTime getLastPlayedAt();
+    }
+
+    // plays of one listener on one day
+    interface DayPlays {
+        LocalDate getDay();
+        Long getPlays();
+    }
+
+    // plays of one song by one listener
+    interface SongPlays {
+        String getSongId();
+        Long getPlays();
+    }
+
+    // shared by the two view queries below: artists are joined into one "A, B" label, the album is the song's first
+    String HISTORY_VIEW_COLUMNS = "SELECT h.history_id AS historyId, h.played_at AS playedAt, h.listener_id AS listenerId, "
+            + "s.song_id AS songId, s.name AS songName, s.duration_ms AS durationMs, s.href AS href, "
+            + "ar.names AS artistNames, al.album_id AS albumId, al.title AS albumTitle ";
+
+    String HISTORY_VIEW_JOINS = "JOIN song s ON s.song_id = h.song_id "
+            + "LEFT JOIN LATERAL (SELECT string_agg(a.name, ', ' ORDER BY a.name) AS names "
+            + "FROM artists_songs x JOIN artist a ON a.artist_id = x.artist_id WHERE x.song_id = s.song_id) ar ON TRUE "
+            + "LEFT JOIN LATERAL (SELECT b.album_id, b.title "
+            + "FROM albums_songs y JOIN album b ON b.album_id = y.album_id WHERE y.song_id = s.song_id "
+            + "ORDER BY b.album_id LIMIT 1) al ON TRUE ";
+
+    String HISTORY_VIEW_SELECT = HISTORY_VIEW_COLUMNS + "FROM history h " + HISTORY_VIEW_JOINS;
+
     // find history records by listener ID
     List<History> findByListener_ListenerId(String listenerId);
 
@@ -24,6 +107,126 @@ public interface HistoryRepository extends JpaRepository<History, Long> {
     // find history records by listener within a date range
     List<History> findByListener_ListenerIdAndPlayedAtBetween(String listenerId, LocalDateTime start, LocalDateTime end);
 
+    // count a listener's plays within a date range
+    long countByListener_ListenerIdAndPlayedAtBetween(String listenerId, LocalDateTime start, LocalDateTime end);
+
     // find recent history records for a listener, ordered by playedAt descending
     List<History> findByListener_ListenerIdOrderByPlayedAtDesc(String listenerId);
+
+    // stream a listener's history as flat rows, oldest first, through a server-side cursor.
+    // must be consumed inside a transaction and closed by the caller
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("select new com.feedback.history.dtos.HistoryExportRow(h.historyId, h.playedAt, l.listenerId, s.songId, s.name, s.durationMs) "
+            + "from History h join h.listener l join h.song s "
+            + "where l.listenerId = :listenerId order by h.playedAt, h.historyId")
+    Stream<HistoryExportRow> streamExportRows(@Param("listenerId") String listenerId);
+
+    @Query("select coalesce(max(h.historyId), 0) from History h")
+    long findMaxHistoryId();
+
+    // IDs of the rows in (fromHistoryId, toHistoryId]; tells a rebuild which of the newest plays its snapshot saw
+    @Query("select h.historyId from History h where h.historyId > :fromHistoryId and h.historyId <= :toHistoryId")
+    List<Long> findHistoryIdsBetween(@Param("fromHistoryId") long fromHistoryId, @Param("toHistoryId") long toHistoryId);
+
+    // every play up to maxHistoryId as (listener, song, playedAt), grouped by listener and oldest first,
+    // so each listener's columns are appended in time order
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("select new com.feedback.history.dtos.PlayColumnRow(l.listenerId, s.songId, h.playedAt) "
+            + "from History h join h.listener l join h.song s "
+            + "where h.historyId <= :maxHistoryId order by l.listenerId, h.playedAt, h.historyId")
+    Stream<PlayColumnRow> streamPlayColumnRows(@Param("maxHistoryId") long maxHistoryId);
+
+    // the same rows for plays after a snapshot: (afterHistoryId, maxHistoryId]
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("select new com.feedback.history.dtos.PlayColumnRow(l.listenerId, s.songId, h.playedAt) "
+            + "from History h join h.listener l join h.song s "
+            + "where h.historyId > :afterHistoryId and h.historyId <= :maxHistoryId "
+            + "order by l.listenerId, h.playedAt, h.historyId")
+    Stream<PlayColumnRow> streamPlayColumnRowsBetween(@Param("afterHistoryId") long afterHistoryId,
+            @Param("maxHistoryId") long maxHistoryId);
+
+    // a listener's latest plays, fully labeled, in one round trip (walks idx_history_listener_played_at backwards)
+    @Query(value = HISTORY_VIEW_SELECT + "WHERE h.listener_id = :listenerId "
+            + "ORDER BY h.played_at DESC, h.history_id DESC LIMIT :limit", nativeQuery = true)
+    List<HistoryView> findViewsByListener(@Param("listenerId") String listenerId, @Param("limit") int limit);
+
+    // latest plays across all listeners, fully labeled. The page is cut first (walking idx_history_played_at
+    // backwards) so the joins and lateral lookups run for :limit rows, not for the whole table
+    @Query(value = HISTORY_VIEW_COLUMNS + "FROM (SELECT * FROM history "
+            + "ORDER BY played_at DESC, history_id DESC LIMIT :limit) h " + HISTORY_VIEW_JOINS
+            + "ORDER BY h.played_at DESC, h.history_id DESC", nativeQuery = true)
+    List<HistoryView> findLatestViews(@Param("limit") int limit);
+
+    // per-listener daily totals for every play up to maxHistoryId, streamed for a startup rebuild
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(value = "SELECT h.listener_id AS listenerId, CAST(h.played_at AS DATE) AS day, "
+            + "COUNT(*) AS plays, CAST(COALESCE(SUM(s.duration_ms), 0) AS BIGINT) AS listeningMs "
+            + "FROM history h JOIN song s ON s.song_id = h.song_id "
+            + "WHERE h.history_id <= :maxHistoryId AND h.listener_id IS NOT NULL "
+            + "GROUP BY h.listener_id, CAST(h.played_at AS DATE)", nativeQuery = true)
+    Stream<DailyListening> streamDailyListening(@Param("maxHistoryId") long maxHistoryId);
+
+    // distinct songs and artists per listener (UNION dedupes) for every play up to maxHistoryId, streamed for a startup rebuild
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(value = "SELECT h.listener_id AS listenerId, 's:' || h.song_id AS item FROM history h "
+            + "WHERE h.history_id <= :maxHistoryId AND h.listener_id IS NOT NULL AND h.song_id IS NOT NULL "
+            + "UNION SELECT h.listener_id, 'a:' || x.artist_id FROM history h "
+            + "JOIN artists_songs x ON x.song_id = h.song_id "
+            + "WHERE h.history_id <= :maxHistoryId AND h.listener_id IS NOT NULL", nativeQuery = true)
+    Stream<ListenerItem> streamListenerItems(@Param("maxHistoryId") long maxHistoryId);
+
+    // hourly song and artist play counts per country since a cutoff, up to maxHistoryId, for rebuilding the charts
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(value = "SELECT l.country AS country, 'S' AS itemType, h.song_id AS itemId, "
+            + "date_trunc('hour', h.played_at) AS hour, COUNT(*) AS plays "
+            + "FROM history h JOIN listener l ON l.listener_id = h.listener_id "
+            + "WHERE h.played_at >= :since AND h.history_id <= :maxHistoryId AND h.song_id IS NOT NULL "
+            + "GROUP BY l.country, h.song_id, date_trunc('hour', h.played_at) "
+            + "UNION ALL SELECT l.country, 'A', x.artist_id, date_trunc('hour', h.played_at), COUNT(*) "
+            + "FROM history h JOIN listener l ON l.listener_id = h.listener_id "
+            + "JOIN artists_songs x ON x.song_id = h.song_id "
+            + "WHERE h.played_at >= :since AND h.history_id <= :maxHistoryId "
+            + "GROUP BY l.country, x.artist_id, date_trunc('hour', h.played_at)", nativeQuery = true)
+    Stream<ChartPlays> streamChartPlays(@Param("since") LocalDateTime since, @Param("maxHistoryId") long maxHistoryId);
+
+    // the queries below answer play stats from Postgres while the play aggregator's stores are still being seeded;
+    // each reads one listener's rows through idx_history_listener_played_at
+    @Query(value = "SELECT COUNT(*) AS plays, CAST(COALESCE(SUM(s.duration_ms), 0) AS BIGINT) AS listeningMs, "
+            + "MIN(h.played_at) AS firstPlayedAt, MAX(h.played_at) AS lastPlayedAt "
+            + "FROM history h JOIN song s ON s.song_id = h.song_id WHERE h.listener_id = :listenerId", nativeQuery = true)
+    ListenerTotals findListenerTotals(@Param("listenerId") String listenerId);
+
+    // plays per day in [from, to), oldest first; days without plays are left out
+    @Query(value = "SELECT CAST(h.played_at AS DATE) AS day, COUNT(*) AS plays FROM history h "
+            + "WHERE h.listener_id = :listenerId AND h.played_at >= :from AND h.played_at < :to AND h.song_id IS NOT NULL "
+            + "GROUP BY CAST(h.played_at AS DATE) ORDER BY day", nativeQuery = true)
+    List<DayPlays> findDailyPlays(@Param("listenerId") String listenerId, @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    // a listener's most played songs, ties broken by song ID
+    @Query(value = "SELECT h.song_id AS songId, COUNT(*) AS plays FROM history h "
+            + "WHERE h.listener_id = :listenerId AND h.song_id IS NOT NULL "
+            + "GROUP BY h.song_id ORDER BY plays DESC, songId LIMIT :limit", nativeQuery = true)
+    List<SongPlays> findTopSongPlays(@Param("listenerId") String listenerId, @Param("limit") int limit);
 }
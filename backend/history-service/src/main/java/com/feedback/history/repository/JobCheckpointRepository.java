@@ -0,0 +1,21 @@
+package com.feedback.history.repository;
+
+import com.feedback.history.model.JobCheckpoint;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, String> {
+
+    // row-locked read, so two instances never advance the same job's checkpoint at once
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from JobCheckpoint c where c.jobName = :jobName")
+    Optional<JobCheckpoint> findForUpdate(@Param("jobName") String jobName);
+
+    List<JobCheckpoint> findByJobNameStartingWithAndStatusNot(String prefix, String status);
+}
@@ -0,0 +1,23 @@
+package com.feedback.history.repository;
+
+import com.feedback.history.model.JobFailure;
+import com.feedback.history.model.JobFailureId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface JobFailureRepository extends JpaRepository<JobFailure, JobFailureId> {
+
+    @Query("select f.listenerId from JobFailure f where f.jobName = :jobName order by f.listenerId")
+    List<String> findListenerIds(@Param("jobName") String jobName);
+
+    long countByJobName(String jobName);
+
+    @Modifying
+    @Query(value = "DELETE FROM job_failure WHERE ctid IN ("
+            + "SELECT ctid FROM job_failure WHERE listener_id = :listenerId LIMIT :limit)", nativeQuery = true)
+    int deleteListenerChunk(@Param("listenerId") String listenerId, @Param("limit") int limit);
+}
@@ -0,0 +1,23 @@
+package com.feedback.history.repository;
+
+import com.feedback.history.model.ListenerSongBitmap;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface ListenerSongBitmapRepository extends JpaRepository<ListenerSongBitmap, String> {
+
+    // row-locked read for the merge-and-write flush, so concurrent instances don't overwrite each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from ListenerSongBitmap b where b.listenerId = :listenerId")
+    Optional<ListenerSongBitmap> findForUpdate(@Param("listenerId") String listenerId);
+
+    @Modifying
+    @Query(value = "DELETE FROM listener_song_bitmap WHERE listener_id = :listenerId", nativeQuery = true)
+    int deleteListener(@Param("listenerId") String listenerId);
+}
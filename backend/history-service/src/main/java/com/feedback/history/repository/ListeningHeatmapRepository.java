@@ -0,0 +1,73 @@
+package com.feedback.history.repository;
+
+import com.feedback.history.model.ListeningHeatmap;
+import com.feedback.history.model.ListeningHeatmapId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ListeningHeatmapRepository extends JpaRepository<ListeningHeatmap, ListeningHeatmapId> {
+
+    // create the zeroed arrays the first time a listener plays in a year
+    @Modifying
+    @Query(value = "INSERT INTO listening_heatmap (listener_id, heatmap_year, hour_of_week, calendar) "
+            + "VALUES (:listenerId, :year, array_fill(0, ARRAY[168]), array_fill(0, ARRAY[366])) "
+            + "ON CONFLICT (listener_id, heatmap_year) DO NOTHING", nativeQuery = true)
+    int createIfAbsent(@Param("listenerId") String listenerId, @Param("year") int year);
+
+    // bump one hour-of-week cell and one calendar cell in place (1-based slots)
+    @Modifying
+    @Query(value = "UPDATE listening_heatmap "
+            + "SET hour_of_week[:hourSlot] = hour_of_week[:hourSlot] + 1, calendar[:daySlot] = calendar[:daySlot] + 1 "
+            + "WHERE listener_id = :listenerId AND heatmap_year = :year", nativeQuery = true)
+    int increment(@Param("listenerId") String listenerId, @Param("year") int year,
+            @Param("hourSlot") int hourSlot, @Param("daySlot") int daySlot);
+
+    // take one play back out of its two cells, for an edited or deleted history row
+    @Modifying
+    @Query(value = "UPDATE listening_heatmap "
+            + "SET hour_of_week[:hourSlot] = GREATEST(hour_of_week[:hourSlot] - 1, 0), "
+            + "calendar[:daySlot] = GREATEST(calendar[:daySlot] - 1, 0) "
+            + "WHERE listener_id = :listenerId AND heatmap_year = :year", nativeQuery = true)
+    int decrement(@Param("listenerId") String listenerId, @Param("year") int year,
+            @Param("hourSlot") int hourSlot, @Param("daySlot") int daySlot);
+
+    // serializes heatmap changes for edited plays with the backfill, like ListeningSessionRepository.lockListener
+    @Query(value = "select 1 from (select pg_advisory_xact_lock(hashtext(:listenerId))) l", nativeQuery = true)
+    Integer lockListener(@Param("listenerId") String listenerId);
+
+    // next batch of listeners for the backfill, locked like PlayCountRepository.lockListenersAfter
+    @Query(value = "SELECT listener_id FROM listener WHERE listener_id > :after "
+            + "ORDER BY listener_id LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<String> lockListenersAfter(@Param("after") String after, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM listening_heatmap WHERE listener_id IN (:listenerIds)", nativeQuery = true)
+    int deleteListeners(@Param("listenerIds") List<String> listenerIds);
+
+    // recounts every heatmap of these listeners from history, one row per year they played in, with the cells
+    // laid out as increment() fills them; idempotent after deleteListeners
+    @Modifying
+    @Query(value = "WITH plays AS (SELECT h.listener_id, CAST(EXTRACT(YEAR FROM h.played_at) AS INTEGER) AS yr, "
+            + "CAST((EXTRACT(ISODOW FROM h.played_at) - 1) * 24 + EXTRACT(HOUR FROM h.played_at) + 1 AS INTEGER) AS hour_slot, "
+            + "CAST(EXTRACT(DOY FROM h.played_at) AS INTEGER) AS day_slot "
+            + "FROM history h WHERE h.listener_id IN (:listenerIds)), "
+            + "hours AS (SELECT listener_id, yr, hour_slot, COUNT(*) AS plays FROM plays GROUP BY listener_id, yr, hour_slot), "
+            + "days AS (SELECT listener_id, yr, day_slot, COUNT(*) AS plays FROM plays GROUP BY listener_id, yr, day_slot) "
+            + "INSERT INTO listening_heatmap (listener_id, heatmap_year, hour_of_week, calendar) "
+            + "SELECT k.listener_id, k.yr, "
+            + "ARRAY(SELECT CAST(COALESCE(c.plays, 0) AS INTEGER) FROM generate_series(1, 168) g(slot) LEFT JOIN hours c "
+            + "ON c.listener_id = k.listener_id AND c.yr = k.yr AND c.hour_slot = g.slot ORDER BY g.slot), "
+            + "ARRAY(SELECT CAST(COALESCE(c.plays, 0) AS INTEGER) FROM generate_series(1, 366) g(slot) LEFT JOIN days c "
+            + "ON c.listener_id = k.listener_id AND c.yr = k.yr AND c.day_slot = g.slot ORDER BY g.slot) "
+            + "FROM (SELECT DISTINCT listener_id, yr FROM plays) k", nativeQuery = true)
+    int recountListeners(@Param("listenerIds") List<String> listenerIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM listening_heatmap WHERE ctid IN ("
+            + "SELECT ctid FROM listening_heatmap WHERE listener_id = :listenerId LIMIT :limit)", nativeQuery = true)
+    int deleteListenerChunk(@Param("listenerId") String listenerId, @Param("limit") int limit);
+}
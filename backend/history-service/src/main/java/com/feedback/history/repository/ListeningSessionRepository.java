@@ -0,0 +1,96 @@
+package com.feedback.history.repository;
+
+import com.feedback.history.model.ListeningSession;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface ListeningSessionRepository extends JpaRepository<ListeningSession, Long> {
+
+    // Sessions computed from history, by the same rule SessionService applies one play at a time: a play opens
+    // a new session when it starts more than :gapMinutes after every earlier play of the listener has ended.
+    // Selects listener_id and the listening_session columns; the WHERE condition on history h goes in between
+    String SESSIONS_FROM_HISTORY = "SELECT listener_id, MIN(played_at) AS started_at, MAX(played_at) AS last_played_at, "
+            + "MAX(ended_at) AS ended_at, COUNT(*) AS play_count, SUM(duration_ms) AS total_duration_ms FROM ("
+            + "SELECT p.*, SUM(CASE WHEN p.prev_end IS NULL OR p.played_at - p.prev_end > make_interval(mins => :gapMinutes) "
+            + "THEN 1 ELSE 0 END) OVER (PARTITION BY p.listener_id ORDER BY p.played_at, p.history_id "
+            + "ROWS UNBOUNDED PRECEDING) AS session_no FROM ("
+            + "SELECT h.listener_id, h.history_id, h.played_at, CAST(COALESCE(s.duration_ms, 0) AS BIGINT) AS duration_ms, "
+            + "h.played_at + COALESCE(s.duration_ms, 0) * INTERVAL '1 millisecond' AS ended_at, "
+            + "MAX(h.played_at + COALESCE(s.duration_ms, 0) * INTERVAL '1 millisecond') OVER (PARTITION BY h.listener_id "
+            + "ORDER BY h.played_at, h.history_id ROWS BETWEEN UNBOUNDED PRECEDING AND 1 PRECEDING) AS prev_end "
+            + "FROM history h LEFT JOIN song s ON s.song_id = h.song_id WHERE ";
+    String SESSIONS_FROM_HISTORY_END = ") p) g GROUP BY listener_id, session_no";
+    String INSERT_SESSIONS = "INSERT INTO listening_session "
+            + "(listener_id, started_at, last_played_at, ended_at, play_count, total_duration_ms) ";
+
+    // sessions that reach into [from, to], earliest first
+    @Query("select s from ListeningSession s where s.listenerId = :listenerId "
+            + "and s.endedAt >= :from and s.startedAt <= :to order by s.startedAt")
+    List<ListeningSession> findTouching(@Param("listenerId") String listenerId,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // newest sessions first; the before variant continues from the last page's oldest start
+    List<ListeningSession> findByListenerIdOrderByStartedAtDesc(String listenerId, Limit limit);
+
+    List<ListeningSession> findByListenerIdAndStartedAtBeforeOrderByStartedAtDesc(String listenerId, LocalDateTime before,
+            Limit limit);
+
+    // serializes session updates per listener until the transaction ends, so two plays can't both open a session
+    @Query(value = "select 1 from (select pg_advisory_xact_lock(hashtext(:listenerId))) l", nativeQuery = true)
+    Integer lockListener(@Param("listenerId") String listenerId);
+
+    // writes the sessions of the listener's plays in [from, to]; the caller has deleted the ones they were in
+    @Modifying
+    @Query(value = INSERT_SESSIONS + SESSIONS_FROM_HISTORY
+            + "h.listener_id = :listenerId AND h.played_at BETWEEN :from AND :to" + SESSIONS_FROM_HISTORY_END,
+            nativeQuery = true)
+    int insertSessionsBetween(@Param("listenerId") String listenerId, @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to, @Param("gapMinutes") long gapMinutes);
+
+    // the longest play the listener started at this instant, 0 if none
+    @Query(value = "SELECT CAST(COALESCE(MAX(s.duration_ms), 0) AS BIGINT) FROM history h "
+            + "LEFT JOIN song s ON s.song_id = h.song_id WHERE h.listener_id = :listenerId AND h.played_at = :playedAt",
+            nativeQuery = true)
+    long findLongestPlayAt(@Param("listenerId") String listenerId, @Param("playedAt") LocalDateTime playedAt);
+
+    // next batch of listeners for the backfill, locked like PlayCountRepository.lockListenersAfter
+    @Query(value = "SELECT listener_id FROM listener WHERE listener_id > :after "
+            + "ORDER BY listener_id LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<String> lockListenersAfter(@Param("after") String after, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM listening_session WHERE listener_id IN (:listenerIds)", nativeQuery = true)
+    int deleteListeners(@Param("listenerIds") List<String> listenerIds);
+
+    // rebuilds every session of these listeners from history; idempotent after deleteListeners
+    @Modifying
+    @Query(value = INSERT_SESSIONS + SESSIONS_FROM_HISTORY + "h.listener_id IN (:listenerIds)" + SESSIONS_FROM_HISTORY_END,
+            nativeQuery = true)
+    int insertListenerSessions(@Param("listenerIds") List<String> listenerIds, @Param("gapMinutes") long gapMinutes);
+
+    // start and end of a session computed from history
+    interface SessionSpan {
+        LocalDateTime getStartedAt();
+        LocalDateTime getEndedAt();
+    }
+
+    // the listener's longest session among their plays in [from, to), grouped from history rather than read
+    // from listening_session, so it does not depend on which plays sessions have been built for
+    @Query(value = "SELECT started_at AS startedAt, ended_at AS endedAt FROM (" + SESSIONS_FROM_HISTORY
+            + "h.listener_id = :listenerId AND h.played_at >= :from AND h.played_at < :to" + SESSIONS_FROM_HISTORY_END
+            + ") x ORDER BY (ended_at - started_at) DESC, started_at LIMIT 1", nativeQuery = true)
+    Optional<SessionSpan> findLongestInHistory(@Param("listenerId") String listenerId,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to, @Param("gapMinutes") long gapMinutes);
+
+    @Modifying
+    @Query(value = "DELETE FROM listening_session WHERE session_id IN ("
+            + "SELECT session_id FROM listening_session WHERE listener_id = :listenerId LIMIT :limit)", nativeQuery = true)
+    int deleteListenerChunk(@Param("listenerId") String listenerId, @Param("limit") int limit);
+}
@@ -0,0 +1,154 @@
+package com.feedback.history.repository;
+
+import com.feedback.history.model.PlayCount;
+import com.feedback.history.model.PlayCountId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public interface PlayCountRepository extends JpaRepository<PlayCount, PlayCountId> {
+
+    // result row for the top-N queries below
+    interface TopItemCount {
+        String getItemId();
+        String getName();
+        String getArtistName();
+        Long getPlays();
+    }
+
+    // result row for totals and the peak day below
+    interface DayTotal {
+        LocalDate getDay();
+        Long getPlays();
+        Long getListeningMs();
+    }
+
+    // bump one counter in place (single round trip, safe under concurrent inserts)
+    @Modifying
+    @Query(value = "INSERT INTO play_count (listener_id, item_type, item_id, day, play_count) "
+            + "VALUES (:listenerId, :itemType, :itemId, :day, 1) "
+            + "ON CONFLICT (listener_id, item_type, item_id, day) "
+            + "DO UPDATE SET play_count = play_count.play_count + 1", nativeQuery = true)
+    int increment(@Param("listenerId") String listenerId, @Param("itemType") String itemType,
+            @Param("itemId") String itemId, @Param("day") LocalDate day);
+
+    // count one play of a song again under a (possibly new) listener and day, for edited history rows;
+    // the song's artists and albums come from the join tables, as song-service would report them
+    @Modifying
+    @Query(value = "INSERT INTO play_count (listener_id, item_type, item_id, day, play_count) "
+            + "SELECT :listenerId, 'SONG', CAST(:songId AS VARCHAR), :day, 1 "
+            + "UNION SELECT :listenerId, 'ARTIST', x.artist_id, :day, 1 FROM artists_songs x WHERE x.song_id = :songId "
+            + "UNION SELECT :listenerId, 'ALBUM', y.album_id, :day, 1 FROM albums_songs y WHERE y.song_id = :songId "
+            + "ON CONFLICT (listener_id, item_type, item_id, day) "
+            + "DO UPDATE SET play_count = play_count.play_count + 1", nativeQuery = true)
+    int incrementPlay(@Param("listenerId") String listenerId, @Param("songId") String songId,
+            @Param("day") LocalDate day);
+
+    // take back one play of a song (its song, artist and album counters) when a history row is edited or deleted
+    @Modifying
+    @Query(value = "UPDATE play_count SET play_count = play_count - 1 "
+            + "WHERE listener_id = :listenerId AND day = :day AND play_count > 0 AND ("
+            + "(item_type = 'SONG' AND item_id = :songId) "
+            + "OR (item_type = 'ARTIST' AND item_id IN (SELECT x.artist_id FROM artists_songs x WHERE x.song_id = :songId)) "
+            + "OR (item_type = 'ALBUM' AND item_id IN (SELECT y.album_id FROM albums_songs y WHERE y.song_id = :songId)))",
+            nativeQuery = true)
+    int decrementPlay(@Param("listenerId") String listenerId, @Param("songId") String songId,
+            @Param("day") LocalDate day);
+
+    // counters taken back to zero would otherwise show up in top-N with no plays
+    @Modifying
+    @Query(value = "DELETE FROM play_count WHERE listener_id = :listenerId AND day = :day AND play_count <= 0",
+            nativeQuery = true)
+    int deleteEmpty(@Param("listenerId") String listenerId, @Param("day") LocalDate day);
+
+    // next batch of listeners for the backfill, locked until the batch commits. FOR UPDATE conflicts with the
+    // KEY SHARE lock a history insert's foreign-key check takes on its listener row, so in-flight plays of
+    // these listeners commit first and new ones wait: the recount below sees exactly the plays it overwrites
+    @Query(value = "SELECT listener_id FROM listener WHERE listener_id > :after "
+            + "ORDER BY listener_id LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<String> lockListenersAfter(@Param("after") String after, @Param("limit") int limit);
+
+    // recount every song, artist and album counter of these listeners from history. Idempotent: the counts
+    // overwrite whatever the counters hold, so re-running a batch after a crash is harmless
+    @Modifying
+    @Query(value = "INSERT INTO play_count (listener_id, item_type, item_id, day, play_count) "
+            + "SELECT h.listener_id, 'SONG', h.song_id, CAST(h.played_at AS DATE), COUNT(*) FROM history h "
+            + "WHERE h.listener_id IN (:listenerIds) "
+            + "GROUP BY h.listener_id, h.song_id, CAST(h.played_at AS DATE) "
+            + "UNION ALL SELECT h.listener_id, 'ARTIST', x.artist_id, CAST(h.played_at AS DATE), COUNT(*) FROM history h "
+            + "JOIN artists_songs x ON x.song_id = h.song_id WHERE h.listener_id IN (:listenerIds) "
+            + "GROUP BY h.listener_id, x.artist_id, CAST(h.played_at AS DATE) "
+            + "UNION ALL SELECT h.listener_id, 'ALBUM', y.album_id, CAST(h.played_at AS DATE), COUNT(*) FROM history h "
+            + "JOIN albums_songs y ON y.song_id = h.song_id WHERE h.listener_id IN (:listenerIds) "
+            + "GROUP BY h.listener_id, y.album_id, CAST(h.played_at AS DATE) "
+            + "ON CONFLICT (listener_id, item_type, item_id, day) DO UPDATE SET play_count = EXCLUDED.play_count",
+            nativeQuery = true)
+    int recountListeners(@Param("listenerIds") List<String> listenerIds);
+
+    // top songs in a day range, with the song name and its first artist
+    @Query(value = "SELECT pc.item_id AS itemId, s.name AS name, "
+            + "(SELECT MIN(a.name) FROM artists_songs x JOIN artist a ON a.artist_id = x.artist_id "
+            + "WHERE x.song_id = pc.item_id) AS artistName, "
+            + "CAST(SUM(pc.play_count) AS BIGINT) AS plays "
+            + "FROM play_count pc LEFT JOIN song s ON s.song_id = pc.item_id "
+            + "WHERE pc.listener_id = :listenerId AND pc.item_type = 'SONG' AND pc.day BETWEEN :fromDay AND :toDay "
+            + "GROUP BY pc.item_id, s.name "
+            + "ORDER BY plays DESC, pc.item_id LIMIT :limit", nativeQuery = true)
+    List<TopItemCount> findTopSongs(@Param("listenerId") String listenerId, @Param("fromDay") LocalDate fromDay,
+            @Param("toDay") LocalDate toDay, @Param("limit") int limit);
+
+    // top artists in a day range
+    @Query(value = "SELECT pc.item_id AS itemId, a.name AS name, CAST(NULL AS TEXT) AS artistName, "
+            + "CAST(SUM(pc.play_count) AS BIGINT) AS plays "
+            + "FROM play_count pc LEFT JOIN artist a ON a.artist_id = pc.item_id "
+            + "WHERE pc.listener_id = :listenerId AND pc.item_type = 'ARTIST' AND pc.day BETWEEN :fromDay AND :toDay "
+            + "GROUP BY pc.item_id, a.name "
+            + "ORDER BY plays DESC, pc.item_id LIMIT :limit", nativeQuery = true)
+    List<TopItemCount> findTopArtists(@Param("listenerId") String listenerId, @Param("fromDay") LocalDate fromDay,
+            @Param("toDay") LocalDate toDay, @Param("limit") int limit);
+
+    // top albums in a day range, with the album's artist
+    @Query(value = "SELECT pc.item_id AS itemId, al.title AS name, ar.name AS artistName, "
+            + "CAST(SUM(pc.play_count) AS BIGINT) AS plays "
+            + "FROM play_count pc LEFT JOIN album al ON al.album_id = pc.item_id "
+            + "LEFT JOIN artist ar ON ar.artist_id = al.artist_id "
+            + "WHERE pc.listener_id = :listenerId AND pc.item_type = 'ALBUM' AND pc.day BETWEEN :fromDay AND :toDay "
+            + "GROUP BY pc.item_id, al.title, ar.name "
+            + "ORDER BY plays DESC, pc.item_id LIMIT :limit", nativeQuery = true)
+    List<TopItemCount> findTopAlbums(@Param("listenerId") String listenerId, @Param("fromDay") LocalDate fromDay,
+            @Param("toDay") LocalDate toDay, @Param("limit") int limit);
+
+    // next page of listeners with plays in a day range, in listener ID order (batch jobs walk these with a cursor)
+    @Query(value = "SELECT DISTINCT pc.listener_id FROM play_count pc "
+            + "WHERE pc.item_type = 'SONG' AND pc.day BETWEEN :fromDay AND :toDay AND pc.listener_id > :after "
+            + "ORDER BY pc.listener_id LIMIT :limit", nativeQuery = true)
+    List<String> findListenersWithPlays(@Param("fromDay") LocalDate fromDay, @Param("toDay") LocalDate toDay,
+            @Param("after") String after, @Param("limit") int limit);
+
+    // total plays and listening time in a day range (day is null)
+    @Query(value = "SELECT CAST(NULL AS DATE) AS day, CAST(COALESCE(SUM(pc.play_count), 0) AS BIGINT) AS plays, "
+            + "CAST(COALESCE(SUM(pc.play_count * s.duration_ms), 0) AS BIGINT) AS listeningMs "
+            + "FROM play_count pc LEFT JOIN song s ON s.song_id = pc.item_id "
+            + "WHERE pc.listener_id = :listenerId AND pc.item_type = 'SONG' AND pc.day BETWEEN :fromDay AND :toDay",
+            nativeQuery = true)
+    DayTotal sumPlays(@Param("listenerId") String listenerId, @Param("fromDay") LocalDate fromDay,
+            @Param("toDay") LocalDate toDay);
+
+    // the day with the most plays in a day range (earliest wins a tie)
+    @Query(value = "SELECT pc.day AS day, CAST(SUM(pc.play_count) AS BIGINT) AS plays, CAST(0 AS BIGINT) AS listeningMs "
+            + "FROM play_count pc "
+            + "WHERE pc.listener_id = :listenerId AND pc.item_type = 'SONG' AND pc.day BETWEEN :fromDay AND :toDay "
+            + "GROUP BY pc.day ORDER BY plays DESC, pc.day LIMIT 1", nativeQuery = true)
+    Optional<DayTotal> findPeakDay(@Param("listenerId") String listenerId, @Param("fromDay") LocalDate fromDay,
+            @Param("toDay") LocalDate toDay);
+
+    @Modifying
+    @Query(value = "DELETE FROM play_count WHERE ctid IN ("
+            + "SELECT ctid FROM play_count WHERE listener_id = :listenerId LIMIT :limit)", nativeQuery = true)
+    int deleteListenerChunk(@Param("listenerId") String listenerId, @Param("limit") int limit);
+}
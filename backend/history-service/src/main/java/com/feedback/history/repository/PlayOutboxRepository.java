@@ -0,0 +1,40 @@
+package com.feedback.history.repository;
+
+import com.feedback.history.model.PlayOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PlayOutboxRepository extends JpaRepository<PlayOutbox, Long> {
+
+    // oldest waiting plays, locked until the relay's transaction ends; rows another instance is relaying are skipped
+    @Query(value = "SELECT * FROM play_outbox ORDER BY outbox_id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<PlayOutbox> lockBatch(@Param("limit") int limit);
+
+    // queue the history rows in (fromHistoryId, toHistoryId] for publishing, for seeding the play aggregator
+    @Modifying
+    @Query(value = "INSERT INTO play_outbox (history_id, listener_id, song_id, duration_ms, played_at) "
+            + "SELECT h.history_id, h.listener_id, h.song_id, s.duration_ms, h.played_at "
+            + "FROM history h JOIN song s ON s.song_id = h.song_id "
+            + "WHERE h.history_id > :fromHistoryId AND h.history_id <= :toHistoryId AND h.listener_id IS NOT NULL",
+            nativeQuery = true)
+    int enqueueHistory(@Param("fromHistoryId") long fromHistoryId, @Param("toHistoryId") long toHistoryId);
+
+    // queue one side of an edited or deleted play: -1 plays for what it was, +1 for what it became.
+    // The duration is the song's, as enqueueHistory and the insert publish it
+    @Modifying
+    @Query(value = "INSERT INTO play_outbox (history_id, listener_id, song_id, duration_ms, played_at, plays, revision) "
+            + "VALUES (:historyId, :listenerId, :songId, (SELECT s.duration_ms FROM song s WHERE s.song_id = :songId), "
+            + ":playedAt, :plays, TRUE)", nativeQuery = true)
+    int enqueueRevision(@Param("historyId") long historyId, @Param("listenerId") String listenerId,
+            @Param("songId") String songId, @Param("playedAt") LocalDateTime playedAt, @Param("plays") int plays);
+
+    @Modifying
+    @Query(value = "DELETE FROM play_outbox WHERE outbox_id IN ("
+            + "SELECT outbox_id FROM play_outbox WHERE listener_id = :listenerId LIMIT :limit)", nativeQuery = true)
+    int deleteListenerChunk(@Param("listenerId") String listenerId, @Param("limit") int limit);
+}
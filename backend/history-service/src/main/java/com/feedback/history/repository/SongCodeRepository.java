@@ -0,0 +1,27 @@
+package com.feedback.history.repository;
+
+import com.feedback.history.model.SongCode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface SongCodeRepository extends JpaRepository<SongCode, Integer> {
+
+    Optional<SongCode> findBySongId(String songId);
+
+    // the song's code, assigning the next one if it has none yet (null if another insert won the race)
+    @Query(value = "WITH ins AS (INSERT INTO song_code (song_id) VALUES (:songId) "
+            + "ON CONFLICT (song_id) DO NOTHING RETURNING code) "
+            + "SELECT code FROM ins UNION ALL SELECT code FROM song_code WHERE song_id = :songId LIMIT 1", nativeQuery = true)
+    Integer assignCode(@Param("songId") String songId);
+
+    // codes for every song in a listener's history, in one statement (first-time backfill)
+    @Modifying
+    @Query(value = "INSERT INTO song_code (song_id) SELECT DISTINCT h.song_id FROM history h "
+            + "WHERE h.listener_id = :listenerId AND h.song_id IS NOT NULL "
+            + "ON CONFLICT (song_id) DO NOTHING", nativeQuery = true)
+    int assignCodesForListener(@Param("listenerId") String listenerId);
+}
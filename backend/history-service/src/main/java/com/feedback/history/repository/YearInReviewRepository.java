@@ -0,0 +1,16 @@
+package com.feedback.history.repository;
+
+import com.feedback.history.model.YearInReview;
+import com.feedback.history.model.YearInReviewId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface YearInReviewRepository extends JpaRepository<YearInReview, YearInReviewId> {
+
+    @Modifying
+    @Query(value = "DELETE FROM year_in_review WHERE ctid IN ("
+            + "SELECT ctid FROM year_in_review WHERE listener_id = :listenerId LIMIT :limit)", nativeQuery = true)
+    int deleteListenerChunk(@Param("listenerId") String listenerId, @Param("limit") int limit);
+}
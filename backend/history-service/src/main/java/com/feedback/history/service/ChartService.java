@@ -0,0 +1,212 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.ChartDTO;
+import com.feedback.history.dtos.ChartEntryDTO;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.model.ChartEntry;
+import com.feedback.history.repository.ChartEntryRepository;
+import com.feedback.history.repository.HistoryRepository;
+import com.feedback.history.sketch.SlidingHeavyHitters;
+import com.feedback.history.sketch.SpaceSaving;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Top songs and artists, worldwide and per listener country, over the last day and the last
+ * week. Plays feed Space-Saving sketches bucketed by hour (day window) and by day (week window);
+ * a scheduled snapshot merges the buckets and replaces the chart_entry table, which is what
+ * requests read. The sketches are rebuilt from the last week of history on startup (see {@link IndexRebuild}).
+ */
+@Service
+public class ChartService {
+
+    public static final int DEFAULT_LIMIT = 50;
+    // entries stored per chart
+    public static final int MAX_LIMIT = 100;
+
+    // counters per sketch: enough that the top 100 are accurate, with less for the long tail of countries
+    private static final int GLOBAL_CAPACITY = 2000;
+    private static final int COUNTRY_CAPACITY = 500;
+    private static final long HOUR = 3600;
+    private static final long DAY = 24 * HOUR;
+    private static final int WEEK_DAYS = 7;
+
+    private final ChartEntryRepository chartRepository;
+    private final TransactionTemplate writeTemplate;
+    private final IndexRebuild indexRebuild;
+    // "scope|type|window" -> sketch, guarded by this
+    private final Map<String, SlidingHeavyHitters> sketches = new HashMap<>();
+
+    public ChartService(HistoryRepository historyRepository, ChartEntryRepository chartRepository,
+            PlatformTransactionManager transactionManager) {
+        this.chartRepository = chartRepository;
+        this.writeTemplate = new TransactionTemplate(transactionManager);
+        this.indexRebuild = new IndexRebuild("charts", historyRepository, transactionManager, new IndexRebuild.Index() {
+            @Override
+            public void reset() {
+                synchronized (ChartService.this) {
+                    sketches.clear();
+                }
+            }
+
+            @Override
+            public void load(long maxHistoryId) {
+                LocalDateTime since = LocalDateTime.now().toLocalDate().minusDays(WEEK_DAYS - 1).atStartOfDay();
+                try (Stream<HistoryRepository.ChartPlays> plays = historyRepository.streamChartPlays(since, maxHistoryId)) {
+                    plays.forEach(row -> {
+                        long second = PlayAnalyticsService.toSecond(row.getHour());
+                        String type = "S".equals(row.getItemType()) ? ChartEntry.SONG : ChartEntry.ARTIST;
+                        synchronized (ChartService.this) {
+                            offer(row.getCountry(), type, row.getItemId(), second, row.getPlays());
+                        }
+                    });
+                }
+                System.out.println("Charts rebuilt from plays since " + since);
+            }
+
+            @Override
+            public void apply(PlayRecordedEvent event) {
+                synchronized (ChartService.this) {
+                    add(event);
+                }
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRebuild() {
+        Thread.ofVirtual().name("charts-rebuild").start(this::rebuild);
+    }
+
+    // a failed attempt is retried by IndexRebuild; the scheduled snapshot picks up the charts once one succeeds
+    public void rebuild() {
+        if (indexRebuild.run()) {
+            snapshot();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPlayRecorded(PlayRecordedEvent event) {
+        indexRebuild.onPlayRecorded(event);
+    }
+
+    // merges the buckets of every sketch and swaps the whole chart table in one transaction
+    @Scheduled(fixedDelayString = "${history.charts.snapshot-interval-ms:300000}")
+    public void snapshot() {
+        if (!indexRebuild.isReady()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        long nowSecond = PlayAnalyticsService.toSecond(now);
+        List<ChartEntry> entries = new ArrayList<>();
+        synchronized (this) {
+            sketches.forEach((key, sketch) -> {
+                if (sketch.isEmpty(nowSecond)) {
+                    return;
+                }
+                String[] parts = key.split("\\|");
+                int rank = 1;
+                for (SpaceSaving.Item item : sketch.top(nowSecond, MAX_LIMIT)) {
+                    entries.add(new ChartEntry(parts[0], parts[2], parts[1], rank++, item.item(), item.count(),
+                            item.error(), now));
+                }
+            });
+        }
+        try {
+            writeTemplate.executeWithoutResult(status -> {
+                chartRepository.deleteAllEntries();
+                chartRepository.saveAll(entries);
+            });
+        } catch (RuntimeException e) {
+            System.err.println("Failed to write chart snapshot: " + e.getMessage());
+        }
+    }
+
+    // the last snapshot of one chart; country null or blank for the worldwide chart
+    public ChartDTO getChart(String country, String window, String type, Integer limit) {
+        String scope = country == null || country.isBlank() ? ChartEntry.GLOBAL : country.trim().toUpperCase(Locale.ROOT);
+        String chartWindow = parseWindow(window);
+        String itemType = parseType(type);
+        int size = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+
+        List<ChartEntry> rows = chartRepository.findByScopeAndChartWindowAndItemTypeOrderByRank(scope, chartWindow,
+                itemType, Limit.of(size));
+        List<ChartEntryDTO> entries = rows.stream()
+                .map(row -> new ChartEntryDTO(row.getRank(), row.getItemId(), row.getPlays(), row.getError()))
+                .toList();
+        LocalDateTime computedAt = rows.isEmpty() ? null : rows.get(0).getComputedAt();
+        return new ChartDTO(ChartEntry.GLOBAL.equals(scope) ? null : scope,
+                chartWindow.toLowerCase(Locale.ROOT),
+                ChartEntry.SONG.equals(itemType) ? "songs" : "artists",
+                computedAt,
+                entries);
+    }
+
+    private static String parseWindow(String window) {
+        if (window == null || window.isBlank() || window.equalsIgnoreCase("day")) {
+            return ChartEntry.DAY;
+        }
+        if (window.equalsIgnoreCase("week")) {
+            return ChartEntry.WEEK;
+        }
+        throw new InvalidRequestException("window", window);
+    }
+
+    private static String parseType(String type) {
+        if (type == null || type.isBlank() || type.equalsIgnoreCase("songs")) {
+            return ChartEntry.SONG;
+        }
+        if (type.equalsIgnoreCase("artists")) {
+            return ChartEntry.ARTIST;
+        }
+        throw new InvalidRequestException("type", type);
+    }
+
+    // called holding the lock
+    private void add(PlayRecordedEvent event) {
+        if (event.songId() == null || event.playedAt() == null) {
+            return;
+        }
+        long second = PlayAnalyticsService.toSecond(event.playedAt());
+        offer(event.country(), ChartEntry.SONG, event.songId(), second, 1);
+        for (String artistId : event.artistIds()) {
+            offer(event.country(), ChartEntry.ARTIST, artistId, second, 1);
+        }
+    }
+
+    // called holding the lock: counts the play worldwide and, when known, for the listener's country
+    private void offer(String country, String type, String itemId, long second, long plays) {
+        sketch(ChartEntry.GLOBAL, type, ChartEntry.DAY).offer(itemId, second, plays);
+        sketch(ChartEntry.GLOBAL, type, ChartEntry.WEEK).offer(itemId, second, plays);
+        if (country != null && !country.isBlank()) {
+            String scope = country.trim().toUpperCase(Locale.ROOT);
+            sketch(scope, type, ChartEntry.DAY).offer(itemId, second, plays);
+            sketch(scope, type, ChartEntry.WEEK).offer(itemId, second, plays);
+        }
+    }
+
+    private SlidingHeavyHitters sketch(String scope, String type, String window) {
+        return sketches.computeIfAbsent(scope + "|" + type + "|" + window, key -> {
+            int capacity = ChartEntry.GLOBAL.equals(scope) ? GLOBAL_CAPACITY : COUNTRY_CAPACITY;
+            return ChartEntry.DAY.equals(window)
+                    ? new SlidingHeavyHitters(HOUR, 24, capacity)
+                    : new SlidingHeavyHitters(DAY, WEEK_DAYS, capacity);
+        });
+    }
+}
@@ -0,0 +1,277 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.DiscoveryDTO;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.events.PlayRevisedEvent;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.model.FirstListen;
+import com.feedback.history.model.ListenerSongBitmap;
+import com.feedback.history.model.SongCode;
+import com.feedback.history.repository.FirstListenRepository;
+import com.feedback.history.repository.HistoryRepository;
+import com.feedback.history.repository.ListenerSongBitmapRepository;
+import com.feedback.history.repository.SongCodeRepository;
+import com.feedback.history.sketch.RoaringBitmap;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks which songs each listener has heard, so every play can be classed as a discovery or a
+ * repeat without a NOT EXISTS over history. Songs get dense int codes and each listener's songs
+ * are a {@link RoaringBitmap}, loaded when first needed and checked in memory per play; only the most
+ * recently active listeners' bitmaps stay cached. A discovery writes one first_listen row; changed
+ * bitmaps are merged into their stored copy on a schedule, or when they are evicted.
+ *
+ * A repeat that is older than the stored first listen (a backdated or edited play) moves it earlier, and
+ * an edited or deleted play has its old song's first listen recomputed from history. Bitmaps only ever
+ * gain songs, so a song whose last play was deleted still counts towards songsHeard.
+ */
+@Service
+public class DiscoveryService {
+
+    public static final int NEW_SONGS_LIMIT = 50;
+
+    private final FirstListenRepository firstListenRepository;
+    private final ListenerSongBitmapRepository bitmapRepository;
+    private final SongCodeRepository songCodeRepository;
+    private final HistoryRepository historyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrentHashMap<String, Integer> songCodes = new ConcurrentHashMap<>();
+    // song sets of recently active listeners, least recently used first; guarded by itself.
+    // An evicted listener is flushed if dirty and loaded from listener_song_bitmap again when next seen
+    private final LinkedHashMap<String, RoaringBitmap> bitmaps = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxCachedListeners;
+    // listeners whose bitmap gained songs since the last flush
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    public DiscoveryService(FirstListenRepository firstListenRepository, ListenerSongBitmapRepository bitmapRepository,
+            SongCodeRepository songCodeRepository, HistoryRepository historyRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${history.discovery.max-cached-listeners:10000}") int maxCachedListeners) {
+        this.firstListenRepository = firstListenRepository;
+        this.bitmapRepository = bitmapRepository;
+        this.songCodeRepository = songCodeRepository;
+        this.historyRepository = historyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxCachedListeners = maxCachedListeners;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPlayRecorded(PlayRecordedEvent event) {
+        if (event.listenerId() == null || event.songId() == null || event.playedAt() == null) {
+            return;
+        }
+        try {
+            recordPlay(event.listenerId(), event.songId(), event.playedAt());
+        } catch (RuntimeException e) {
+            System.err.println("Failed to record discovery for listener " + event.listenerId() + ": " + e.getMessage());
+        }
+    }
+
+    // after the edit or delete committed, so history already shows the play as it is now
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPlayRevised(PlayRevisedEvent event) {
+        try {
+            if (event.beforeListenerId() != null && event.beforeSongId() != null) {
+                recomputeFirstListen(event.beforeListenerId(), event.beforeSongId());
+            }
+            if (event.afterListenerId() != null && event.afterSongId() != null && event.afterPlayedAt() != null) {
+                recordPlay(event.afterListenerId(), event.afterSongId(), event.afterPlayedAt());
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Failed to revise discovery for history " + event.historyId() + ": " + e.getMessage());
+        }
+    }
+
+    // returns true if this was the listener's first play of the song
+    public boolean recordPlay(String listenerId, String songId, LocalDateTime playedAt) {
+        int code = songCode(songId);
+        RoaringBitmap songs = bitmapFor(listenerId);
+        boolean discovered;
+        synchronized (songs) {
+            discovered = songs.add(code);
+        }
+        // a repeat goes through the same upsert: it only writes when the play is older than the stored
+        // first listen, and puts back a row a deleted play took with it
+        transactionTemplate.executeWithoutResult(status ->
+                firstListenRepository.recordFirstListen(listenerId, songId, playedAt));
+        if (discovered) {
+            dirty.add(listenerId);
+        }
+        return discovered;
+    }
+
+    // the listener's first play of the song as history has it now; no row if none is left
+    private void recomputeFirstListen(String listenerId, String songId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            firstListenRepository.recomputeFromHistory(listenerId, songId);
+            firstListenRepository.deleteWithoutPlays(listenerId, songId);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${history.discovery.flush-interval-ms:30000}")
+    @PreDestroy
+    public void flush() {
+        for (String listenerId : dirty) {
+            dirty.remove(listenerId);
+            RoaringBitmap songs;
+            synchronized (bitmaps) {
+                songs = bitmaps.get(listenerId);
+            }
+            // an evicted listener was flushed on the way out
+            if (songs != null && !flush(listenerId, songs)) {
+                // try again next flush; OR-merging is idempotent
+                dirty.add(listenerId);
+            }
+        }
+    }
+
+    // account erasure: drops the listener's cached song set without flushing it, so it is not written back
+    // over the deleted listener_song_bitmap row
+    public void forgetListener(String listenerId) {
+        dirty.remove(listenerId);
+        synchronized (bitmaps) {
+            bitmaps.remove(listenerId);
+        }
+    }
+
+    // discoveries vs repeats in [from, to]; defaults to this week (Monday to today)
+    public DiscoveryDTO getDiscoveries(String listenerId, LocalDate from, LocalDate to) {
+        if (listenerId == null || listenerId.isBlank()) {
+            throw new InvalidRequestException("Listener ID is required");
+        }
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.with(DayOfWeek.MONDAY);
+        if (start.isAfter(end)) {
+            throw new InvalidRequestException("Start date must be before end date");
+        }
+        LocalDateTime startTime = start.atStartOfDay();
+        LocalDateTime endTime = end.plusDays(1).atStartOfDay().minusNanos(1);
+
+        // make sure the listener's existing history has been backfilled before counting
+        RoaringBitmap songs = bitmapFor(listenerId);
+        long songsHeard;
+        synchronized (songs) {
+            songsHeard = songs.cardinality();
+        }
+        long discoveries = firstListenRepository.countByListenerIdAndFirstPlayedAtBetween(listenerId, startTime, endTime);
+        long plays = historyRepository.countByListener_ListenerIdAndPlayedAtBetween(listenerId, startTime, endTime);
+        long repeats = Math.max(0, plays - discoveries);
+        double ratio = plays == 0 ? 0 : (double) Math.min(discoveries, plays) / plays;
+        List<String> newSongIds = firstListenRepository
+                .findByListenerIdAndFirstPlayedAtBetweenOrderByFirstPlayedAtDesc(listenerId, startTime, endTime,
+                        Limit.of(NEW_SONGS_LIMIT))
+                .stream()
+                .map(FirstListen::getSongId)
+                .toList();
+        return new DiscoveryDTO(listenerId, start, end, discoveries, repeats, ratio, songsHeard, newSongIds);
+    }
+
+    // assigned outside the map: a transaction must not run inside computeIfAbsent, which holds the bin's lock
+    private int songCode(String songId) {
+        Integer cached = songCodes.get(songId);
+        if (cached != null) {
+            return cached;
+        }
+        int code = transactionTemplate.execute(status -> {
+            Integer assigned = songCodeRepository.assignCode(songId);
+            // null when a concurrent insert of the same song committed after our snapshot
+            return assigned != null ? assigned : songCodeRepository.findBySongId(songId).map(SongCode::getCode).orElseThrow();
+        });
+        // a concurrent caller got the same code from the same row
+        songCodes.putIfAbsent(songId, code);
+        return code;
+    }
+
+    private RoaringBitmap bitmapFor(String listenerId) {
+        synchronized (bitmaps) {
+            RoaringBitmap cached = bitmaps.get(listenerId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        // loaded without the lock, so a slow load or first-time backfill holds up no other listener;
+        // if two callers race, both loads are idempotent and the first one cached wins
+        RoaringBitmap loaded = load(listenerId);
+        RoaringBitmap songs;
+        Map<String, RoaringBitmap> evicted = new LinkedHashMap<>();
+        synchronized (bitmaps) {
+            RoaringBitmap raced = bitmaps.putIfAbsent(listenerId, loaded);
+            songs = raced != null ? raced : loaded;
+            Iterator<Map.Entry<String, RoaringBitmap>> eldest = bitmaps.entrySet().iterator();
+            while (bitmaps.size() > maxCachedListeners) {
+                Map.Entry<String, RoaringBitmap> entry = eldest.next();
+                evicted.put(entry.getKey(), entry.getValue());
+                eldest.remove();
+            }
+        }
+        // written outside the lock. A play that picked up an evicted bitmap just before it left can miss
+        // this write; its first_listen row is already stored, so it only costs a redundant insert later
+        evicted.forEach((evictedId, evictedSongs) -> {
+            if (dirty.remove(evictedId)) {
+                flush(evictedId, evictedSongs);
+            }
+        });
+        return songs;
+    }
+
+    private RoaringBitmap load(String listenerId) {
+        return transactionTemplate.execute(status -> bitmapRepository.findById(listenerId)
+                .map(row -> RoaringBitmap.fromBytes(row.getSongs()))
+                .orElseGet(() -> backfill(listenerId)));
+    }
+
+    // merges one listener's songs into the stored bitmap; returns false if that failed
+    private boolean flush(String listenerId, RoaringBitmap songs) {
+        RoaringBitmap snapshot;
+        synchronized (songs) {
+            snapshot = RoaringBitmap.fromBytes(songs.toBytes());
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                ListenerSongBitmap row = bitmapRepository.findForUpdate(listenerId)
+                        .orElseGet(() -> new ListenerSongBitmap(listenerId));
+                // another instance may have stored songs this one hasn't seen
+                RoaringBitmap merged = row.getSongs() != null
+                        ? RoaringBitmap.fromBytes(row.getSongs()).or(snapshot)
+                        : snapshot;
+                row.setSongs(merged.toBytes());
+                row.setSongCount(merged.cardinality());
+                bitmapRepository.save(row);
+            });
+            return true;
+        } catch (RuntimeException e) {
+            System.err.println("Failed to flush song bitmap for listener " + listenerId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // first time we see a listener: derive first listens and the song set from their history
+    private RoaringBitmap backfill(String listenerId) {
+        songCodeRepository.assignCodesForListener(listenerId);
+        firstListenRepository.backfillFromHistory(listenerId);
+        RoaringBitmap songs = new RoaringBitmap();
+        for (Integer code : firstListenRepository.findSongCodes(listenerId)) {
+            songs.add(code);
+        }
+        dirty.add(listenerId);
+        return songs;
+    }
+}
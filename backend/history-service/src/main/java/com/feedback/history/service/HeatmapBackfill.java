@@ -0,0 +1,46 @@
+package com.feedback.history.service;
+
+import com.feedback.history.repository.JobCheckpointRepository;
+import com.feedback.history.repository.ListeningHeatmapRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+// Fills listening_heatmap from the history rows written before heatmaps were kept (see ListenerBackfill).
+// Each listener's heatmaps are replaced by ones recounted from all of their history
+@Service
+public class HeatmapBackfill extends ListenerBackfill {
+
+    public static final String JOB_NAME = "heatmap-backfill";
+
+    private final ListeningHeatmapRepository heatmapRepository;
+
+    public HeatmapBackfill(ListeningHeatmapRepository heatmapRepository, JobCheckpointRepository checkpointRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${history.heatmap.backfill-batch-size:200}") int batchSize) {
+        super(JOB_NAME, checkpointRepository, transactionManager, batchSize);
+        this.heatmapRepository = heatmapRepository;
+    }
+
+    // first run is at startup; later runs only retry a backfill that failed part way
+    @Scheduled(fixedDelayString = "${history.heatmap.backfill-retry-ms:600000}")
+    public void resume() {
+        start();
+    }
+
+    @Override
+    List<String> lockListenersAfter(String after, int limit) {
+        return heatmapRepository.lockListenersAfter(after, limit);
+    }
+
+    @Override
+    void recount(List<String> listenerIds) {
+        // the listener row locks hold off new plays; edits and deletes take the listener's advisory lock instead
+        listenerIds.forEach(heatmapRepository::lockListener);
+        heatmapRepository.deleteListeners(listenerIds);
+        heatmapRepository.recountListeners(listenerIds);
+    }
+}
@@ -0,0 +1,94 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.HeatmapDTO;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.events.PlayRevisedEvent;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.model.ListeningHeatmap;
+import com.feedback.history.model.ListeningHeatmapId;
+import com.feedback.history.repository.ListeningHeatmapRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Hour-of-week (7x24) and calendar (one cell per day) play heatmaps per listener and year.
+ * Each play bumps two cells of the stored int arrays in place, so a page view is a single
+ * primary-key read instead of a GROUP BY over the listener's history. An edited or deleted play
+ * moves its count out of the old cells, and HeatmapBackfill counts plays from before this existed.
+ */
+@Service
+@Transactional(readOnly = true)
+public class HeatmapService {
+
+    private static final int HOURS_PER_DAY = 24;
+    private static final int DAYS_PER_WEEK = 7;
+
+    private final ListeningHeatmapRepository repository;
+
+    public HeatmapService(ListeningHeatmapRepository repository) {
+        this.repository = repository;
+    }
+
+    @EventListener
+    @Transactional
+    public void onPlayRecorded(PlayRecordedEvent event) {
+        if (event.listenerId() == null || event.playedAt() == null) {
+            return;
+        }
+        add(event.listenerId(), event.playedAt());
+    }
+
+    // an edited or deleted history row, in the same transaction: out of the old cells, into the new ones
+    @EventListener
+    @Transactional
+    public void onPlayRevised(PlayRevisedEvent event) {
+        // held off while the backfill recounts these listeners; in ID order, so two revisions cannot deadlock
+        Stream.of(event.beforeListenerId(), event.afterListenerId())
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted()
+                .forEach(repository::lockListener);
+        if (event.beforeListenerId() != null && event.beforePlayedAt() != null) {
+            LocalDateTime playedAt = event.beforePlayedAt();
+            repository.decrement(event.beforeListenerId(), playedAt.getYear(), hourSlot(playedAt) + 1,
+                    playedAt.getDayOfYear());
+        }
+        if (event.afterListenerId() != null && event.afterPlayedAt() != null) {
+            add(event.afterListenerId(), event.afterPlayedAt());
+        }
+    }
+
+    private void add(String listenerId, LocalDateTime playedAt) {
+        int year = playedAt.getYear();
+        repository.createIfAbsent(listenerId, year);
+        repository.increment(listenerId, year, hourSlot(playedAt) + 1, playedAt.getDayOfYear());
+    }
+
+    public HeatmapDTO getHeatmap(String listenerId, Integer year) {
+        if (listenerId == null || listenerId.isBlank()) {
+            throw new InvalidRequestException("Listener ID is required");
+        }
+        int heatmapYear = year != null ? year : Year.now().getValue();
+        ListeningHeatmap heatmap = repository.findById(new ListeningHeatmapId(listenerId, heatmapYear))
+                .orElseGet(ListeningHeatmap::new);
+
+        int[][] hourOfWeek = new int[DAYS_PER_WEEK][HOURS_PER_DAY];
+        for (int day = 0; day < DAYS_PER_WEEK; day++) {
+            System.arraycopy(heatmap.getHourOfWeek(), day * HOURS_PER_DAY, hourOfWeek[day], 0, HOURS_PER_DAY);
+        }
+        int[] calendar = new int[Year.of(heatmapYear).length()];
+        System.arraycopy(heatmap.getCalendar(), 0, calendar, 0, calendar.length);
+        return new HeatmapDTO(listenerId, heatmapYear, hourOfWeek, calendar);
+    }
+
+    // 0-based cell in the flattened 7x24 grid, Monday 00:00 first
+    static int hourSlot(LocalDateTime playedAt) {
+        return (playedAt.getDayOfWeek().getValue() - 1) * HOURS_PER_DAY + playedAt.getHour();
+    }
+}
@@ -0,0 +1,196 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.HistoryExportRow;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.repository.HistoryRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Streams a listener's full history straight from a database cursor to the response.
+ * Rows are written as they are read, so memory stays flat no matter how big the export is.
+ */
+@Service
+public class HistoryExportService {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final String CSV_HEADER = "history_id,played_at,listener_id,song_id,song_name,duration_ms";
+
+    private final HistoryRepository repository;
+    private final TransactionTemplate transactionTemplate;
+
+    public HistoryExportService(HistoryRepository repository, PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        // the cursor only stays open inside a transaction, and the export runs off the request thread
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public Format parseFormat(String format) {
+        if (format == null || format.isBlank()) {
+            return Format.NDJSON;
+        }
+        try {
+            return Format.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("format", format);
+        }
+    }
+
+    public void validateListenerId(String listenerId) {
+        if (listenerId == null || listenerId.isBlank()) {
+            throw new InvalidRequestException("Listener ID is required");
+        }
+    }
+
+    public void export(String listenerId, Format format, OutputStream out) throws IOException {
+        validateListenerId(listenerId);
+
+        // not closed here: the caller owns the stream (and any gzip wrapper around it)
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<HistoryExportRow> rows = repository.streamExportRows(listenerId)) {
+                    if (format == Format.CSV) {
+                        writer.write(CSV_HEADER);
+                        writer.write('\n');
+                    }
+                    rows.forEach(row -> writeRow(writer, format, row));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void writeRow(Writer writer, Format format, HistoryExportRow row) {
+        try {
+            if (format == Format.CSV) {
+                writeCsvRow(writer, row);
+            } else {
+                writeJsonRow(writer, row);
+            }
+        } catch (IOException e) {
+            // usually the client went away; abort the cursor instead of reading the rest
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeCsvRow(Writer writer, HistoryExportRow row) throws IOException {
+        writer.write(row.historyId() != null ? row.historyId().toString() : "");
+        writer.write(',');
+        writer.write(row.playedAt() != null ? row.playedAt().toString() : "");
+        writer.write(',');
+        writeCsvField(writer, row.listenerId());
+        writer.write(',');
+        writeCsvField(writer, row.songId());
+        writer.write(',');
+        writeCsvField(writer, row.songName());
+        writer.write(',');
+        writer.write(row.durationMs() != null ? row.durationMs().toString() : "");
+        writer.write('\n');
+    }
+
+    private void writeJsonRow(Writer writer, HistoryExportRow row) throws IOException {
+        writer.write("{\"historyId\":");
+        writer.write(row.historyId() != null ? row.historyId().toString() : "null");
+        writer.write(",\"playedAt\":");
+        writeJsonString(writer, row.playedAt() != null ? row.playedAt().toString() : null);
+        writer.write(",\"listenerId\":");
+        writeJsonString(writer, row.listenerId());
+        writer.write(",\"songId\":");
+        writeJsonString(writer, row.songId());
+        writer.write(",\"songName\":");
+        writeJsonString(writer, row.songName());
+        writer.write(",\"durationMs\":");
+        writer.write(row.durationMs() != null ? row.durationMs().toString() : "null");
+        writer.write("}\n");
+    }
+
+    static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                needsQuotes = true;
+                break;
+            }
+        }
+        if (!needsQuotes) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    static void writeJsonString(Writer writer, String value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> writer.write("\\\"");
+                case '\\' -> writer.write("\\\\");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\t' -> writer.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+                }
+            }
+        }
+        writer.write('"');
+    }
+}
@@ -1,6 +1,9 @@
 package com.feedback.history.service;
 
 import com.feedback.history.dtos.HistoryDTO;
+import com.feedback.history.dtos.HistoryViewDTO;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.events.PlayRevisedEvent;
 import com.feedback.history.exception.InvalidRequestException;
 import com.feedback.history.exception.ResourceNotFoundException;
 import com.feedback.history.model.History;
@@ -11,11 +14,13 @@ import com.feedback.history.service.ListenerService;
 import com.feedback.history.service.SongService;
 import com.feedback.history.dtos.ListenerDTO;
 import com.feedback.history.dtos.SongDTO;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
@@ -25,11 +30,14 @@ public class HistoryService {
     private final HistoryRepository repository;
     private final ListenerService listenerService;
     private final SongService songService;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public HistoryService(HistoryRepository repository, ListenerService listenerService, SongService songService) {
+    public HistoryService(HistoryRepository repository, ListenerService listenerService, SongService songService,
+            ApplicationEventPublisher eventPublisher) {
         this.repository = repository;
         this.listenerService = listenerService;
         this.songService = songService;
+        this.eventPublisher = eventPublisher;
     }
 
     private Listener DTOToListener(ListenerDTO dto) {
@@ -112,6 +120,32 @@ public class HistoryService {
                 .toList();
     }
 
+
+    // latest plays labeled with song, artist and album names, from one query (no per-row song-service calls)
+    public List<HistoryViewDTO> getHistoryViews(String listenerId, int limit) {
+        if (limit <= 0) {
+            limit = 50;
+        }
+        if (limit > 500) {
+            limit = 500;
+        }
+        List<HistoryRepository.HistoryView> views = listenerId != null && !listenerId.isBlank()
+                ? repository.findViewsByListener(listenerId, limit)
+                : repository.findLatestViews(limit);
+        return views.stream()
+                .map(view -> new HistoryViewDTO(
+                        view.getHistoryId(),
+                        view.getPlayedAt(),
+                        view.getListenerId(),
+                        view.getSongId(),
+                        view.getSongName(),
+                        view.getArtistNames(),
+                        view.getAlbumId(),
+                        view.getAlbumTitle(),
+                        view.getDurationMs(),
+                        view.getHref()))
+                .toList();
+    }
     
     public List<HistoryDTO> findByDateRange(LocalDateTime start, LocalDateTime end) {
         if (start == null || end == null) {
@@ -176,7 +210,21 @@ public class HistoryService {
         }
         history.setSong(DTOToSong(song));
 
-        return historyToDto(repository.save(history));
+        History saved = repository.save(history);
+
+        // let the play-derived aggregates update in the same transaction
+        eventPublisher.publishEvent(new PlayRecordedEvent(
+                saved.getHistoryId(),
+                listener.listenerId(),
+                listener.country(),
+                song.songId(),
+                song.durationMs(),
+                song.artistIds(),
+                song.albumIds(),
+                saved.getPlayedAt()
+        ));
+
+        return historyToDto(saved);
     }
 
     
@@ -193,6 +241,9 @@ public class HistoryService {
         if (dto == null) {
             throw new InvalidRequestException("History data cannot be null");
         }
+        String beforeListenerId = listenerIdOf(history);
+        String beforeSongId = songIdOf(history);
+        LocalDateTime beforePlayedAt = history.getPlayedAt();
 
         // Update playedAt if provided
         if (dto.playedAt() != null) {
@@ -218,7 +269,15 @@ public class HistoryService {
             history.setSong(DTOToSong(song));
         }
 
-        return historyToDto(repository.save(history));
+        History saved = repository.save(history);
+        if (!Objects.equals(beforeListenerId, listenerIdOf(saved))
+                || !Objects.equals(beforeSongId, songIdOf(saved))
+                || !Objects.equals(beforePlayedAt, saved.getPlayedAt())) {
+            // counters keyed by the old listener, song or day move to the new ones
+            eventPublisher.publishEvent(new PlayRevisedEvent(id, beforeListenerId, beforeSongId, beforePlayedAt,
+                    listenerIdOf(saved), songIdOf(saved), saved.getPlayedAt()));
+        }
+        return historyToDto(saved);
     }
 
     
@@ -227,10 +286,11 @@ public class HistoryService {
         if (id == null) {
             throw new InvalidRequestException("History ID cannot be null");
         }
-        if (!repository.existsById(id)) {
-            throw new ResourceNotFoundException("History", String.valueOf(id));
-        }
+        History history = repository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("History", String.valueOf(id)));
         repository.deleteById(id);
+        eventPublisher.publishEvent(PlayRevisedEvent.deleted(id, listenerIdOf(history), songIdOf(history),
+                history.getPlayedAt()));
     }
     
     private void validateHistoryDTO(HistoryDTO dto) {
@@ -254,9 +314,17 @@ public class HistoryService {
         }
     }
 
+    private static String listenerIdOf(History history) {
+        return history.getListener() != null ? history.getListener().getListenerId() : null;
+    }
+
+    private static String songIdOf(History history) {
+        return history.getSong() != null ? history.getSong().getSongId() : null;
+    }
+
     private HistoryDTO historyToDto(History history) {
-        String listenerId = history.getListener() != null ? history.getListener().getListenerId() : null;
-        String songId = history.getSong() != null ? history.getSong().getSongId() : null;
+        String listenerId = listenerIdOf(history);
+        String songId = songIdOf(history);
 
         return new HistoryDTO(
                 history.getHistoryId(),
@@ -0,0 +1,176 @@
+package com.feedback.history.service;
+
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.repository.HistoryRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Startup load of an in-memory index that is built from history and then kept current from
+ * committed plays. Shared by the services that keep one, so they all get the same guarantees:
+ * <ul>
+ * <li>one history scan runs at a time across every index, so startup does not run them all at once;</li>
+ * <li>plays committed during the scan are queued (up to a cap) and applied once it finishes;</li>
+ * <li>a failed scan drops its partial state and its queue, and is retried with backoff.</li>
+ * </ul>
+ * A queued play is applied only if the scan did not see it. History IDs are handed out before commit,
+ * so a play with an ID below the scan's newest can still commit after it; the scan's snapshot also
+ * records which of its last {@link #TAIL_IDS} IDs it saw, and plays in that range are checked
+ * against it instead of the max. A play older than that range is assumed to be in the scan.
+ */
+class IndexRebuild {
+
+    // what an index provides to be rebuilt
+    interface Index {
+        // drops whatever an earlier, failed attempt left behind
+        void reset();
+
+        // loads every play up to maxHistoryId; runs inside the scan's read-only snapshot transaction
+        void load(long maxHistoryId);
+
+        // applies one play the scan did not see
+        void apply(PlayRecordedEvent event);
+    }
+
+    // trailing history IDs whose visibility is checked, not assumed: far more than can be in flight at once
+    static final long TAIL_IDS = 10_000;
+    // plays queued during one scan; past this the scan is retried, since its snapshot would miss them
+    static final int MAX_PENDING = 100_000;
+    static final Duration FIRST_RETRY = Duration.ofSeconds(5);
+    static final Duration MAX_RETRY = Duration.ofMinutes(5);
+
+    // one scan at a time across every index; fair, so they go in the order they asked
+    private static final ReentrantLock SCANS = new ReentrantLock(true);
+
+    private final String name;
+    private final HistoryRepository repository;
+    private final TransactionTemplate snapshotTemplate;
+    private final Index index;
+
+    // all guarded by this
+    private final Queue<PlayRecordedEvent> pending = new ArrayDeque<>();
+    private boolean queueing;
+    private boolean overflowed;
+    private long maxHistoryId;
+    private Set<Long> tailSeen = Set.of();
+    private Duration nextRetry = FIRST_RETRY;
+
+    private volatile boolean ready;
+
+    IndexRebuild(String name, HistoryRepository repository, PlatformTransactionManager transactionManager, Index index) {
+        this.name = name;
+        this.repository = repository;
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setReadOnly(true);
+        // every statement of the scan sees the same snapshot, so the max, the tail and the rows agree
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.index = index;
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    // runs the first attempt on a virtual thread
+    void start() {
+        Thread.ofVirtual().name(name + "-rebuild").start(this::run);
+    }
+
+    // one attempt, after any other index's scan finishes; returns whether the index is ready.
+    // On failure another attempt is scheduled after a backoff
+    boolean run() {
+        SCANS.lock();
+        try {
+            synchronized (this) {
+                pending.clear();
+                overflowed = false;
+                queueing = true;
+            }
+            index.reset();
+            Scan scan = snapshotTemplate.execute(status -> {
+                long maxId = repository.findMaxHistoryId();
+                Set<Long> tail = new HashSet<>(repository.findHistoryIdsBetween(Math.max(0, maxId - TAIL_IDS), maxId));
+                index.load(maxId);
+                return new Scan(maxId, tail);
+            });
+            synchronized (this) {
+                if (overflowed) {
+                    throw new IllegalStateException("more than " + MAX_PENDING + " plays arrived during the scan");
+                }
+                maxHistoryId = scan.maxHistoryId();
+                tailSeen = scan.tailSeen();
+                for (PlayRecordedEvent event; (event = pending.poll()) != null; ) {
+                    applyIfNew(event);
+                }
+                queueing = false;
+                ready = true;
+            }
+            return true;
+        } catch (RuntimeException e) {
+            Duration retry;
+            synchronized (this) {
+                // the next scan sees every play committed so far, so nothing queued needs keeping
+                pending.clear();
+                queueing = false;
+                retry = nextRetry;
+                Duration doubled = nextRetry.multipliedBy(2);
+                nextRetry = doubled.compareTo(MAX_RETRY) > 0 ? MAX_RETRY : doubled;
+            }
+            System.err.println(name + " rebuild failed, retrying in " + retry.toSeconds() + "s: " + e.getMessage());
+            scheduleRetry(retry);
+            return false;
+        } finally {
+            SCANS.unlock();
+        }
+    }
+
+    // called after commit for every play; queued while a scan runs, dropped while waiting to retry
+    void onPlayRecorded(PlayRecordedEvent event) {
+        if (!ready) {
+            synchronized (this) {
+                if (!ready) {
+                    if (queueing) {
+                        if (pending.size() < MAX_PENDING) {
+                            pending.add(event);
+                        } else {
+                            overflowed = true;
+                        }
+                    }
+                    return;
+                }
+            }
+        }
+        applyIfNew(event);
+    }
+
+    // overridden in tests
+    void scheduleRetry(Duration delay) {
+        Thread.ofVirtual().name(name + "-rebuild-retry").start(() -> {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            run();
+        });
+    }
+
+    private void applyIfNew(PlayRecordedEvent event) {
+        if (event.historyId() != null && event.historyId() <= maxHistoryId
+                && (event.historyId() <= maxHistoryId - TAIL_IDS || tailSeen.contains(event.historyId()))) {
+            return;
+        }
+        index.apply(event);
+    }
+
+    private record Scan(long maxHistoryId, Set<Long> tailSeen) {}
+}
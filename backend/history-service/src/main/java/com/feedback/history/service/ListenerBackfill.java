@@ -0,0 +1,97 @@
+package com.feedback.history.service;
+
+import com.feedback.history.model.JobCheckpoint;
+import com.feedback.history.repository.JobCheckpointRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A one-off job that rebuilds a per-listener table from the history rows written before it was maintained.
+ * Listeners are recounted in ID order, one batch per transaction, with the batch's listener rows locked so
+ * their plays cannot change mid-recount; the last listener of each batch is checkpointed, so an interrupted
+ * backfill resumes where it stopped. Once completed it never runs again.
+ */
+abstract class ListenerBackfill {
+
+    private final String jobName;
+    private final JobCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    ListenerBackfill(String jobName, JobCheckpointRepository checkpointRepository,
+            PlatformTransactionManager transactionManager, int batchSize) {
+        this.jobName = jobName;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    // the next listeners after the given ID, locked until the batch commits
+    abstract List<String> lockListenersAfter(String after, int limit);
+
+    // rebuilds these listeners' rows from history; must be idempotent, since a failed batch is redone
+    abstract void recount(List<String> listenerIds);
+
+    // runs the job on a virtual thread unless it is already running
+    void start() {
+        if (running.compareAndSet(false, true)) {
+            Thread.ofVirtual().name(jobName).start(() -> {
+                try {
+                    run();
+                } finally {
+                    running.set(false);
+                }
+            });
+        }
+    }
+
+    void run() {
+        JobCheckpoint checkpoint = checkpointRepository.findById(jobName).orElseGet(() -> new JobCheckpoint(jobName));
+        if (JobCheckpoint.COMPLETED.equals(checkpoint.getStatus())) {
+            return;
+        }
+        if (checkpoint.getStartedAt() == null) {
+            checkpoint.setStartedAt(LocalDateTime.now());
+        }
+        checkpoint.setStatus(JobCheckpoint.RUNNING);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpoint = checkpointRepository.save(checkpoint);
+
+        try {
+            while (checkpoint != null && !JobCheckpoint.COMPLETED.equals(checkpoint.getStatus())) {
+                checkpoint = recountBatch(checkpoint);
+            }
+            System.out.println(jobName + " done: " + checkpoint.getProcessed() + " listeners");
+        } catch (RuntimeException e) {
+            // the failed batch rolled back with its checkpoint, so the retry starts at that batch again
+            System.err.println(jobName + " stopped: " + e.getMessage());
+            checkpointRepository.findById(jobName).ifPresent(saved -> {
+                saved.setStatus(JobCheckpoint.FAILED);
+                saved.setUpdatedAt(LocalDateTime.now());
+                checkpointRepository.save(saved);
+            });
+        }
+    }
+
+    // one batch of listeners and the checkpoint after it, committed together
+    private JobCheckpoint recountBatch(JobCheckpoint checkpoint) {
+        return transactionTemplate.execute(status -> {
+            String after = checkpoint.getLastListenerId() != null ? checkpoint.getLastListenerId() : "";
+            List<String> batch = lockListenersAfter(after, batchSize);
+            if (batch.isEmpty()) {
+                checkpoint.setStatus(JobCheckpoint.COMPLETED);
+            } else {
+                recount(batch);
+                checkpoint.setLastListenerId(batch.get(batch.size() - 1));
+                checkpoint.setProcessed(checkpoint.getProcessed() + batch.size());
+            }
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            return checkpointRepository.save(checkpoint);
+        });
+    }
+}
@@ -0,0 +1,125 @@
+package com.feedback.history.service;
+
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.repository.FirstListenRepository;
+import com.feedback.history.repository.JobFailureRepository;
+import com.feedback.history.repository.ListenerSongBitmapRepository;
+import com.feedback.history.repository.ListeningHeatmapRepository;
+import com.feedback.history.repository.ListeningSessionRepository;
+import com.feedback.history.repository.PlayCountRepository;
+import com.feedback.history.repository.PlayOutboxRepository;
+import com.feedback.history.repository.YearInReviewRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Removes what history-service derived from one listener's plays, for an account deletion. listener-service
+ * deletes the plays themselves and then calls this until it deletes fewer rows than asked: each call
+ * removes up to {@code limit} rows across the per-listener tables (unsent outbox plays, play counts, first
+ * listens, sessions, heatmaps, Wrapped results, job failures and the song bitmap) in one short transaction.
+ * The call that finds nothing left also drops the listener from this instance's in-memory indexes and
+ * sends the play aggregator a tombstone that erases their stats. Each step is idempotent, so a failed call
+ * is simply made again. Platform-wide aggregates (charts, trending, daily unique sketches) count no one by
+ * name and are left as they are.
+ */
+@Service
+public class ListenerPurgeService {
+
+    // one table's bounded delete
+    interface ChunkDelete {
+        int delete(String listenerId, int limit);
+    }
+
+    private final List<ChunkDelete> tables;
+    private final DiscoveryService discoveryService;
+    private final PlayAnalyticsService playAnalyticsService;
+    private final ListeningTotalsService listeningTotalsService;
+    private final TasteSimilarityService tasteSimilarityService;
+    private final TransitionService transitionService;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String topic;
+    private final long sendTimeoutMs;
+
+    public ListenerPurgeService(PlayOutboxRepository outboxRepository, PlayCountRepository playCountRepository,
+            FirstListenRepository firstListenRepository, ListeningSessionRepository sessionRepository,
+            ListeningHeatmapRepository heatmapRepository, YearInReviewRepository yearInReviewRepository,
+            JobFailureRepository jobFailureRepository, ListenerSongBitmapRepository bitmapRepository,
+            DiscoveryService discoveryService, PlayAnalyticsService playAnalyticsService,
+            ListeningTotalsService listeningTotalsService, TasteSimilarityService tasteSimilarityService,
+            TransitionService transitionService, KafkaTemplate<String, String> kafkaTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${history.plays.topic:play-events}") String topic,
+            @Value("${history.plays.relay-send-timeout-ms:30000}") long sendTimeoutMs) {
+        // the outbox goes first, so none of the listener's plays are published after this starts
+        this.tables = List.of(
+                outboxRepository::deleteListenerChunk,
+                playCountRepository::deleteListenerChunk,
+                firstListenRepository::deleteListenerChunk,
+                sessionRepository::deleteListenerChunk,
+                heatmapRepository::deleteListenerChunk,
+                yearInReviewRepository::deleteListenerChunk,
+                jobFailureRepository::deleteListenerChunk,
+                (listenerId, limit) -> bitmapRepository.deleteListener(listenerId));
+        this.discoveryService = discoveryService;
+        this.playAnalyticsService = playAnalyticsService;
+        this.listeningTotalsService = listeningTotalsService;
+        this.tasteSimilarityService = tasteSimilarityService;
+        this.transitionService = transitionService;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.topic = topic;
+        this.sendTimeoutMs = sendTimeoutMs;
+    }
+
+    // deletes up to limit rows and returns how many; fewer than limit means nothing of the listener's is left
+    public int purge(String listenerId, int limit) {
+        if (listenerId == null || listenerId.isBlank()) {
+            throw new InvalidRequestException("Listener ID is required");
+        }
+        if (limit <= 0) {
+            throw new InvalidRequestException("limit", String.valueOf(limit));
+        }
+        // the cached song set goes first, so a flush cannot write the bitmap row back once it is deleted
+        discoveryService.forgetListener(listenerId);
+        Integer deleted = transactionTemplate.execute(status -> {
+            int total = 0;
+            for (ChunkDelete table : tables) {
+                if (total < limit) {
+                    total += table.delete(listenerId, limit - total);
+                }
+            }
+            return total;
+        });
+        int purged = deleted != null ? deleted : 0;
+        if (purged < limit) {
+            playAnalyticsService.forgetListener(listenerId);
+            listeningTotalsService.forgetListener(listenerId);
+            tasteSimilarityService.forgetListener(listenerId);
+            transitionService.forgetListener(listenerId);
+            eraseStats(listenerId);
+            System.out.println("Purged derived data for listener " + listenerId);
+        }
+        return purged;
+    }
+
+    // keyed like the listener's plays, so it lands in the same partition after every one of them
+    private void eraseStats(String listenerId) {
+        try {
+            kafkaTemplate.send(topic, listenerId, null).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while erasing play stats", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Erasing play stats failed: " + e.getMessage(), e);
+        }
+    }
+}
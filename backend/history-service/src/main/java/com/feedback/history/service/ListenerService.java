@@ -1,5 +1,6 @@
 package com.feedback.history.service;
 
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.cloud.openfeign.FeignClient;
@@ -7,6 +8,8 @@ import org.springframework.web.bind.annotation.GetMapping;
 
 import com.feedback.history.dtos.ListenerDTO;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 
 @FeignClient("listener-service")
 public interface ListenerService {
@@ -14,4 +17,8 @@ public interface ListenerService {
     @GetMapping("/api/users/find-by-id/{id}")
     public ListenerDTO findById(@PathVariable String id);   
 
+    // up to 200 listeners in one call, in the order asked for; unknown IDs are left out
+    @PostMapping("/api/users/batch-get")
+    public List<ListenerDTO> findAllById(@RequestBody List<String> ids);
+
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+package com.feedback.history.service;
+
+import com.feedback.history.columnar.DailyRangeIndex;
+import com.feedback.history.dtos.WindowTotalDTO;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.exception.StatsUnavailableException;
+import com.feedback.history.repository.HistoryRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Listening totals for arbitrary date windows, answered from a per-listener Fenwick index
+ * ({@link DailyRangeIndex}) in O(log days) instead of a SUM over history per window.
+ * Rebuilt from Postgres on startup (see {@link IndexRebuild}) and point-updated after each committed insert.
+ */
+@Service
+public class ListeningTotalsService {
+
+    public static final int MAX_WINDOWS = 12;
+    private static final String WINDOW_SEPARATOR = "..";
+
+    private final ConcurrentHashMap<String, DailyRangeIndex> indexes = new ConcurrentHashMap<>();
+    private final IndexRebuild indexRebuild;
+
+    public ListeningTotalsService(HistoryRepository repository, PlatformTransactionManager transactionManager) {
+        this.indexRebuild = new IndexRebuild("listening-totals", repository, transactionManager, new IndexRebuild.Index() {
+            @Override
+            public void reset() {
+                indexes.clear();
+            }
+
+            @Override
+            public void load(long maxHistoryId) {
+                try (Stream<HistoryRepository.DailyListening> days = repository.streamDailyListening(maxHistoryId)) {
+                    days.forEach(day -> add(day.getListenerId(), day.getDay(), day.getPlays(), day.getListeningMs()));
+                }
+                System.out.println("Listening totals rebuilt for " + indexes.size() + " listeners");
+            }
+
+            @Override
+            public void apply(PlayRecordedEvent event) {
+                if (event.listenerId() != null && event.playedAt() != null) {
+                    add(event.listenerId(), event.playedAt().toLocalDate(), 1,
+                            event.durationMs() != null ? event.durationMs() : 0);
+                }
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRebuild() {
+        indexRebuild.start();
+    }
+
+    public void rebuild() {
+        indexRebuild.run();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPlayRecorded(PlayRecordedEvent event) {
+        indexRebuild.onPlayRecorded(event);
+    }
+
+    // account erasure
+    public void forgetListener(String listenerId) {
+        indexes.remove(listenerId);
+    }
+
+    /**
+     * Totals for each window, in the order given. Windows are "yyyy-MM-dd..yyyy-MM-dd" (inclusive);
+     * with none, this week and last week (Monday to Sunday) are compared.
+     */
+    public List<WindowTotalDTO> compare(String listenerId, List<String> windows) {
+        if (listenerId == null || listenerId.isBlank()) {
+            throw new InvalidRequestException("Listener ID is required");
+        }
+        List<LocalDate[]> ranges = windows == null || windows.isEmpty() ? defaultWindows(LocalDate.now()) : parseWindows(windows);
+        if (!indexRebuild.isReady()) {
+            throw new StatsUnavailableException("Listening totals are still loading, try again shortly");
+        }
+
+        DailyRangeIndex index = indexes.get(listenerId);
+        List<WindowTotalDTO> totals = new ArrayList<>(ranges.size());
+        for (LocalDate[] range : ranges) {
+            long[] sum = index != null ? index.sum(range[0], range[1]) : new long[] {0, 0};
+            totals.add(new WindowTotalDTO(range[0], range[1], sum[0], sum[1]));
+        }
+        return totals;
+    }
+
+    static List<LocalDate[]> defaultWindows(LocalDate today) {
+        LocalDate thisMonday = today.with(DayOfWeek.MONDAY);
+        return List.of(
+                new LocalDate[] {thisMonday, thisMonday.plusDays(6)},
+                new LocalDate[] {thisMonday.minusWeeks(1), thisMonday.minusDays(1)});
+    }
+
+    private static List<LocalDate[]> parseWindows(List<String> windows) {
+        if (windows.size() > MAX_WINDOWS) {
+            throw new InvalidRequestException("At most " + MAX_WINDOWS + " windows can be compared");
+        }
+        List<LocalDate[]> ranges = new ArrayList<>(windows.size());
+        for (String window : windows) {
+            int separator = window.indexOf(WINDOW_SEPARATOR);
+            if (separator < 0) {
+                throw new InvalidRequestException("window", window);
+            }
+            try {
+                LocalDate from = LocalDate.parse(window.substring(0, separator).trim());
+                LocalDate to = LocalDate.parse(window.substring(separator + WINDOW_SEPARATOR.length()).trim());
+                if (from.isAfter(to)) {
+                    throw new InvalidRequestException("window", window);
+                }
+                ranges.add(new LocalDate[] {from, to});
+            } catch (DateTimeParseException e) {
+                throw new InvalidRequestException("window", window);
+            }
+        }
+        return ranges;
+    }
+
+    private void add(String listenerId, LocalDate day, long plays, long listeningMs) {
+        indexes.computeIfAbsent(listenerId, id -> new DailyRangeIndex(day)).add(day, plays, listeningMs);
+    }
+}
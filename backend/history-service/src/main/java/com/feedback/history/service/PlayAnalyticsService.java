@@ -0,0 +1,247 @@
+package com.feedback.history.service;
+
+import com.feedback.history.columnar.PlayColumns;
+import com.feedback.history.columnar.SongDictionary;
+import com.feedback.history.dtos.PlayAnalyticsDTO;
+import com.feedback.history.dtos.PlayColumnRow;
+import com.feedback.history.dtos.TopItemDTO;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.exception.StatsUnavailableException;
+import com.feedback.history.repository.HistoryRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Per-listener analytics over the off-heap play columns (see {@link PlayColumns}) instead of
+ * JPA queries that materialize History entities. Postgres stays the source of truth: the columns
+ * are rebuilt from it in the background on startup (see {@link IndexRebuild}) and appended to after
+ * each committed insert. Only the most recently used listeners keep their columns mapped and their
+ * files open; the rest are released and mapped again when next read or appended to.
+ */
+@Service
+public class PlayAnalyticsService {
+
+    private static final int HOURS_PER_DAY = 24;
+    private static final int DAYS_PER_WEEK = 7;
+    // 1970-01-05 was a Monday, so weekday buckets start on Monday
+    private static final long FIRST_MONDAY_SECOND = 4 * PlayColumns.SECONDS_PER_DAY;
+
+    private final IndexRebuild indexRebuild;
+    private final Path directory;
+    private final SongDictionary dictionary = new SongDictionary();
+    private final ConcurrentHashMap<String, PlayColumns> columnsByListener = new ConcurrentHashMap<>();
+    // listeners whose columns are mapped, least recently used first; the rest hold no file handles or mappings
+    private final LinkedHashMap<String, PlayColumns> mapped = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxMappedListeners;
+    private final AtomicInteger nextFileId = new AtomicInteger();
+    // per-thread song counters for top-N, reused so queries don't allocate one per call
+    private final ThreadLocal<int[]> songCounts = ThreadLocal.withInitial(() -> new int[1024]);
+
+    public PlayAnalyticsService(HistoryRepository repository, PlatformTransactionManager transactionManager,
+            @Value("${history.analytics.dir:/tmp/history-play-columns}") String directory,
+            @Value("${history.analytics.max-mapped-listeners:1000}") int maxMappedListeners) {
+        this.directory = Path.of(directory);
+        this.maxMappedListeners = maxMappedListeners;
+        this.indexRebuild = new IndexRebuild("play-columns", repository, transactionManager, new IndexRebuild.Index() {
+            @Override
+            public void reset() {
+                close();
+                columnsByListener.clear();
+                nextFileId.set(0);
+            }
+
+            @Override
+            public void load(long maxHistoryId) {
+                try {
+                    Files.createDirectories(PlayAnalyticsService.this.directory);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                try (Stream<PlayColumnRow> rows = repository.streamPlayColumnRows(maxHistoryId)) {
+                    rows.forEach(row -> append(row.listenerId(), row.songId(), row.playedAt()));
+                }
+                System.out.println("Play columns rebuilt for " + columnsByListener.size() + " listeners");
+            }
+
+            @Override
+            public void apply(PlayRecordedEvent event) {
+                if (event.listenerId() != null && event.songId() != null && event.playedAt() != null) {
+                    append(event.listenerId(), event.songId(), event.playedAt());
+                }
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRebuild() {
+        indexRebuild.start();
+    }
+
+    // loads every committed play into the columns, then applies whatever arrived meanwhile
+    public void rebuild() {
+        indexRebuild.run();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPlayRecorded(PlayRecordedEvent event) {
+        indexRebuild.onPlayRecorded(event);
+    }
+
+    // account erasure: drops the listener's columns and deletes their files
+    public void forgetListener(String listenerId) {
+        PlayColumns columns = columnsByListener.remove(listenerId);
+        if (columns == null) {
+            return;
+        }
+        synchronized (mapped) {
+            mapped.remove(listenerId);
+        }
+        try {
+            columns.delete();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete play columns for " + listenerId, e);
+        }
+    }
+
+    public PlayAnalyticsDTO getAnalytics(String listenerId, LocalDate from, LocalDate to, Integer limit) {
+        if (listenerId == null || listenerId.isBlank()) {
+            throw new InvalidRequestException("Listener ID is required");
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new InvalidRequestException("Start date must be before end date");
+        }
+        if (!indexRebuild.isReady()) {
+            throw new StatsUnavailableException("Play analytics are still loading, try again shortly");
+        }
+        int topN = limit == null || limit <= 0 ? TopItemsService.DEFAULT_LIMIT : Math.min(limit, TopItemsService.MAX_LIMIT);
+        // [from, to] in days becomes [fromSecond, toSecond) in seconds
+        long fromSecond = from != null ? from.toEpochDay() * PlayColumns.SECONDS_PER_DAY : Long.MIN_VALUE;
+        long toSecond = to != null ? (to.toEpochDay() + 1) * PlayColumns.SECONDS_PER_DAY : Long.MAX_VALUE;
+
+        int[] playsByHour = new int[HOURS_PER_DAY];
+        int[] playsByWeekday = new int[DAYS_PER_WEEK];
+        PlayColumns columns = columnsByListener.get(listenerId);
+        if (columns == null) {
+            return new PlayAnalyticsDTO(listenerId, from, to, 0, List.of(), playsByHour, playsByWeekday);
+        }
+        touch(listenerId, columns);
+
+        int[] counts = songCounts(dictionary.size());
+        int[] topCodes = new int[topN];
+        int[] topCounts = new int[topN];
+        int total;
+        int found;
+        try {
+            total = columns.countBySong(fromSecond, toSecond, counts);
+            found = PlayColumns.topN(counts, Math.min(dictionary.size(), counts.length), topCodes, topCounts);
+            columns.histogram(fromSecond, toSecond, 0, PlayColumns.SECONDS_PER_HOUR, playsByHour);
+            columns.histogram(fromSecond, toSecond, FIRST_MONDAY_SECOND, PlayColumns.SECONDS_PER_DAY, playsByWeekday);
+        } finally {
+            Arrays.fill(counts, 0, Math.min(dictionary.size(), counts.length), 0);
+            releaseIfEvicted(listenerId, columns);
+        }
+
+        List<TopItemDTO> topSongs = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            topSongs.add(new TopItemDTO(dictionary.decode(topCodes[i]), null, null, (long) topCounts[i]));
+        }
+        return new PlayAnalyticsDTO(listenerId, from, to, total, topSongs, playsByHour, playsByWeekday);
+    }
+
+    @PreDestroy
+    public void close() {
+        columnsByListener.values().forEach(PlayColumns::close);
+        synchronized (mapped) {
+            mapped.clear();
+        }
+    }
+
+    private void append(String listenerId, String songId, LocalDateTime playedAt) {
+        PlayColumns columns = columnsFor(listenerId);
+        try {
+            columns.append(toSecond(playedAt), dictionary.encode(songId));
+        } finally {
+            releaseIfEvicted(listenerId, columns);
+        }
+    }
+
+    private PlayColumns columnsFor(String listenerId) {
+        PlayColumns columns = columnsByListener.computeIfAbsent(listenerId, id -> {
+            try {
+                // numbered files, so listener IDs never end up in paths
+                return PlayColumns.open(directory, "listener-" + nextFileId.getAndIncrement());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return touch(listenerId, columns);
+    }
+
+    // marks the listener's columns most recently used; past the cap the least recently used are released.
+    // Released under the same lock as the eviction decision, so a concurrent touch cannot put them back in
+    // use in between and then lose its mapping; the eldest columns rarely have readers to wait for
+    private PlayColumns touch(String listenerId, PlayColumns columns) {
+        synchronized (mapped) {
+            mapped.put(listenerId, columns);
+            Iterator<PlayColumns> eldest = mapped.values().iterator();
+            while (mapped.size() > maxMappedListeners) {
+                PlayColumns evicted = eldest.next();
+                eldest.remove();
+                evicted.release();
+            }
+        }
+        return columns;
+    }
+
+    // other touches can evict columns between their touch and their use, and the use maps them again; they
+    // are released once the use is over unless they have been touched since
+    private void releaseIfEvicted(String listenerId, PlayColumns columns) {
+        synchronized (mapped) {
+            if (mapped.get(listenerId) != columns) {
+                columns.release();
+            }
+        }
+    }
+
+    // how many listeners' columns are mapped right now
+    int mappedCount() {
+        return (int) columnsByListener.values().stream().filter(PlayColumns::isMapped).count();
+    }
+
+    private int[] songCounts(int songCount) {
+        int[] counts = songCounts.get();
+        if (counts.length < songCount) {
+            counts = new int[Math.max(songCount, counts.length * 2)];
+            songCounts.set(counts);
+        }
+        return counts;
+    }
+
+    // wall-clock seconds: the LocalDateTime read as UTC, so hours and days divide evenly
+    static long toSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,42 @@
+package com.feedback.history.service;
+
+import com.feedback.history.repository.JobCheckpointRepository;
+import com.feedback.history.repository.PlayCountRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+// Fills play_count from the history rows written before the counters existed (see ListenerBackfill)
+@Service
+public class PlayCountBackfill extends ListenerBackfill {
+
+    public static final String JOB_NAME = "play-count-backfill";
+
+    private final PlayCountRepository playCountRepository;
+
+    public PlayCountBackfill(PlayCountRepository playCountRepository, JobCheckpointRepository checkpointRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${history.top-items.backfill-batch-size:200}") int batchSize) {
+        super(JOB_NAME, checkpointRepository, transactionManager, batchSize);
+        this.playCountRepository = playCountRepository;
+    }
+
+    // first run is at startup; later runs only retry a backfill that failed part way
+    @Scheduled(fixedDelayString = "${history.top-items.backfill-retry-ms:600000}")
+    public void resume() {
+        start();
+    }
+
+    @Override
+    List<String> lockListenersAfter(String after, int limit) {
+        return playCountRepository.lockListenersAfter(after, limit);
+    }
+
+    @Override
+    void recount(List<String> listenerIds) {
+        playCountRepository.recountListeners(listenerIds);
+    }
+}
@@ -0,0 +1,51 @@
+package com.feedback.history.service;
+
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.events.PlayRevisedEvent;
+import com.feedback.history.model.PlayOutbox;
+import com.feedback.history.repository.PlayOutboxRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+// queues every play for the play-events topic through the play_outbox table; PlayOutboxRelay does the sending
+@Service
+public class PlayEventPublisher {
+
+    private final PlayOutboxRepository outboxRepository;
+
+    public PlayEventPublisher(PlayOutboxRepository outboxRepository) {
+        this.outboxRepository = outboxRepository;
+    }
+
+    // inside the history insert transaction: the outbox row commits (or rolls back) with the play, so a
+    // committed play is never lost to a broker outage and a rolled-back one is never published
+    @EventListener
+    @Transactional
+    public void onPlayRecorded(PlayRecordedEvent event) {
+        if (event.historyId() == null || event.listenerId() == null || event.songId() == null
+                || event.playedAt() == null) {
+            return;
+        }
+        outboxRepository.save(new PlayOutbox(event.historyId(), event.listenerId(), event.songId(),
+                event.durationMs(), event.playedAt()));
+    }
+
+    // inside the history update/delete transaction: the old listener, song and day are retracted and, unless
+    // the row was deleted, the new ones counted, so the aggregator's totals follow the row
+    @EventListener
+    @Transactional
+    public void onPlayRevised(PlayRevisedEvent event) {
+        if (event.historyId() == null) {
+            return;
+        }
+        if (event.beforeListenerId() != null && event.beforeSongId() != null && event.beforePlayedAt() != null) {
+            outboxRepository.enqueueRevision(event.historyId(), event.beforeListenerId(), event.beforeSongId(),
+                    event.beforePlayedAt(), -1);
+        }
+        if (event.afterListenerId() != null && event.afterSongId() != null && event.afterPlayedAt() != null) {
+            outboxRepository.enqueueRevision(event.historyId(), event.afterListenerId(), event.afterSongId(),
+                    event.afterPlayedAt(), 1);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.feedback.history.service;
+
+import com.feedback.history.model.PlayOutbox;
+import com.feedback.history.repository.PlayOutboxRepository;
+import com.feedback.history.streams.PlayMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes queued plays from play_outbox to the play-events topic, keyed by listener. A batch is
+ * locked, sent, and deleted only after the broker has acknowledged every record (acks=all,
+ * idempotent producer); any failure rolls the batch back and it is sent again on the next tick.
+ * A crash between the acknowledgement and the delete can publish a play twice, which the play
+ * aggregator drops by history ID; a revision row carries its outbox ID so its repeats are dropped too.
+ */
+@Service
+public class PlayOutboxRelay {
+
+    private final PlayOutboxRepository outboxRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String topic;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+
+    public PlayOutboxRelay(PlayOutboxRepository outboxRepository, KafkaTemplate<String, String> kafkaTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${history.plays.topic:play-events}") String topic,
+            @Value("${history.plays.relay-batch-size:500}") int batchSize,
+            @Value("${history.plays.relay-send-timeout-ms:30000}") long sendTimeoutMs) {
+        this.outboxRepository = outboxRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.topic = topic;
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+    }
+
+    // drains the outbox a batch at a time until it is empty or a send fails
+    @Scheduled(fixedDelayString = "${history.plays.relay-interval-ms:500}")
+    public void relay() {
+        try {
+            int relayed;
+            do {
+                relayed = relayBatch();
+            } while (relayed == batchSize);
+        } catch (RuntimeException e) {
+            // nothing was deleted; the same rows go out again on the next tick
+            System.err.println("Play outbox relay stopped: " + e.getMessage());
+        }
+    }
+
+    // sends one batch and deletes it; returns how many rows it relayed
+    int relayBatch() {
+        Integer relayed = transactionTemplate.execute(status -> {
+            List<PlayOutbox> batch = outboxRepository.lockBatch(batchSize);
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+            for (PlayOutbox play : batch) {
+                PlayMessage message = new PlayMessage(play.getHistoryId(), play.getListenerId(), play.getSongId(),
+                        play.getDurationMs(), play.getPlayedAt(), play.playsOrOne(),
+                        play.isRevision() ? play.getOutboxId() : null);
+                sends.add(kafkaTemplate.send(topic, play.getListenerId(), message.toJson()));
+            }
+            awaitAcks(sends);
+            outboxRepository.deleteAllByIdInBatch(batch.stream().map(PlayOutbox::getOutboxId).toList());
+            return batch.size();
+        });
+        return relayed != null ? relayed : 0;
+    }
+
+    private void awaitAcks(List<CompletableFuture<?>> sends) {
+        try {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while publishing plays", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Publishing plays failed: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.PlayStatsDTO;
+import com.feedback.history.dtos.TopItemDTO;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.exception.StatsUnavailableException;
+import com.feedback.history.repository.HistoryRepository;
+import com.feedback.history.streams.PlayAggregator;
+import com.feedback.history.streams.PlayTotals;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StoreQueryParameters;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Listener stats served from the play aggregator's local state stores instead of Postgres.
+ * Reads never touch the OLTP tables, and each lookup is a key get or a short range scan.
+ * Until the stores are running and seeded with every earlier play (PlayStreamBackfill), the same
+ * answers come from per-listener queries on history, so stats are never partial or missing.
+ */
+@Service
+public class PlayStatsService {
+
+    private static final int MAX_STREAK_DAYS = 366;
+    private static final int MAX_DAILY_RANGE_DAYS = 366;
+
+    private final StreamsBuilderFactoryBean streamsFactory;
+    private final HistoryRepository historyRepository;
+    private final PlayStreamBackfill backfill;
+
+    public PlayStatsService(StreamsBuilderFactoryBean streamsFactory, HistoryRepository historyRepository,
+            PlayStreamBackfill backfill) {
+        this.streamsFactory = streamsFactory;
+        this.historyRepository = historyRepository;
+        this.backfill = backfill;
+    }
+
+    public PlayStatsDTO getStats(String listenerId) {
+        validateListenerId(listenerId);
+        if (!storesReady()) {
+            HistoryRepository.ListenerTotals totals = historyRepository.findListenerTotals(listenerId);
+            if (totals == null || totals.getPlays() == null || totals.getPlays() == 0) {
+                return new PlayStatsDTO(listenerId, 0, 0, null, null, 0);
+            }
+            return new PlayStatsDTO(listenerId, totals.getPlays(), totals.getListeningMs(),
+                    totals.getFirstPlayedAt(), totals.getLastPlayedAt(), currentStreak(listenerId, LocalDate.now()));
+        }
+        ReadOnlyKeyValueStore<String, PlayTotals> totalsStore = store(PlayAggregator.TOTALS_STORE);
+        PlayTotals totals = totalsStore.get(listenerId);
+        if (totals == null) {
+            return new PlayStatsDTO(listenerId, 0, 0, null, null, 0);
+        }
+        return new PlayStatsDTO(
+                listenerId,
+                totals.plays(),
+                totals.listeningMs(),
+                toLocalDateTime(totals.firstPlayedEpochSecond()),
+                toLocalDateTime(totals.lastPlayedEpochSecond()),
+                currentStreak(listenerId, LocalDate.now()));
+    }
+
+    // consecutive days with at least one play, ending today (or yesterday, so the streak survives until tonight)
+    public int currentStreak(String listenerId, LocalDate today) {
+        if (!storesReady()) {
+            Map<LocalDate, Long> days = dailyCountsFromHistory(listenerId, today.minusDays(MAX_STREAK_DAYS + 1), today);
+            return streak(days::containsKey, today);
+        }
+        ReadOnlyKeyValueStore<String, Long> daily = store(PlayAggregator.DAILY_STORE);
+        return streak(day -> daily.get(PlayAggregator.key(listenerId, day.toString())) != null, today);
+    }
+
+    private static int streak(Predicate<LocalDate> played, LocalDate today) {
+        LocalDate day = today;
+        if (!played.test(day)) {
+            day = day.minusDays(1);
+        }
+        int streak = 0;
+        while (streak < MAX_STREAK_DAYS && played.test(day)) {
+            streak++;
+            day = day.minusDays(1);
+        }
+        return streak;
+    }
+
+    // plays per day in [from, to]; days without plays are left out
+    public Map<LocalDate, Long> getDailyCounts(String listenerId, LocalDate from, LocalDate to) {
+        validateListenerId(listenerId);
+        if (from == null || to == null) {
+            throw new InvalidRequestException("Start and end dates are required");
+        }
+        if (from.isAfter(to)) {
+            throw new InvalidRequestException("Start date must be before end date");
+        }
+        if (from.plusDays(MAX_DAILY_RANGE_DAYS).isBefore(to)) {
+            throw new InvalidRequestException("Date range cannot exceed " + MAX_DAILY_RANGE_DAYS + " days");
+        }
+        if (!storesReady()) {
+            return dailyCountsFromHistory(listenerId, from, to);
+        }
+        ReadOnlyKeyValueStore<String, Long> daily = store(PlayAggregator.DAILY_STORE);
+        Map<LocalDate, Long> counts = new LinkedHashMap<>();
+        // ISO dates sort lexicographically, so the day range is one contiguous key range
+        try (KeyValueIterator<String, Long> it = daily.range(
+                PlayAggregator.key(listenerId, from.toString()), PlayAggregator.key(listenerId, to.toString()))) {
+            while (it.hasNext()) {
+                KeyValue<String, Long> entry = it.next();
+                String day = entry.key.substring(listenerId.length() + PlayAggregator.KEY_SEPARATOR.length());
+                counts.put(LocalDate.parse(day), entry.value);
+            }
+        }
+        return counts;
+    }
+
+    // most played songs, picked with a bounded heap over the listener's prefix of the song store
+    public List<TopItemDTO> getTopSongs(String listenerId, int limit) {
+        validateListenerId(listenerId);
+        int topN = limit <= 0 ? TopItemsService.DEFAULT_LIMIT : Math.min(limit, TopItemsService.MAX_LIMIT);
+        if (!storesReady()) {
+            return historyRepository.findTopSongPlays(listenerId, topN).stream()
+                    .map(song -> new TopItemDTO(song.getSongId(), null, null, song.getPlays()))
+                    .toList();
+        }
+        ReadOnlyKeyValueStore<String, Long> songs = store(PlayAggregator.SONG_STORE);
+        String prefix = PlayAggregator.key(listenerId, "");
+
+        PriorityQueue<KeyValue<String, Long>> heap = new PriorityQueue<>(topN + 1,
+                (a, b) -> a.value.equals(b.value) ? b.key.compareTo(a.key) : Long.compare(a.value, b.value));
+        try (KeyValueIterator<String, Long> it = songs.prefixScan(prefix, new StringSerializer())) {
+            while (it.hasNext()) {
+                heap.offer(it.next());
+                if (heap.size() > topN) {
+                    heap.poll();
+                }
+            }
+        }
+
+        List<TopItemDTO> top = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            KeyValue<String, Long> entry = heap.poll();
+            top.add(0, new TopItemDTO(entry.key.substring(prefix.length()), null, null, entry.value));
+        }
+        return top;
+    }
+
+    // the stores are only complete once streams is running and every earlier play has been fed through them
+    boolean storesReady() {
+        KafkaStreams streams = streamsFactory.getKafkaStreams();
+        return streams != null && streams.state() == KafkaStreams.State.RUNNING && backfill.isComplete();
+    }
+
+    <V> ReadOnlyKeyValueStore<String, V> store(String name) {
+        KafkaStreams streams = streamsFactory.getKafkaStreams();
+        if (streams == null || streams.state() != KafkaStreams.State.RUNNING) {
+            throw new StatsUnavailableException("Play stats are still loading, try again shortly");
+        }
+        return streams.store(StoreQueryParameters.fromNameAndType(name, QueryableStoreTypes.<String, V>keyValueStore()));
+    }
+
+    private Map<LocalDate, Long> dailyCountsFromHistory(String listenerId, LocalDate from, LocalDate to) {
+        Map<LocalDate, Long> counts = new LinkedHashMap<>();
+        for (HistoryRepository.DayPlays day : historyRepository.findDailyPlays(
+                listenerId, from.atStartOfDay(), to.plusDays(1).atStartOfDay())) {
+            counts.put(day.getDay(), day.getPlays());
+        }
+        return counts;
+    }
+
+    private void validateListenerId(String listenerId) {
+        if (listenerId == null || listenerId.isBlank()) {
+            throw new InvalidRequestException("Listener ID is required");
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochSecond) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneId.systemDefault());
+    }
+}
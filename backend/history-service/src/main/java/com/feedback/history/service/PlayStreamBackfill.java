@@ -0,0 +1,96 @@
+package com.feedback.history.service;
+
+import com.feedback.history.model.JobCheckpoint;
+import com.feedback.history.repository.HistoryRepository;
+import com.feedback.history.repository.JobCheckpointRepository;
+import com.feedback.history.repository.PlayOutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Seeds the play aggregator with the history rows written before plays went through the outbox.
+ * Every row up to the newest history ID at the first run is queued through play_outbox, newest
+ * first and a slice of IDs per tick, and only while the outbox backlog is small, so seeding never
+ * crowds out live plays. Rows that were also published live are dropped by the aggregator's
+ * history-ID dedup; walking newest first keeps those inside its window. Until this completes,
+ * PlayStatsService answers from Postgres instead of the stores.
+ */
+@Service
+public class PlayStreamBackfill {
+
+    public static final String JOB_NAME = "play-stream-backfill";
+
+    private final HistoryRepository historyRepository;
+    private final PlayOutboxRepository outboxRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long idsPerTick;
+    private final long maxBacklog;
+    private volatile boolean complete;
+
+    public PlayStreamBackfill(HistoryRepository historyRepository, PlayOutboxRepository outboxRepository,
+            JobCheckpointRepository checkpointRepository, PlatformTransactionManager transactionManager,
+            @Value("${history.plays.backfill-ids-per-tick:5000}") long idsPerTick,
+            @Value("${history.plays.backfill-max-backlog:20000}") long maxBacklog) {
+        this.historyRepository = historyRepository;
+        this.outboxRepository = outboxRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.idsPerTick = idsPerTick;
+        this.maxBacklog = maxBacklog;
+    }
+
+    // true once every earlier history row has been queued and the outbox has drained
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Scheduled(fixedDelayString = "${history.plays.backfill-interval-ms:2000}")
+    public void tick() {
+        if (complete) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> step());
+        } catch (RuntimeException e) {
+            // the slice rolled back with its checkpoint; the next tick queues it again
+            System.err.println("Play stream backfill stopped: " + e.getMessage());
+        }
+    }
+
+    // queues one slice of history IDs and moves the checkpoint down past it, in one transaction
+    void step() {
+        JobCheckpoint checkpoint = checkpointRepository.findForUpdate(JOB_NAME).orElse(null);
+        if (checkpoint == null) {
+            checkpoint = new JobCheckpoint(JOB_NAME);
+            checkpoint.setStartedAt(LocalDateTime.now());
+            checkpoint.setEndId(historyRepository.findMaxHistoryId());
+            checkpoint.setLastId(checkpoint.getEndId());
+        }
+        if (JobCheckpoint.COMPLETED.equals(checkpoint.getStatus())) {
+            complete = true;
+            return;
+        }
+        long backlog = outboxRepository.count();
+        if (checkpoint.getLastId() <= 0) {
+            // everything is queued; done once the relay has caught up with it
+            if (backlog == 0) {
+                checkpoint.setStatus(JobCheckpoint.COMPLETED);
+                complete = true;
+                System.out.println("Play stream backfill done: " + checkpoint.getProcessed() + " plays");
+            }
+        } else if (backlog < maxBacklog) {
+            long from = Math.max(0, checkpoint.getLastId() - idsPerTick);
+            int queued = outboxRepository.enqueueHistory(from, checkpoint.getLastId());
+            checkpoint.setLastId(from);
+            checkpoint.setProcessed(checkpoint.getProcessed() + queued);
+        }
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpointRepository.save(checkpoint);
+    }
+}
@@ -0,0 +1,49 @@
+package com.feedback.history.service;
+
+import com.feedback.history.repository.JobCheckpointRepository;
+import com.feedback.history.repository.ListeningSessionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+// Builds listening_session from the history rows written before sessions were kept (see ListenerBackfill).
+// Each listener's sessions are replaced by ones regrouped from all of their history
+@Service
+public class SessionBackfill extends ListenerBackfill {
+
+    public static final String JOB_NAME = "session-backfill";
+
+    private final ListeningSessionRepository sessionRepository;
+    private final long inactivityGapMinutes;
+
+    public SessionBackfill(ListeningSessionRepository sessionRepository, JobCheckpointRepository checkpointRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${history.sessions.backfill-batch-size:200}") int batchSize,
+            @Value("${history.sessions.inactivity-gap-minutes:30}") long inactivityGapMinutes) {
+        super(JOB_NAME, checkpointRepository, transactionManager, batchSize);
+        this.sessionRepository = sessionRepository;
+        this.inactivityGapMinutes = inactivityGapMinutes;
+    }
+
+    // first run is at startup; later runs only retry a backfill that failed part way
+    @Scheduled(fixedDelayString = "${history.sessions.backfill-retry-ms:600000}")
+    public void resume() {
+        start();
+    }
+
+    @Override
+    List<String> lockListenersAfter(String after, int limit) {
+        return sessionRepository.lockListenersAfter(after, limit);
+    }
+
+    @Override
+    void recount(List<String> listenerIds) {
+        // the listener row locks hold off new plays; edits and deletes take the listener's advisory lock instead
+        listenerIds.forEach(sessionRepository::lockListener);
+        sessionRepository.deleteListeners(listenerIds);
+        sessionRepository.insertListenerSessions(listenerIds, inactivityGapMinutes);
+    }
+}
@@ -0,0 +1,185 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.HistoryDTO;
+import com.feedback.history.dtos.SessionDTO;
+import com.feedback.history.dtos.SessionPageDTO;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.events.PlayRevisedEvent;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.exception.ResourceNotFoundException;
+import com.feedback.history.model.ListeningSession;
+import com.feedback.history.repository.ListeningSessionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Groups each listener's plays into listening sessions as plays are recorded. A play joins a
+ * session when the silence between them (end of one play to start of the next) is at most the
+ * inactivity gap. A late play that lands between two sessions and closes the gap merges them.
+ * An edited or deleted play rebuilds the sessions around its old and new time from history, and
+ * SessionBackfill builds the sessions of plays recorded before this existed.
+ */
+@Service
+@Transactional(readOnly = true)
+public class SessionService {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    private final ListeningSessionRepository repository;
+    private final HistoryService historyService;
+    private final long inactivityGapMinutes;
+    private final Duration inactivityGap;
+
+    public SessionService(ListeningSessionRepository repository, HistoryService historyService,
+            @Value("${history.sessions.inactivity-gap-minutes:30}") long inactivityGapMinutes) {
+        this.repository = repository;
+        this.historyService = historyService;
+        this.inactivityGapMinutes = inactivityGapMinutes;
+        this.inactivityGap = Duration.ofMinutes(inactivityGapMinutes);
+    }
+
+    // same transaction as the history insert, so a rolled-back play never shows up in a session
+    @EventListener
+    @Transactional
+    public void onPlayRecorded(PlayRecordedEvent event) {
+        if (event.listenerId() == null || event.playedAt() == null) {
+            return;
+        }
+        addPlay(event.listenerId(), event.playedAt(), event.durationMs() != null ? event.durationMs() : 0L);
+    }
+
+    // an edited or deleted history row, in the same transaction: the sessions around where the play was and
+    // where it is now are rebuilt from history, which already holds the row as it is after the change
+    @EventListener
+    @Transactional
+    public void onPlayRevised(PlayRevisedEvent event) {
+        // both listeners, in ID order, so two revisions moving plays between the same listeners cannot deadlock
+        Stream.of(event.beforeListenerId(), event.afterListenerId())
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted()
+                .forEach(repository::lockListener);
+        if (event.beforeListenerId() != null && event.beforePlayedAt() != null) {
+            rebuildAround(event.beforeListenerId(), event.beforePlayedAt());
+        }
+        if (event.afterListenerId() != null && event.afterPlayedAt() != null) {
+            rebuildAround(event.afterListenerId(), event.afterPlayedAt());
+        }
+    }
+
+    // Replaces the sessions a play at this time belongs to, or would bridge, with ones regrouped from history.
+    // Sessions further away are more than the gap from any of these plays, so they are left as they are
+    private void rebuildAround(String listenerId, LocalDateTime playedAt) {
+        LocalDateTime playEnd = playedAt.plus(Duration.ofMillis(repository.findLongestPlayAt(listenerId, playedAt)));
+        List<ListeningSession> touching = repository.findTouching(listenerId,
+                playedAt.minus(inactivityGap), playEnd.plus(inactivityGap));
+        LocalDateTime from = playedAt;
+        LocalDateTime to = playedAt;
+        for (ListeningSession session : touching) {
+            from = session.getStartedAt().isBefore(from) ? session.getStartedAt() : from;
+            to = session.getLastPlayedAt().isAfter(to) ? session.getLastPlayedAt() : to;
+        }
+        repository.deleteAllInBatch(touching);
+        repository.insertSessionsBetween(listenerId, from, to, inactivityGapMinutes);
+    }
+
+    @Transactional
+    public ListeningSession addPlay(String listenerId, LocalDateTime playedAt, long durationMs) {
+        repository.lockListener(listenerId);
+
+        LocalDateTime playEnd = playedAt.plus(Duration.ofMillis(durationMs));
+        List<ListeningSession> touching = repository.findTouching(listenerId,
+                playedAt.minus(inactivityGap), playEnd.plus(inactivityGap));
+        if (touching.isEmpty()) {
+            return repository.save(new ListeningSession(listenerId, playedAt, durationMs));
+        }
+
+        // extend the earliest session and fold in any later ones this play now bridges to
+        ListeningSession session = touching.get(0);
+        absorb(session, playedAt, playedAt, playEnd, 1, durationMs);
+        for (ListeningSession other : touching.subList(1, touching.size())) {
+            absorb(session, other.getStartedAt(), other.getLastPlayedAt(), other.getEndedAt(),
+                    other.getPlayCount(), other.getTotalDurationMs());
+            repository.delete(other);
+        }
+        return repository.save(session);
+    }
+
+    public SessionPageDTO getSessions(String listenerId, LocalDateTime before, Integer limit) {
+        if (listenerId == null || listenerId.isBlank()) {
+            throw new InvalidRequestException("Listener ID is required");
+        }
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        // one extra row tells us whether there is another page without a count query
+        Limit fetch = Limit.of(pageSize + 1);
+        List<ListeningSession> sessions = before != null
+                ? repository.findByListenerIdAndStartedAtBeforeOrderByStartedAtDesc(listenerId, before, fetch)
+                : repository.findByListenerIdOrderByStartedAtDesc(listenerId, fetch);
+
+        boolean hasMore = sessions.size() > pageSize;
+        List<SessionDTO> page = sessions.stream()
+                .limit(pageSize)
+                .map(this::sessionToDto)
+                .toList();
+        LocalDateTime nextBefore = hasMore ? page.get(page.size() - 1).startedAt() : null;
+        return new SessionPageDTO(page, nextBefore);
+    }
+
+    public SessionDTO getSession(Long sessionId) {
+        return sessionToDto(findSession(sessionId));
+    }
+
+    // the session's plays, oldest first, read from history by the listener/played_at index
+    public List<HistoryDTO> getSessionPlays(Long sessionId) {
+        ListeningSession session = findSession(sessionId);
+        return historyService.findByListenerIdAndDateRange(session.getListenerId(), session.getStartedAt(),
+                session.getLastPlayedAt()).stream()
+                .sorted(Comparator.comparing(HistoryDTO::playedAt))
+                .toList();
+    }
+
+    private ListeningSession findSession(Long sessionId) {
+        if (sessionId == null) {
+            throw new InvalidRequestException("Session ID cannot be null");
+        }
+        return repository.findById(sessionId)
+                .orElseThrow(() -> new ResourceNotFoundException("Session", String.valueOf(sessionId)));
+    }
+
+    private static void absorb(ListeningSession session, LocalDateTime startedAt, LocalDateTime lastPlayedAt,
+            LocalDateTime endedAt, int playCount, long durationMs) {
+        if (startedAt.isBefore(session.getStartedAt())) {
+            session.setStartedAt(startedAt);
+        }
+        if (lastPlayedAt.isAfter(session.getLastPlayedAt())) {
+            session.setLastPlayedAt(lastPlayedAt);
+        }
+        if (endedAt.isAfter(session.getEndedAt())) {
+            session.setEndedAt(endedAt);
+        }
+        session.setPlayCount(session.getPlayCount() + playCount);
+        session.setTotalDurationMs(session.getTotalDurationMs() + durationMs);
+    }
+
+    private SessionDTO sessionToDto(ListeningSession session) {
+        return new SessionDTO(
+                session.getSessionId(),
+                session.getListenerId(),
+                session.getStartedAt(),
+                session.getEndedAt(),
+                session.getPlayCount(),
+                session.getTotalDurationMs()
+        );
+    }
+}
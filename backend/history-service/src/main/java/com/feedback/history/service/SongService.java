@@ -1,5 +1,6 @@
 package com.feedback.history.service;
 
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.cloud.openfeign.FeignClient;
@@ -7,6 +8,8 @@ import org.springframework.web.bind.annotation.GetMapping;
 
 import com.feedback.history.dtos.SongDTO;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 
 @FeignClient("song-service")
 public interface SongService {
@@ -14,4 +17,8 @@ public interface SongService {
     @GetMapping("/api/song/find-by-id/{id}")
     public SongDTO findById(@PathVariable String id);    
 
+    // up to 200 songs in one call, in the order asked for; unknown IDs are left out
+    @PostMapping("/api/songs/batch-get")
+    public List<SongDTO> findAllById(@RequestBody List<String> ids);
+
 }
\ No newline at end of file
@@ -0,0 +1,154 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.SimilarityDTO;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.exception.StatsUnavailableException;
+import com.feedback.history.repository.HistoryRepository;
+import com.feedback.history.sketch.LshIndex;
+import com.feedback.history.sketch.MinHash;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Taste compatibility between listeners, estimated from a {@link MinHash} signature of the songs
+ * and artists each has played instead of intersecting full histories. Similar listeners are found
+ * through an {@link LshIndex} over the signatures, so a lookup scores a handful of candidates.
+ * Rebuilt from Postgres on startup (see {@link IndexRebuild}) and updated after each committed insert.
+ */
+@Service
+public class TasteSimilarityService {
+
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 50;
+
+    // both guarded by this
+    private final Map<String, MinHash> signatures = new HashMap<>();
+    private LshIndex index = new LshIndex();
+    private final IndexRebuild indexRebuild;
+
+    public TasteSimilarityService(HistoryRepository repository, PlatformTransactionManager transactionManager) {
+        this.indexRebuild = new IndexRebuild("taste-signatures", repository, transactionManager, new IndexRebuild.Index() {
+            @Override
+            public void reset() {
+                synchronized (TasteSimilarityService.this) {
+                    signatures.clear();
+                    index = new LshIndex();
+                }
+            }
+
+            @Override
+            public void load(long maxHistoryId) {
+                try (Stream<HistoryRepository.ListenerItem> items = repository.streamListenerItems(maxHistoryId)) {
+                    items.forEach(item -> {
+                        synchronized (TasteSimilarityService.this) {
+                            signatures.computeIfAbsent(item.getListenerId(), id -> new MinHash()).offer(item.getItem());
+                        }
+                    });
+                }
+                synchronized (TasteSimilarityService.this) {
+                    signatures.forEach(index::put);
+                    System.out.println("Taste signatures rebuilt for " + signatures.size() + " listeners");
+                }
+            }
+
+            @Override
+            public void apply(PlayRecordedEvent event) {
+                synchronized (TasteSimilarityService.this) {
+                    add(event);
+                }
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRebuild() {
+        indexRebuild.start();
+    }
+
+    public void rebuild() {
+        indexRebuild.run();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPlayRecorded(PlayRecordedEvent event) {
+        indexRebuild.onPlayRecorded(event);
+    }
+
+    // account erasure: the listener is no longer compared or suggested
+    public synchronized void forgetListener(String listenerId) {
+        signatures.remove(listenerId);
+        index.remove(listenerId);
+    }
+
+    public SimilarityDTO compare(String listenerId, String otherListenerId) {
+        validateListenerId(listenerId);
+        validateListenerId(otherListenerId);
+        checkReady();
+        synchronized (this) {
+            MinHash signature = signatures.get(listenerId);
+            MinHash other = signatures.get(otherListenerId);
+            // a listener with no plays yet shares nothing with anyone
+            double similarity = signature != null && other != null ? signature.similarity(other) : 0;
+            return new SimilarityDTO(listenerId, otherListenerId, similarity);
+        }
+    }
+
+    // most similar listeners first, scored among the LSH candidates only
+    public List<SimilarityDTO> findSimilarListeners(String listenerId, Integer limit) {
+        validateListenerId(listenerId);
+        checkReady();
+        int topK = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        synchronized (this) {
+            MinHash signature = signatures.get(listenerId);
+            if (signature == null) {
+                return List.of();
+            }
+            return index.candidates(signature).stream()
+                    .filter(candidate -> !candidate.equals(listenerId))
+                    .map(candidate -> new SimilarityDTO(listenerId, candidate, signature.similarity(signatures.get(candidate))))
+                    .sorted(Comparator.comparingDouble(SimilarityDTO::similarity).reversed()
+                            .thenComparing(SimilarityDTO::otherListenerId))
+                    .limit(topK)
+                    .toList();
+        }
+    }
+
+    // called holding the lock
+    private void add(PlayRecordedEvent event) {
+        if (event.listenerId() == null || event.songId() == null) {
+            return;
+        }
+        MinHash signature = signatures.computeIfAbsent(event.listenerId(), id -> new MinHash());
+        boolean changed = signature.offer("s:" + event.songId());
+        for (String artistId : event.artistIds()) {
+            changed |= signature.offer("a:" + artistId);
+        }
+        // most plays are of songs already in the set, which leaves the signature and its buckets alone
+        if (changed) {
+            index.put(event.listenerId(), signature);
+        }
+    }
+
+    private void checkReady() {
+        if (!indexRebuild.isReady()) {
+            throw new StatsUnavailableException("Taste signatures are still loading, try again shortly");
+        }
+    }
+
+    private void validateListenerId(String listenerId) {
+        if (listenerId == null || listenerId.isBlank()) {
+            throw new InvalidRequestException("Listener ID is required");
+        }
+    }
+}
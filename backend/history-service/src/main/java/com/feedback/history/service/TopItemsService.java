@@ -0,0 +1,155 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.TopItemDTO;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.events.PlayRevisedEvent;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.model.PlayCount;
+import com.feedback.history.model.PlayCountId;
+import com.feedback.history.repository.PlayCountRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Top songs, artists and albums computed from our own history instead of Spotify's top endpoints.
+ * Every play bumps a daily counter per song, artist and album; top-N sums the counters in the window.
+ */
+@Service
+@Transactional(readOnly = true)
+public class TopItemsService {
+
+    // windows mirroring Spotify's time_range values (~4 weeks, ~6 months, ~1 year)
+    public enum TimeRange {
+        SHORT_TERM(28),
+        MEDIUM_TERM(182),
+        LONG_TERM(365);
+
+        private final int days;
+
+        TimeRange(int days) {
+            this.days = days;
+        }
+
+        public int getDays() {
+            return days;
+        }
+    }
+
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 50;
+
+    private final PlayCountRepository repository;
+
+    public TopItemsService(PlayCountRepository repository) {
+        this.repository = repository;
+    }
+
+    // runs inside the history insert transaction, so counters and history commit (or roll back) together
+    @EventListener
+    @Transactional
+    public void onPlayRecorded(PlayRecordedEvent event) {
+        for (PlayCountId key : counterKeys(event)) {
+            repository.increment(key.getListenerId(), key.getItemType(), key.getItemId(), key.getDay());
+        }
+    }
+
+    // an edited or deleted history row: take the old play back out and count the new one, in the same transaction
+    @EventListener
+    @Transactional
+    public void onPlayRevised(PlayRevisedEvent event) {
+        if (event.beforeListenerId() != null && event.beforeSongId() != null && event.beforePlayedAt() != null) {
+            LocalDate day = event.beforePlayedAt().toLocalDate();
+            repository.decrementPlay(event.beforeListenerId(), event.beforeSongId(), day);
+            repository.deleteEmpty(event.beforeListenerId(), day);
+        }
+        if (event.afterListenerId() != null && event.afterSongId() != null && event.afterPlayedAt() != null) {
+            repository.incrementPlay(event.afterListenerId(), event.afterSongId(), event.afterPlayedAt().toLocalDate());
+        }
+    }
+
+    // the counters one play touches: its song plus each distinct artist and album, on the day it was played
+    public static List<PlayCountId> counterKeys(PlayRecordedEvent event) {
+        if (event == null || event.listenerId() == null || event.songId() == null || event.playedAt() == null) {
+            return List.of();
+        }
+        LocalDate day = event.playedAt().toLocalDate();
+        List<PlayCountId> keys = new ArrayList<>(1 + event.artistIds().size() + event.albumIds().size());
+        keys.add(new PlayCountId(event.listenerId(), PlayCount.SONG, event.songId(), day));
+        addDistinct(keys, event.listenerId(), PlayCount.ARTIST, event.artistIds(), day);
+        addDistinct(keys, event.listenerId(), PlayCount.ALBUM, event.albumIds(), day);
+        return keys;
+    }
+
+    private static void addDistinct(List<PlayCountId> keys, String listenerId, String type, List<String> ids, LocalDate day) {
+        Set<String> seen = new LinkedHashSet<>(ids);
+        for (String id : seen) {
+            if (id != null && !id.isBlank()) {
+                keys.add(new PlayCountId(listenerId, type, id, day));
+            }
+        }
+    }
+
+    public List<TopItemDTO> getTopItems(String listenerId, String type, String timeRange,
+            LocalDate from, LocalDate to, Integer limit) {
+        if (listenerId == null || listenerId.isBlank()) {
+            throw new InvalidRequestException("Listener ID is required");
+        }
+        String itemType = parseType(type);
+        int topN = (limit == null || limit <= 0) ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+
+        // an explicit date range wins over time_range
+        LocalDate toDay;
+        LocalDate fromDay;
+        if (from != null || to != null) {
+            toDay = to != null ? to : LocalDate.now();
+            fromDay = from != null ? from : toDay.minusDays(TimeRange.LONG_TERM.getDays() - 1);
+            if (fromDay.isAfter(toDay)) {
+                throw new InvalidRequestException("Start date must be before end date");
+            }
+        } else {
+            TimeRange range = parseTimeRange(timeRange);
+            toDay = LocalDate.now();
+            fromDay = toDay.minusDays(range.getDays() - 1);
+        }
+
+        List<PlayCountRepository.TopItemCount> rows = switch (itemType) {
+            case PlayCount.ARTIST -> repository.findTopArtists(listenerId, fromDay, toDay, topN);
+            case PlayCount.ALBUM -> repository.findTopAlbums(listenerId, fromDay, toDay, topN);
+            default -> repository.findTopSongs(listenerId, fromDay, toDay, topN);
+        };
+        return rows.stream()
+                .map(row -> new TopItemDTO(row.getItemId(), row.getName(), row.getArtistName(), row.getPlays()))
+                .toList();
+    }
+
+    public TimeRange parseTimeRange(String timeRange) {
+        if (timeRange == null || timeRange.isBlank()) {
+            return TimeRange.MEDIUM_TERM;
+        }
+        try {
+            return TimeRange.valueOf(timeRange.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("time_range", timeRange);
+        }
+    }
+
+    private String parseType(String type) {
+        if (type == null || type.isBlank()) {
+            return PlayCount.SONG;
+        }
+        return switch (type.trim().toLowerCase(Locale.ROOT)) {
+            case "songs", "song", "tracks" -> PlayCount.SONG;
+            case "artists", "artist" -> PlayCount.ARTIST;
+            case "albums", "album" -> PlayCount.ALBUM;
+            default -> throw new InvalidRequestException("type", type);
+        };
+    }
+}
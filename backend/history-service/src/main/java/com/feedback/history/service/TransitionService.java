@@ -0,0 +1,255 @@
+package com.feedback.history.service;
+
+import com.feedback.history.columnar.SongDictionary;
+import com.feedback.history.columnar.TransitionModel;
+import com.feedback.history.dtos.NextSongDTO;
+import com.feedback.history.dtos.PlayColumnRow;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.exception.StatsUnavailableException;
+import com.feedback.history.repository.HistoryRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Next-song suggestions from consecutive plays: song A followed by song B by the same listener
+ * within the transition window counts as one A -> B transition, globally and for that listener
+ * (see {@link TransitionModel}). The model lives in memory and is snapshotted to disk; on startup
+ * the snapshot is loaded and only plays after it are replayed from Postgres (see {@link IndexRebuild}).
+ * Updated after each committed insert.
+ */
+@Service
+public class TransitionService {
+
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 50;
+
+    private static final int SNAPSHOT_MAGIC = 0x54524e53;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final long windowSeconds;
+    private final Path snapshotFile;
+    private final IndexRebuild indexRebuild;
+    // all guarded by this
+    private SongDictionary dictionary = new SongDictionary();
+    private TransitionModel model = new TransitionModel();
+    private Map<String, LastPlay> lastPlays = new HashMap<>();
+    private long appliedUpToHistoryId;
+
+    public TransitionService(HistoryRepository repository, PlatformTransactionManager transactionManager,
+            @Value("${history.transitions.window-minutes:15}") long windowMinutes,
+            @Value("${history.transitions.snapshot-file:/tmp/history-transitions.bin}") String snapshotFile) {
+        this.windowSeconds = windowMinutes * 60;
+        this.snapshotFile = Path.of(snapshotFile);
+        this.indexRebuild = new IndexRebuild("transitions", repository, transactionManager, new IndexRebuild.Index() {
+            @Override
+            public void reset() {
+                synchronized (TransitionService.this) {
+                    dictionary = new SongDictionary();
+                    model = new TransitionModel();
+                    lastPlays = new HashMap<>();
+                    appliedUpToHistoryId = 0;
+                }
+            }
+
+            // loads the last snapshot (if any), then replays the plays committed since it was taken
+            @Override
+            public void load(long maxHistoryId) {
+                long afterHistoryId = loadSnapshot();
+                try (Stream<PlayColumnRow> rows = repository.streamPlayColumnRowsBetween(afterHistoryId, maxHistoryId)) {
+                    rows.forEach(row -> {
+                        synchronized (TransitionService.this) {
+                            TransitionService.this.apply(row.listenerId(), row.songId(), row.playedAt());
+                        }
+                    });
+                }
+                synchronized (TransitionService.this) {
+                    appliedUpToHistoryId = Math.max(appliedUpToHistoryId, maxHistoryId);
+                    System.out.println("Transition model loaded: " + model.distinctTransitions() + " transitions, "
+                            + model.listenerCount() + " listeners");
+                }
+            }
+
+            @Override
+            public void apply(PlayRecordedEvent event) {
+                synchronized (TransitionService.this) {
+                    applyEvent(event);
+                }
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRebuild() {
+        indexRebuild.start();
+    }
+
+    public void rebuild() {
+        indexRebuild.run();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPlayRecorded(PlayRecordedEvent event) {
+        indexRebuild.onPlayRecorded(event);
+    }
+
+    /**
+     * Writes the model to a temp file and moves it over the last snapshot. A play still committing
+     * while the snapshot is taken can be left out of it; these are suggestions, not a ledger.
+     */
+    @Scheduled(fixedDelayString = "${history.transitions.snapshot-interval-ms:600000}")
+    @PreDestroy
+    public void snapshot() {
+        if (!indexRebuild.isReady()) {
+            return;
+        }
+        Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try {
+            // serialized in memory under the lock, so the model, dictionary and last plays agree with each
+            // other; the disk write happens after it is released and does not hold up plays or lookups
+            byte[] bytes = serialize();
+            if (snapshotFile.getParent() != null) {
+                Files.createDirectories(snapshotFile.getParent());
+            }
+            Files.write(temp, bytes);
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to write transition snapshot " + snapshotFile + ": " + e.getMessage());
+        }
+    }
+
+    // account erasure: drops the listener's own transitions and last play, and rewrites the snapshot without them
+    public void forgetListener(String listenerId) {
+        synchronized (this) {
+            lastPlays.remove(listenerId);
+            model.removeListener(listenerId);
+        }
+        snapshot();
+    }
+
+    public List<NextSongDTO> getNextSongs(String songId, String listenerId, Integer limit) {
+        if (songId == null || songId.isBlank()) {
+            throw new InvalidRequestException("Song ID is required");
+        }
+        if (!indexRebuild.isReady()) {
+            throw new StatsUnavailableException("Song transitions are still loading, try again shortly");
+        }
+        int topN = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        String listener = listenerId != null && !listenerId.isBlank() ? listenerId : null;
+        synchronized (this) {
+            Integer from = dictionary.find(songId);
+            if (from == null) {
+                return List.of();
+            }
+            return model.next(from, listener, topN).stream()
+                    .map(s -> new NextSongDTO(dictionary.decode(s.songCode()), s.globalCount(), s.listenerCount(), s.score()))
+                    .toList();
+        }
+    }
+
+    private synchronized byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(appliedUpToHistoryId);
+            int songs = dictionary.size();
+            out.writeInt(songs);
+            for (int code = 0; code < songs; code++) {
+                out.writeUTF(dictionary.decode(code));
+            }
+            model.writeTo(out);
+            out.writeInt(lastPlays.size());
+            for (Map.Entry<String, LastPlay> entry : lastPlays.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().songCode());
+                out.writeLong(entry.getValue().second());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    // returns the history ID the snapshot covers, or 0 to rebuild from scratch
+    private long loadSnapshot() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                System.err.println("Ignoring transition snapshot " + snapshotFile + ": unknown format");
+                return 0;
+            }
+            long historyId = in.readLong();
+            SongDictionary songs = new SongDictionary();
+            int songCount = in.readInt();
+            for (int code = 0; code < songCount; code++) {
+                songs.encode(in.readUTF());
+            }
+            TransitionModel loaded = TransitionModel.readFrom(in);
+            Map<String, LastPlay> last = new HashMap<>();
+            int listeners = in.readInt();
+            for (int i = 0; i < listeners; i++) {
+                last.put(in.readUTF(), new LastPlay(in.readInt(), in.readLong()));
+            }
+            synchronized (this) {
+                dictionary = songs;
+                model = loaded;
+                lastPlays = last;
+                appliedUpToHistoryId = historyId;
+            }
+            return historyId;
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException e) {
+            System.err.println("Ignoring transition snapshot " + snapshotFile + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    // called holding the lock
+    private void applyEvent(PlayRecordedEvent event) {
+        if (event.listenerId() == null || event.songId() == null || event.playedAt() == null) {
+            return;
+        }
+        apply(event.listenerId(), event.songId(), event.playedAt());
+        if (event.historyId() != null) {
+            appliedUpToHistoryId = Math.max(appliedUpToHistoryId, event.historyId());
+        }
+    }
+
+    // called holding the lock; plays of one listener must arrive oldest first to form transitions
+    private void apply(String listenerId, String songId, LocalDateTime playedAt) {
+        int code = dictionary.encode(songId);
+        long second = PlayAnalyticsService.toSecond(playedAt);
+        LastPlay last = lastPlays.get(listenerId);
+        if (last != null && second < last.second()) {
+            // a late-arriving older play doesn't rewrite the sequence
+            return;
+        }
+        if (last != null && last.songCode() != code && second - last.second() <= windowSeconds) {
+            model.record(listenerId, last.songCode(), code);
+        }
+        lastPlays.put(listenerId, new LastPlay(code, second));
+    }
+
+    private record LastPlay(int songCode, long second) {}
+}
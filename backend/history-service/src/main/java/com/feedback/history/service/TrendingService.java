@@ -0,0 +1,130 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.TrendingDTO;
+import com.feedback.history.dtos.TrendingEntryDTO;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.exception.StatsUnavailableException;
+import com.feedback.history.repository.HistoryRepository;
+import com.feedback.history.sketch.DecayedTopK;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Trending songs, worldwide and per listener country: each play adds to the song's exponentially
+ * decayed score (see {@link DecayedTopK}), so songs played a lot recently rank above songs played
+ * a lot a while ago. Updated after each committed insert without a global lock; scores are rebuilt
+ * from the last few half-lives of history on startup (see {@link IndexRebuild}).
+ */
+@Service
+public class TrendingService {
+
+    public static final int DEFAULT_LIMIT = 50;
+    // songs kept in each trending heap
+    public static final int MAX_LIMIT = 100;
+
+    private static final String GLOBAL = "GLOBAL";
+    // older plays are worth under 1/128 of a new one and are not worth reading back
+    private static final int REBUILD_HALF_LIVES = 7;
+    // scores this small are dropped by prune; a new play is worth 1
+    private static final double PRUNE_BELOW = 0.01;
+
+    private final long halfLifeSeconds;
+    private final IndexRebuild indexRebuild;
+    // scope (GLOBAL or country code) -> scores
+    private final ConcurrentHashMap<String, DecayedTopK> scopes = new ConcurrentHashMap<>();
+
+    public TrendingService(HistoryRepository historyRepository, PlatformTransactionManager transactionManager,
+            @Value("${history.trending.half-life-hours:6}") long halfLifeHours) {
+        this.halfLifeSeconds = halfLifeHours * 3600;
+        this.indexRebuild = new IndexRebuild("trending", historyRepository, transactionManager, new IndexRebuild.Index() {
+            @Override
+            public void reset() {
+                scopes.clear();
+            }
+
+            @Override
+            public void load(long maxHistoryId) {
+                LocalDateTime since = LocalDateTime.now().minusSeconds(REBUILD_HALF_LIVES * halfLifeSeconds);
+                try (Stream<HistoryRepository.ChartPlays> plays = historyRepository.streamChartPlays(since, maxHistoryId)) {
+                    plays.filter(row -> "S".equals(row.getItemType()))
+                            .forEach(row -> offer(row.getCountry(), row.getItemId(),
+                                    PlayAnalyticsService.toSecond(row.getHour()), row.getPlays()));
+                }
+                System.out.println("Trending songs rebuilt from plays since " + since);
+            }
+
+            @Override
+            public void apply(PlayRecordedEvent event) {
+                if (event.songId() != null && event.playedAt() != null) {
+                    offer(event.country(), event.songId(), PlayAnalyticsService.toSecond(event.playedAt()), 1);
+                }
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRebuild() {
+        indexRebuild.start();
+    }
+
+    public void rebuild() {
+        indexRebuild.run();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPlayRecorded(PlayRecordedEvent event) {
+        indexRebuild.onPlayRecorded(event);
+    }
+
+    // drops decayed-away songs so the score maps only hold songs that could still trend
+    @Scheduled(fixedDelayString = "${history.trending.prune-interval-ms:3600000}")
+    public void prune() {
+        long nowSecond = PlayAnalyticsService.toSecond(LocalDateTime.now());
+        scopes.values().forEach(scores -> scores.prune(nowSecond, PRUNE_BELOW));
+    }
+
+    // country null or blank for the worldwide list
+    public TrendingDTO getTrending(String country, Integer limit) {
+        if (!indexRebuild.isReady()) {
+            throw new StatsUnavailableException("Trending songs are still loading, try again shortly");
+        }
+        String scope = country == null || country.isBlank() ? GLOBAL : country.trim().toUpperCase(Locale.ROOT);
+        int size = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+
+        LocalDateTime now = LocalDateTime.now();
+        DecayedTopK scores = scopes.get(scope);
+        List<TrendingEntryDTO> entries = new ArrayList<>();
+        if (scores != null) {
+            int rank = 1;
+            for (DecayedTopK.Item item : scores.top(PlayAnalyticsService.toSecond(now), size)) {
+                entries.add(new TrendingEntryDTO(rank++, item.item(), item.score()));
+            }
+        }
+        return new TrendingDTO(GLOBAL.equals(scope) ? null : scope, halfLifeSeconds / 3600.0, now, entries);
+    }
+
+    // counts the plays worldwide and, when known, for the listener's country
+    private void offer(String country, String songId, long second, double plays) {
+        scores(GLOBAL).offer(songId, second, plays);
+        if (country != null && !country.isBlank()) {
+            scores(country.trim().toUpperCase(Locale.ROOT)).offer(songId, second, plays);
+        }
+    }
+
+    private DecayedTopK scores(String scope) {
+        return scopes.computeIfAbsent(scope, key -> new DecayedTopK(halfLifeSeconds, MAX_LIMIT));
+    }
+}
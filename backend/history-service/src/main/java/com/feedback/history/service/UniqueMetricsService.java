@@ -0,0 +1,116 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.UniquesDTO;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.model.DailySketch;
+import com.feedback.history.model.DailySketchId;
+import com.feedback.history.repository.DailySketchRepository;
+import com.feedback.history.sketch.HyperLogLog;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Platform-wide distinct listeners and songs per day, kept as one HyperLogLog per metric per day.
+ * Plays update in-memory sketches; a scheduled flush merges them into the stored ones, so an insert
+ * never waits on a 12 KB read-modify-write. Queries union the stored sketches for the range with
+ * anything not yet flushed.
+ */
+@Service
+public class UniqueMetricsService {
+
+    private final DailySketchRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    // plays seen since the last flush, by metric and day
+    private final ConcurrentHashMap<DailySketchId, HyperLogLog> unflushed = new ConcurrentHashMap<>();
+
+    public UniqueMetricsService(DailySketchRepository repository, PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPlayRecorded(PlayRecordedEvent event) {
+        if (event.playedAt() == null) {
+            return;
+        }
+        LocalDate day = event.playedAt().toLocalDate();
+        offer(DailySketch.LISTENERS, day, event.listenerId());
+        offer(DailySketch.SONGS, day, event.songId());
+    }
+
+    @Scheduled(fixedDelayString = "${history.metrics.flush-interval-ms:30000}")
+    @PreDestroy
+    public void flush() {
+        for (DailySketchId id : unflushed.keySet()) {
+            HyperLogLog pending = unflushed.remove(id);
+            if (pending == null) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    DailySketch row = repository.findForUpdate(id.getMetric(), id.getDay())
+                            .orElseGet(() -> new DailySketch(id.getMetric(), id.getDay()));
+                    HyperLogLog merged = row.getRegisters() != null
+                            ? HyperLogLog.fromBytes(row.getRegisters()).merge(pending)
+                            : pending;
+                    row.setRegisters(merged.toBytes());
+                    repository.save(row);
+                });
+            } catch (RuntimeException e) {
+                // keep the plays for the next flush; merging is idempotent so nothing is double counted
+                unflushed.merge(id, pending, HyperLogLog::merge);
+                System.err.println("Failed to flush " + id.getMetric() + " sketch for " + id.getDay() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public UniquesDTO getUniques(LocalDate from, LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end;
+        if (start.isAfter(end)) {
+            throw new InvalidRequestException("Start date must be before end date");
+        }
+        HyperLogLog listeners = union(DailySketch.LISTENERS, start, end);
+        HyperLogLog songs = union(DailySketch.SONGS, start, end);
+        return new UniquesDTO(start, end, listeners.estimate(), songs.estimate(), listeners.standardError());
+    }
+
+    private HyperLogLog union(String metric, LocalDate from, LocalDate to) {
+        HyperLogLog union = new HyperLogLog();
+        List<DailySketch> stored = repository.findByMetricAndDayBetween(metric, from, to);
+        for (DailySketch sketch : stored) {
+            union.merge(HyperLogLog.fromBytes(sketch.getRegisters()));
+        }
+        for (DailySketchId id : unflushed.keySet()) {
+            if (id.getMetric().equals(metric) && !id.getDay().isBefore(from) && !id.getDay().isAfter(to)) {
+                // merged under the map's lock so a concurrent offer doesn't race the read
+                unflushed.computeIfPresent(id, (key, sketch) -> {
+                    union.merge(sketch);
+                    return sketch;
+                });
+            }
+        }
+        return union;
+    }
+
+    private void offer(String metric, LocalDate day, String value) {
+        if (value == null) {
+            return;
+        }
+        unflushed.compute(new DailySketchId(metric, day), (id, sketch) -> {
+            HyperLogLog target = sketch != null ? sketch : new HyperLogLog();
+            target.offer(value);
+            return target;
+        });
+    }
+}
@@ -0,0 +1,254 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.JobStatusDTO;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.exception.ResourceNotFoundException;
+import com.feedback.history.model.JobCheckpoint;
+import com.feedback.history.model.JobFailure;
+import com.feedback.history.model.JobFailureId;
+import com.feedback.history.repository.JobCheckpointRepository;
+import com.feedback.history.repository.JobFailureRepository;
+import com.feedback.history.repository.PlayCountRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Precomputes every listener's year in review. Listeners are walked in ID order in batches; each
+ * batch fans out onto virtual threads, but a semaphore caps how many hold a DB connection at once
+ * so the job never takes more than a slice of the pool from live traffic. After each batch the
+ * last listener ID is checkpointed, so a restarted job resumes where it stopped, and runs left
+ * unfinished are resumed on startup. Listeners that fail are recorded in job_failure and retried
+ * once the walk completes; the ones still failing stay there for a later retry.
+ */
+@Service
+public class YearInReviewJob {
+
+    public static final String JOB_PREFIX = "year-in-review-";
+
+    private final PlayCountRepository playCountRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final JobFailureRepository failureRepository;
+    private final YearInReviewService yearInReviewService;
+    private final int batchSize;
+    private final Semaphore dbPermits;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public YearInReviewJob(PlayCountRepository playCountRepository, JobCheckpointRepository checkpointRepository,
+            JobFailureRepository failureRepository, YearInReviewService yearInReviewService,
+            @Value("${history.wrapped.batch-size:200}") int batchSize,
+            @Value("${history.wrapped.max-db-concurrency:4}") int maxDbConcurrency) {
+        this.playCountRepository = playCountRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.failureRepository = failureRepository;
+        this.yearInReviewService = yearInReviewService;
+        this.batchSize = batchSize;
+        this.dbPermits = new Semaphore(maxDbConcurrency);
+    }
+
+    public static String jobName(int year) {
+        return JOB_PREFIX + year;
+    }
+
+    // picks up the runs a restart interrupted, oldest year first. If a run is started by hand in the
+    // meantime the remaining years wait for it; starting them again resumes their checkpoints
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinished() {
+        List<Integer> years = checkpointRepository.findByJobNameStartingWithAndStatusNot(JOB_PREFIX, JobCheckpoint.COMPLETED)
+                .stream()
+                .map(checkpoint -> Integer.parseInt(checkpoint.getJobName().substring(JOB_PREFIX.length())))
+                .sorted()
+                .toList();
+        if (years.isEmpty()) {
+            return;
+        }
+        Thread.ofVirtual().name("year-in-review-resume").start(() -> {
+            for (int year : years) {
+                if (!running.compareAndSet(false, true)) {
+                    return;
+                }
+                System.out.println("Resuming year in review " + year);
+                run(year);
+            }
+        });
+    }
+
+    // early in January, for the year that just ended
+    @Scheduled(cron = "${history.wrapped.cron:0 0 3 2 1 *}")
+    public void runForLastYear() {
+        int year = Year.now().getValue() - 1;
+        if (running.compareAndSet(false, true)) {
+            run(year);
+        }
+    }
+
+    // starts the job in the background; only one run at a time per instance
+    public JobStatusDTO start(int year) {
+        if (year < 2000 || year > Year.now().getValue()) {
+            throw new InvalidRequestException("year", String.valueOf(year));
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new InvalidRequestException("A year in review job is already running");
+        }
+        Thread.ofVirtual().name("year-in-review-" + year).start(() -> run(year));
+        return checkpointRepository.findById(jobName(year))
+                .map(this::checkpointToDto)
+                .orElse(new JobStatusDTO(jobName(year), JobCheckpoint.RUNNING, null, 0L, 0L, LocalDateTime.now(), null));
+    }
+
+    // another attempt at just the listeners a finished run could not compute
+    public JobStatusDTO retryFailed(int year) {
+        JobCheckpoint checkpoint = checkpointRepository.findById(jobName(year))
+                .orElseThrow(() -> new ResourceNotFoundException("Job", jobName(year)));
+        if (!JobCheckpoint.COMPLETED.equals(checkpoint.getStatus())) {
+            // an unfinished run retries its failures when it completes; start resumes it
+            throw new InvalidRequestException("The year in review job for " + year + " has not finished");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new InvalidRequestException("A year in review job is already running");
+        }
+        Thread.ofVirtual().name("year-in-review-retry-" + year).start(() -> run(year, true));
+        return checkpointToDto(checkpoint);
+    }
+
+    public JobStatusDTO getStatus(int year) {
+        return checkpointRepository.findById(jobName(year))
+                .map(this::checkpointToDto)
+                .orElseThrow(() -> new ResourceNotFoundException("Job", jobName(year)));
+    }
+
+    // callers must have set running; it is cleared when the run ends
+    void run(int year) {
+        run(year, false);
+    }
+
+    // walks every listener with plays in the year (unless failuresOnly), then gives each recorded failure
+    // one more attempt; the ones that fail again stay recorded for the next retry
+    private void run(int year, boolean failuresOnly) {
+        String name = jobName(year);
+        LocalDate from = LocalDate.of(year, 1, 1);
+        LocalDate to = LocalDate.of(year, 12, 31);
+        JobCheckpoint checkpoint = checkpointRepository.findById(name).orElseGet(() -> new JobCheckpoint(name));
+        if (!failuresOnly && (checkpoint.getStartedAt() == null || JobCheckpoint.COMPLETED.equals(checkpoint.getStatus()))) {
+            // fresh run (or a deliberate re-run of a finished year): start from the first listener
+            checkpoint.setLastListenerId(null);
+            checkpoint.setProcessed(0L);
+            checkpoint.setFailed(0L);
+            checkpoint.setStartedAt(LocalDateTime.now());
+            failureRepository.deleteAllByIdInBatch(failureIds(name, failureRepository.findListenerIds(name)));
+        }
+        checkpoint.setStatus(JobCheckpoint.RUNNING);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpoint = checkpointRepository.save(checkpoint);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            if (!failuresOnly) {
+                String after = checkpoint.getLastListenerId() != null ? checkpoint.getLastListenerId() : "";
+                List<String> batch;
+                while (!(batch = playCountRepository.findListenersWithPlays(from, to, after, batchSize)).isEmpty()) {
+                    List<JobFailure> failures = computeAll(executor, name, batch, year);
+                    // saved before the checkpoint moves past them, so a crash in between only repeats the batch
+                    failureRepository.saveAll(failures);
+
+                    after = batch.get(batch.size() - 1);
+                    checkpoint.setLastListenerId(after);
+                    checkpoint.setProcessed(checkpoint.getProcessed() + batch.size() - failures.size());
+                    checkpoint.setFailed(checkpoint.getFailed() + failures.size());
+                    checkpoint.setUpdatedAt(LocalDateTime.now());
+                    checkpoint = checkpointRepository.save(checkpoint);
+                }
+            }
+
+            List<String> retried = failureRepository.findListenerIds(name);
+            List<JobFailure> failures = computeAll(executor, name, retried, year);
+            Set<String> stillFailing = new HashSet<>();
+            failures.forEach(failure -> stillFailing.add(failure.getListenerId()));
+            failureRepository.saveAll(failures);
+            failureRepository.deleteAllByIdInBatch(failureIds(name,
+                    retried.stream().filter(listenerId -> !stillFailing.contains(listenerId)).toList()));
+            checkpoint.setProcessed(checkpoint.getProcessed() + retried.size() - failures.size());
+            checkpoint.setFailed((long) failures.size());
+
+            checkpoint.setStatus(JobCheckpoint.COMPLETED);
+            System.out.println("Year in review " + year + " done: " + checkpoint.getProcessed() + " listeners, "
+                    + checkpoint.getFailed() + " failed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            checkpoint.setStatus(JobCheckpoint.FAILED);
+        } catch (ExecutionException | RuntimeException e) {
+            System.err.println("Year in review " + year + " stopped: " + e.getMessage());
+            checkpoint.setStatus(JobCheckpoint.FAILED);
+        } finally {
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            try {
+                checkpointRepository.save(checkpoint);
+            } finally {
+                running.set(false);
+            }
+        }
+    }
+
+    // computes the listeners concurrently and returns the ones that failed
+    private List<JobFailure> computeAll(ExecutorService executor, String name, List<String> listenerIds, int year)
+            throws InterruptedException, ExecutionException {
+        List<Future<String>> results = new ArrayList<>(listenerIds.size());
+        for (String listenerId : listenerIds) {
+            results.add(executor.submit(() -> computeOne(listenerId, year)));
+        }
+        List<JobFailure> failures = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            String error = results.get(i).get();
+            if (error != null) {
+                failures.add(new JobFailure(name, listenerIds.get(i), error));
+            }
+        }
+        return failures;
+    }
+
+    // null when the listener was computed, otherwise the error
+    private String computeOne(String listenerId, int year) throws InterruptedException {
+        dbPermits.acquire();
+        try {
+            yearInReviewService.compute(listenerId, year);
+            return null;
+        } catch (RuntimeException e) {
+            // one bad listener must not stop the job; it is recorded and logged
+            System.err.println("Year in review failed for listener " + listenerId + ": " + e.getMessage());
+            return String.valueOf(e.getMessage());
+        } finally {
+            dbPermits.release();
+        }
+    }
+
+    private static List<JobFailureId> failureIds(String name, List<String> listenerIds) {
+        return listenerIds.stream().map(listenerId -> new JobFailureId(name, listenerId)).toList();
+    }
+
+    private JobStatusDTO checkpointToDto(JobCheckpoint checkpoint) {
+        return new JobStatusDTO(
+                checkpoint.getJobName(),
+                checkpoint.getStatus(),
+                checkpoint.getLastListenerId(),
+                checkpoint.getProcessed(),
+                checkpoint.getFailed(),
+                checkpoint.getStartedAt(),
+                checkpoint.getUpdatedAt()
+        );
+    }
+}
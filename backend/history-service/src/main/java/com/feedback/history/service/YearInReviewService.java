@@ -0,0 +1,119 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.TopItemDTO;
+import com.feedback.history.dtos.YearInReviewDTO;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.exception.ResourceNotFoundException;
+import com.feedback.history.model.YearInReview;
+import com.feedback.history.model.YearInReviewId;
+import com.feedback.history.repository.ListeningSessionRepository;
+import com.feedback.history.repository.PlayCountRepository;
+import com.feedback.history.repository.YearInReviewRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Yearly "wrapped" summary for one listener. Computed by the batch job from the daily play counters,
+ * plus the year's plays grouped into sessions for the longest one, and served from year_in_review.
+ */
+@Service
+@Transactional(readOnly = true)
+public class YearInReviewService {
+
+    public static final int TOP_LIMIT = 5;
+
+    private static final JsonMapper MAPPER = JsonMapper.builder().build();
+
+    private final YearInReviewRepository repository;
+    private final PlayCountRepository playCountRepository;
+    private final ListeningSessionRepository sessionRepository;
+    private final long inactivityGapMinutes;
+
+    public YearInReviewService(YearInReviewRepository repository, PlayCountRepository playCountRepository,
+            ListeningSessionRepository sessionRepository,
+            @Value("${history.sessions.inactivity-gap-minutes:30}") long inactivityGapMinutes) {
+        this.repository = repository;
+        this.playCountRepository = playCountRepository;
+        this.sessionRepository = sessionRepository;
+        this.inactivityGapMinutes = inactivityGapMinutes;
+    }
+
+    public YearInReviewDTO getReview(String listenerId, Integer year) {
+        if (listenerId == null || listenerId.isBlank()) {
+            throw new InvalidRequestException("Listener ID is required");
+        }
+        int reviewYear = year != null ? year : Year.now().getValue() - 1;
+        return repository.findById(new YearInReviewId(listenerId, reviewYear))
+                .map(this::reviewToDto)
+                .orElseThrow(() -> new ResourceNotFoundException("Year in review", listenerId + "/" + reviewYear));
+    }
+
+    // recomputes and upserts one listener's summary; safe to repeat, so a resumed job can redo a partial batch
+    @Transactional
+    public YearInReview compute(String listenerId, int year) {
+        LocalDate from = LocalDate.of(year, 1, 1);
+        LocalDate to = LocalDate.of(year, 12, 31);
+
+        YearInReview review = repository.findById(new YearInReviewId(listenerId, year))
+                .orElseGet(() -> new YearInReview(listenerId, year));
+
+        PlayCountRepository.DayTotal totals = playCountRepository.sumPlays(listenerId, from, to);
+        review.setTotalPlays(totals != null && totals.getPlays() != null ? totals.getPlays() : 0L);
+        review.setTotalListeningMs(totals != null && totals.getListeningMs() != null ? totals.getListeningMs() : 0L);
+
+        review.setTopSongs(MAPPER.writeValueAsString(toDtos(playCountRepository.findTopSongs(listenerId, from, to, TOP_LIMIT))));
+        review.setTopArtists(MAPPER.writeValueAsString(toDtos(playCountRepository.findTopArtists(listenerId, from, to, TOP_LIMIT))));
+
+        PlayCountRepository.DayTotal peak = playCountRepository.findPeakDay(listenerId, from, to).orElse(null);
+        review.setPeakDay(peak != null ? peak.getDay() : null);
+        review.setPeakDayPlays(peak != null ? peak.getPlays() : null);
+
+        // from history with the session gap rule: listening_session may not hold sessions for older plays yet
+        ListeningSessionRepository.SessionSpan longest = sessionRepository.findLongestInHistory(listenerId,
+                from.atStartOfDay(), to.plusDays(1).atStartOfDay(), inactivityGapMinutes).orElse(null);
+        review.setLongestSessionStartedAt(longest != null ? longest.getStartedAt() : null);
+        review.setLongestSessionMs(longest != null
+                ? Duration.between(longest.getStartedAt(), longest.getEndedAt()).toMillis() : null);
+
+        review.setComputedAt(LocalDateTime.now());
+        return repository.save(review);
+    }
+
+    private static List<TopItemDTO> toDtos(List<PlayCountRepository.TopItemCount> rows) {
+        return rows.stream()
+                .map(row -> new TopItemDTO(row.getItemId(), row.getName(), row.getArtistName(), row.getPlays()))
+                .toList();
+    }
+
+    private static List<TopItemDTO> fromJson(String json) {
+        if (json == null || json.isBlank()) {
+            return List.of();
+        }
+        return Arrays.asList(MAPPER.readValue(json, TopItemDTO[].class));
+    }
+
+    private YearInReviewDTO reviewToDto(YearInReview review) {
+        return new YearInReviewDTO(
+                review.getListenerId(),
+                review.getYear(),
+                review.getTotalPlays(),
+                review.getTotalListeningMs(),
+                fromJson(review.getTopSongs()),
+                fromJson(review.getTopArtists()),
+                review.getPeakDay(),
+                review.getPeakDayPlays(),
+                review.getLongestSessionStartedAt(),
+                review.getLongestSessionMs(),
+                review.getComputedAt()
+        );
+    }
+}
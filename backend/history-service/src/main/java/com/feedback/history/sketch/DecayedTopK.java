@@ -0,0 +1,142 @@
+package com.feedback.history.sketch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exponentially time-decayed scores per item, with the top items kept in a bounded heap. A play
+ * of weight w at second t is worth w * 2^-((now - t) / halfLife) at any later second now.
+ * <p>
+ * Decay is lazy: an item's score is stored with the second it was last brought up to date and is
+ * only decayed when that item is played again. Ranking uses the item's log forward-decayed weight,
+ * ln(score) + lambda * second, which all items share the same decay against, so the order of items
+ * that are not played does not change as time passes and the heap never needs to be recomputed.
+ * <p>
+ * Score updates go through {@link ConcurrentHashMap#compute}, which only locks the item's bin. The
+ * heap has its own lock, taken only when the new weight beats the smallest one in a full heap.
+ */
+public final class DecayedTopK {
+
+    private final double lambda;
+    private final int capacity;
+    private final ConcurrentHashMap<String, Score> scores = new ConcurrentHashMap<>();
+    // min-heap on weight, with the entry for each item in it; both guarded by heap
+    private final PriorityQueue<Entry> heap = new PriorityQueue<>(Comparator.comparingDouble(Entry::weight));
+    private final Map<String, Entry> inHeap = new HashMap<>();
+    // smallest weight in the heap once it is full; anything not above it can skip the lock
+    private volatile double threshold = Double.NEGATIVE_INFINITY;
+
+    public DecayedTopK(long halfLifeSeconds, int capacity) {
+        this.lambda = Math.log(2) / halfLifeSeconds;
+        this.capacity = capacity;
+    }
+
+    public record Item(String item, double score) {}
+
+    // score as of second; immutable so concurrent compute and removeIf never see it half-written
+    private record Score(double value, long second) {
+        Score add(double weight, long at, double lambda) {
+            if (at >= second) {
+                return new Score(value * Math.exp(-lambda * (at - second)) + weight, at);
+            }
+            // played before the last update: decay the play instead
+            return new Score(value + weight * Math.exp(-lambda * (second - at)), second);
+        }
+    }
+
+    private static final class Entry {
+        private final String item;
+        private double weight;
+
+        Entry(String item, double weight) {
+            this.item = item;
+            this.weight = weight;
+        }
+
+        double weight() {
+            return weight;
+        }
+    }
+
+    public void offer(String item, long epochSecond, double weight) {
+        Score score = scores.compute(item, (key, old) -> old == null
+                ? new Score(weight, epochSecond)
+                : old.add(weight, epochSecond, lambda));
+        double logWeight = logWeight(score);
+        if (logWeight <= threshold) {
+            return;
+        }
+        synchronized (heap) {
+            // a racing offer for the same item may have skipped the lock on an older threshold
+            Score latest = scores.get(item);
+            if (latest != null) {
+                logWeight = Math.max(logWeight, logWeight(latest));
+            }
+            Entry entry = inHeap.get(item);
+            if (entry != null) {
+                // racing offers can arrive out of order; a weight only ever grows
+                if (logWeight > entry.weight) {
+                    heap.remove(entry);
+                    entry.weight = logWeight;
+                    heap.add(entry);
+                }
+            } else if (heap.size() < capacity) {
+                entry = new Entry(item, logWeight);
+                heap.add(entry);
+                inHeap.put(item, entry);
+            } else if (logWeight > heap.peek().weight) {
+                inHeap.remove(heap.poll().item);
+                entry = new Entry(item, logWeight);
+                heap.add(entry);
+                inHeap.put(item, entry);
+            }
+            threshold = heap.size() < capacity ? Double.NEGATIVE_INFINITY : heap.peek().weight;
+        }
+    }
+
+    /** Current top items, highest first, with their scores decayed to {@code nowSecond}. */
+    public List<Item> top(long nowSecond, int limit) {
+        List<Entry> entries;
+        synchronized (heap) {
+            entries = new ArrayList<>(heap.size());
+            for (Entry entry : heap) {
+                entries.add(new Entry(entry.item, entry.weight));
+            }
+        }
+        entries.sort(Comparator.comparingDouble(Entry::weight).reversed());
+        List<Item> top = new ArrayList<>(Math.min(limit, entries.size()));
+        for (int i = 0; i < entries.size() && i < limit; i++) {
+            Entry entry = entries.get(i);
+            top.add(new Item(entry.item, Math.exp(entry.weight - lambda * nowSecond)));
+        }
+        return top;
+    }
+
+    /** Drops scores that have decayed below {@code minScore} and are not in the heap; returns how many. */
+    public int prune(long nowSecond, double minScore) {
+        int before = scores.size();
+        scores.entrySet().removeIf(entry -> {
+            Score score = entry.getValue();
+            if (score.value * Math.exp(-lambda * (nowSecond - score.second)) >= minScore) {
+                return false;
+            }
+            synchronized (heap) {
+                return !inHeap.containsKey(entry.getKey());
+            }
+        });
+        return Math.max(0, before - scores.size());
+    }
+
+    public int size() {
+        return scores.size();
+    }
+
+    private double logWeight(Score score) {
+        return Math.log(score.value) + lambda * score.second;
+    }
+}
@@ -0,0 +1,103 @@
+package com.feedback.history.sketch;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Locality-sensitive hashing over {@link MinHash} signatures. Each signature is cut into bands of
+ * consecutive positions and filed under one bucket per band; two sets become candidates when any
+ * band matches exactly. With 32 bands of 4 rows, pairs at Jaccard 0.5 collide with probability
+ * about 0.87 and pairs at 0.2 about 0.05, so a lookup touches a few buckets instead of every set.
+ * Not thread-safe.
+ */
+public final class LshIndex {
+
+    public static final int DEFAULT_BANDS = 32;
+
+    private final int bands;
+    private final int rows;
+    // one map per band: band hash -> ids filed under it
+    private final Map<Long, Set<String>>[] buckets;
+    // each id's current band hashes, so an update can move it out of its old buckets
+    private final Map<String, long[]> bandHashes = new HashMap<>();
+
+    public LshIndex() {
+        this(DEFAULT_BANDS, MinHash.DEFAULT_SIZE / DEFAULT_BANDS);
+    }
+
+    @SuppressWarnings("unchecked")
+    public LshIndex(int bands, int rows) {
+        this.bands = bands;
+        this.rows = rows;
+        this.buckets = new Map[bands];
+        for (int b = 0; b < bands; b++) {
+            buckets[b] = new HashMap<>();
+        }
+    }
+
+    /** Files the id under its signature's bands, moving it if it was indexed before. */
+    public void put(String id, MinHash signature) {
+        long[] updated = bandHashes(signature);
+        long[] previous = bandHashes.put(id, updated);
+        for (int b = 0; b < bands; b++) {
+            if (previous != null) {
+                if (previous[b] == updated[b]) {
+                    continue;
+                }
+                Set<String> old = buckets[b].get(previous[b]);
+                if (old != null && old.remove(id) && old.isEmpty()) {
+                    buckets[b].remove(previous[b]);
+                }
+            }
+            buckets[b].computeIfAbsent(updated[b], key -> new HashSet<>()).add(id);
+        }
+    }
+
+    /** Takes the id out of every bucket it is filed under. */
+    public void remove(String id) {
+        long[] previous = bandHashes.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (int b = 0; b < bands; b++) {
+            Set<String> old = buckets[b].get(previous[b]);
+            if (old != null && old.remove(id) && old.isEmpty()) {
+                buckets[b].remove(previous[b]);
+            }
+        }
+    }
+
+    /** Ids sharing at least one band with the signature (may include the signature's own id). */
+    public Set<String> candidates(MinHash signature) {
+        long[] hashes = bandHashes(signature);
+        Set<String> candidates = new HashSet<>();
+        for (int b = 0; b < bands; b++) {
+            Set<String> bucket = buckets[b].get(hashes[b]);
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+        return candidates;
+    }
+
+    public int size() {
+        return bandHashes.size();
+    }
+
+    private long[] bandHashes(MinHash signature) {
+        if (signature.size() < bands * rows) {
+            throw new IllegalArgumentException("Signature has fewer than " + bands * rows + " positions");
+        }
+        long[] hashes = new long[bands];
+        for (int b = 0; b < bands; b++) {
+            long hash = b;
+            for (int r = 0; r < rows; r++) {
+                hash = hash * 31 + signature.get(b * rows + r);
+            }
+            hashes[b] = hash;
+        }
+        return hashes;
+    }
+}
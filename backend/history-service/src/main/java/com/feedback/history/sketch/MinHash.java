@@ -0,0 +1,76 @@
+package com.feedback.history.sketch;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * MinHash signature of a set of strings: for each of k seeded hash functions, the smallest hash
+ * seen. The fraction of positions where two signatures agree estimates the Jaccard similarity of
+ * the two sets, with a standard error of about 1/sqrt(k) (0.09 at the default 128). Adding an
+ * element only ever lowers positions, so signatures are maintained incrementally and two
+ * signatures of the same set merge by taking the position-wise min.
+ */
+public final class MinHash {
+
+    public static final int DEFAULT_SIZE = 128;
+
+    // the same seeds everywhere, so signatures built on any instance are comparable
+    private static final long[] SEEDS = new SplittableRandom(0x5eed_f00dL).longs(DEFAULT_SIZE).toArray();
+
+    private final long[] mins;
+
+    public MinHash() {
+        mins = new long[DEFAULT_SIZE];
+        Arrays.fill(mins, Long.MAX_VALUE);
+    }
+
+    /** Adds the element; returns true if the signature changed. */
+    public boolean offer(String value) {
+        long base = HyperLogLog.hash64(value);
+        boolean changed = false;
+        for (int i = 0; i < mins.length; i++) {
+            long hash = mix(base ^ SEEDS[i]);
+            if (hash < mins[i]) {
+                mins[i] = hash;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    public boolean isEmpty() {
+        return mins[0] == Long.MAX_VALUE;
+    }
+
+    /** Estimated Jaccard similarity of the two sets (0 if either is empty). */
+    public double similarity(MinHash other) {
+        if (isEmpty() || other.isEmpty()) {
+            return 0;
+        }
+        int equal = 0;
+        for (int i = 0; i < mins.length; i++) {
+            if (mins[i] == other.mins[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / mins.length;
+    }
+
+    public int size() {
+        return mins.length;
+    }
+
+    long get(int position) {
+        return mins[position];
+    }
+
+    // murmur3 64-bit finalizer
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,212 @@
+package com.feedback.history.sketch;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compressed set of non-negative ints, laid out the Roaring way: values are split by their high
+ * 16 bits into chunks of 65536, and each chunk is stored either as a sorted char array (up to
+ * 4096 values, 2 bytes each) or as a 1024-long bitset (8 KB), whichever is smaller. Lookups and
+ * inserts are a binary search over the chunk keys plus an O(1) bit test or a short array search.
+ *
+ * Serialized form: [chunk count] then per chunk [key][cardinality - 1] followed by the chunk's
+ * sorted values (array chunks) or its 1024 words (bitset chunks).
+ */
+public final class RoaringBitmap {
+
+    // past this many values a chunk is smaller as a bitset than as a sorted array
+    static final int ARRAY_MAX = 4096;
+    private static final int BITSET_WORDS = 1024;
+
+    private char[] keys = new char[4];
+    private Chunk[] chunks = new Chunk[4];
+    private int size;
+
+    /** Adds the value; returns true if it was not already present. */
+    public boolean add(int value) {
+        checkValue(value);
+        char key = (char) (value >>> 16);
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        if (i < 0) {
+            i = -i - 1;
+            insertChunk(i, key, new Chunk());
+        }
+        return chunks[i].add((char) value);
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int i = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        return i >= 0 && chunks[i].contains((char) value);
+    }
+
+    public long cardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += chunks[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    /** Adds every value of the other bitmap to this one. */
+    public RoaringBitmap or(RoaringBitmap other) {
+        for (int j = 0; j < other.size; j++) {
+            Chunk theirs = other.chunks[j];
+            int i = Arrays.binarySearch(keys, 0, size, other.keys[j]);
+            if (i < 0) {
+                insertChunk(-i - 1, other.keys[j], theirs.copy());
+            } else {
+                chunks[i].or(theirs);
+            }
+        }
+        return this;
+    }
+
+    public byte[] toBytes() {
+        int bytes = Integer.BYTES;
+        for (int i = 0; i < size; i++) {
+            bytes += 2 * Character.BYTES + chunks[i].serializedBytes();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        buffer.putInt(size);
+        for (int i = 0; i < size; i++) {
+            Chunk chunk = chunks[i];
+            buffer.putChar(keys[i]).putChar((char) (chunk.cardinality - 1));
+            if (chunk.bits != null) {
+                for (long word : chunk.bits) {
+                    buffer.putLong(word);
+                }
+            } else {
+                for (int v = 0; v < chunk.cardinality; v++) {
+                    buffer.putChar(chunk.values[v]);
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    public static RoaringBitmap fromBytes(byte[] bytes) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            char key = buffer.getChar();
+            Chunk chunk = new Chunk();
+            chunk.cardinality = buffer.getChar() + 1;
+            if (chunk.cardinality > ARRAY_MAX) {
+                chunk.values = null;
+                chunk.bits = new long[BITSET_WORDS];
+                for (int w = 0; w < BITSET_WORDS; w++) {
+                    chunk.bits[w] = buffer.getLong();
+                }
+            } else {
+                chunk.values = new char[chunk.cardinality];
+                for (int v = 0; v < chunk.cardinality; v++) {
+                    chunk.values[v] = buffer.getChar();
+                }
+            }
+            bitmap.insertChunk(i, key, chunk);
+        }
+        return bitmap;
+    }
+
+    private void insertChunk(int index, char key, Chunk chunk) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            chunks = Arrays.copyOf(chunks, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(chunks, index, chunks, index + 1, size - index);
+        keys[index] = key;
+        chunks[index] = chunk;
+        size++;
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must be non-negative");
+        }
+    }
+
+    // the low 16 bits of every value sharing one high half; exactly one of values/bits is in use
+    private static final class Chunk {
+        char[] values = new char[4];
+        long[] bits;
+        int cardinality;
+
+        boolean contains(char low) {
+            if (bits != null) {
+                return (bits[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        boolean add(char low) {
+            if (bits != null) {
+                long mask = 1L << low;
+                if ((bits[low >>> 6] & mask) != 0) {
+                    return false;
+                }
+                bits[low >>> 6] |= mask;
+                cardinality++;
+                return true;
+            }
+            int i = Arrays.binarySearch(values, 0, cardinality, low);
+            if (i >= 0) {
+                return false;
+            }
+            if (cardinality == ARRAY_MAX) {
+                toBitset();
+                return add(low);
+            }
+            i = -i - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = low;
+            cardinality++;
+            return true;
+        }
+
+        void or(Chunk other) {
+            if (other.bits != null) {
+                if (bits == null) {
+                    toBitset();
+                }
+                int count = 0;
+                for (int w = 0; w < BITSET_WORDS; w++) {
+                    bits[w] |= other.bits[w];
+                    count += Long.bitCount(bits[w]);
+                }
+                cardinality = count;
+                return;
+            }
+            for (int v = 0; v < other.cardinality; v++) {
+                add(other.values[v]);
+            }
+        }
+
+        int serializedBytes() {
+            return bits != null ? BITSET_WORDS * Long.BYTES : cardinality * Character.BYTES;
+        }
+
+        Chunk copy() {
+            Chunk copy = new Chunk();
+            copy.cardinality = cardinality;
+            copy.values = values != null ? Arrays.copyOf(values, Math.max(cardinality, 1)) : null;
+            copy.bits = bits != null ? bits.clone() : null;
+            return copy;
+        }
+
+        private void toBitset() {
+            bits = new long[BITSET_WORDS];
+            for (int v = 0; v < cardinality; v++) {
+                bits[values[v] >>> 6] |= 1L << values[v];
+            }
+            values = null;
+        }
+    }
+}
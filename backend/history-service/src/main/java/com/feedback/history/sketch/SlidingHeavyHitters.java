@@ -0,0 +1,62 @@
+package com.feedback.history.sketch;
+
+import java.util.List;
+
+/**
+ * Heavy hitters over a sliding window, kept as a ring of {@link SpaceSaving} sketches, one per
+ * time bucket (e.g. 24 hourly buckets for a day). A bucket is cleared when the ring comes back
+ * around to it, and a query merges the buckets still inside the window, so the window slides one
+ * bucket at a time. Not thread-safe.
+ */
+public final class SlidingHeavyHitters {
+
+    private final long bucketSeconds;
+    private final int capacity;
+    private final SpaceSaving[] buckets;
+    // which bucket number (epoch second / bucketSeconds) each slot currently holds
+    private final long[] bucketIds;
+
+    public SlidingHeavyHitters(long bucketSeconds, int bucketCount, int capacity) {
+        this.bucketSeconds = bucketSeconds;
+        this.capacity = capacity;
+        this.buckets = new SpaceSaving[bucketCount];
+        this.bucketIds = new long[bucketCount];
+    }
+
+    public void offer(String item, long epochSecond, long count) {
+        long bucketId = Math.floorDiv(epochSecond, bucketSeconds);
+        int slot = (int) Math.floorMod(bucketId, (long) buckets.length);
+        if (buckets[slot] == null || bucketIds[slot] != bucketId) {
+            if (buckets[slot] != null && bucketIds[slot] > bucketId) {
+                // older than anything the window can still show
+                return;
+            }
+            buckets[slot] = new SpaceSaving(capacity);
+            bucketIds[slot] = bucketId;
+        }
+        buckets[slot].offer(item, count);
+    }
+
+    /** Top items over the buckets ending with the one containing {@code nowSecond}. */
+    public List<SpaceSaving.Item> top(long nowSecond, int limit) {
+        long newest = Math.floorDiv(nowSecond, bucketSeconds);
+        long oldest = newest - buckets.length + 1;
+        SpaceSaving union = new SpaceSaving(capacity);
+        for (int slot = 0; slot < buckets.length; slot++) {
+            if (buckets[slot] != null && bucketIds[slot] >= oldest && bucketIds[slot] <= newest) {
+                union.merge(buckets[slot]);
+            }
+        }
+        return union.top(limit);
+    }
+
+    public boolean isEmpty(long nowSecond) {
+        long oldest = Math.floorDiv(nowSecond, bucketSeconds) - buckets.length + 1;
+        for (int slot = 0; slot < buckets.length; slot++) {
+            if (buckets[slot] != null && bucketIds[slot] >= oldest) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,150 @@
+package com.feedback.history.sketch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy-hitter sketch: tracks at most {@code capacity} items with a count each. When
+ * a new item arrives and the sketch is full, it takes over the slot of the current minimum and
+ * inherits its count (recorded as the item's error). Any item occurring more than total/capacity
+ * times is guaranteed to be tracked, and a tracked count overestimates the truth by at most its
+ * error. Counters sit in a min-heap indexed by item, so each offer is O(log capacity).
+ * Not thread-safe.
+ */
+public final class SpaceSaving {
+
+    private final int capacity;
+    private final Map<String, Counter> counters;
+    // min-heap on count
+    private Counter[] heap;
+    private int size;
+    private long total;
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>();
+        this.heap = new Counter[Math.min(capacity, 16)];
+    }
+
+    public void offer(String item) {
+        offer(item, 1);
+    }
+
+    public void offer(String item, long count) {
+        total += count;
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            counter.count += count;
+            siftDown(counter.position);
+            return;
+        }
+        if (size < capacity) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, Math.min(capacity, size * 2));
+            }
+            counter = new Counter(item, count, 0);
+            counter.position = size;
+            heap[size++] = counter;
+            counters.put(item, counter);
+            siftUp(counter.position);
+            return;
+        }
+        // evict the minimum; the newcomer may have occurred up to min times unseen
+        Counter min = heap[0];
+        counters.remove(min.item);
+        min.item = item;
+        min.error = min.count;
+        min.count += count;
+        counters.put(item, min);
+        siftDown(0);
+    }
+
+    /** Adds every counter of the other sketch to this one (for unions of time buckets). */
+    public SpaceSaving merge(SpaceSaving other) {
+        for (int i = 0; i < other.size; i++) {
+            Counter theirs = other.heap[i];
+            // an offered item is always tracked afterwards, so its error can carry theirs too
+            offer(theirs.item, theirs.count);
+            counters.get(theirs.item).error += theirs.error;
+        }
+        return this;
+    }
+
+    /** The top items by estimated count, highest first (ties by item). */
+    public List<Item> top(int limit) {
+        List<Item> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new Item(heap[i].item, heap[i].count, heap[i].error));
+        }
+        items.sort(Comparator.comparingLong(Item::count).reversed().thenComparing(Item::item));
+        return items.size() > limit ? new ArrayList<>(items.subList(0, limit)) : items;
+    }
+
+    public long total() {
+        return total;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void siftUp(int i) {
+        Counter counter = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent].count <= counter.count) {
+                break;
+            }
+            place(heap[parent], i);
+            i = parent;
+        }
+        place(counter, i);
+    }
+
+    private void siftDown(int i) {
+        Counter counter = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                child++;
+            }
+            if (counter.count <= heap[child].count) {
+                break;
+            }
+            place(heap[child], i);
+            i = child;
+        }
+        place(counter, i);
+    }
+
+    private void place(Counter counter, int i) {
+        heap[i] = counter;
+        counter.position = i;
+    }
+
+    // count is an upper bound on the item's true count; count - error is a lower bound
+    public record Item(String item, long count, long error) {}
+
+    private static final class Counter {
+        String item;
+        long count;
+        long error;
+        int position;
+
+        Counter(String item, long count, long error) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.feedback.history.streams;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.WindowStore;
+import org.apache.kafka.streams.state.WindowStoreIterator;
+
+/**
+ * Folds the play-events topic into three local state stores. The input is keyed by listener ID, so
+ * every store entry for a listener lives in the same partition/task and no repartitioning is needed.
+ * Stores are RocksDB-backed with changelog topics, so a restarted instance restores them from Kafka.
+ *
+ * Store keys are "listenerId|..." so a listener's entries sit next to each other and can be prefix/range scanned.
+ *
+ * The outbox relay delivers at least once, so a play can arrive twice; history IDs seen within the dedup
+ * window are remembered and repeats are dropped. With exactly-once processing the seen-set, the counts and
+ * the consumed offsets commit together, so a restart neither recounts nor forgets a play.
+ *
+ * An edited or deleted history row arrives as revision records: a retraction (plays -1) of its old
+ * listener, song and day, and after an edit a play of the new ones. They go through the same seen-set,
+ * keyed by history ID and outbox ID, and a count that reaches zero is deleted.
+ *
+ * A record with a listener key and no value erases that listener: their totals and every daily and
+ * song count are deleted (and so dropped from the changelogs). ListenerPurgeService sends one when an
+ * account is deleted.
+ */
+public final class PlayAggregator {
+
+    // listenerId -> PlayTotals
+    public static final String TOTALS_STORE = "play-totals";
+    // listenerId|yyyy-MM-dd -> plays that day
+    public static final String DAILY_STORE = "play-daily-counts";
+    // listenerId|songId -> plays of that song
+    public static final String SONG_STORE = "play-song-counts";
+    // historyId (or historyId#outboxId for a revision) -> 1, for records counted within the dedup window
+    public static final String SEEN_STORE = "play-seen";
+
+    // how long a history ID is remembered; a redelivery comes minutes after the original, not days
+    static final Duration DEDUP_WINDOW = Duration.ofDays(7);
+
+    public static final String KEY_SEPARATOR = "|";
+
+    private PlayAggregator() {
+    }
+
+    public static KStream<String, String> addTo(StreamsBuilder builder, String topic) {
+        builder.addStateStore(Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore(TOTALS_STORE), Serdes.String(), PlayTotals.serde()));
+        builder.addStateStore(Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore(DAILY_STORE), Serdes.String(), Serdes.Long()));
+        builder.addStateStore(Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore(SONG_STORE), Serdes.String(), Serdes.Long()));
+        builder.addStateStore(Stores.windowStoreBuilder(
+                Stores.persistentWindowStore(SEEN_STORE, DEDUP_WINDOW, DEDUP_WINDOW, false), Serdes.String(), Serdes.Long()));
+
+        KStream<String, String> plays = builder.stream(topic, Consumed.with(Serdes.String(), Serdes.String()));
+        plays.process(PlayProcessor::new, TOTALS_STORE, DAILY_STORE, SONG_STORE, SEEN_STORE);
+        return plays;
+    }
+
+    public static String key(String listenerId, String suffix) {
+        return listenerId + KEY_SEPARATOR + suffix;
+    }
+
+    static class PlayProcessor implements Processor<String, String, Void, Void> {
+
+        private KeyValueStore<String, PlayTotals> totals;
+        private KeyValueStore<String, Long> daily;
+        private KeyValueStore<String, Long> songs;
+        private WindowStore<String, Long> seen;
+
+        @Override
+        public void init(ProcessorContext<Void, Void> context) {
+            totals = context.getStateStore(TOTALS_STORE);
+            daily = context.getStateStore(DAILY_STORE);
+            songs = context.getStateStore(SONG_STORE);
+            seen = context.getStateStore(SEEN_STORE);
+        }
+
+        @Override
+        public void process(Record<String, String> record) {
+            if (record.value() == null) {
+                if (record.key() != null) {
+                    erase(record.key());
+                }
+                return;
+            }
+            PlayMessage play;
+            try {
+                play = PlayMessage.fromJson(record.value());
+            } catch (RuntimeException e) {
+                // a malformed record must not stop the aggregator; skip it
+                System.err.println("Skipping unreadable play record: " + e.getMessage());
+                return;
+            }
+            String listenerId = record.key() != null ? record.key() : play.listenerId();
+            if (listenerId == null || play.songId() == null || play.playedAt() == null) {
+                return;
+            }
+            if (play.historyId() != null && !firstDelivery(play.dedupKey(), record.timestamp())) {
+                return;
+            }
+
+            long durationMs = play.durationMs() != null ? play.durationMs() : 0L;
+            if (play.retracts()) {
+                retract(listenerId, play, durationMs);
+                return;
+            }
+            long playedEpochSecond = play.playedAt().atZone(ZoneId.systemDefault()).toEpochSecond();
+            PlayTotals current = totals.get(listenerId);
+            totals.put(listenerId, (current != null ? current : PlayTotals.EMPTY).add(durationMs, playedEpochSecond));
+
+            increment(daily, key(listenerId, play.playedAt().toLocalDate().toString()));
+            increment(songs, key(listenerId, play.songId()));
+        }
+
+        // remembers the history ID; false if it was already counted within the dedup window
+        private boolean firstDelivery(String historyId, long timestamp) {
+            long window = DEDUP_WINDOW.toMillis();
+            try (WindowStoreIterator<Long> it = seen.fetch(historyId, timestamp - window, timestamp + window)) {
+                if (it.hasNext()) {
+                    return false;
+                }
+            }
+            seen.put(historyId, 1L, timestamp);
+            return true;
+        }
+
+        private void retract(String listenerId, PlayMessage play, long durationMs) {
+            PlayTotals current = totals.get(listenerId);
+            if (current != null) {
+                PlayTotals retracted = current.retract(durationMs);
+                if (retracted.plays() == 0) {
+                    totals.delete(listenerId);
+                } else {
+                    totals.put(listenerId, retracted);
+                }
+            }
+            decrement(daily, key(listenerId, play.playedAt().toLocalDate().toString()));
+            decrement(songs, key(listenerId, play.songId()));
+        }
+
+        private void erase(String listenerId) {
+            totals.delete(listenerId);
+            deletePrefix(daily, key(listenerId, ""));
+            deletePrefix(songs, key(listenerId, ""));
+        }
+
+        // keys are collected first so the store is not changed under its own iterator
+        private static void deletePrefix(KeyValueStore<String, Long> store, String prefix) {
+            List<String> keys = new ArrayList<>();
+            try (KeyValueIterator<String, Long> it = store.prefixScan(prefix, new StringSerializer())) {
+                it.forEachRemaining(entry -> keys.add(entry.key));
+            }
+            keys.forEach(store::delete);
+        }
+
+        private static void increment(KeyValueStore<String, Long> store, String key) {
+            Long count = store.get(key);
+            store.put(key, count != null ? count + 1 : 1L);
+        }
+
+        private static void decrement(KeyValueStore<String, Long> store, String key) {
+            Long count = store.get(key);
+            if (count == null || count <= 1) {
+                store.delete(key);
+            } else {
+                store.put(key, count - 1);
+            }
+        }
+    }
+}
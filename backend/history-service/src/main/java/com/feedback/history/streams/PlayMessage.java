@@ -0,0 +1,41 @@
+package com.feedback.history.streams;
+
+import java.time.LocalDateTime;
+
+import tools.jackson.databind.json.JsonMapper;
+
+// value of a record on the play-events topic (the key is the listener ID). plays is -1 for a retraction of
+// an edited or deleted play; revision is the outbox ID of a revision record and null for a recorded play
+public record PlayMessage(
+        Long historyId,
+        String listenerId,
+        String songId,
+        Integer durationMs,
+        LocalDateTime playedAt,
+        Integer plays,
+        Long revision
+) {
+    private static final JsonMapper MAPPER = JsonMapper.builder().build();
+
+    // a recorded play
+    public PlayMessage(Long historyId, String listenerId, String songId, Integer durationMs, LocalDateTime playedAt) {
+        this(historyId, listenerId, songId, durationMs, playedAt, 1, null);
+    }
+
+    public boolean retracts() {
+        return plays != null && plays < 0;
+    }
+
+    // what the aggregator's dedup store remembers: the history ID for a play, plus the outbox ID for a revision
+    public String dedupKey() {
+        return revision == null ? String.valueOf(historyId) : historyId + "#" + revision;
+    }
+
+    public String toJson() {
+        return MAPPER.writeValueAsString(this);
+    }
+
+    public static PlayMessage fromJson(String json) {
+        return MAPPER.readValue(json, PlayMessage.class);
+    }
+}
@@ -0,0 +1,47 @@
+package com.feedback.history.streams;
+
+import java.nio.ByteBuffer;
+
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+
+// running per-listener totals kept in the play-totals state store (fixed 32 bytes per listener)
+public record PlayTotals(long plays, long listeningMs, long firstPlayedEpochSecond, long lastPlayedEpochSecond) {
+
+    public static final PlayTotals EMPTY = new PlayTotals(0, 0, Long.MAX_VALUE, Long.MIN_VALUE);
+
+    public PlayTotals add(long durationMs, long playedEpochSecond) {
+        return new PlayTotals(
+                plays + 1,
+                listeningMs + durationMs,
+                Math.min(firstPlayedEpochSecond, playedEpochSecond),
+                Math.max(lastPlayedEpochSecond, playedEpochSecond));
+    }
+
+    // takes a retracted play back out; the first and last play times cannot be narrowed without the
+    // listener's other plays, so they are kept
+    public PlayTotals retract(long durationMs) {
+        return new PlayTotals(
+                Math.max(plays - 1, 0),
+                Math.max(listeningMs - durationMs, 0),
+                firstPlayedEpochSecond,
+                lastPlayedEpochSecond);
+    }
+
+    public static Serde<PlayTotals> serde() {
+        return Serdes.serdeFrom(
+                (topic, totals) -> totals == null ? null : ByteBuffer.allocate(32)
+                        .putLong(totals.plays)
+                        .putLong(totals.listeningMs)
+                        .putLong(totals.firstPlayedEpochSecond)
+                        .putLong(totals.lastPlayedEpochSecond)
+                        .array(),
+                (topic, bytes) -> {
+                    if (bytes == null) {
+                        return null;
+                    }
+                    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                    return new PlayTotals(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+                });
+    }
+}
@@ -0,0 +1,186 @@
+package com.feedback.history.benchmark;
+
+import com.feedback.history.columnar.PlayColumns;
+import com.feedback.history.model.History;
+import com.feedback.history.model.Song;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analytics over one heavy listener: the memory-mapped play columns PlayAnalyticsService queries
+ * versus the JPA path, where every play is hydrated into a History entity first. The JPA side
+ * only models hydration and iteration; the real path also pays for the query and the network,
+ * so its numbers are a lower bound.
+ *
+ * Run the main method (from the IDE, or with exec:java on the test classpath).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayColumnsBenchmark {
+
+    private static final int TOP_N = 10;
+
+    @Param({"100000", "1000000"})
+    public int plays;
+
+    @Param({"5000"})
+    public int distinctSongs;
+
+    private Path directory;
+    private PlayColumns columns;
+    private long[] rawTimes;
+    private int[] rawSongs;
+    private Song[] songEntities;
+    private long fromSecond;
+    private long toSecond;
+
+    private final int[] counts = new int[1 << 16];
+    private final int[] topCodes = new int[TOP_N];
+    private final int[] topCounts = new int[TOP_N];
+    private final int[] hours = new int[24];
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        directory = Files.createTempDirectory("play-columns-bench");
+        columns = PlayColumns.open(directory, "listener-0");
+        rawTimes = new long[plays];
+        rawSongs = new int[plays];
+        songEntities = new Song[distinctSongs];
+        for (int s = 0; s < distinctSongs; s++) {
+            songEntities[s] = new Song();
+            songEntities[s].setSongId("S" + s);
+        }
+        // roughly three years of listening, in time order
+        long second = LocalDateTime.of(2023, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+        for (int i = 0; i < plays; i++) {
+            second += 1 + random.nextInt(190);
+            int song = (int) Math.min(distinctSongs - 1, Math.abs(random.nextGaussian()) * distinctSongs / 6);
+            rawTimes[i] = second;
+            rawSongs[i] = song;
+            columns.append(second, song);
+        }
+        // query the most recent quarter of the data
+        fromSecond = rawTimes[plays - plays / 4];
+        toSecond = rawTimes[plays - 1] + 1;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        columns.close();
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public int columnsRangeCount() {
+        return columns.count(fromSecond, toSecond);
+    }
+
+    @Benchmark
+    public int columnsTopSongs() {
+        columns.countBySong(fromSecond, toSecond, counts);
+        int found = PlayColumns.topN(counts, distinctSongs, topCodes, topCounts);
+        Arrays.fill(counts, 0, distinctSongs, 0);
+        return found;
+    }
+
+    @Benchmark
+    public int[] columnsHourHistogram() {
+        Arrays.fill(hours, 0);
+        columns.histogram(fromSecond, toSecond, 0, PlayColumns.SECONDS_PER_HOUR, hours);
+        return hours;
+    }
+
+    @Benchmark
+    public int entitiesRangeCount() {
+        int count = 0;
+        for (History history : hydrate()) {
+            long t = history.getPlayedAt().toEpochSecond(ZoneOffset.UTC);
+            if (t >= fromSecond && t < toSecond) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int entitiesTopSongs() {
+        Map<String, Integer> bySong = new HashMap<>();
+        for (History history : hydrate()) {
+            long t = history.getPlayedAt().toEpochSecond(ZoneOffset.UTC);
+            if (t >= fromSecond && t < toSecond) {
+                bySong.merge(history.getSong().getSongId(), 1, Integer::sum);
+            }
+        }
+        return bySong.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(TOP_N)
+                .toList()
+                .size();
+    }
+
+    @Benchmark
+    public int[] entitiesHourHistogram() {
+        int[] byHour = new int[24];
+        for (History history : hydrate()) {
+            long t = history.getPlayedAt().toEpochSecond(ZoneOffset.UTC);
+            if (t >= fromSecond && t < toSecond) {
+                byHour[history.getPlayedAt().getHour()]++;
+            }
+        }
+        return byHour;
+    }
+
+    // what findByListener_ListenerIdAndPlayedAtBetween hands back: one entity per play
+    private List<History> hydrate() {
+        int start = plays - plays / 4;
+        List<History> result = new ArrayList<>(plays - start);
+        for (int i = start; i < plays; i++) {
+            History history = new History(LocalDateTime.ofEpochSecond(rawTimes[i], 0, ZoneOffset.UTC), null,
+                    songEntities[rawSongs[i]]);
+            history.setHistoryId((long) i);
+            result.add(history);
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PlayColumnsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,120 @@
+package com.feedback.history.benchmark;
+
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.model.PlayCountId;
+import com.feedback.history.service.TopItemsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-N counting: what a GROUP BY over raw history costs versus summing the daily
+ * play_count buckets TopItemsService keeps, plus the per-insert cost of deriving counter keys.
+ *
+ * Run the main method (from the IDE, or with exec:java on the test classpath).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayCountBenchmark {
+
+    private static final int TOP_N = 10;
+    private static final int WINDOW_DAYS = 28;
+
+    // plays by one listener inside the window
+    @Param({"10000", "200000"})
+    public int plays;
+
+    @Param({"2000"})
+    public int distinctSongs;
+
+    private int[] rawSongIds;
+    private int[][] dailyCounts;
+    private PlayRecordedEvent event;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        rawSongIds = new int[plays];
+        dailyCounts = new int[WINDOW_DAYS][distinctSongs];
+        for (int i = 0; i < plays; i++) {
+            // skewed towards a few favourites, like real listening
+            int song = (int) Math.min(distinctSongs - 1, Math.abs(random.nextGaussian()) * distinctSongs / 6);
+            rawSongIds[i] = song;
+            dailyCounts[random.nextInt(WINDOW_DAYS)][song]++;
+        }
+        event = new PlayRecordedEvent(1L, "L1", "US", "S1", 200000,
+                List.of("AR1", "AR2"), List.of("ALB1"), LocalDateTime.now());
+    }
+
+    @Benchmark
+    public List<PlayCountId> counterKeysPerPlay() {
+        return TopItemsService.counterKeys(event);
+    }
+
+    @Benchmark
+    public int[] topFromRawPlays() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int song : rawSongIds) {
+            counts.merge(song, 1, Integer::sum);
+        }
+        int[] totals = new int[distinctSongs];
+        counts.forEach((song, count) -> totals[song] = count);
+        return topN(totals);
+    }
+
+    @Benchmark
+    public int[] topFromDailyCounters() {
+        int[] totals = new int[distinctSongs];
+        for (int[] day : dailyCounts) {
+            for (int song = 0; song < day.length; song++) {
+                totals[song] += day[song];
+            }
+        }
+        return topN(totals);
+    }
+
+    private static int[] topN(int[] totals) {
+        PriorityQueue<Integer> heap = new PriorityQueue<>(TOP_N + 1, (a, b) -> Integer.compare(totals[a], totals[b]));
+        for (int song = 0; song < totals.length; song++) {
+            if (totals[song] == 0) {
+                continue;
+            }
+            heap.offer(song);
+            if (heap.size() > TOP_N) {
+                heap.poll();
+            }
+        }
+        int[] top = new int[heap.size()];
+        for (int i = top.length - 1; i >= 0; i--) {
+            top[i] = heap.poll();
+        }
+        return top;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PlayCountBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,92 @@
+package com.feedback.history.benchmark;
+
+import com.feedback.history.columnar.DailyRangeIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Date-range listening totals: the Fenwick index ListeningTotalsService keeps versus summing
+ * a dense array of daily totals (the best case for a SUM over per-day rows), plus the cost of
+ * the point update each play makes.
+ *
+ * Run the main method (from the IDE, or with exec:java on the test classpath).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RangeTotalsBenchmark {
+
+    // days of history for the listener
+    @Param({"365", "3650"})
+    public int days;
+
+    private DailyRangeIndex index;
+    private long[] dailyMs;
+    private LocalDate firstDay;
+    private LocalDate from;
+    private LocalDate to;
+    private int fromOffset;
+    private int toOffset;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        firstDay = LocalDate.of(2015, 1, 1);
+        index = new DailyRangeIndex(firstDay);
+        dailyMs = new long[days];
+        for (int d = 0; d < days; d++) {
+            int plays = random.nextInt(60);
+            long ms = plays * 200_000L;
+            dailyMs[d] = ms;
+            index.add(firstDay.plusDays(d), plays, ms);
+        }
+        // a window covering most of the history, like "this year" on a long-time listener
+        fromOffset = days / 10;
+        toOffset = days - 2;
+        from = firstDay.plusDays(fromOffset);
+        to = firstDay.plusDays(toOffset);
+    }
+
+    @Benchmark
+    public long[] fenwickRangeSum() {
+        return index.sum(from, to);
+    }
+
+    @Benchmark
+    public long linearRangeSum() {
+        long sum = 0;
+        for (int d = fromOffset; d <= toOffset; d++) {
+            sum += dailyMs[d];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public DailyRangeIndex fenwickPointUpdate() {
+        index.add(to, 1, 200_000);
+        return index;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RangeTotalsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
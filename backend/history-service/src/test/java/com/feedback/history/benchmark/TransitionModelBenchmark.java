@@ -0,0 +1,93 @@
+package com.feedback.history.benchmark;
+
+import com.feedback.history.columnar.TransitionModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The next-song transition model at a few million transitions: the cost of recording one
+ * (what each play pays) and of ranking the successors of a popular and a typical song, with and
+ * without blending in a listener's own transitions.
+ *
+ * Run the main method (from the IDE, or with exec:java on the test classpath).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class TransitionModelBenchmark {
+
+    private static final int SONGS = 200_000;
+    private static final int LISTENERS = 20_000;
+
+    // transitions recorded before measuring
+    @Param({"5000000"})
+    public int transitions;
+
+    private TransitionModel model;
+    private SplittableRandom random;
+    private String[] listenerIds;
+
+    @Setup
+    public void setUp() {
+        random = new SplittableRandom(42);
+        listenerIds = new String[LISTENERS];
+        for (int l = 0; l < LISTENERS; l++) {
+            listenerIds[l] = "L" + l;
+        }
+        model = new TransitionModel();
+        for (int i = 0; i < transitions; i++) {
+            model.record(listenerIds[random.nextInt(LISTENERS)], song(), song());
+        }
+        System.out.println("distinct transitions: " + model.distinctTransitions());
+    }
+
+    // skewed towards low codes, so a few songs are much more popular than the rest
+    private int song() {
+        double u = random.nextDouble();
+        return (int) (SONGS * u * u * u);
+    }
+
+    @Benchmark
+    public TransitionModel record() {
+        model.record(listenerIds[random.nextInt(LISTENERS)], song(), song());
+        return model;
+    }
+
+    @Benchmark
+    public List<TransitionModel.Suggestion> nextPopularSong() {
+        return model.next(0, null, 10);
+    }
+
+    @Benchmark
+    public List<TransitionModel.Suggestion> nextTypicalSong() {
+        return model.next(SONGS / 8, null, 10);
+    }
+
+    @Benchmark
+    public List<TransitionModel.Suggestion> nextTypicalSongForListener() {
+        return model.next(SONGS / 8, "L17", 10);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TransitionModelBenchmark.class.getSimpleName()).build()).run();
+    }
+}
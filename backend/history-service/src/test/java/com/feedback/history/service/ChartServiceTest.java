@@ -0,0 +1,220 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.ChartDTO;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.model.ChartEntry;
+import com.feedback.history.repository.ChartEntryRepository;
+import com.feedback.history.repository.HistoryRepository;
+import com.feedback.history.sketch.SpaceSaving;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ChartServiceTest {
+
+    @Mock
+    private HistoryRepository historyRepository;
+
+    @Mock
+    private ChartEntryRepository chartRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ChartService service;
+
+    private static final LocalDateTime NOW = LocalDateTime.now();
+
+    @BeforeEach
+    public void setUp() {
+        service = new ChartService(historyRepository, chartRepository, transactionManager);
+    }
+
+    private HistoryRepository.ChartPlays plays(String country, String type, String itemId, LocalDateTime hour, long count) {
+        return new HistoryRepository.ChartPlays() {
+            public String getCountry() { return country; }
+            public String getItemType() { return type; }
+            public String getItemId() { return itemId; }
+            public LocalDateTime getHour() { return hour.truncatedTo(ChronoUnit.HOURS); }
+            public Long getPlays() { return count; }
+        };
+    }
+
+    private PlayRecordedEvent play(long historyId, String country, String songId, List<String> artistIds) {
+        return new PlayRecordedEvent(historyId, "L" + historyId, country, songId, 1000, artistIds, List.of(), NOW);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ChartEntry> rebuildAndCapture(long maxId, HistoryRepository.ChartPlays... rows) {
+        when(historyRepository.findMaxHistoryId()).thenReturn(maxId);
+        when(historyRepository.findHistoryIdsBetween(0, maxId)).thenReturn(LongStream.rangeClosed(1, maxId).boxed().toList());
+        when(historyRepository.streamChartPlays(any(), eq(maxId))).thenReturn(Stream.of(rows));
+        service.rebuild();
+        ArgumentCaptor<List<ChartEntry>> saved = ArgumentCaptor.forClass(List.class);
+        verify(chartRepository, atLeastOnce()).saveAll(saved.capture());
+        return saved.getValue();
+    }
+
+    private List<String> chart(List<ChartEntry> entries, String scope, String window, String type) {
+        return entries.stream()
+                .filter(e -> e.getScope().equals(scope) && e.getChartWindow().equals(window) && e.getItemType().equals(type))
+                .sorted((a, b) -> Integer.compare(a.getRank(), b.getRank()))
+                .map(ChartEntry::getItemId)
+                .toList();
+    }
+
+    @Test
+    public void testRebuildBuildsDayAndWeekChartsPerCountry() {
+        List<ChartEntry> entries = rebuildAndCapture(10,
+                plays("US", "S", "S1", NOW, 5),
+                plays("US", "S", "S2", NOW, 3),
+                plays("GB", "S", "S2", NOW, 4),
+                // three days ago: in the week chart only
+                plays("GB", "S", "S3", NOW.minusDays(3), 20),
+                plays("US", "A", "A1", NOW, 8),
+                // older than a week: ignored
+                plays("US", "S", "S9", NOW.minusDays(8), 100));
+
+        assertEquals(List.of("S2", "S1"), chart(entries, ChartEntry.GLOBAL, ChartEntry.DAY, ChartEntry.SONG));
+        assertEquals(List.of("S3", "S2", "S1"), chart(entries, ChartEntry.GLOBAL, ChartEntry.WEEK, ChartEntry.SONG));
+        assertEquals(List.of("S1", "S2"), chart(entries, "US", ChartEntry.DAY, ChartEntry.SONG));
+        assertEquals(List.of("S2"), chart(entries, "GB", ChartEntry.DAY, ChartEntry.SONG));
+        assertEquals(List.of("A1"), chart(entries, "US", ChartEntry.WEEK, ChartEntry.ARTIST));
+        verify(chartRepository).deleteAllEntries();
+    }
+
+    @Test
+    public void testLivePlaysCountTowardsCountryAndGlobal() {
+        rebuildAndCapture(1, plays("US", "S", "S1", NOW, 2));
+        service.onPlayRecorded(play(2, "gb", "S2", List.of("A1", "A2")));
+        service.onPlayRecorded(play(3, "GB", "S2", List.of("A1")));
+        service.onPlayRecorded(play(4, null, "S2", List.of()));
+        // already in the rebuild
+        service.onPlayRecorded(play(1, "US", "S1", List.of()));
+
+        clearInvocations(chartRepository);
+        service.snapshot();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ChartEntry>> saved = ArgumentCaptor.forClass(List.class);
+        verify(chartRepository).saveAll(saved.capture());
+        List<ChartEntry> entries = saved.getValue();
+        assertEquals(List.of("S2", "S1"), chart(entries, ChartEntry.GLOBAL, ChartEntry.DAY, ChartEntry.SONG));
+        assertEquals(List.of("S2"), chart(entries, "GB", ChartEntry.DAY, ChartEntry.SONG));
+        assertEquals(List.of("A1", "A2"), chart(entries, "GB", ChartEntry.DAY, ChartEntry.ARTIST));
+        ChartEntry top = entries.stream()
+                .filter(e -> e.getScope().equals(ChartEntry.GLOBAL) && e.getChartWindow().equals(ChartEntry.DAY)
+                        && e.getRank() == 1 && e.getItemType().equals(ChartEntry.SONG))
+                .findFirst().orElseThrow();
+        assertEquals(3, top.getPlays());
+    }
+
+    @Test
+    public void testPlaysDuringRebuildAreQueued() {
+        service.snapshot();
+        verifyNoInteractions(chartRepository);
+
+        when(historyRepository.findMaxHistoryId()).thenReturn(4L);
+        when(historyRepository.findHistoryIdsBetween(0, 4)).thenReturn(List.of(1L, 2L, 3L, 4L));
+        when(historyRepository.streamChartPlays(any(), eq(4L))).thenAnswer(invocation -> {
+            // 4 is in the scan, 5 committed after it
+            service.onPlayRecorded(play(4, "US", "S1", List.of()));
+            service.onPlayRecorded(play(5, "US", "S7", List.of()));
+            return Stream.of(plays("US", "S", "S1", NOW, 2));
+        });
+        service.rebuild();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ChartEntry>> saved = ArgumentCaptor.forClass(List.class);
+        verify(chartRepository).saveAll(saved.capture());
+        List<ChartEntry> entries = saved.getValue();
+
+        assertEquals(List.of("S1", "S7"), chart(entries, "US", ChartEntry.DAY, ChartEntry.SONG));
+        assertEquals(2, entries.stream()
+                .filter(e -> e.getScope().equals("US") && e.getChartWindow().equals(ChartEntry.DAY) && e.getItemId().equals("S1"))
+                .findFirst().orElseThrow().getPlays());
+    }
+
+    @Test
+    public void testHeavyHittersSurviveALongTail() {
+        // 50 hits among 20,000 one-off songs still rank first in a 2,000 counter sketch
+        List<HistoryRepository.ChartPlays> rows = new ArrayList<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 20_000; i++) {
+            rows.add(plays("US", "S", "tail" + i, NOW, 1));
+            if (i % 400 == 0) {
+                rows.add(plays("US", "S", "hit" + random.nextInt(3), NOW, 20));
+            }
+        }
+        List<ChartEntry> entries = rebuildAndCapture(1, rows.toArray(HistoryRepository.ChartPlays[]::new));
+
+        List<String> global = chart(entries, ChartEntry.GLOBAL, ChartEntry.DAY, ChartEntry.SONG);
+        assertEquals(100, global.size());
+        assertTrue(global.subList(0, 3).stream().allMatch(id -> id.startsWith("hit")));
+    }
+
+    @Test
+    public void testSpaceSavingMergeKeepsErrorBounds() {
+        SpaceSaving a = new SpaceSaving(2);
+        a.offer("x", 5);
+        a.offer("y", 1);
+        a.offer("z");
+        SpaceSaving b = new SpaceSaving(2);
+        b.offer("x", 2);
+
+        List<SpaceSaving.Item> top = a.merge(b).top(1);
+
+        assertEquals("x", top.get(0).item());
+        assertEquals(7, top.get(0).count());
+        assertEquals(9, a.total());
+    }
+
+    @Test
+    public void testGetChartReadsSnapshot() {
+        LocalDateTime computedAt = LocalDateTime.of(2025, 3, 3, 12, 0);
+        when(chartRepository.findByScopeAndChartWindowAndItemTypeOrderByRank(eq("US"), eq(ChartEntry.WEEK),
+                eq(ChartEntry.ARTIST), any()))
+                .thenReturn(List.of(new ChartEntry("US", ChartEntry.WEEK, ChartEntry.ARTIST, 1, "A1", 40, 2, computedAt)));
+
+        ChartDTO chart = service.getChart(" us ", "WEEK", "artists", 10);
+
+        assertEquals("US", chart.country());
+        assertEquals("week", chart.window());
+        assertEquals("artists", chart.type());
+        assertEquals(computedAt, chart.computedAt());
+        assertEquals("A1", chart.entries().get(0).id());
+        assertEquals(40, chart.entries().get(0).plays());
+    }
+
+    @Test
+    public void testGetChartDefaultsAndValidation() {
+        when(chartRepository.findByScopeAndChartWindowAndItemTypeOrderByRank(eq(ChartEntry.GLOBAL), eq(ChartEntry.DAY),
+                eq(ChartEntry.SONG), any())).thenReturn(List.of());
+
+        ChartDTO chart = service.getChart(null, null, null, null);
+
+        assertNull(chart.country());
+        assertEquals("day", chart.window());
+        assertNull(chart.computedAt());
+        assertThrows(InvalidRequestException.class, () -> service.getChart(null, "month", null, null));
+        assertThrows(InvalidRequestException.class, () -> service.getChart(null, "day", "albums", null));
+    }
+}
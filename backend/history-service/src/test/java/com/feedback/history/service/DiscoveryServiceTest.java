@@ -0,0 +1,273 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.DiscoveryDTO;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.events.PlayRevisedEvent;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.model.FirstListen;
+import com.feedback.history.model.ListenerSongBitmap;
+import com.feedback.history.model.SongCode;
+import com.feedback.history.repository.FirstListenRepository;
+import com.feedback.history.repository.HistoryRepository;
+import com.feedback.history.repository.ListenerSongBitmapRepository;
+import com.feedback.history.repository.SongCodeRepository;
+import com.feedback.history.sketch.RoaringBitmap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class DiscoveryServiceTest {
+
+    @Mock
+    private FirstListenRepository firstListenRepository;
+
+    @Mock
+    private ListenerSongBitmapRepository bitmapRepository;
+
+    @Mock
+    private SongCodeRepository songCodeRepository;
+
+    @Mock
+    private HistoryRepository historyRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DiscoveryService service;
+
+    private static final LocalDateTime PLAYED_AT = LocalDateTime.of(2025, 3, 5, 12, 0);
+
+    @BeforeEach
+    public void setUp() {
+        service = new DiscoveryService(firstListenRepository, bitmapRepository, songCodeRepository, historyRepository,
+                transactionManager, 2);
+    }
+
+    // song "S<n>" gets code n
+    private void stubSongCodes() {
+        when(songCodeRepository.assignCode(anyString())).thenAnswer(inv -> Integer.parseInt(inv.<String>getArgument(0).substring(1)));
+    }
+
+    private ListenerSongBitmap storedBitmap(String listenerId, int... codes) {
+        RoaringBitmap songs = new RoaringBitmap();
+        for (int code : codes) {
+            songs.add(code);
+        }
+        ListenerSongBitmap row = new ListenerSongBitmap(listenerId);
+        row.setSongs(songs.toBytes());
+        row.setSongCount(songs.cardinality());
+        return row;
+    }
+
+    @Test
+    public void testFirstPlayIsDiscoveryAndRepeatIsNot() {
+        stubSongCodes();
+        when(bitmapRepository.findById("L1")).thenReturn(Optional.empty());
+        when(firstListenRepository.findSongCodes("L1")).thenReturn(List.of());
+
+        assertTrue(service.recordPlay("L1", "S1", PLAYED_AT));
+        assertFalse(service.recordPlay("L1", "S1", PLAYED_AT.plusHours(1)));
+        assertTrue(service.recordPlay("L1", "S2", PLAYED_AT.plusHours(2)));
+
+        // backfilled once, one first_listen row per new song, song codes cached
+        verify(firstListenRepository, times(1)).backfillFromHistory("L1");
+        verify(songCodeRepository, times(1)).assignCodesForListener("L1");
+        verify(firstListenRepository).recordFirstListen("L1", "S1", PLAYED_AT);
+        verify(firstListenRepository).recordFirstListen("L1", "S2", PLAYED_AT.plusHours(2));
+        verify(songCodeRepository, times(1)).assignCode("S1");
+    }
+
+    @Test
+    public void testStoredBitmapIsUsedWithoutBackfill() {
+        stubSongCodes();
+        when(bitmapRepository.findById("L1")).thenReturn(Optional.of(storedBitmap("L1", 7, 70_000)));
+
+        assertFalse(service.recordPlay("L1", "S7", PLAYED_AT));
+        assertFalse(service.recordPlay("L1", "S70000", PLAYED_AT));
+        assertTrue(service.recordPlay("L1", "S8", PLAYED_AT));
+
+        verify(firstListenRepository, never()).backfillFromHistory(any());
+        // repeats go through the upsert too, which only writes if they are older than the stored first listen
+        verify(firstListenRepository, times(3)).recordFirstListen(any(), any(), any());
+    }
+
+    @Test
+    public void testBackdatedRepeatMovesFirstListenEarlier() {
+        stubSongCodes();
+        when(bitmapRepository.findById("L1")).thenReturn(Optional.of(storedBitmap("L1", 1)));
+
+        assertFalse(service.recordPlay("L1", "S1", PLAYED_AT.minusDays(3)));
+
+        verify(firstListenRepository).recordFirstListen("L1", "S1", PLAYED_AT.minusDays(3));
+    }
+
+    @Test
+    public void testEditedPlayRecomputesOldSongAndRecordsNewOne() {
+        stubSongCodes();
+        when(bitmapRepository.findById("L1")).thenReturn(Optional.of(storedBitmap("L1", 1)));
+
+        service.onPlayRevised(new PlayRevisedEvent(5L, "L1", "S1", PLAYED_AT, "L1", "S2", PLAYED_AT.minusHours(1)));
+
+        verify(firstListenRepository).recomputeFromHistory("L1", "S1");
+        verify(firstListenRepository).deleteWithoutPlays("L1", "S1");
+        verify(firstListenRepository).recordFirstListen("L1", "S2", PLAYED_AT.minusHours(1));
+        assertEquals(2, service.getDiscoveries("L1", PLAYED_AT.toLocalDate(), PLAYED_AT.toLocalDate()).songsHeard());
+    }
+
+    @Test
+    public void testDeletedPlayOnlyRecomputesFromHistory() {
+        service.onPlayRevised(PlayRevisedEvent.deleted(5L, "L1", "S1", PLAYED_AT));
+
+        verify(firstListenRepository).recomputeFromHistory("L1", "S1");
+        verify(firstListenRepository).deleteWithoutPlays("L1", "S1");
+        verify(firstListenRepository, never()).recordFirstListen(any(), any(), any());
+        verifyNoInteractions(songCodeRepository, bitmapRepository);
+    }
+
+    @Test
+    public void testOnPlayRevisedSwallowsFailures() {
+        when(firstListenRepository.recomputeFromHistory("L1", "S1")).thenThrow(new RuntimeException("db down"));
+
+        assertDoesNotThrow(() -> service.onPlayRevised(PlayRevisedEvent.deleted(5L, "L1", "S1", PLAYED_AT)));
+    }
+
+    @Test
+    public void testCodeFallsBackToLookupWhenAssignmentRaces() {
+        when(songCodeRepository.assignCode("S1")).thenReturn(null);
+        SongCode existing = new SongCode();
+        existing.setCode(42);
+        when(songCodeRepository.findBySongId("S1")).thenReturn(Optional.of(existing));
+        when(bitmapRepository.findById("L1")).thenReturn(Optional.of(storedBitmap("L1", 42)));
+
+        assertFalse(service.recordPlay("L1", "S1", PLAYED_AT));
+    }
+
+    @Test
+    public void testFlushMergesWithStoredBitmap() {
+        // large enough that the first chunk switches from a sorted array to a bitset
+        List<Integer> backfilled = new ArrayList<>();
+        for (int code = 0; code < 6000; code++) {
+            backfilled.add(code);
+        }
+        backfilled.add(200_000);
+        when(bitmapRepository.findById("L1")).thenReturn(Optional.empty());
+        when(firstListenRepository.findSongCodes("L1")).thenReturn(backfilled);
+        stubSongCodes();
+        service.recordPlay("L1", "S70000", PLAYED_AT);
+        // another instance stored a song this one never saw
+        when(bitmapRepository.findForUpdate("L1")).thenReturn(Optional.of(storedBitmap("L1", 5, 9000)));
+
+        service.flush();
+
+        ArgumentCaptor<ListenerSongBitmap> saved = ArgumentCaptor.forClass(ListenerSongBitmap.class);
+        verify(bitmapRepository).save(saved.capture());
+        RoaringBitmap songs = RoaringBitmap.fromBytes(saved.getValue().getSongs());
+        assertEquals(6003, saved.getValue().getSongCount());
+        assertEquals(6003, songs.cardinality());
+        assertTrue(songs.contains(5999));
+        assertFalse(songs.contains(6000));
+        assertTrue(songs.contains(9000));
+        assertTrue(songs.contains(70_000));
+        assertTrue(songs.contains(200_000));
+
+        // nothing changed since, so the next flush writes nothing
+        service.flush();
+        verify(bitmapRepository, times(1)).save(any());
+    }
+
+    @Test
+    public void testFailedFlushIsRetried() {
+        stubSongCodes();
+        when(bitmapRepository.findById("L1")).thenReturn(Optional.of(storedBitmap("L1")));
+        service.recordPlay("L1", "S1", PLAYED_AT);
+        when(bitmapRepository.findForUpdate("L1"))
+                .thenThrow(new RuntimeException("connection reset"))
+                .thenReturn(Optional.empty());
+
+        service.flush();
+        service.flush();
+
+        verify(bitmapRepository, times(1)).save(any());
+    }
+
+    @Test
+    public void testEvictedListenerIsFlushedAndReloaded() {
+        stubSongCodes();
+        when(bitmapRepository.findById(anyString())).thenReturn(Optional.of(storedBitmap("any")));
+        when(bitmapRepository.findForUpdate("L1")).thenReturn(Optional.empty());
+        service.recordPlay("L1", "S1", PLAYED_AT);
+        service.recordPlay("L2", "S1", PLAYED_AT);
+
+        // a third listener pushes L1, the least recently used, out of the cache of two
+        service.recordPlay("L3", "S1", PLAYED_AT);
+
+        ArgumentCaptor<ListenerSongBitmap> saved = ArgumentCaptor.forClass(ListenerSongBitmap.class);
+        verify(bitmapRepository).save(saved.capture());
+        assertEquals("L1", saved.getValue().getListenerId());
+        assertTrue(RoaringBitmap.fromBytes(saved.getValue().getSongs()).contains(1));
+
+        service.recordPlay("L1", "S2", PLAYED_AT);
+        verify(bitmapRepository, times(2)).findById("L1");
+        verify(bitmapRepository, times(1)).findById("L2");
+    }
+
+    @Test
+    public void testOnPlayRecordedSkipsIncompleteAndSwallowsFailures() {
+        service.onPlayRecorded(new PlayRecordedEvent(1L, "L1", "US", null, 1000, List.of(), List.of(), PLAYED_AT));
+        verifyNoInteractions(songCodeRepository);
+
+        when(songCodeRepository.assignCode("S1")).thenThrow(new RuntimeException("db down"));
+        assertDoesNotThrow(() -> service.onPlayRecorded(
+                new PlayRecordedEvent(2L, "L1", "US", "S1", 1000, List.of(), List.of(), PLAYED_AT)));
+    }
+
+    @Test
+    public void testGetDiscoveries() {
+        when(bitmapRepository.findById("L1")).thenReturn(Optional.of(storedBitmap("L1", 1, 2, 3)));
+        LocalDateTime start = LocalDate.of(2025, 3, 3).atStartOfDay();
+        LocalDateTime end = LocalDate.of(2025, 3, 10).atStartOfDay().minusNanos(1);
+        when(firstListenRepository.countByListenerIdAndFirstPlayedAtBetween("L1", start, end)).thenReturn(2L);
+        when(historyRepository.countByListener_ListenerIdAndPlayedAtBetween("L1", start, end)).thenReturn(8L);
+        FirstListen first = new FirstListen();
+        first.setSongId("S3");
+        when(firstListenRepository.findByListenerIdAndFirstPlayedAtBetweenOrderByFirstPlayedAtDesc(eq("L1"), eq(start),
+                eq(end), any())).thenReturn(List.of(first));
+
+        DiscoveryDTO result = service.getDiscoveries("L1", LocalDate.of(2025, 3, 3), LocalDate.of(2025, 3, 9));
+
+        assertEquals(2, result.discoveries());
+        assertEquals(6, result.repeats());
+        assertEquals(0.25, result.discoveryRatio(), 1e-9);
+        assertEquals(3, result.songsHeard());
+        assertEquals(List.of("S3"), result.newSongIds());
+    }
+
+    @Test
+    public void testGetDiscoveriesDefaultsToThisWeekAndValidates() {
+        when(bitmapRepository.findById("L1")).thenReturn(Optional.of(storedBitmap("L1")));
+
+        DiscoveryDTO result = service.getDiscoveries("L1", null, null);
+
+        assertEquals(LocalDate.now(), result.to());
+        assertEquals(java.time.DayOfWeek.MONDAY, result.from().getDayOfWeek());
+        assertEquals(0, result.discoveryRatio());
+        assertThrows(InvalidRequestException.class, () -> service.getDiscoveries(" ", null, null));
+        assertThrows(InvalidRequestException.class,
+                () -> service.getDiscoveries("L1", LocalDate.of(2025, 3, 9), LocalDate.of(2025, 3, 3)));
+    }
+}
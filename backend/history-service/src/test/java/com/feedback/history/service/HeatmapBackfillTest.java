@@ -0,0 +1,82 @@
+package com.feedback.history.service;
+
+import com.feedback.history.model.JobCheckpoint;
+import com.feedback.history.repository.JobCheckpointRepository;
+import com.feedback.history.repository.ListeningHeatmapRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class HeatmapBackfillTest {
+
+    @Mock
+    private ListeningHeatmapRepository heatmapRepository;
+
+    @Mock
+    private JobCheckpointRepository checkpointRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private HeatmapBackfill backfill;
+
+    @BeforeEach
+    public void setUp() {
+        backfill = new HeatmapBackfill(heatmapRepository, checkpointRepository, transactionManager, 2);
+    }
+
+    @Test
+    public void testRecountsEachBatchOfListenersFromHistory() {
+        when(checkpointRepository.findById(HeatmapBackfill.JOB_NAME)).thenReturn(Optional.empty());
+        when(checkpointRepository.save(any(JobCheckpoint.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(heatmapRepository.lockListenersAfter("", 2)).thenReturn(List.of("L1", "L2"));
+        when(heatmapRepository.lockListenersAfter("L2", 2)).thenReturn(List.of());
+
+        backfill.run();
+
+        InOrder order = inOrder(heatmapRepository);
+        order.verify(heatmapRepository).lockListener("L1");
+        order.verify(heatmapRepository).lockListener("L2");
+        order.verify(heatmapRepository).deleteListeners(List.of("L1", "L2"));
+        order.verify(heatmapRepository).recountListeners(List.of("L1", "L2"));
+        verify(checkpointRepository, atLeastOnce()).save(argThat(checkpoint ->
+                JobCheckpoint.COMPLETED.equals(checkpoint.getStatus()) && checkpoint.getProcessed() == 2L));
+    }
+
+    @Test
+    public void testCompletedBackfillDoesNothing() {
+        JobCheckpoint checkpoint = new JobCheckpoint(HeatmapBackfill.JOB_NAME);
+        checkpoint.setStatus(JobCheckpoint.COMPLETED);
+        when(checkpointRepository.findById(HeatmapBackfill.JOB_NAME)).thenReturn(Optional.of(checkpoint));
+
+        backfill.run();
+
+        verifyNoInteractions(heatmapRepository);
+    }
+
+    @Test
+    public void testFailedBatchMarksCheckpointFailed() {
+        JobCheckpoint checkpoint = new JobCheckpoint(HeatmapBackfill.JOB_NAME);
+        when(checkpointRepository.findById(HeatmapBackfill.JOB_NAME)).thenReturn(Optional.of(checkpoint));
+        when(checkpointRepository.save(any(JobCheckpoint.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(heatmapRepository.lockListenersAfter("", 2)).thenReturn(List.of("L1"));
+        when(heatmapRepository.recountListeners(List.of("L1"))).thenThrow(new RuntimeException("deadlock"));
+
+        backfill.run();
+
+        assertEquals(JobCheckpoint.FAILED, checkpoint.getStatus());
+        assertNull(checkpoint.getLastListenerId());
+    }
+}
@@ -0,0 +1,113 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.HeatmapDTO;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.events.PlayRevisedEvent;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.model.ListeningHeatmap;
+import com.feedback.history.model.ListeningHeatmapId;
+import com.feedback.history.repository.ListeningHeatmapRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class HeatmapServiceTest {
+
+    @Mock
+    private ListeningHeatmapRepository repository;
+
+    @InjectMocks
+    private HeatmapService service;
+
+    @Test
+    public void testOnPlayRecordedBumpsBothCells() {
+        // Wednesday 2025-03-05 21:10, day 64 of the year
+        LocalDateTime playedAt = LocalDateTime.of(2025, 3, 5, 21, 10);
+
+        service.onPlayRecorded(new PlayRecordedEvent(1L, "L1", "US", "S1", 1000, List.of(), List.of(), playedAt));
+
+        verify(repository).createIfAbsent("L1", 2025);
+        verify(repository).increment("L1", 2025, 2 * 24 + 21 + 1, 64);
+    }
+
+    @Test
+    public void testOnPlayRecordedIgnoresIncompleteEvent() {
+        service.onPlayRecorded(new PlayRecordedEvent(1L, null, "US", "S1", 1000, List.of(), List.of(), LocalDateTime.now()));
+
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    public void testDeletedPlayLeavesItsCells() {
+        LocalDateTime playedAt = LocalDateTime.of(2025, 3, 5, 21, 10);
+
+        service.onPlayRevised(PlayRevisedEvent.deleted(1L, "L1", "S1", playedAt));
+
+        verify(repository).lockListener("L1");
+        verify(repository).decrement("L1", 2025, 2 * 24 + 21 + 1, 64);
+        verify(repository, never()).increment(anyString(), anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testMovedPlayChangesCellsOfBothListeners() {
+        // Wednesday 2025-03-05 21:10, moved to Monday 2026-01-05 08:00 of another listener
+        LocalDateTime before = LocalDateTime.of(2025, 3, 5, 21, 10);
+        LocalDateTime after = LocalDateTime.of(2026, 1, 5, 8, 0);
+
+        service.onPlayRevised(new PlayRevisedEvent(1L, "L2", "S1", before, "L1", "S1", after));
+
+        InOrder order = inOrder(repository);
+        order.verify(repository).lockListener("L1");
+        order.verify(repository).lockListener("L2");
+        order.verify(repository).decrement("L2", 2025, 2 * 24 + 21 + 1, 64);
+        order.verify(repository).createIfAbsent("L1", 2026);
+        order.verify(repository).increment("L1", 2026, 8 + 1, 5);
+    }
+
+    @Test
+    public void testHourSlotBounds() {
+        assertEquals(0, HeatmapService.hourSlot(LocalDateTime.of(2025, 3, 3, 0, 0)));
+        assertEquals(167, HeatmapService.hourSlot(LocalDateTime.of(2025, 3, 9, 23, 59)));
+    }
+
+    @Test
+    public void testGetHeatmapUnpacksArrays() {
+        ListeningHeatmap stored = new ListeningHeatmap();
+        stored.setListenerId("L1");
+        stored.setYear(2024);
+        stored.getHourOfWeek()[24 + 9] = 5;
+        stored.getCalendar()[365] = 2;
+        when(repository.findById(new ListeningHeatmapId("L1", 2024))).thenReturn(Optional.of(stored));
+
+        HeatmapDTO heatmap = service.getHeatmap("L1", 2024);
+
+        assertEquals(7, heatmap.hourOfWeek().length);
+        assertEquals(5, heatmap.hourOfWeek()[1][9]);
+        // leap year: all 366 days
+        assertEquals(366, heatmap.calendar().length);
+        assertEquals(2, heatmap.calendar()[365]);
+    }
+
+    @Test
+    public void testGetHeatmapWithoutPlaysIsEmpty() {
+        when(repository.findById(any())).thenReturn(Optional.empty());
+
+        HeatmapDTO heatmap = service.getHeatmap("L1", 2025);
+
+        assertEquals(365, heatmap.calendar().length);
+        assertEquals(0, heatmap.hourOfWeek()[6][23]);
+        assertThrows(InvalidRequestException.class, () -> service.getHeatmap(" ", 2025));
+    }
+}
@@ -0,0 +1,89 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.HistoryExportRow;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.repository.HistoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class HistoryExportServiceTest {
+
+    @Mock
+    private HistoryRepository repository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private HistoryExportService service;
+
+    private HistoryExportRow row;
+
+    @BeforeEach
+    public void setUp() {
+        service = new HistoryExportService(repository, transactionManager);
+        row = new HistoryExportRow(1L, LocalDateTime.of(2025, 1, 2, 3, 4, 5), "L1", "S1", "Song, \"One\"", 200000);
+    }
+
+    @Test
+    public void testExportNdjson() throws Exception {
+        when(repository.streamExportRows("L1")).thenReturn(Stream.of(row));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.export("L1", HistoryExportService.Format.NDJSON, out);
+
+        assertEquals("{\"historyId\":1,\"playedAt\":\"2025-01-02T03:04:05\",\"listenerId\":\"L1\",\"songId\":\"S1\","
+                + "\"songName\":\"Song, \\\"One\\\"\",\"durationMs\":200000}\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testExportCsvQuotesFields() throws Exception {
+        when(repository.streamExportRows("L1")).thenReturn(Stream.of(row));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.export("L1", HistoryExportService.Format.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("history_id,played_at,listener_id,song_id,song_name,duration_ms", lines[0]);
+        assertEquals("1,2025-01-02T03:04:05,L1,S1,\"Song, \"\"One\"\"\",200000", lines[1]);
+    }
+
+    @Test
+    public void testExportClosesCursor() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean(false);
+        when(repository.streamExportRows("L1")).thenReturn(Stream.of(row).onClose(() -> closed.set(true)));
+
+        service.export("L1", HistoryExportService.Format.CSV, new ByteArrayOutputStream());
+
+        assertTrue(closed.get());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    public void testExportBlankListenerThrows() {
+        assertThrows(InvalidRequestException.class,
+                () -> service.export(" ", HistoryExportService.Format.CSV, new ByteArrayOutputStream()));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    public void testParseFormat() {
+        assertEquals(HistoryExportService.Format.NDJSON, service.parseFormat(null));
+        assertEquals(HistoryExportService.Format.CSV, service.parseFormat("csv"));
+        assertThrows(InvalidRequestException.class, () -> service.parseFormat("xml"));
+    }
+}
@@ -1,8 +1,11 @@
 package com.feedback.history.service;
 
 import com.feedback.history.dtos.HistoryDTO;
+import com.feedback.history.dtos.HistoryViewDTO;
 import com.feedback.history.dtos.ListenerDTO;
 import com.feedback.history.dtos.SongDTO;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.events.PlayRevisedEvent;
 import com.feedback.history.exception.InvalidRequestException;
 import com.feedback.history.exception.ResourceNotFoundException;
 import com.feedback.history.model.History;
@@ -13,9 +16,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -36,6 +41,9 @@ public class HistoryServiceTest {
     @Mock
     private SongService songService;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private HistoryService service;
 
@@ -227,6 +235,24 @@ public class HistoryServiceTest {
         assertEquals("S1", result.songId());
     }
 
+    @Test
+    public void testCreatePublishesPlayRecordedEvent() {
+        HistoryDTO dto = makeDTO();
+
+        when(listenerService.findById("L1")).thenReturn(listenerDto);
+        when(songService.findById("S1")).thenReturn(new SongDTO("S1", "Song One", "songHref", 200000, List.of("AR1"), List.of("ALB1")));
+        when(repository.save(any())).thenReturn(history);
+
+        service.create(dto);
+
+        ArgumentCaptor<PlayRecordedEvent> captor = ArgumentCaptor.forClass(PlayRecordedEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertEquals("L1", captor.getValue().listenerId());
+        assertEquals("US", captor.getValue().country());
+        assertEquals(List.of("AR1"), captor.getValue().artistIds());
+        assertEquals(200000, captor.getValue().durationMs());
+    }
+
     @Test
     public void testCreateMissingListenerThrows() {
         HistoryDTO dto = makeDTO();
@@ -269,18 +295,52 @@ public class HistoryServiceTest {
         assertThrows(ResourceNotFoundException.class, () -> service.update(1L, dto));
     }
 
+    @Test
+    public void testUpdateToAnotherSongPublishesRevision() {
+        HistoryDTO dto = new HistoryDTO(1L, null, null, "S2");
+        SongDTO other = new SongDTO("S2", "Song Two", "songHref", 180000, List.of(), List.of());
+
+        when(repository.findById(1L)).thenReturn(Optional.of(history));
+        when(songService.findById("S2")).thenReturn(other);
+        when(repository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service.update(1L, dto);
+
+        ArgumentCaptor<PlayRevisedEvent> captor = ArgumentCaptor.forClass(PlayRevisedEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertEquals("S1", captor.getValue().beforeSongId());
+        assertEquals("S2", captor.getValue().afterSongId());
+        assertEquals("L1", captor.getValue().afterListenerId());
+    }
+
+    @Test
+    public void testUpdateWithoutChangesPublishesNothing() {
+        HistoryDTO dto = new HistoryDTO(1L, null, null, null);
+
+        when(repository.findById(1L)).thenReturn(Optional.of(history));
+        when(repository.save(any())).thenReturn(history);
+
+        service.update(1L, dto);
+
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
     @Test
     public void testDeleteSuccess() {
-        when(repository.existsById(1L)).thenReturn(true);
+        when(repository.findById(1L)).thenReturn(Optional.of(history));
 
         service.delete(1L);
 
         verify(repository).deleteById(1L);
+        ArgumentCaptor<PlayRevisedEvent> captor = ArgumentCaptor.forClass(PlayRevisedEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertTrue(captor.getValue().isDelete());
+        assertEquals("S1", captor.getValue().beforeSongId());
     }
 
     @Test
     public void testDeleteNotFoundThrows() {
-        when(repository.existsById(99L)).thenReturn(false);
+        when(repository.findById(99L)).thenReturn(Optional.empty());
 
         assertThrows(ResourceNotFoundException.class, () -> service.delete(99L));
     }
@@ -289,4 +349,42 @@ public class HistoryServiceTest {
     public void testDeleteInvalidThrows() {
         assertThrows(InvalidRequestException.class, () -> service.delete(null));
     }
+
+    private HistoryRepository.HistoryView makeView() {
+        LocalDateTime playedAt = history.getPlayedAt();
+        return new HistoryRepository.HistoryView() {
+            public Long getHistoryId() { return 1L; }
+            public LocalDateTime getPlayedAt() { return playedAt; }
+            public String getListenerId() { return "L1"; }
+            public String getSongId() { return "S1"; }
+            public String getSongName() { return "Song One"; }
+            public Integer getDurationMs() { return 200000; }
+            public String getHref() { return "songHref"; }
+            public String getArtistNames() { return "Artist A, Artist B"; }
+            public String getAlbumId() { return "AL1"; }
+            public String getAlbumTitle() { return "Album One"; }
+        };
+    }
+
+    @Test
+    public void testGetHistoryViewsByListener() {
+        when(repository.findViewsByListener("L1", 20)).thenReturn(List.of(makeView()));
+
+        List<HistoryViewDTO> result = service.getHistoryViews("L1", 20);
+
+        assertEquals(1, result.size());
+        assertEquals("Song One", result.get(0).songName());
+        assertEquals("Artist A, Artist B", result.get(0).artistName());
+        assertEquals("Album One", result.get(0).albumName());
+        verifyNoInteractions(songService);
+    }
+
+    @Test
+    public void testGetHistoryViewsAllListenersClampsLimit() {
+        when(repository.findLatestViews(50)).thenReturn(List.of());
+        when(repository.findLatestViews(500)).thenReturn(List.of(makeView()));
+
+        assertTrue(service.getHistoryViews(null, 0).isEmpty());
+        assertEquals(1, service.getHistoryViews(" ", 10_000).size());
+    }
 }
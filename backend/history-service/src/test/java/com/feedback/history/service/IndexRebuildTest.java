@@ -0,0 +1,121 @@
+package com.feedback.history.service;
+
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.repository.HistoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class IndexRebuildTest {
+
+    @Mock
+    private HistoryRepository repository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    // what the index saw: "reset", "load:<max>" and the history ID of each applied play
+    private final List<String> calls = new ArrayList<>();
+    private final List<Duration> retries = new ArrayList<>();
+    private RuntimeException loadFailure;
+    private Runnable duringLoad = () -> { };
+    private IndexRebuild rebuild;
+
+    @BeforeEach
+    public void setUp() {
+        rebuild = new IndexRebuild("test", repository, transactionManager, new IndexRebuild.Index() {
+            @Override
+            public void reset() {
+                calls.add("reset");
+            }
+
+            @Override
+            public void load(long maxHistoryId) {
+                duringLoad.run();
+                if (loadFailure != null) {
+                    throw loadFailure;
+                }
+                calls.add("load:" + maxHistoryId);
+            }
+
+            @Override
+            public void apply(PlayRecordedEvent event) {
+                calls.add(String.valueOf(event.historyId()));
+            }
+        }) {
+            @Override
+            void scheduleRetry(Duration delay) {
+                retries.add(delay);
+            }
+        };
+    }
+
+    private static PlayRecordedEvent play(long historyId) {
+        return new PlayRecordedEvent(historyId, "L1", "US", "S1", 1000, List.of(), List.of(), LocalDateTime.now());
+    }
+
+    @Test
+    public void testQueuedPlaysAppliedUnlessTheScanSawThem() {
+        long max = IndexRebuild.TAIL_IDS + 100;
+        when(repository.findMaxHistoryId()).thenReturn(max);
+        // 150 is in the tail but was still uncommitted at the snapshot
+        when(repository.findHistoryIdsBetween(100, max)).thenReturn(List.of(max, 200L));
+        duringLoad = () -> List.of(50L, 150L, 200L, max, max + 1).forEach(id -> rebuild.onPlayRecorded(play(id)));
+
+        assertTrue(rebuild.run());
+        rebuild.onPlayRecorded(play(max + 2));
+        rebuild.onPlayRecorded(play(200));
+
+        assertEquals(List.of("reset", "load:" + max, "150", String.valueOf(max + 1), String.valueOf(max + 2)), calls);
+        assertTrue(rebuild.isReady());
+    }
+
+    @Test
+    public void testFailedScanDropsQueueAndRetriesWithBackoff() {
+        when(repository.findMaxHistoryId()).thenReturn(10L);
+        loadFailure = new IllegalStateException("connection reset");
+        duringLoad = () -> rebuild.onPlayRecorded(play(11));
+
+        assertFalse(rebuild.run());
+        // between attempts nothing is queued: the next scan will see these plays
+        rebuild.onPlayRecorded(play(12));
+        assertFalse(rebuild.run());
+
+        loadFailure = null;
+        duringLoad = () -> { };
+        assertTrue(rebuild.run());
+
+        assertEquals(List.of("reset", "reset", "reset", "load:10"), calls);
+        assertEquals(List.of(IndexRebuild.FIRST_RETRY, IndexRebuild.FIRST_RETRY.multipliedBy(2)), retries);
+        verify(transactionManager, times(2)).rollback(any());
+    }
+
+    @Test
+    public void testTooManyPlaysDuringScanRetries() {
+        when(repository.findMaxHistoryId()).thenReturn(0L);
+        duringLoad = () -> {
+            for (int i = 1; i <= IndexRebuild.MAX_PENDING + 1; i++) {
+                rebuild.onPlayRecorded(play(i));
+            }
+        };
+
+        assertFalse(rebuild.run());
+
+        assertFalse(rebuild.isReady());
+        assertEquals(1, retries.size());
+        assertEquals(List.of("reset", "load:0"), calls);
+    }
+}
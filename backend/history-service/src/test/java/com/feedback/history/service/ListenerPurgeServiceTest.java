@@ -0,0 +1,131 @@
+package com.feedback.history.service;
+
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.repository.FirstListenRepository;
+import com.feedback.history.repository.JobFailureRepository;
+import com.feedback.history.repository.ListenerSongBitmapRepository;
+import com.feedback.history.repository.ListeningHeatmapRepository;
+import com.feedback.history.repository.ListeningSessionRepository;
+import com.feedback.history.repository.PlayCountRepository;
+import com.feedback.history.repository.PlayOutboxRepository;
+import com.feedback.history.repository.YearInReviewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ListenerPurgeServiceTest {
+
+    @Mock
+    private PlayOutboxRepository outboxRepository;
+
+    @Mock
+    private PlayCountRepository playCountRepository;
+
+    @Mock
+    private FirstListenRepository firstListenRepository;
+
+    @Mock
+    private ListeningSessionRepository sessionRepository;
+
+    @Mock
+    private ListeningHeatmapRepository heatmapRepository;
+
+    @Mock
+    private YearInReviewRepository yearInReviewRepository;
+
+    @Mock
+    private JobFailureRepository jobFailureRepository;
+
+    @Mock
+    private ListenerSongBitmapRepository bitmapRepository;
+
+    @Mock
+    private DiscoveryService discoveryService;
+
+    @Mock
+    private PlayAnalyticsService playAnalyticsService;
+
+    @Mock
+    private ListeningTotalsService listeningTotalsService;
+
+    @Mock
+    private TasteSimilarityService tasteSimilarityService;
+
+    @Mock
+    private TransitionService transitionService;
+
+    @Mock
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ListenerPurgeService service;
+
+    @BeforeEach
+    public void setUp() {
+        service = new ListenerPurgeService(outboxRepository, playCountRepository, firstListenRepository,
+                sessionRepository, heatmapRepository, yearInReviewRepository, jobFailureRepository, bitmapRepository,
+                discoveryService, playAnalyticsService, listeningTotalsService, tasteSimilarityService,
+                transitionService, kafkaTemplate, transactionManager, "play-events", 1000);
+    }
+
+    @Test
+    public void testFullChunkStopsAtTheLimitAndKeepsTheIndexes() {
+        when(outboxRepository.deleteListenerChunk("L1", 5)).thenReturn(1);
+        when(playCountRepository.deleteListenerChunk("L1", 4)).thenReturn(4);
+
+        assertEquals(5, service.purge("L1", 5));
+
+        // the song bitmap is dropped on every call, before its row can be deleted
+        verify(discoveryService).forgetListener("L1");
+        verify(firstListenRepository, never()).deleteListenerChunk(anyString(), anyInt());
+        verify(bitmapRepository, never()).deleteListener(anyString());
+        verify(playAnalyticsService, never()).forgetListener(anyString());
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    @Test
+    public void testLastChunkForgetsTheListenerAndErasesTheirStats() {
+        when(playCountRepository.deleteListenerChunk("L1", 5)).thenReturn(2);
+        when(firstListenRepository.deleteListenerChunk("L1", 3)).thenReturn(1);
+        when(bitmapRepository.deleteListener("L1")).thenReturn(1);
+        when(kafkaTemplate.send("play-events", "L1", null)).thenReturn(CompletableFuture.completedFuture(null));
+
+        assertEquals(4, service.purge("L1", 5));
+
+        verify(sessionRepository).deleteListenerChunk("L1", 2);
+        verify(jobFailureRepository).deleteListenerChunk("L1", 2);
+        verify(playAnalyticsService).forgetListener("L1");
+        verify(listeningTotalsService).forgetListener("L1");
+        verify(tasteSimilarityService).forgetListener("L1");
+        verify(transitionService).forgetListener("L1");
+        verify(kafkaTemplate).send("play-events", "L1", null);
+    }
+
+    @Test
+    public void testFailedTombstoneFailsTheCallSoItIsMadeAgain() {
+        when(kafkaTemplate.send("play-events", "L1", null))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker down")));
+
+        assertThrows(IllegalStateException.class, () -> service.purge("L1", 5));
+    }
+
+    @Test
+    public void testInvalidInputThrows() {
+        assertThrows(InvalidRequestException.class, () -> service.purge(" ", 5));
+        assertThrows(InvalidRequestException.class, () -> service.purge("L1", 0));
+        verifyNoInteractions(outboxRepository, discoveryService);
+    }
+}
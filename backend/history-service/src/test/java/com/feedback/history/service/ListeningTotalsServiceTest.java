@@ -0,0 +1,152 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.WindowTotalDTO;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.exception.StatsUnavailableException;
+import com.feedback.history.repository.HistoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ListeningTotalsServiceTest {
+
+    @Mock
+    private HistoryRepository repository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ListeningTotalsService service;
+
+    @BeforeEach
+    public void setUp() {
+        service = new ListeningTotalsService(repository, transactionManager);
+    }
+
+    private HistoryRepository.DailyListening day(String listenerId, LocalDate day, long plays, long ms) {
+        return new HistoryRepository.DailyListening() {
+            public String getListenerId() { return listenerId; }
+            public LocalDate getDay() { return day; }
+            public Long getPlays() { return plays; }
+            public Long getListeningMs() { return ms; }
+        };
+    }
+
+    private void rebuildWith(long maxId, HistoryRepository.DailyListening... days) {
+        when(repository.findMaxHistoryId()).thenReturn(maxId);
+        when(repository.findHistoryIdsBetween(0, maxId)).thenReturn(LongStream.rangeClosed(1, maxId).boxed().toList());
+        when(repository.streamDailyListening(maxId)).thenReturn(Stream.of(days));
+        service.rebuild();
+    }
+
+    private PlayRecordedEvent play(long historyId, LocalDate day, int durationMs) {
+        return new PlayRecordedEvent(historyId, "L1", "US", "S1", durationMs, List.of(), List.of(), day.atTime(12, 0));
+    }
+
+    @Test
+    public void testCompareWindows() {
+        rebuildWith(10,
+                day("L1", LocalDate.of(2025, 3, 3), 4, 40_000),
+                day("L1", LocalDate.of(2025, 4, 1), 2, 20_000),
+                day("L1", LocalDate.of(2025, 6, 17), 1, 10_000),
+                day("L1", LocalDate.of(2025, 6, 18), 8, 80_000),
+                day("L2", LocalDate.of(2025, 4, 1), 100, 1_000_000));
+
+        List<WindowTotalDTO> totals = service.compare("L1",
+                List.of("2025-03-03..2025-06-17", "2025-06-18..2025-06-18", "2024-01-01..2024-12-31"));
+
+        assertEquals(3, totals.size());
+        assertEquals(7, totals.get(0).plays());
+        assertEquals(70_000, totals.get(0).listeningMs());
+        assertEquals(8, totals.get(1).plays());
+        assertEquals(0, totals.get(2).plays());
+    }
+
+    @Test
+    public void testIndexGrowsBothWaysAndMatchesNaiveSums() {
+        // plays spread over ~4 years, arriving in shuffled order so the window grows backwards and forwards
+        LocalDate start = LocalDate.of(2022, 1, 1);
+        List<Integer> offsets = new ArrayList<>();
+        for (int i = 0; i < 1500; i += 7) {
+            offsets.add(i);
+        }
+        Collections.shuffle(offsets, new java.util.Random(7));
+        rebuildWith(0);
+        long id = 1;
+        for (int offset : offsets) {
+            service.onPlayRecorded(play(id++, start.plusDays(offset), 1000 + offset));
+        }
+
+        LocalDate from = start.plusDays(100);
+        LocalDate to = start.plusDays(1000);
+        long expectedPlays = offsets.stream().filter(o -> o >= 100 && o <= 1000).count();
+        long expectedMs = offsets.stream().filter(o -> o >= 100 && o <= 1000).mapToLong(o -> 1000 + o).sum();
+
+        WindowTotalDTO total = service.compare("L1", List.of(from + ".." + to)).get(0);
+
+        assertEquals(expectedPlays, total.plays());
+        assertEquals(expectedMs, total.listeningMs());
+    }
+
+    @Test
+    public void testPlaysDuringRebuildAreAppliedOnce() {
+        LocalDate day = LocalDate.of(2025, 3, 3);
+        when(repository.findMaxHistoryId()).thenReturn(5L);
+        when(repository.findHistoryIdsBetween(0, 5)).thenReturn(List.of(1L, 2L, 3L, 4L, 5L));
+        when(repository.streamDailyListening(5)).thenAnswer(invocation -> {
+            // 5 is in the scan, 6 committed after it
+            service.onPlayRecorded(play(5, day, 1000));
+            service.onPlayRecorded(play(6, day, 1000));
+            return Stream.of(day("L1", day, 5, 5000));
+        });
+        service.rebuild();
+
+        assertEquals(6, service.compare("L1", List.of("2025-03-03..2025-03-03")).get(0).plays());
+    }
+
+    @Test
+    public void testDefaultWindowsAreThisAndLastWeek() {
+        List<LocalDate[]> windows = ListeningTotalsService.defaultWindows(LocalDate.of(2025, 3, 6));
+
+        assertEquals(LocalDate.of(2025, 3, 3), windows.get(0)[0]);
+        assertEquals(LocalDate.of(2025, 3, 9), windows.get(0)[1]);
+        assertEquals(LocalDate.of(2025, 2, 24), windows.get(1)[0]);
+        assertEquals(LocalDate.of(2025, 3, 2), windows.get(1)[1]);
+    }
+
+    @Test
+    public void testCompareBeforeRebuildAndInvalidInput() {
+        assertThrows(StatsUnavailableException.class, () -> service.compare("L1", null));
+        assertThrows(InvalidRequestException.class, () -> service.compare(" ", null));
+        assertThrows(InvalidRequestException.class, () -> service.compare("L1", List.of("2025-03-03")));
+        assertThrows(InvalidRequestException.class, () -> service.compare("L1", List.of("2025-06-01..2025-03-01")));
+        assertThrows(InvalidRequestException.class, () -> service.compare("L1", List.of("march..june")));
+        assertThrows(InvalidRequestException.class,
+                () -> service.compare("L1", Collections.nCopies(ListeningTotalsService.MAX_WINDOWS + 1, "2025-03-03..2025-03-04")));
+    }
+
+    @Test
+    public void testUnknownListenerIsZero() {
+        rebuildWith(0);
+
+        List<WindowTotalDTO> totals = service.compare("nobody", null);
+
+        assertEquals(2, totals.size());
+        assertEquals(0, totals.get(0).plays());
+    }
+}
@@ -0,0 +1,231 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.PlayAnalyticsDTO;
+import com.feedback.history.dtos.PlayColumnRow;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.exception.StatsUnavailableException;
+import com.feedback.history.repository.HistoryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PlayAnalyticsServiceTest {
+
+    @Mock
+    private HistoryRepository repository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path directory;
+
+    private PlayAnalyticsService service;
+
+    @BeforeEach
+    public void setUp() {
+        service = new PlayAnalyticsService(repository, transactionManager, directory.toString(), 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.close();
+    }
+
+    private PlayRecordedEvent event(long historyId, String listenerId, String songId, LocalDateTime playedAt) {
+        return new PlayRecordedEvent(historyId, listenerId, "US", songId, 1000, List.of(), List.of(), playedAt);
+    }
+
+    private void rebuildWith(long maxId, PlayColumnRow... rows) {
+        when(repository.findMaxHistoryId()).thenReturn(maxId);
+        when(repository.findHistoryIdsBetween(0, maxId)).thenReturn(LongStream.rangeClosed(1, maxId).boxed().toList());
+        when(repository.streamPlayColumnRows(maxId)).thenReturn(Stream.of(rows));
+        service.rebuild();
+    }
+
+    @Test
+    public void testAnalyticsBeforeRebuildIsUnavailable() {
+        assertThrows(StatsUnavailableException.class, () -> service.getAnalytics("L1", null, null, 5));
+    }
+
+    @Test
+    public void testAnalyticsInvalidInputThrows() {
+        assertThrows(InvalidRequestException.class, () -> service.getAnalytics(" ", null, null, 5));
+        assertThrows(InvalidRequestException.class,
+                () -> service.getAnalytics("L1", LocalDate.of(2025, 3, 5), LocalDate.of(2025, 3, 1), 5));
+    }
+
+    @Test
+    public void testRebuildThenAnalytics() {
+        // 2025-03-03 is a Monday
+        rebuildWith(4,
+                new PlayColumnRow("L1", "S1", LocalDateTime.of(2025, 3, 3, 9, 15)),
+                new PlayColumnRow("L1", "S2", LocalDateTime.of(2025, 3, 3, 9, 45)),
+                new PlayColumnRow("L1", "S2", LocalDateTime.of(2025, 3, 4, 22, 0)),
+                new PlayColumnRow("L2", "S1", LocalDateTime.of(2025, 3, 4, 22, 0)));
+
+        PlayAnalyticsDTO analytics = service.getAnalytics("L1", null, null, 5);
+
+        assertEquals(3, analytics.totalPlays());
+        assertEquals(2, analytics.topSongs().size());
+        assertEquals("S2", analytics.topSongs().get(0).id());
+        assertEquals(2L, analytics.topSongs().get(0).plays());
+        assertEquals(2, analytics.playsByHour()[9]);
+        assertEquals(1, analytics.playsByHour()[22]);
+        assertEquals(2, analytics.playsByWeekday()[0]);
+        assertEquals(1, analytics.playsByWeekday()[1]);
+    }
+
+    @Test
+    public void testAnalyticsDateRangeIsInclusive() {
+        rebuildWith(3,
+                new PlayColumnRow("L1", "S1", LocalDateTime.of(2025, 3, 1, 0, 0)),
+                new PlayColumnRow("L1", "S1", LocalDateTime.of(2025, 3, 2, 23, 59, 59)),
+                new PlayColumnRow("L1", "S1", LocalDateTime.of(2025, 3, 3, 0, 0)));
+
+        PlayAnalyticsDTO analytics = service.getAnalytics("L1", LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 2), null);
+
+        assertEquals(2, analytics.totalPlays());
+        assertEquals(2L, analytics.topSongs().get(0).plays());
+    }
+
+    @Test
+    public void testPlaysDuringRebuildAreAppliedOnce() {
+        when(repository.findMaxHistoryId()).thenReturn(3L);
+        // id 1 was handed out first but committed after the snapshot, so the scan saw only 2 and 3
+        when(repository.findHistoryIdsBetween(0, 3)).thenReturn(List.of(2L, 3L));
+        when(repository.streamPlayColumnRows(3)).thenAnswer(invocation -> {
+            service.onPlayRecorded(event(2, "L1", "S1", LocalDateTime.of(2025, 3, 3, 9, 0)));
+            service.onPlayRecorded(event(1, "L1", "S1", LocalDateTime.of(2025, 3, 3, 7, 0)));
+            service.onPlayRecorded(event(4, "L1", "S1", LocalDateTime.of(2025, 3, 3, 10, 0)));
+            return Stream.of(
+                    new PlayColumnRow("L1", "S1", LocalDateTime.of(2025, 3, 3, 8, 0)),
+                    new PlayColumnRow("L1", "S1", LocalDateTime.of(2025, 3, 3, 9, 0)));
+        });
+        service.rebuild();
+
+        service.onPlayRecorded(event(5, "L1", "S2", LocalDateTime.of(2025, 3, 3, 11, 0)));
+
+        assertEquals(5, service.getAnalytics("L1", null, null, 5).totalPlays());
+    }
+
+    @Test
+    public void testOutOfOrderPlaysStillCounted() {
+        rebuildWith(1, new PlayColumnRow("L1", "S1", LocalDateTime.of(2025, 3, 10, 9, 0)));
+        service.onPlayRecorded(event(2, "L1", "S1", LocalDateTime.of(2025, 3, 1, 9, 0)));
+
+        assertEquals(1, service.getAnalytics("L1", LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 1), 5).totalPlays());
+        assertEquals(2, service.getAnalytics("L1", null, null, 5).totalPlays());
+    }
+
+    @Test
+    public void testTopSongsLimitedAndColumnsGrow() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        PlayColumnRow[] rows = new PlayColumnRow[3000];
+        for (int i = 0; i < rows.length; i++) {
+            // per 100 plays: S9 gets 19, S8 17, S7 15, ...
+            rows[i] = new PlayColumnRow("L1", "S" + (int) Math.sqrt(i % 100), start.plusMinutes(i));
+        }
+        rebuildWith(rows.length, rows);
+
+        PlayAnalyticsDTO analytics = service.getAnalytics("L1", null, null, 3);
+
+        assertEquals(3000, analytics.totalPlays());
+        assertEquals(List.of("S9", "S8", "S7"), analytics.topSongs().stream().map(t -> t.id()).toList());
+        assertEquals(0, service.getAnalytics("nobody", null, null, 3).totalPlays());
+    }
+
+    @Test
+    public void testIdleListenersAreReleasedAndReadBackOnUse() {
+        LocalDateTime playedAt = LocalDateTime.of(2025, 3, 3, 9, 0);
+        rebuildWith(4,
+                new PlayColumnRow("L1", "S1", playedAt),
+                new PlayColumnRow("L2", "S1", playedAt),
+                new PlayColumnRow("L3", "S1", playedAt),
+                new PlayColumnRow("L3", "S2", playedAt.plusHours(1)));
+
+        // only two listeners stay mapped, so L1 was released; reading it maps its files again
+        assertEquals(1, service.getAnalytics("L1", null, null, 5).totalPlays());
+        service.onPlayRecorded(event(5, "L2", "S2", playedAt.plusHours(2)));
+
+        assertEquals(2, service.getAnalytics("L2", null, null, 5).totalPlays());
+        assertEquals(2, service.getAnalytics("L3", null, null, 5).totalPlays());
+        assertEquals(1, service.getAnalytics("L1", null, null, 5).totalPlays());
+    }
+
+    // readers racing over more listeners than the cap must never leave more columns mapped than it allows
+    @Test
+    public void testConcurrentReadsKeepMappedColumnsWithinCap() throws Exception {
+        LocalDateTime playedAt = LocalDateTime.of(2025, 3, 3, 9, 0);
+        List<String> listeners = List.of("L1", "L2", "L3", "L4", "L5");
+        rebuildWith(listeners.size(), listeners.stream()
+                .map(listenerId -> new PlayColumnRow(listenerId, "S1", playedAt))
+                .toArray(PlayColumnRow[]::new));
+        int readers = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(readers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int r = 0; r < readers; r++) {
+                int offset = r;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 2000; i++) {
+                        String listenerId = listeners.get((offset + i) % listeners.size());
+                        assertEquals(1, service.getAnalytics(listenerId, null, null, 5).totalPlays());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertTrue(service.mappedCount() <= 2, "mapped: " + service.mappedCount());
+    }
+
+    @Test
+    public void testForgottenListenerLosesColumnsAndFiles() throws Exception {
+        LocalDateTime playedAt = LocalDateTime.of(2025, 3, 3, 9, 0);
+        rebuildWith(2, new PlayColumnRow("L1", "S1", playedAt), new PlayColumnRow("L2", "S1", playedAt));
+        long filesBefore;
+        try (Stream<Path> files = Files.list(directory)) {
+            filesBefore = files.count();
+        }
+
+        service.forgetListener("L1");
+
+        assertEquals(0, service.getAnalytics("L1", null, null, 5).totalPlays());
+        assertEquals(1, service.getAnalytics("L2", null, null, 5).totalPlays());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(filesBefore - 2, files.count());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.feedback.history.service;
+
+import com.feedback.history.model.JobCheckpoint;
+import com.feedback.history.repository.JobCheckpointRepository;
+import com.feedback.history.repository.PlayCountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PlayCountBackfillTest {
+
+    @Mock
+    private PlayCountRepository playCountRepository;
+
+    @Mock
+    private JobCheckpointRepository checkpointRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PlayCountBackfill backfill;
+
+    @BeforeEach
+    public void setUp() {
+        backfill = new PlayCountBackfill(playCountRepository, checkpointRepository, transactionManager, 2);
+    }
+
+    @Test
+    public void testRecountsListenersInBatchesUntilNoneAreLeft() {
+        when(checkpointRepository.findById(PlayCountBackfill.JOB_NAME)).thenReturn(Optional.empty());
+        when(checkpointRepository.save(any(JobCheckpoint.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(playCountRepository.lockListenersAfter("", 2)).thenReturn(List.of("L1", "L2"));
+        when(playCountRepository.lockListenersAfter("L2", 2)).thenReturn(List.of("L3"));
+        when(playCountRepository.lockListenersAfter("L3", 2)).thenReturn(List.of());
+
+        backfill.run();
+
+        verify(playCountRepository).recountListeners(List.of("L1", "L2"));
+        verify(playCountRepository).recountListeners(List.of("L3"));
+        verify(checkpointRepository, atLeastOnce()).save(argThat(checkpoint ->
+                JobCheckpoint.COMPLETED.equals(checkpoint.getStatus()) && checkpoint.getProcessed() == 3L));
+    }
+
+    @Test
+    public void testResumesAfterLastCheckpointedListener() {
+        JobCheckpoint checkpoint = new JobCheckpoint(PlayCountBackfill.JOB_NAME);
+        checkpoint.setStatus(JobCheckpoint.FAILED);
+        checkpoint.setLastListenerId("L2");
+        when(checkpointRepository.findById(PlayCountBackfill.JOB_NAME)).thenReturn(Optional.of(checkpoint));
+        when(checkpointRepository.save(any(JobCheckpoint.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(playCountRepository.lockListenersAfter("L2", 2)).thenReturn(List.of());
+
+        backfill.run();
+
+        verify(playCountRepository, never()).lockListenersAfter(eq(""), anyInt());
+        verify(playCountRepository, never()).recountListeners(anyList());
+        assertEquals(JobCheckpoint.COMPLETED, checkpoint.getStatus());
+    }
+
+    @Test
+    public void testCompletedBackfillDoesNothing() {
+        JobCheckpoint checkpoint = new JobCheckpoint(PlayCountBackfill.JOB_NAME);
+        checkpoint.setStatus(JobCheckpoint.COMPLETED);
+        when(checkpointRepository.findById(PlayCountBackfill.JOB_NAME)).thenReturn(Optional.of(checkpoint));
+
+        backfill.run();
+
+        verifyNoInteractions(playCountRepository);
+        verify(checkpointRepository, never()).save(any());
+    }
+
+    @Test
+    public void testFailedBatchMarksCheckpointFailed() {
+        JobCheckpoint checkpoint = new JobCheckpoint(PlayCountBackfill.JOB_NAME);
+        when(checkpointRepository.findById(PlayCountBackfill.JOB_NAME)).thenReturn(Optional.of(checkpoint));
+        when(checkpointRepository.save(any(JobCheckpoint.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(playCountRepository.lockListenersAfter("", 2)).thenThrow(new RuntimeException("lock timeout"));
+
+        backfill.run();
+
+        assertEquals(JobCheckpoint.FAILED, checkpoint.getStatus());
+    }
+}
@@ -0,0 +1,87 @@
+package com.feedback.history.service;
+
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.events.PlayRevisedEvent;
+import com.feedback.history.model.PlayOutbox;
+import com.feedback.history.repository.PlayOutboxRepository;
+import com.feedback.history.streams.PlayMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PlayEventPublisherTest {
+
+    @Mock
+    private PlayOutboxRepository outboxRepository;
+
+    @InjectMocks
+    private PlayEventPublisher publisher;
+
+    @Test
+    public void testOnPlayRecordedQueuesPlayInOutbox() {
+        LocalDateTime playedAt = LocalDateTime.of(2025, 3, 3, 10, 0);
+
+        publisher.onPlayRecorded(new PlayRecordedEvent(7L, "L1", "US", "S1", 200000,
+                List.of("AR1"), List.of("ALB1"), playedAt));
+
+        ArgumentCaptor<PlayOutbox> queued = ArgumentCaptor.forClass(PlayOutbox.class);
+        verify(outboxRepository).save(queued.capture());
+        assertEquals(7L, queued.getValue().getHistoryId());
+        assertEquals("L1", queued.getValue().getListenerId());
+        assertEquals("S1", queued.getValue().getSongId());
+        assertEquals(200000, queued.getValue().getDurationMs());
+        assertEquals(playedAt, queued.getValue().getPlayedAt());
+    }
+
+    @Test
+    public void testOnPlayRecordedSkipsPlayWithoutListener() {
+        publisher.onPlayRecorded(new PlayRecordedEvent(7L, null, null, "S1", 1000,
+                List.of(), List.of(), LocalDateTime.now()));
+
+        verify(outboxRepository, never()).save(any());
+    }
+
+    @Test
+    public void testEditedPlayQueuesRetractionThenNewPlay() {
+        LocalDateTime before = LocalDateTime.of(2025, 3, 3, 10, 0);
+        LocalDateTime after = LocalDateTime.of(2025, 3, 4, 10, 0);
+
+        publisher.onPlayRevised(new PlayRevisedEvent(7L, "L1", "S1", before, "L2", "S2", after));
+
+        InOrder order = inOrder(outboxRepository);
+        order.verify(outboxRepository).enqueueRevision(7L, "L1", "S1", before, -1);
+        order.verify(outboxRepository).enqueueRevision(7L, "L2", "S2", after, 1);
+    }
+
+    @Test
+    public void testDeletedPlayQueuesOnlyRetraction() {
+        LocalDateTime playedAt = LocalDateTime.of(2025, 3, 3, 10, 0);
+
+        publisher.onPlayRevised(PlayRevisedEvent.deleted(7L, "L1", "S1", playedAt));
+
+        verify(outboxRepository).enqueueRevision(7L, "L1", "S1", playedAt, -1);
+        verifyNoMoreInteractions(outboxRepository);
+    }
+
+    @Test
+    public void testPlayMessageRoundTrip() {
+        PlayMessage message = new PlayMessage(7L, "L1", "S1", 200000, LocalDateTime.of(2025, 3, 3, 10, 0, 5));
+
+        assertEquals(message, PlayMessage.fromJson(message.toJson()));
+        PlayMessage retraction = new PlayMessage(7L, "L1", "S1", 200000, message.playedAt(), -1, 12L);
+        assertEquals(retraction, PlayMessage.fromJson(retraction.toJson()));
+        assertEquals("7#12", retraction.dedupKey());
+    }
+}
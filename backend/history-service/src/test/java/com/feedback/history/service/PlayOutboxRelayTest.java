@@ -0,0 +1,89 @@
+package com.feedback.history.service;
+
+import com.feedback.history.model.PlayOutbox;
+import com.feedback.history.repository.PlayOutboxRepository;
+import com.feedback.history.streams.PlayMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PlayOutboxRelayTest {
+
+    @Mock
+    private PlayOutboxRepository outboxRepository;
+
+    @Mock
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PlayOutboxRelay relay;
+
+    @BeforeEach
+    public void setUp() {
+        relay = new PlayOutboxRelay(outboxRepository, kafkaTemplate, transactionManager, "play-events", 2, 1000);
+    }
+
+    private static PlayOutbox queued(long outboxId, long historyId, String listenerId) {
+        PlayOutbox play = new PlayOutbox(historyId, listenerId, "S1", 1000, LocalDateTime.of(2025, 3, 3, 10, 0));
+        play.setOutboxId(outboxId);
+        return play;
+    }
+
+    @Test
+    public void testRelaySendsKeyedByListenerThenDeletes() {
+        PlayOutbox first = queued(1L, 7L, "L1");
+        PlayOutbox second = queued(2L, 8L, "L2");
+        PlayOutbox third = queued(3L, 9L, "L1");
+        when(outboxRepository.lockBatch(2)).thenReturn(List.of(first, second), List.of(third));
+        when(kafkaTemplate.send(anyString(), anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+
+        relay.relay();
+
+        PlayMessage message = new PlayMessage(7L, "L1", "S1", 1000, first.getPlayedAt());
+        verify(kafkaTemplate).send("play-events", "L1", message.toJson());
+        verify(kafkaTemplate, times(3)).send(eq("play-events"), anyString(), anyString());
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(3L));
+    }
+
+    @Test
+    public void testRevisionCarriesItsOutboxId() {
+        PlayOutbox retraction = queued(4L, 7L, "L1");
+        retraction.setPlays(-1);
+        retraction.setRevision(true);
+        when(outboxRepository.lockBatch(2)).thenReturn(List.of(retraction));
+        when(kafkaTemplate.send(anyString(), anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+
+        relay.relay();
+
+        PlayMessage message = new PlayMessage(7L, "L1", "S1", 1000, retraction.getPlayedAt(), -1, 4L);
+        verify(kafkaTemplate).send("play-events", "L1", message.toJson());
+    }
+
+    @Test
+    public void testFailedSendKeepsBatchQueued() {
+        when(outboxRepository.lockBatch(2)).thenReturn(List.of(queued(1L, 7L, "L1")));
+        when(kafkaTemplate.send(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker down")));
+
+        assertDoesNotThrow(() -> relay.relay());
+
+        verify(outboxRepository, never()).deleteAllByIdInBatch(any());
+        verify(transactionManager).rollback(any());
+    }
+}
@@ -0,0 +1,246 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.PlayStatsDTO;
+import com.feedback.history.dtos.TopItemDTO;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.repository.HistoryRepository;
+import com.feedback.history.streams.PlayAggregator;
+import com.feedback.history.streams.PlayMessage;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class PlayStatsServiceTest {
+
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, String> plays;
+    private PlayStatsService service;
+    private long nextHistoryId = 1;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        StreamsBuilder builder = new StreamsBuilder();
+        PlayAggregator.addTo(builder, "plays");
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "play-stats-test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        props.put(StreamsConfig.STATE_DIR_CONFIG, Files.createTempDirectory("play-stats").toString());
+        driver = new TopologyTestDriver(builder.build(), props);
+        plays = driver.createInputTopic("plays", new StringSerializer(), new StringSerializer());
+
+        // read straight from the test driver's stores instead of a running KafkaStreams
+        service = new PlayStatsService(mock(StreamsBuilderFactoryBean.class), mock(HistoryRepository.class),
+                mock(PlayStreamBackfill.class)) {
+            @Override
+            boolean storesReady() {
+                return true;
+            }
+
+            @Override
+            <V> ReadOnlyKeyValueStore<String, V> store(String name) {
+                return driver.getKeyValueStore(name);
+            }
+        };
+    }
+
+    @AfterEach
+    public void tearDown() {
+        driver.close();
+    }
+
+    private void play(String listenerId, String songId, int durationMs, LocalDateTime playedAt) {
+        plays.pipeInput(listenerId, new PlayMessage(nextHistoryId++, listenerId, songId, durationMs, playedAt).toJson());
+    }
+
+    @Test
+    public void testGetStatsAggregatesPlays() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        play("L1", "S1", 60000, now.minusDays(1));
+        play("L1", "S2", 120000, now);
+        play("L2", "S1", 30000, now);
+
+        PlayStatsDTO stats = service.getStats("L1");
+
+        assertEquals(2, stats.totalPlays());
+        assertEquals(180000, stats.totalListeningMs());
+        assertEquals(now.minusDays(1), stats.firstPlayedAt());
+        assertEquals(now, stats.lastPlayedAt());
+        assertEquals(2, stats.currentStreak());
+    }
+
+    @Test
+    public void testGetStatsUnknownListenerIsEmpty() {
+        PlayStatsDTO stats = service.getStats("nobody");
+
+        assertEquals(0, stats.totalPlays());
+        assertNull(stats.firstPlayedAt());
+        assertEquals(0, stats.currentStreak());
+    }
+
+    @Test
+    public void testCurrentStreakStartsYesterdayAndStopsAtGap() {
+        LocalDate today = LocalDate.of(2025, 3, 10);
+        play("L1", "S1", 1000, today.minusDays(1).atTime(9, 0));
+        play("L1", "S1", 1000, today.minusDays(2).atTime(9, 0));
+        play("L1", "S1", 1000, today.minusDays(4).atTime(9, 0));
+
+        assertEquals(2, service.currentStreak("L1", today));
+    }
+
+    @Test
+    public void testSkipsMalformedRecords() {
+        plays.pipeInput("L1", "not json");
+        play("L1", "S1", 1000, LocalDateTime.now());
+
+        assertEquals(1, service.getStats("L1").totalPlays());
+    }
+
+    @Test
+    public void testRedeliveredPlayCountedOnce() {
+        String message = new PlayMessage(42L, "L1", "S1", 1000, LocalDateTime.now().withNano(0)).toJson();
+        plays.pipeInput("L1", message);
+        plays.pipeInput("L1", message);
+        play("L1", "S2", 1000, LocalDateTime.now());
+
+        assertEquals(2, service.getStats("L1").totalPlays());
+        assertEquals(1L, service.getTopSongs("L1", 10).get(0).plays());
+    }
+
+    @Test
+    public void testEditedPlayMovesItsCountsAndRedeliveryIsDropped() {
+        LocalDateTime before = LocalDateTime.of(2025, 3, 1, 9, 0);
+        LocalDateTime after = LocalDateTime.of(2025, 3, 2, 9, 0);
+        plays.pipeInput("L1", new PlayMessage(42L, "L1", "S1", 1000, before).toJson());
+        play("L1", "S2", 3000, before);
+
+        String retraction = new PlayMessage(42L, "L1", "S1", 1000, before, -1, 100L).toJson();
+        plays.pipeInput("L1", retraction);
+        plays.pipeInput("L1", new PlayMessage(42L, "L1", "S3", 2000, after, 1, 101L).toJson());
+        plays.pipeInput("L1", retraction);
+
+        assertEquals(2, service.getStats("L1").totalPlays());
+        assertEquals(5000, service.getStats("L1").totalListeningMs());
+        assertEquals(Map.of(before.toLocalDate(), 1L, after.toLocalDate(), 1L),
+                service.getDailyCounts("L1", before.toLocalDate(), after.toLocalDate()));
+        assertEquals(List.of("S2", "S3"), service.getTopSongs("L1", 10).stream().map(TopItemDTO::id).sorted().toList());
+    }
+
+    @Test
+    public void testDeletedLastPlayLeavesListenerEmpty() {
+        LocalDateTime playedAt = LocalDateTime.of(2025, 3, 1, 9, 0);
+        plays.pipeInput("L1", new PlayMessage(42L, "L1", "S1", 1000, playedAt).toJson());
+
+        plays.pipeInput("L1", new PlayMessage(42L, "L1", "S1", 1000, playedAt, -1, 100L).toJson());
+
+        assertEquals(0, service.getStats("L1").totalPlays());
+        assertEquals(List.of(), service.getTopSongs("L1", 10));
+        assertEquals(Map.of(), service.getDailyCounts("L1", playedAt.toLocalDate(), playedAt.toLocalDate()));
+    }
+
+    @Test
+    public void testTombstoneErasesOnlyThatListener() {
+        LocalDateTime playedAt = LocalDateTime.of(2025, 3, 1, 9, 0);
+        play("L1", "S1", 1000, playedAt);
+        play("L1", "S2", 1000, playedAt);
+        play("L10", "S1", 1000, playedAt);
+
+        plays.pipeInput("L1", (String) null);
+
+        assertEquals(0, service.getStats("L1").totalPlays());
+        assertEquals(List.of(), service.getTopSongs("L1", 10));
+        assertEquals(Map.of(), service.getDailyCounts("L1", playedAt.toLocalDate(), playedAt.toLocalDate()));
+        assertEquals(1, service.getStats("L10").totalPlays());
+        assertEquals(1L, service.getTopSongs("L10", 10).get(0).plays());
+    }
+
+    @Test
+    public void testGetDailyCountsRange() {
+        play("L1", "S1", 1000, LocalDateTime.of(2025, 3, 1, 9, 0));
+        play("L1", "S2", 1000, LocalDateTime.of(2025, 3, 1, 20, 0));
+        play("L1", "S1", 1000, LocalDateTime.of(2025, 3, 3, 9, 0));
+        play("L1", "S1", 1000, LocalDateTime.of(2025, 3, 9, 9, 0));
+        play("L10", "S1", 1000, LocalDateTime.of(2025, 3, 2, 9, 0));
+
+        Map<LocalDate, Long> counts = service.getDailyCounts("L1", LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 5));
+
+        assertEquals(Map.of(LocalDate.of(2025, 3, 1), 2L, LocalDate.of(2025, 3, 3), 1L), counts);
+        assertEquals(List.of(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 3)), List.copyOf(counts.keySet()));
+    }
+
+    @Test
+    public void testGetDailyCountsInvalidRangeThrows() {
+        assertThrows(InvalidRequestException.class, () -> service.getDailyCounts("L1", null, LocalDate.now()));
+        assertThrows(InvalidRequestException.class,
+                () -> service.getDailyCounts("L1", LocalDate.of(2025, 3, 5), LocalDate.of(2025, 3, 1)));
+        assertThrows(InvalidRequestException.class,
+                () -> service.getDailyCounts("L1", LocalDate.of(2023, 1, 1), LocalDate.of(2025, 1, 1)));
+    }
+
+    @Test
+    public void testGetTopSongsOrderedAndLimited() {
+        LocalDateTime now = LocalDateTime.now();
+        play("L1", "S1", 1000, now);
+        play("L1", "S2", 1000, now);
+        play("L1", "S2", 1000, now);
+        play("L1", "S3", 1000, now);
+        play("L1", "S3", 1000, now);
+        play("L1", "S3", 1000, now);
+        play("L2", "S9", 1000, now);
+
+        List<TopItemDTO> top = service.getTopSongs("L1", 2);
+
+        assertEquals(2, top.size());
+        assertEquals("S3", top.get(0).id());
+        assertEquals(3L, top.get(0).plays());
+        assertEquals("S2", top.get(1).id());
+    }
+
+    @Test
+    public void testAnswersFromHistoryUntilStoresAreSeeded() {
+        HistoryRepository historyRepository = mock(HistoryRepository.class);
+        PlayStreamBackfill backfill = mock(PlayStreamBackfill.class);
+        PlayStatsService seeding = new PlayStatsService(mock(StreamsBuilderFactoryBean.class), historyRepository, backfill);
+        LocalDate today = LocalDate.now();
+        HistoryRepository.ListenerTotals totals = mock(HistoryRepository.ListenerTotals.class);
+        when(totals.getPlays()).thenReturn(3L);
+        when(totals.getListeningMs()).thenReturn(90000L);
+        when(totals.getFirstPlayedAt()).thenReturn(today.minusDays(1).atTime(9, 0));
+        when(totals.getLastPlayedAt()).thenReturn(today.atTime(8, 0));
+        when(historyRepository.findListenerTotals("L1")).thenReturn(totals);
+        List<HistoryRepository.DayPlays> days = List.of(dayPlays(today.minusDays(1), 2L), dayPlays(today, 1L));
+        when(historyRepository.findDailyPlays(eq("L1"), any(), any())).thenReturn(days);
+
+        PlayStatsDTO stats = seeding.getStats("L1");
+
+        assertEquals(3, stats.totalPlays());
+        assertEquals(90000, stats.totalListeningMs());
+        assertEquals(2, stats.currentStreak());
+        assertEquals(Map.of(today.minusDays(1), 2L, today, 1L), seeding.getDailyCounts("L1", today.minusDays(7), today));
+        assertThrows(InvalidRequestException.class, () -> seeding.getStats(" "));
+    }
+
+    private static HistoryRepository.DayPlays dayPlays(LocalDate day, long plays) {
+        HistoryRepository.DayPlays row = mock(HistoryRepository.DayPlays.class);
+        when(row.getDay()).thenReturn(day);
+        when(row.getPlays()).thenReturn(plays);
+        return row;
+    }
+}
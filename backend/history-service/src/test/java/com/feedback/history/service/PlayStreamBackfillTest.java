@@ -0,0 +1,86 @@
+package com.feedback.history.service;
+
+import com.feedback.history.model.JobCheckpoint;
+import com.feedback.history.repository.HistoryRepository;
+import com.feedback.history.repository.JobCheckpointRepository;
+import com.feedback.history.repository.PlayOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PlayStreamBackfillTest {
+
+    @Mock
+    private HistoryRepository historyRepository;
+
+    @Mock
+    private PlayOutboxRepository outboxRepository;
+
+    @Mock
+    private JobCheckpointRepository checkpointRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PlayStreamBackfill backfill;
+
+    @BeforeEach
+    public void setUp() {
+        backfill = new PlayStreamBackfill(historyRepository, outboxRepository, checkpointRepository,
+                transactionManager, 100, 500);
+    }
+
+    private JobCheckpoint checkpoint(long lastId) {
+        JobCheckpoint checkpoint = new JobCheckpoint(PlayStreamBackfill.JOB_NAME);
+        checkpoint.setEndId(250L);
+        checkpoint.setLastId(lastId);
+        return checkpoint;
+    }
+
+    @Test
+    public void testFirstTickQueuesNewestSlice() {
+        when(checkpointRepository.findForUpdate(PlayStreamBackfill.JOB_NAME)).thenReturn(Optional.empty());
+        when(historyRepository.findMaxHistoryId()).thenReturn(250L);
+        when(outboxRepository.enqueueHistory(150L, 250L)).thenReturn(90);
+
+        backfill.tick();
+
+        verify(checkpointRepository).save(argThat(saved -> saved.getEndId() == 250L && saved.getLastId() == 150L
+                && saved.getProcessed() == 90L));
+        assertFalse(backfill.isComplete());
+    }
+
+    @Test
+    public void testWaitsWhileOutboxIsBacklogged() {
+        when(checkpointRepository.findForUpdate(PlayStreamBackfill.JOB_NAME)).thenReturn(Optional.of(checkpoint(150L)));
+        when(outboxRepository.count()).thenReturn(500L);
+
+        backfill.tick();
+
+        verify(outboxRepository, never()).enqueueHistory(anyLong(), anyLong());
+    }
+
+    @Test
+    public void testCompletesOnceEverythingIsQueuedAndRelayed() {
+        when(checkpointRepository.findForUpdate(PlayStreamBackfill.JOB_NAME)).thenReturn(Optional.of(checkpoint(0L)));
+        when(outboxRepository.count()).thenReturn(3L, 0L);
+
+        backfill.tick();
+        assertFalse(backfill.isComplete());
+        backfill.tick();
+
+        assertTrue(backfill.isComplete());
+        verify(checkpointRepository, atLeastOnce()).save(argThat(saved -> JobCheckpoint.COMPLETED.equals(saved.getStatus())));
+        verify(outboxRepository, never()).enqueueHistory(anyLong(), anyLong());
+    }
+}
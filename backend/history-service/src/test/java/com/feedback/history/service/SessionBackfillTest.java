@@ -0,0 +1,82 @@
+package com.feedback.history.service;
+
+import com.feedback.history.model.JobCheckpoint;
+import com.feedback.history.repository.JobCheckpointRepository;
+import com.feedback.history.repository.ListeningSessionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SessionBackfillTest {
+
+    @Mock
+    private ListeningSessionRepository sessionRepository;
+
+    @Mock
+    private JobCheckpointRepository checkpointRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SessionBackfill backfill;
+
+    @BeforeEach
+    public void setUp() {
+        backfill = new SessionBackfill(sessionRepository, checkpointRepository, transactionManager, 2, 30);
+    }
+
+    @Test
+    public void testRebuildsEachBatchOfListenersFromHistory() {
+        when(checkpointRepository.findById(SessionBackfill.JOB_NAME)).thenReturn(Optional.empty());
+        when(checkpointRepository.save(any(JobCheckpoint.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(sessionRepository.lockListenersAfter("", 2)).thenReturn(List.of("L1", "L2"));
+        when(sessionRepository.lockListenersAfter("L2", 2)).thenReturn(List.of());
+
+        backfill.run();
+
+        InOrder order = inOrder(sessionRepository);
+        order.verify(sessionRepository).lockListener("L1");
+        order.verify(sessionRepository).lockListener("L2");
+        order.verify(sessionRepository).deleteListeners(List.of("L1", "L2"));
+        order.verify(sessionRepository).insertListenerSessions(List.of("L1", "L2"), 30);
+        verify(checkpointRepository, atLeastOnce()).save(argThat(checkpoint ->
+                JobCheckpoint.COMPLETED.equals(checkpoint.getStatus()) && checkpoint.getProcessed() == 2L));
+    }
+
+    @Test
+    public void testCompletedBackfillDoesNothing() {
+        JobCheckpoint checkpoint = new JobCheckpoint(SessionBackfill.JOB_NAME);
+        checkpoint.setStatus(JobCheckpoint.COMPLETED);
+        when(checkpointRepository.findById(SessionBackfill.JOB_NAME)).thenReturn(Optional.of(checkpoint));
+
+        backfill.run();
+
+        verifyNoInteractions(sessionRepository);
+    }
+
+    @Test
+    public void testFailedBatchMarksCheckpointFailed() {
+        JobCheckpoint checkpoint = new JobCheckpoint(SessionBackfill.JOB_NAME);
+        when(checkpointRepository.findById(SessionBackfill.JOB_NAME)).thenReturn(Optional.of(checkpoint));
+        when(checkpointRepository.save(any(JobCheckpoint.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(sessionRepository.lockListenersAfter("", 2)).thenReturn(List.of("L1"));
+        when(sessionRepository.insertListenerSessions(List.of("L1"), 30)).thenThrow(new RuntimeException("deadlock"));
+
+        backfill.run();
+
+        assertEquals(JobCheckpoint.FAILED, checkpoint.getStatus());
+        assertNull(checkpoint.getLastListenerId());
+    }
+}
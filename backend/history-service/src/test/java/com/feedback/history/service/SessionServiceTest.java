@@ -0,0 +1,212 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.HistoryDTO;
+import com.feedback.history.dtos.SessionPageDTO;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.events.PlayRevisedEvent;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.exception.ResourceNotFoundException;
+import com.feedback.history.model.ListeningSession;
+import com.feedback.history.repository.ListeningSessionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SessionServiceTest {
+
+    @Mock
+    private ListeningSessionRepository repository;
+
+    @Mock
+    private HistoryService historyService;
+
+    private SessionService service;
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 3, 3, 20, 0);
+    private static final long THREE_MINUTES_MS = 180_000;
+
+    @BeforeEach
+    public void setUp() {
+        service = new SessionService(repository, historyService, 30);
+    }
+
+    private ListeningSession session(long id, LocalDateTime start, LocalDateTime lastPlayed, int plays) {
+        ListeningSession session = new ListeningSession("L1", start, THREE_MINUTES_MS);
+        session.setSessionId(id);
+        session.setLastPlayedAt(lastPlayed);
+        session.setEndedAt(lastPlayed.plusMinutes(3));
+        session.setPlayCount(plays);
+        session.setTotalDurationMs(plays * THREE_MINUTES_MS);
+        return session;
+    }
+
+    @Test
+    public void testFirstPlayOpensSession() {
+        when(repository.findTouching(eq("L1"), any(), any())).thenReturn(List.of());
+        when(repository.save(any(ListeningSession.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        ListeningSession session = service.addPlay("L1", T0, THREE_MINUTES_MS);
+
+        verify(repository).lockListener("L1");
+        assertEquals(T0, session.getStartedAt());
+        assertEquals(T0.plusMinutes(3), session.getEndedAt());
+        assertEquals(1, session.getPlayCount());
+    }
+
+    @Test
+    public void testPlayWithinGapExtendsSession() {
+        ListeningSession existing = session(1L, T0, T0.plusMinutes(10), 4);
+        // silence from 20:13 to 20:40 is under the 30 minute gap
+        when(repository.findTouching("L1", T0.plusMinutes(10), T0.plusMinutes(73))).thenReturn(List.of(existing));
+        when(repository.save(any(ListeningSession.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        ListeningSession session = service.addPlay("L1", T0.plusMinutes(40), THREE_MINUTES_MS);
+
+        assertEquals(1L, session.getSessionId());
+        assertEquals(5, session.getPlayCount());
+        assertEquals(T0.plusMinutes(40), session.getLastPlayedAt());
+        assertEquals(T0.plusMinutes(43), session.getEndedAt());
+        assertEquals(5 * THREE_MINUTES_MS, session.getTotalDurationMs());
+    }
+
+    @Test
+    public void testLatePlayBeforeSessionMovesStart() {
+        ListeningSession existing = session(1L, T0, T0.plusMinutes(10), 4);
+        when(repository.findTouching(eq("L1"), any(), any())).thenReturn(List.of(existing));
+        when(repository.save(any(ListeningSession.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        ListeningSession session = service.addPlay("L1", T0.minusMinutes(20), THREE_MINUTES_MS);
+
+        assertEquals(T0.minusMinutes(20), session.getStartedAt());
+        assertEquals(T0.plusMinutes(10), session.getLastPlayedAt());
+    }
+
+    @Test
+    public void testLatePlayBridgingTwoSessionsMergesThem() {
+        ListeningSession earlier = session(1L, T0, T0.plusMinutes(10), 4);
+        ListeningSession later = session(2L, T0.plusMinutes(60), T0.plusMinutes(90), 10);
+        when(repository.findTouching(eq("L1"), any(), any())).thenReturn(new ArrayList<>(List.of(earlier, later)));
+        when(repository.save(any(ListeningSession.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        ListeningSession merged = service.addPlay("L1", T0.plusMinutes(35), THREE_MINUTES_MS);
+
+        verify(repository).delete(later);
+        assertEquals(1L, merged.getSessionId());
+        assertEquals(T0, merged.getStartedAt());
+        assertEquals(T0.plusMinutes(90), merged.getLastPlayedAt());
+        assertEquals(15, merged.getPlayCount());
+    }
+
+    @Test
+    public void testOnPlayRecordedDefaultsMissingDuration() {
+        when(repository.findTouching(eq("L1"), any(), any())).thenReturn(List.of());
+        when(repository.save(any(ListeningSession.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        service.onPlayRecorded(new PlayRecordedEvent(1L, "L1", "US", "S1", null, List.of(), List.of(), T0));
+        service.onPlayRecorded(new PlayRecordedEvent(2L, null, "US", "S1", 1000, List.of(), List.of(), T0));
+
+        verify(repository, times(1)).save(argThat(s -> s.getTotalDurationMs() == 0L && s.getEndedAt().equals(T0)));
+    }
+
+    @Test
+    public void testDeletedPlayRebuildsItsSessionFromHistory() {
+        ListeningSession existing = session(1L, T0, T0.plusMinutes(40), 6);
+        // another play started at the same time is still there, so its end reaches further
+        when(repository.findLongestPlayAt("L1", T0.plusMinutes(20))).thenReturn(THREE_MINUTES_MS);
+        when(repository.findTouching("L1", T0.minusMinutes(10), T0.plusMinutes(53))).thenReturn(List.of(existing));
+
+        service.onPlayRevised(PlayRevisedEvent.deleted(7L, "L1", "S1", T0.plusMinutes(20)));
+
+        InOrder order = inOrder(repository);
+        order.verify(repository).lockListener("L1");
+        order.verify(repository).deleteAllInBatch(List.of(existing));
+        // regrouped from the first to the last play of the session the deleted play was in
+        order.verify(repository).insertSessionsBetween("L1", T0, T0.plusMinutes(40), 30);
+    }
+
+    @Test
+    public void testMovedPlayRebuildsAroundOldAndNewTimes() {
+        LocalDateTime moved = T0.plusHours(5);
+        when(repository.findTouching("L1", moved.minusMinutes(30), moved.plusMinutes(30))).thenReturn(List.of());
+        when(repository.findTouching("L1", T0.minusMinutes(30), T0.plusMinutes(30))).thenReturn(List.of());
+        when(repository.findTouching("L2", moved.minusMinutes(30), moved.plusMinutes(30))).thenReturn(List.of());
+
+        service.onPlayRevised(new PlayRevisedEvent(7L, "L1", "S1", T0, "L1", "S1", moved));
+        service.onPlayRevised(new PlayRevisedEvent(8L, "L2", "S1", moved, "L1", "S1", T0));
+
+        verify(repository, times(2)).insertSessionsBetween("L1", T0, T0, 30);
+        verify(repository).insertSessionsBetween("L1", moved, moved, 30);
+        verify(repository).insertSessionsBetween("L2", moved, moved, 30);
+        // listeners are locked in ID order whichever way the play moved
+        InOrder order = inOrder(repository);
+        order.verify(repository).lockListener("L1");
+        order.verify(repository).lockListener("L2");
+    }
+
+    @Test
+    public void testGetSessionsPaginatesWithCursor() {
+        List<ListeningSession> rows = List.of(
+                session(3L, T0.plusDays(2), T0.plusDays(2), 1),
+                session(2L, T0.plusDays(1), T0.plusDays(1), 1),
+                session(1L, T0, T0, 1));
+        when(repository.findByListenerIdOrderByStartedAtDesc("L1", Limit.of(3))).thenReturn(rows);
+
+        SessionPageDTO page = service.getSessions("L1", null, 2);
+
+        assertEquals(2, page.sessions().size());
+        assertEquals(3L, page.sessions().get(0).sessionId());
+        assertEquals(T0.plusDays(1), page.nextBefore());
+
+        when(repository.findByListenerIdAndStartedAtBeforeOrderByStartedAtDesc("L1", T0.plusDays(1), Limit.of(3)))
+                .thenReturn(List.of(rows.get(2)));
+        SessionPageDTO last = service.getSessions("L1", T0.plusDays(1), 2);
+
+        assertEquals(1, last.sessions().size());
+        assertNull(last.nextBefore());
+    }
+
+    @Test
+    public void testGetSessionsDefaultsAndValidation() {
+        when(repository.findByListenerIdOrderByStartedAtDesc("L1", Limit.of(SessionService.DEFAULT_LIMIT + 1)))
+                .thenReturn(List.of());
+
+        assertTrue(service.getSessions("L1", null, null).sessions().isEmpty());
+        assertThrows(InvalidRequestException.class, () -> service.getSessions(" ", null, 5));
+    }
+
+    @Test
+    public void testGetSessionPlaysOrdered() {
+        ListeningSession existing = session(1L, T0, T0.plusMinutes(10), 2);
+        when(repository.findById(1L)).thenReturn(Optional.of(existing));
+        when(historyService.findByListenerIdAndDateRange("L1", T0, T0.plusMinutes(10))).thenReturn(List.of(
+                new HistoryDTO(2L, T0.plusMinutes(10), "L1", "S2"),
+                new HistoryDTO(1L, T0, "L1", "S1")));
+
+        List<HistoryDTO> plays = service.getSessionPlays(1L);
+
+        assertEquals(List.of(1L, 2L), plays.stream().map(HistoryDTO::historyId).toList());
+        assertEquals(2, service.getSession(1L).playCount());
+    }
+
+    @Test
+    public void testGetSessionNotFound() {
+        when(repository.findById(9L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> service.getSession(9L));
+        assertThrows(InvalidRequestException.class, () -> service.getSession(null));
+    }
+}
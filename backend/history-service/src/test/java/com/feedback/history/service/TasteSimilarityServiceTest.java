@@ -0,0 +1,153 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.SimilarityDTO;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.exception.StatsUnavailableException;
+import com.feedback.history.repository.HistoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TasteSimilarityServiceTest {
+
+    @Mock
+    private HistoryRepository repository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TasteSimilarityService service;
+
+    @BeforeEach
+    public void setUp() {
+        service = new TasteSimilarityService(repository, transactionManager);
+    }
+
+    private HistoryRepository.ListenerItem item(String listenerId, String item) {
+        return new HistoryRepository.ListenerItem() {
+            public String getListenerId() { return listenerId; }
+            public String getItem() { return item; }
+        };
+    }
+
+    // songs from..to-1 for the listener
+    private List<HistoryRepository.ListenerItem> songs(String listenerId, int from, int to) {
+        List<HistoryRepository.ListenerItem> items = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            items.add(item(listenerId, "s:S" + i));
+        }
+        return items;
+    }
+
+    private void rebuildWith(long maxId, List<HistoryRepository.ListenerItem> items) {
+        when(repository.findMaxHistoryId()).thenReturn(maxId);
+        when(repository.findHistoryIdsBetween(0, maxId)).thenReturn(LongStream.rangeClosed(1, maxId).boxed().toList());
+        when(repository.streamListenerItems(maxId)).thenReturn(items.stream());
+        service.rebuild();
+    }
+
+    private PlayRecordedEvent play(long historyId, String listenerId, String songId, List<String> artistIds) {
+        return new PlayRecordedEvent(historyId, listenerId, "US", songId, 1000, artistIds, List.of(), LocalDateTime.now());
+    }
+
+    @Test
+    public void testSimilarityEstimatesJaccard() {
+        // L1 and L2 share 300 of 500 distinct songs (Jaccard 0.6); L3 shares nothing
+        List<HistoryRepository.ListenerItem> items = new ArrayList<>();
+        items.addAll(songs("L1", 0, 400));
+        items.addAll(songs("L2", 100, 500));
+        items.addAll(songs("L3", 1000, 1400));
+        rebuildWith(10, items);
+
+        assertEquals(0.6, service.compare("L1", "L2").similarity(), 0.15);
+        assertEquals(0, service.compare("L1", "L3").similarity(), 0.05);
+        assertEquals(1.0, service.compare("L1", "L1").similarity());
+        assertEquals(0, service.compare("L1", "nobody").similarity());
+    }
+
+    @Test
+    public void testSimilarListenersComeFromIndex() {
+        List<HistoryRepository.ListenerItem> items = new ArrayList<>();
+        items.addAll(songs("L1", 0, 200));
+        items.addAll(songs("L2", 0, 190));
+        items.addAll(songs("L3", 20, 220));
+        items.addAll(songs("L4", 5000, 5200));
+        rebuildWith(10, items);
+
+        List<SimilarityDTO> similar = service.findSimilarListeners("L1", 5);
+
+        assertEquals(List.of("L2", "L3"), similar.stream().map(SimilarityDTO::otherListenerId).toList());
+        assertTrue(similar.get(0).similarity() >= similar.get(1).similarity());
+        assertEquals(List.of(), service.findSimilarListeners("nobody", 5));
+    }
+
+    @Test
+    public void testPlaysUpdateSignaturesAndIndex() {
+        rebuildWith(0, songs("L1", 0, 50));
+        for (int i = 0; i < 50; i++) {
+            service.onPlayRecorded(play(i + 1, "L2", "S" + i, List.of("A" + (i % 3))));
+        }
+
+        // L2 also has three artists L1 doesn't, so 50 / 53 overlap
+        assertEquals(50.0 / 53, service.compare("L1", "L2").similarity(), 0.15);
+        assertEquals("L2", service.findSimilarListeners("L1", null).get(0).otherListenerId());
+    }
+
+    @Test
+    public void testPlaysDuringRebuildAreAppliedOnce() {
+        List<HistoryRepository.ListenerItem> items = new ArrayList<>(songs("L1", 0, 2));
+        items.add(item("L2", "s:S99"));
+        when(repository.findMaxHistoryId()).thenReturn(5L);
+        when(repository.findHistoryIdsBetween(0, 5)).thenReturn(List.of(1L, 2L, 3L, 4L, 5L));
+        when(repository.streamListenerItems(5)).thenAnswer(invocation -> {
+            service.onPlayRecorded(play(5, "L2", "S0", List.of()));
+            service.onPlayRecorded(play(6, "L2", "S1", List.of()));
+            return items.stream();
+        });
+        service.rebuild();
+
+        // play 5 is covered by the snapshot (which says S99), so only play 6 is applied: {S99, S1} vs {S0, S1}
+        assertEquals(1.0 / 3, service.compare("L1", "L2").similarity(), 0.15);
+    }
+
+    @Test
+    public void testNotReadyAndInvalidInput() {
+        assertThrows(StatsUnavailableException.class, () -> service.compare("L1", "L2"));
+        assertThrows(StatsUnavailableException.class, () -> service.findSimilarListeners("L1", 10));
+        assertThrows(InvalidRequestException.class, () -> service.compare("L1", " "));
+        assertThrows(InvalidRequestException.class, () -> service.findSimilarListeners(null, 10));
+    }
+
+    @Test
+    public void testFailedRebuildStaysUnavailableUntilRetried() {
+        when(repository.findMaxHistoryId()).thenReturn(1L);
+        Stream<HistoryRepository.ListenerItem> failing = Stream.of(item("L2", "s:S1")).map(i -> {
+            throw new RuntimeException("cursor closed");
+        });
+        when(repository.streamListenerItems(1L)).thenReturn(Stream.concat(Stream.of(item("L1", "s:S1")), failing));
+
+        service.rebuild();
+
+        assertThrows(StatsUnavailableException.class, () -> service.compare("L1", "L2"));
+
+        // the retry starts from an empty index rather than the failed attempt's partial signatures
+        when(repository.streamListenerItems(1L)).thenReturn(Stream.of(item("L2", "s:S1")));
+        service.rebuild();
+
+        assertEquals(0, service.compare("L1", "L2").similarity());
+    }
+}
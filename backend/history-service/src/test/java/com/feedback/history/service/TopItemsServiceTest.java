@@ -0,0 +1,131 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.TopItemDTO;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.events.PlayRevisedEvent;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.model.PlayCount;
+import com.feedback.history.model.PlayCountId;
+import com.feedback.history.repository.PlayCountRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TopItemsServiceTest {
+
+    @Mock
+    private PlayCountRepository repository;
+
+    @InjectMocks
+    private TopItemsService service;
+
+    private PlayRecordedEvent makeEvent() {
+        return new PlayRecordedEvent(1L, "L1", "US", "S1", 200000,
+                List.of("AR1", "AR2", "AR1"), List.of("ALB1"), LocalDateTime.of(2025, 3, 3, 10, 0));
+    }
+
+    private PlayCountRepository.TopItemCount row(String id, String name, long plays) {
+        return new PlayCountRepository.TopItemCount() {
+            public String getItemId() { return id; }
+            public String getName() { return name; }
+            public String getArtistName() { return null; }
+            public Long getPlays() { return plays; }
+        };
+    }
+
+    @Test
+    public void testCounterKeysDeduplicatesArtists() {
+        List<PlayCountId> keys = TopItemsService.counterKeys(makeEvent());
+
+        assertEquals(4, keys.size());
+        assertEquals(new PlayCountId("L1", PlayCount.SONG, "S1", LocalDate.of(2025, 3, 3)), keys.get(0));
+        assertEquals(2, keys.stream().filter(k -> k.getItemType().equals(PlayCount.ARTIST)).count());
+    }
+
+    @Test
+    public void testCounterKeysIncompleteEventIsIgnored() {
+        assertTrue(TopItemsService.counterKeys(null).isEmpty());
+        assertTrue(TopItemsService.counterKeys(new PlayRecordedEvent(1L, "L1", null, null, null, null, null,
+                LocalDateTime.now())).isEmpty());
+    }
+
+    @Test
+    public void testOnPlayRecordedIncrementsEachCounter() {
+        service.onPlayRecorded(makeEvent());
+
+        LocalDate day = LocalDate.of(2025, 3, 3);
+        verify(repository).increment("L1", PlayCount.SONG, "S1", day);
+        verify(repository).increment("L1", PlayCount.ARTIST, "AR1", day);
+        verify(repository).increment("L1", PlayCount.ARTIST, "AR2", day);
+        verify(repository).increment("L1", PlayCount.ALBUM, "ALB1", day);
+    }
+
+    @Test
+    public void testOnPlayRevisedMovesCountsToNewSong() {
+        LocalDateTime playedAt = LocalDateTime.of(2025, 3, 3, 10, 0);
+        service.onPlayRevised(new PlayRevisedEvent(1L, "L1", "S1", playedAt, "L1", "S2", playedAt.plusDays(1)));
+
+        verify(repository).decrementPlay("L1", "S1", LocalDate.of(2025, 3, 3));
+        verify(repository).deleteEmpty("L1", LocalDate.of(2025, 3, 3));
+        verify(repository).incrementPlay("L1", "S2", LocalDate.of(2025, 3, 4));
+    }
+
+    @Test
+    public void testOnPlayRevisedDeleteOnlyDecrements() {
+        LocalDateTime playedAt = LocalDateTime.of(2025, 3, 3, 10, 0);
+        service.onPlayRevised(PlayRevisedEvent.deleted(1L, "L1", "S1", playedAt));
+
+        verify(repository).decrementPlay("L1", "S1", LocalDate.of(2025, 3, 3));
+        verify(repository, never()).incrementPlay(anyString(), anyString(), any());
+    }
+
+    @Test
+    public void testGetTopSongsShortTerm() {
+        LocalDate today = LocalDate.now();
+        when(repository.findTopSongs("L1", today.minusDays(27), today, 5)).thenReturn(List.of(row("S1", "Song One", 7)));
+
+        List<TopItemDTO> result = service.getTopItems("L1", "songs", "short_term", null, null, 5);
+
+        assertEquals(1, result.size());
+        assertEquals("Song One", result.get(0).name());
+        assertEquals(7L, result.get(0).plays());
+    }
+
+    @Test
+    public void testGetTopArtistsDateRangeAndLimitCap() {
+        LocalDate from = LocalDate.of(2025, 3, 3);
+        LocalDate to = LocalDate.of(2025, 6, 17);
+        when(repository.findTopArtists("L1", from, to, TopItemsService.MAX_LIMIT)).thenReturn(List.of());
+
+        assertTrue(service.getTopItems("L1", "artists", null, from, to, 500).isEmpty());
+    }
+
+    @Test
+    public void testGetTopAlbumsDefaults() {
+        when(repository.findTopAlbums(eq("L1"), any(), any(), eq(TopItemsService.DEFAULT_LIMIT))).thenReturn(List.of());
+
+        service.getTopItems("L1", "albums", null, null, null, null);
+
+        verify(repository).findTopAlbums(eq("L1"), eq(LocalDate.now().minusDays(181)), eq(LocalDate.now()), eq(10));
+    }
+
+    @Test
+    public void testGetTopItemsInvalidInputThrows() {
+        assertThrows(InvalidRequestException.class, () -> service.getTopItems("", "songs", null, null, null, 5));
+        assertThrows(InvalidRequestException.class, () -> service.getTopItems("L1", "genres", null, null, null, 5));
+        assertThrows(InvalidRequestException.class, () -> service.getTopItems("L1", "songs", "forever", null, null, 5));
+        assertThrows(InvalidRequestException.class, () -> service.getTopItems("L1", "songs", null,
+                LocalDate.of(2025, 6, 1), LocalDate.of(2025, 1, 1), 5));
+    }
+}
@@ -0,0 +1,167 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.NextSongDTO;
+import com.feedback.history.dtos.PlayColumnRow;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.exception.StatsUnavailableException;
+import com.feedback.history.repository.HistoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TransitionServiceTest {
+
+    @Mock
+    private HistoryRepository repository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path dir;
+
+    private TransitionService service;
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 3, 3, 20, 0);
+
+    @BeforeEach
+    public void setUp() {
+        service = newService();
+    }
+
+    private TransitionService newService() {
+        return new TransitionService(repository, transactionManager, 15, dir.resolve("transitions.bin").toString());
+    }
+
+    private PlayColumnRow row(String listenerId, String songId, int minute) {
+        return new PlayColumnRow(listenerId, songId, T0.plusMinutes(minute));
+    }
+
+    private void rebuild(TransitionService target, long afterId, long maxId, PlayColumnRow... rows) {
+        when(repository.findMaxHistoryId()).thenReturn(maxId);
+        when(repository.findHistoryIdsBetween(0, maxId)).thenReturn(LongStream.rangeClosed(1, maxId).boxed().toList());
+        when(repository.streamPlayColumnRowsBetween(afterId, maxId)).thenReturn(Stream.of(rows));
+        target.rebuild();
+    }
+
+    private PlayRecordedEvent play(long historyId, String listenerId, String songId, int minute) {
+        return new PlayRecordedEvent(historyId, listenerId, "US", songId, 180_000, List.of(), List.of(), T0.plusMinutes(minute));
+    }
+
+    private List<String> next(TransitionService target, String songId, String listenerId) {
+        return target.getNextSongs(songId, listenerId, null).stream().map(NextSongDTO::songId).toList();
+    }
+
+    @Test
+    public void testConsecutivePlaysWithinWindowAreTransitions() {
+        rebuild(service, 0, 10,
+                // L1: A B C, then a 40 minute gap before D
+                row("L1", "A", 0), row("L1", "B", 4), row("L1", "C", 8), row("L1", "D", 48),
+                // L2: A C, A C
+                row("L2", "A", 0), row("L2", "C", 3), row("L2", "A", 6), row("L2", "C", 9),
+                // repeats of the same song are not transitions
+                row("L3", "A", 0), row("L3", "A", 3));
+
+        List<NextSongDTO> fromA = service.getNextSongs("A", null, 10);
+        assertEquals(List.of("C", "B"), fromA.stream().map(NextSongDTO::songId).toList());
+        assertEquals(2, fromA.get(0).globalCount());
+        assertEquals(2.0 / 3, fromA.get(0).score(), 1e-9);
+        assertEquals(List.of("C"), next(service, "B", null));
+        assertEquals(List.of("A"), next(service, "C", null));
+        assertEquals(List.of(), next(service, "D", null));
+        assertEquals(List.of(), next(service, "unknown", null));
+    }
+
+    @Test
+    public void testListenerHabitsReorderSuggestions() {
+        rebuild(service, 0, 10,
+                row("L1", "A", 0), row("L1", "B", 3),
+                row("L2", "A", 0), row("L2", "C", 3), row("L2", "A", 6), row("L2", "C", 9));
+
+        // globally C follows A twice as often, but L1 always plays B
+        assertEquals(List.of("C", "B"), next(service, "A", null));
+        assertEquals(List.of("B", "C"), next(service, "A", "L1"));
+        NextSongDTO top = service.getNextSongs("A", "L1", 1).get(0);
+        assertEquals(1, top.listenerCount());
+    }
+
+    @Test
+    public void testLivePlaysExtendTheModel() {
+        rebuild(service, 0, 1, row("L1", "A", 0));
+
+        service.onPlayRecorded(play(2, "L1", "B", 2));
+        // older than the last play: ignored rather than rewriting the sequence
+        service.onPlayRecorded(play(3, "L1", "C", 1));
+        service.onPlayRecorded(play(4, "L1", "D", 30));
+
+        assertEquals(List.of("B"), next(service, "A", null));
+        assertEquals(List.of(), next(service, "B", null));
+    }
+
+    @Test
+    public void testPlaysDuringRebuildAreAppliedOnce() {
+        when(repository.findMaxHistoryId()).thenReturn(2L);
+        when(repository.findHistoryIdsBetween(0, 2)).thenReturn(List.of(1L, 2L));
+        when(repository.streamPlayColumnRowsBetween(0, 2)).thenAnswer(invocation -> {
+            service.onPlayRecorded(play(2, "L1", "B", 3));
+            service.onPlayRecorded(play(3, "L1", "C", 6));
+            return Stream.of(row("L1", "A", 0), row("L1", "B", 3));
+        });
+        service.rebuild();
+
+        assertEquals(List.of("B"), next(service, "A", null));
+        assertEquals(List.of("C"), next(service, "B", null));
+        assertEquals(1, service.getNextSongs("A", null, null).get(0).globalCount());
+    }
+
+    @Test
+    public void testSnapshotIsLoadedAndOnlyNewerPlaysReplayed() {
+        rebuild(service, 0, 2, row("L1", "A", 0), row("L1", "B", 3));
+        service.onPlayRecorded(play(3, "L2", "A", 0));
+        service.onPlayRecorded(play(4, "L2", "B", 2));
+        service.snapshot();
+        assertTrue(Files.exists(dir.resolve("transitions.bin")));
+
+        // a new instance picks up from history ID 4: L1's last play (B) carries over to C
+        TransitionService restarted = newService();
+        rebuild(restarted, 4, 5, row("L1", "C", 5));
+
+        assertEquals(2, restarted.getNextSongs("A", null, null).get(0).globalCount());
+        assertEquals(List.of("C"), next(restarted, "B", null));
+        assertEquals(List.of("B"), next(restarted, "A", "L2"));
+    }
+
+    @Test
+    public void testUnreadableSnapshotRebuildsFromScratch() throws Exception {
+        Files.write(dir.resolve("transitions.bin"), new byte[] {1, 2, 3});
+
+        rebuild(service, 0, 2, row("L1", "A", 0), row("L1", "B", 3));
+
+        assertEquals(List.of("B"), next(service, "A", null));
+    }
+
+    @Test
+    public void testNotReadyAndInvalidInput() {
+        assertThrows(StatsUnavailableException.class, () -> service.getNextSongs("A", null, null));
+        assertThrows(InvalidRequestException.class, () -> service.getNextSongs(" ", null, null));
+        // nothing to write before the model is loaded
+        service.snapshot();
+        assertFalse(Files.exists(dir.resolve("transitions.bin")));
+    }
+}
@@ -0,0 +1,185 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.TrendingDTO;
+import com.feedback.history.dtos.TrendingEntryDTO;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.exception.StatsUnavailableException;
+import com.feedback.history.repository.HistoryRepository;
+import com.feedback.history.sketch.DecayedTopK;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TrendingServiceTest {
+
+    @Mock
+    private HistoryRepository historyRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TrendingService service;
+
+    private static final LocalDateTime NOW = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+    private static final long HALF_LIFE_HOURS = 6;
+
+    @BeforeEach
+    public void setUp() {
+        service = new TrendingService(historyRepository, transactionManager, HALF_LIFE_HOURS);
+    }
+
+    private HistoryRepository.ChartPlays plays(String country, String type, String itemId, LocalDateTime hour, long count) {
+        return new HistoryRepository.ChartPlays() {
+            public String getCountry() { return country; }
+            public String getItemType() { return type; }
+            public String getItemId() { return itemId; }
+            public LocalDateTime getHour() { return hour; }
+            public Long getPlays() { return count; }
+        };
+    }
+
+    private PlayRecordedEvent play(long historyId, String country, String songId) {
+        return new PlayRecordedEvent(historyId, "L" + historyId, country, songId, 1000, List.of("A1"), List.of(), NOW);
+    }
+
+    private void rebuild(long maxId, HistoryRepository.ChartPlays... rows) {
+        when(historyRepository.findMaxHistoryId()).thenReturn(maxId);
+        when(historyRepository.findHistoryIdsBetween(0, maxId)).thenReturn(LongStream.rangeClosed(1, maxId).boxed().toList());
+        when(historyRepository.streamChartPlays(any(), eq(maxId))).thenReturn(Stream.of(rows));
+        service.rebuild();
+    }
+
+    private List<String> ids(TrendingDTO trending) {
+        return trending.entries().stream().map(TrendingEntryDTO::id).toList();
+    }
+
+    @Test
+    public void testRecentPlaysOutrankOlderOnes() {
+        rebuild(10,
+                // four half-lives ago: 16 plays are worth 1 now
+                plays("US", "S", "S1", NOW.minusHours(4 * HALF_LIFE_HOURS), 16),
+                plays("US", "S", "S2", NOW, 3),
+                plays("GB", "S", "S3", NOW, 2),
+                // artists are charted, not trended
+                plays("US", "A", "A1", NOW, 50));
+
+        TrendingDTO global = service.getTrending(null, null);
+        assertNull(global.country());
+        assertEquals(List.of("S2", "S3", "S1"), ids(global));
+        // scores are decayed to the current time, up to an hour past NOW
+        assertEquals(1.0, global.entries().get(2).score(), 0.15);
+        assertEquals(List.of("S2", "S1"), ids(service.getTrending("us", 10)));
+        assertEquals(List.of("S3"), ids(service.getTrending(" GB ", 10)));
+        assertTrue(service.getTrending("FR", 10).entries().isEmpty());
+    }
+
+    @Test
+    public void testLivePlaysCountTowardsCountryAndGlobal() {
+        rebuild(1, plays("US", "S", "S1", NOW, 2));
+        service.onPlayRecorded(play(2, "gb", "S2"));
+        service.onPlayRecorded(play(3, "GB", "S2"));
+        service.onPlayRecorded(play(4, null, "S2"));
+        // already in the rebuild
+        service.onPlayRecorded(play(1, "US", "S1"));
+
+        TrendingDTO global = service.getTrending(null, null);
+        assertEquals(List.of("S2", "S1"), ids(global));
+        assertEquals(List.of("S2"), ids(service.getTrending("GB", null)));
+        assertEquals(List.of("S1"), ids(service.getTrending("US", null)));
+    }
+
+    @Test
+    public void testPlaysDuringRebuildAreQueued() {
+        assertThrows(StatsUnavailableException.class, () -> service.getTrending(null, null));
+
+        when(historyRepository.findMaxHistoryId()).thenReturn(4L);
+        when(historyRepository.findHistoryIdsBetween(0, 4)).thenReturn(List.of(1L, 2L, 3L, 4L));
+        when(historyRepository.streamChartPlays(any(), eq(4L))).thenAnswer(invocation -> {
+            // 4 is in the scan, 5 committed after it
+            service.onPlayRecorded(play(4, "US", "S1"));
+            service.onPlayRecorded(play(5, "US", "S7"));
+            return Stream.of(plays("US", "S", "S1", NOW, 3));
+        });
+        service.rebuild();
+
+        TrendingDTO us = service.getTrending("US", null);
+        assertEquals(List.of("S1", "S7"), ids(us));
+        assertEquals(3.0, us.entries().get(0).score(), 0.5);
+    }
+
+    @Test
+    public void testListIsBoundedAndLimitCapped() {
+        List<HistoryRepository.ChartPlays> rows = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            rows.add(plays("US", "S", "S" + i, NOW, i + 1));
+        }
+        rebuild(1, rows.toArray(HistoryRepository.ChartPlays[]::new));
+
+        List<String> top = ids(service.getTrending(null, 500));
+        assertEquals(TrendingService.MAX_LIMIT, top.size());
+        assertEquals("S149", top.get(0));
+        assertEquals("S50", top.get(99));
+        assertEquals(TrendingService.DEFAULT_LIMIT, service.getTrending(null, null).entries().size());
+    }
+
+    @Test
+    public void testConcurrentOffersAreNotLost() throws Exception {
+        DecayedTopK scores = new DecayedTopK(3600, 10);
+        long second = 1_700_000_000L;
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 5_000; i++) {
+                        scores.offer("hot", second, 1);
+                        scores.offer("song" + (thread * 5_000 + i) % 1_000, second, 1);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        List<DecayedTopK.Item> top = scores.top(second, 10);
+        assertEquals("hot", top.get(0).item());
+        assertEquals(40_000, top.get(0).score(), 1e-3);
+        assertEquals(40, top.get(1).score(), 1e-6);
+        assertEquals(10, top.size());
+    }
+
+    @Test
+    public void testPruneDropsDecayedScoresOutsideTheHeap() {
+        DecayedTopK scores = new DecayedTopK(3600, 1);
+        scores.offer("old", 0, 1);
+        scores.offer("new", 20 * 3600, 1);
+
+        assertEquals(1, scores.prune(20 * 3600, 0.01));
+        assertEquals(1, scores.size());
+        assertEquals("new", scores.top(20 * 3600, 5).get(0).item());
+        // half-life later the same play is worth half
+        assertEquals(0.5, scores.top(21 * 3600, 5).get(0).score(), 1e-9);
+    }
+}
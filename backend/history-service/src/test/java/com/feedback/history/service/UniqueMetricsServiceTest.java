@@ -0,0 +1,144 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.UniquesDTO;
+import com.feedback.history.events.PlayRecordedEvent;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.model.DailySketch;
+import com.feedback.history.repository.DailySketchRepository;
+import com.feedback.history.sketch.HyperLogLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UniqueMetricsServiceTest {
+
+    @Mock
+    private DailySketchRepository repository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private UniqueMetricsService service;
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 3);
+
+    @BeforeEach
+    public void setUp() {
+        service = new UniqueMetricsService(repository, transactionManager);
+    }
+
+    private void play(String listenerId, String songId, LocalDate day) {
+        service.onPlayRecorded(new PlayRecordedEvent(1L, listenerId, "US", songId, 1000, List.of(), List.of(),
+                day.atTime(12, 0)));
+    }
+
+    private DailySketch stored(String metric, LocalDate day, String... values) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (String value : values) {
+            sketch.offer(value);
+        }
+        DailySketch row = new DailySketch(metric, day);
+        row.setRegisters(sketch.toBytes());
+        return row;
+    }
+
+    @Test
+    public void testUnflushedPlaysAreCounted() {
+        play("L1", "S1", DAY);
+        play("L1", "S2", DAY);
+        play("L2", "S1", DAY);
+
+        UniquesDTO uniques = service.getUniques(DAY, DAY);
+
+        assertEquals(2, uniques.uniqueListeners());
+        assertEquals(2, uniques.uniqueSongs());
+        assertEquals(0.008, uniques.standardError(), 0.001);
+    }
+
+    @Test
+    public void testUnionAcrossDaysDoesNotDoubleCount() {
+        when(repository.findByMetricAndDayBetween(DailySketch.LISTENERS, DAY, DAY.plusDays(1)))
+                .thenReturn(List.of(stored(DailySketch.LISTENERS, DAY, "L1", "L2")));
+        play("L1", "S1", DAY.plusDays(1));
+        play("L3", "S1", DAY.plusDays(1));
+        play("L9", "S1", DAY.plusDays(5));
+
+        UniquesDTO uniques = service.getUniques(DAY, DAY.plusDays(1));
+
+        assertEquals(3, uniques.uniqueListeners());
+        assertEquals(1, uniques.uniqueSongs());
+    }
+
+    @Test
+    public void testFlushMergesIntoStoredSketch() {
+        when(repository.findForUpdate(DailySketch.LISTENERS, DAY))
+                .thenReturn(Optional.of(stored(DailySketch.LISTENERS, DAY, "L1", "L2")));
+        when(repository.findForUpdate(DailySketch.SONGS, DAY)).thenReturn(Optional.empty());
+        play("L2", "S1", DAY);
+        play("L3", "S1", DAY);
+
+        service.flush();
+
+        ArgumentCaptor<DailySketch> saved = ArgumentCaptor.forClass(DailySketch.class);
+        verify(repository, times(2)).save(saved.capture());
+        DailySketch listeners = saved.getAllValues().stream()
+                .filter(s -> s.getMetric().equals(DailySketch.LISTENERS)).findFirst().orElseThrow();
+        assertEquals(3, HyperLogLog.fromBytes(listeners.getRegisters()).estimate());
+
+        // flushed plays are no longer held in memory
+        when(repository.findByMetricAndDayBetween(any(), any(), any())).thenReturn(List.of());
+        assertEquals(0, service.getUniques(DAY, DAY).uniqueListeners());
+    }
+
+    @Test
+    public void testFailedFlushKeepsPlaysForNextFlush() {
+        when(repository.findForUpdate(any(), any())).thenThrow(new RuntimeException("db down"));
+        play("L1", "S1", DAY);
+
+        service.flush();
+
+        assertEquals(1, service.getUniques(DAY, DAY).uniqueListeners());
+    }
+
+    @Test
+    public void testInvalidRangeThrows() {
+        assertThrows(InvalidRequestException.class, () -> service.getUniques(DAY, DAY.minusDays(1)));
+    }
+
+    @Test
+    public void testSketchAccuracyAndCompactEncodings() {
+        HyperLogLog sketch = new HyperLogLog();
+        int distinct = 200_000;
+        for (int i = 0; i < distinct; i++) {
+            sketch.offer("listener-" + i);
+            sketch.offer("listener-" + (i / 2));
+        }
+        assertEquals(distinct, sketch.estimate(), distinct * 0.03);
+
+        // dense: 6-bit registers, 12 KB at precision 14
+        byte[] dense = sketch.toBytes();
+        assertEquals(2 + 16384 * 6 / 8, dense.length);
+        assertEquals(sketch.estimate(), HyperLogLog.fromBytes(dense).estimate());
+
+        // sparse: a handful of listeners costs a few bytes each
+        HyperLogLog small = new HyperLogLog();
+        small.offer("L1");
+        small.offer("L2");
+        assertTrue(small.toBytes().length < 16);
+        assertEquals(2, HyperLogLog.fromBytes(small.toBytes()).estimate());
+    }
+}
@@ -0,0 +1,203 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.JobStatusDTO;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.exception.ResourceNotFoundException;
+import com.feedback.history.model.JobCheckpoint;
+import com.feedback.history.model.JobFailure;
+import com.feedback.history.model.JobFailureId;
+import com.feedback.history.repository.JobCheckpointRepository;
+import com.feedback.history.repository.JobFailureRepository;
+import com.feedback.history.repository.PlayCountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class YearInReviewJobTest {
+
+    @Mock
+    private PlayCountRepository playCountRepository;
+
+    @Mock
+    private JobCheckpointRepository checkpointRepository;
+
+    @Mock
+    private JobFailureRepository failureRepository;
+
+    @Mock
+    private YearInReviewService yearInReviewService;
+
+    private YearInReviewJob job;
+
+    private static final LocalDate JAN_1 = LocalDate.of(2024, 1, 1);
+    private static final LocalDate DEC_31 = LocalDate.of(2024, 12, 31);
+
+    @BeforeEach
+    public void setUp() {
+        job = new YearInReviewJob(playCountRepository, checkpointRepository, failureRepository, yearInReviewService, 2, 2);
+        lenient().when(checkpointRepository.save(any(JobCheckpoint.class))).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    @Test
+    public void testRunProcessesBatchesAndCheckpoints() {
+        when(checkpointRepository.findById("year-in-review-2024")).thenReturn(Optional.empty());
+        when(playCountRepository.findListenersWithPlays(JAN_1, DEC_31, "", 2)).thenReturn(List.of("L1", "L2"));
+        when(playCountRepository.findListenersWithPlays(JAN_1, DEC_31, "L2", 2)).thenReturn(List.of("L3"));
+        when(playCountRepository.findListenersWithPlays(JAN_1, DEC_31, "L3", 2)).thenReturn(List.of());
+        // nothing left from an earlier run; L2 is recorded by this one
+        when(failureRepository.findListenerIds("year-in-review-2024")).thenReturn(List.of(), List.of("L2"));
+        when(yearInReviewService.compute(anyString(), eq(2024))).thenAnswer(inv -> {
+            if ("L2".equals(inv.getArgument(0))) {
+                throw new RuntimeException("boom");
+            }
+            return null;
+        });
+
+        job.run(2024);
+
+        verify(yearInReviewService).compute("L1", 2024);
+        verify(yearInReviewService).compute("L3", 2024);
+        // once in the walk and once more in the retry, then kept for a later retry
+        verify(yearInReviewService, times(2)).compute("L2", 2024);
+        verify(failureRepository, times(2)).saveAll(argThat((List<JobFailure> failures) ->
+                failures.size() == 1 && "L2".equals(failures.get(0).getListenerId())));
+        verify(checkpointRepository, atLeast(3)).save(argThat(cp -> cp.getJobName().equals("year-in-review-2024")));
+        verify(checkpointRepository, atLeastOnce()).save(argThat(cp ->
+                JobCheckpoint.COMPLETED.equals(cp.getStatus()) && cp.getProcessed() == 2 && cp.getFailed() == 1
+                        && "L3".equals(cp.getLastListenerId())));
+    }
+
+    @Test
+    public void testRetryClearsListenersThatNowSucceed() {
+        JobCheckpoint checkpoint = new JobCheckpoint("year-in-review-2024");
+        checkpoint.setStatus(JobCheckpoint.COMPLETED);
+        checkpoint.setStartedAt(LocalDateTime.now().minusDays(1));
+        checkpoint.setLastListenerId("L9");
+        checkpoint.setProcessed(7L);
+        checkpoint.setFailed(2L);
+        when(checkpointRepository.findById("year-in-review-2024")).thenReturn(Optional.of(checkpoint));
+        when(failureRepository.findListenerIds("year-in-review-2024")).thenReturn(List.of("L2", "L4"));
+        when(yearInReviewService.compute(anyString(), eq(2024))).thenAnswer(inv -> {
+            if ("L4".equals(inv.getArgument(0))) {
+                throw new RuntimeException("still broken");
+            }
+            return null;
+        });
+
+        job.retryFailed(2024);
+
+        verify(checkpointRepository, timeout(1000).atLeast(2)).save(checkpoint);
+        verify(failureRepository, timeout(1000)).deleteAllByIdInBatch(List.of(new JobFailureId("year-in-review-2024", "L2")));
+        verify(playCountRepository, never()).findListenersWithPlays(any(), any(), any(), anyInt());
+        assertEquals(JobCheckpoint.COMPLETED, checkpoint.getStatus());
+        assertEquals(8L, checkpoint.getProcessed());
+        assertEquals(1L, checkpoint.getFailed());
+    }
+
+    @Test
+    public void testRetryOfUnfinishedRunIsRejected() {
+        JobCheckpoint checkpoint = new JobCheckpoint("year-in-review-2024");
+        checkpoint.setStatus(JobCheckpoint.FAILED);
+        when(checkpointRepository.findById("year-in-review-2024")).thenReturn(Optional.of(checkpoint));
+
+        assertThrows(InvalidRequestException.class, () -> job.retryFailed(2024));
+        when(checkpointRepository.findById("year-in-review-2023")).thenReturn(Optional.empty());
+        assertThrows(ResourceNotFoundException.class, () -> job.retryFailed(2023));
+    }
+
+    @Test
+    public void testUnfinishedRunsResumeOnStartup() {
+        JobCheckpoint checkpoint = new JobCheckpoint("year-in-review-2024");
+        checkpoint.setStatus(JobCheckpoint.RUNNING);
+        checkpoint.setStartedAt(LocalDateTime.now().minusHours(1));
+        checkpoint.setLastListenerId("L5");
+        when(checkpointRepository.findByJobNameStartingWithAndStatusNot("year-in-review-", JobCheckpoint.COMPLETED))
+                .thenReturn(List.of(checkpoint));
+        when(checkpointRepository.findById("year-in-review-2024")).thenReturn(Optional.of(checkpoint));
+        when(playCountRepository.findListenersWithPlays(JAN_1, DEC_31, "L5", 2)).thenReturn(List.of());
+
+        job.resumeUnfinished();
+
+        // the same checkpoint object is saved as RUNNING and then COMPLETED, so both saves match once it is done
+        verify(checkpointRepository, timeout(1000).atLeastOnce())
+                .save(argThat(cp -> JobCheckpoint.COMPLETED.equals(cp.getStatus())));
+        verify(yearInReviewService, never()).compute(any(), anyInt());
+    }
+
+    @Test
+    public void testRunResumesFromCheckpoint() {
+        JobCheckpoint checkpoint = new JobCheckpoint("year-in-review-2024");
+        checkpoint.setStatus(JobCheckpoint.FAILED);
+        checkpoint.setStartedAt(LocalDateTime.now().minusHours(2));
+        checkpoint.setLastListenerId("L5");
+        checkpoint.setProcessed(5L);
+        when(checkpointRepository.findById("year-in-review-2024")).thenReturn(Optional.of(checkpoint));
+        when(playCountRepository.findListenersWithPlays(JAN_1, DEC_31, "L5", 2)).thenReturn(List.of("L6"));
+        when(playCountRepository.findListenersWithPlays(JAN_1, DEC_31, "L6", 2)).thenReturn(List.of());
+
+        job.run(2024);
+
+        verify(yearInReviewService, only()).compute("L6", 2024);
+        assertEquals(6L, checkpoint.getProcessed());
+        assertEquals(JobCheckpoint.COMPLETED, checkpoint.getStatus());
+    }
+
+    @Test
+    public void testRunMarksFailedWhenListingBreaks() {
+        when(checkpointRepository.findById(any())).thenReturn(Optional.empty());
+        when(playCountRepository.findListenersWithPlays(any(), any(), any(), anyInt()))
+                .thenThrow(new RuntimeException("db down"));
+
+        job.run(2024);
+
+        verify(checkpointRepository, atLeastOnce()).save(argThat(cp -> JobCheckpoint.FAILED.equals(cp.getStatus())));
+    }
+
+    @Test
+    public void testDbConcurrencyIsBounded() throws Exception {
+        List<String> listeners = List.of("L1", "L2", "L3", "L4", "L5", "L6");
+        job = new YearInReviewJob(playCountRepository, checkpointRepository, failureRepository, yearInReviewService, 6, 2);
+        when(checkpointRepository.findById(any())).thenReturn(Optional.empty());
+        when(playCountRepository.findListenersWithPlays(JAN_1, DEC_31, "", 6)).thenReturn(listeners);
+        when(playCountRepository.findListenersWithPlays(JAN_1, DEC_31, "L6", 6)).thenReturn(List.of());
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(yearInReviewService.compute(any(), eq(2024))).thenAnswer(inv -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return null;
+        });
+
+        job.run(2024);
+
+        assertTrue(maxInFlight.get() <= 2);
+        verify(yearInReviewService, times(6)).compute(any(), eq(2024));
+    }
+
+    @Test
+    public void testStartValidationAndStatus() {
+        assertThrows(InvalidRequestException.class, () -> job.start(1999));
+        when(checkpointRepository.findById("year-in-review-2023")).thenReturn(Optional.empty());
+        assertThrows(ResourceNotFoundException.class, () -> job.getStatus(2023));
+
+        JobCheckpoint checkpoint = new JobCheckpoint("year-in-review-2022");
+        checkpoint.setStatus(JobCheckpoint.COMPLETED);
+        when(checkpointRepository.findById("year-in-review-2022")).thenReturn(Optional.of(checkpoint));
+        JobStatusDTO status = job.getStatus(2022);
+        assertEquals(JobCheckpoint.COMPLETED, status.status());
+    }
+}
@@ -0,0 +1,126 @@
+package com.feedback.history.service;
+
+import com.feedback.history.dtos.YearInReviewDTO;
+import com.feedback.history.exception.InvalidRequestException;
+import com.feedback.history.exception.ResourceNotFoundException;
+import com.feedback.history.model.YearInReview;
+import com.feedback.history.model.YearInReviewId;
+import com.feedback.history.repository.ListeningSessionRepository;
+import com.feedback.history.repository.PlayCountRepository;
+import com.feedback.history.repository.YearInReviewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class YearInReviewServiceTest {
+
+    @Mock
+    private YearInReviewRepository repository;
+
+    @Mock
+    private PlayCountRepository playCountRepository;
+
+    @Mock
+    private ListeningSessionRepository sessionRepository;
+
+    private YearInReviewService service;
+
+    private static final LocalDate JAN_1 = LocalDate.of(2024, 1, 1);
+    private static final LocalDate DEC_31 = LocalDate.of(2024, 12, 31);
+
+    @BeforeEach
+    public void setUp() {
+        service = new YearInReviewService(repository, playCountRepository, sessionRepository, 30);
+    }
+
+    private PlayCountRepository.DayTotal dayTotal(LocalDate day, long plays, long listeningMs) {
+        return new PlayCountRepository.DayTotal() {
+            public LocalDate getDay() { return day; }
+            public Long getPlays() { return plays; }
+            public Long getListeningMs() { return listeningMs; }
+        };
+    }
+
+    private PlayCountRepository.TopItemCount row(String id, String name, long plays) {
+        return new PlayCountRepository.TopItemCount() {
+            public String getItemId() { return id; }
+            public String getName() { return name; }
+            public String getArtistName() { return null; }
+            public Long getPlays() { return plays; }
+        };
+    }
+
+    @Test
+    public void testComputeBuildsSummaryAndRoundTrips() {
+        when(repository.findById(new YearInReviewId("L1", 2024))).thenReturn(Optional.empty());
+        when(playCountRepository.sumPlays("L1", JAN_1, DEC_31)).thenReturn(dayTotal(null, 420, 3_600_000));
+        when(playCountRepository.findTopSongs("L1", JAN_1, DEC_31, YearInReviewService.TOP_LIMIT))
+                .thenReturn(List.of(row("S1", "Song \"One\"", 40)));
+        when(playCountRepository.findTopArtists("L1", JAN_1, DEC_31, YearInReviewService.TOP_LIMIT))
+                .thenReturn(List.of(row("AR1", "Artist", 90)));
+        when(playCountRepository.findPeakDay("L1", JAN_1, DEC_31))
+                .thenReturn(Optional.of(dayTotal(LocalDate.of(2024, 7, 4), 55, 0)));
+        ListeningSessionRepository.SessionSpan longest = new ListeningSessionRepository.SessionSpan() {
+            public LocalDateTime getStartedAt() { return LocalDateTime.of(2024, 7, 4, 18, 0); }
+            public LocalDateTime getEndedAt() { return LocalDateTime.of(2024, 7, 4, 21, 30); }
+        };
+        when(sessionRepository.findLongestInHistory("L1", JAN_1.atStartOfDay(), LocalDate.of(2025, 1, 1).atStartOfDay(), 30))
+                .thenReturn(Optional.of(longest));
+        when(repository.save(any(YearInReview.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        YearInReview review = service.compute("L1", 2024);
+
+        assertEquals(420L, review.getTotalPlays());
+        assertEquals(3_600_000L, review.getTotalListeningMs());
+        assertEquals(LocalDate.of(2024, 7, 4), review.getPeakDay());
+        assertEquals(55L, review.getPeakDayPlays());
+        assertEquals(3L * 3_600_000 + 1_800_000, review.getLongestSessionMs());
+        assertNotNull(review.getComputedAt());
+
+        when(repository.findById(new YearInReviewId("L1", 2024))).thenReturn(Optional.of(review));
+        YearInReviewDTO dto = service.getReview("L1", 2024);
+
+        assertEquals("Song \"One\"", dto.topSongs().get(0).name());
+        assertEquals(40L, dto.topSongs().get(0).plays());
+        assertEquals("AR1", dto.topArtists().get(0).id());
+    }
+
+    @Test
+    public void testComputeWithoutSessionsOrPeak() {
+        YearInReview existing = new YearInReview("L1", 2024);
+        when(repository.findById(new YearInReviewId("L1", 2024))).thenReturn(Optional.of(existing));
+        when(playCountRepository.sumPlays("L1", JAN_1, DEC_31)).thenReturn(null);
+        when(playCountRepository.findPeakDay(any(), any(), any())).thenReturn(Optional.empty());
+        when(sessionRepository.findLongestInHistory(any(), any(), any(), anyLong())).thenReturn(Optional.empty());
+        when(repository.save(existing)).thenReturn(existing);
+
+        YearInReview review = service.compute("L1", 2024);
+
+        assertSame(existing, review);
+        assertEquals(0L, review.getTotalPlays());
+        assertNull(review.getPeakDay());
+        assertNull(review.getLongestSessionMs());
+        assertEquals("[]", review.getTopSongs());
+    }
+
+    @Test
+    public void testGetReviewNotComputed() {
+        when(repository.findById(any())).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> service.getReview("L1", 2024));
+        assertThrows(ResourceNotFoundException.class, () -> service.getReview("L1", null));
+        assertThrows(InvalidRequestException.class, () -> service.getReview("", 2024));
+    }
+}
@@ -0,0 +1,16 @@
+package com.feedback.listener.dtos;
+
+import java.time.LocalDateTime;
+
+// progress of an account deletion; step is where it is (or stopped), lastError why it last failed
+public record AccountErasureDTO(
+        String listenerId,
+        String status,
+        String step,
+        long historyDeleted,
+        long playlistSongsDeleted,
+        long playlistsDeleted,
+        String lastError,
+        LocalDateTime requestedAt,
+        LocalDateTime updatedAt
+) {}
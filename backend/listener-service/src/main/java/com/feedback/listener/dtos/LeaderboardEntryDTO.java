@@ -0,0 +1,10 @@
+package com.feedback.listener.dtos;
+
+// value is listening time in ms or songs played, depending on the leaderboard; tied listeners share a rank
+public record LeaderboardEntryDTO(
+        long rank,
+        String listenerId,
+        String displayName,
+        String country,
+        long value
+) {}
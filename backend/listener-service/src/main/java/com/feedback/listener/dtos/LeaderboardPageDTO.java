@@ -0,0 +1,11 @@
+package com.feedback.listener.dtos;
+
+import java.util.List;
+
+// nextCursor is passed back as ?after= for the next page; null when there are no more
+public record LeaderboardPageDTO(
+        String by,
+        String country,
+        List<LeaderboardEntryDTO> entries,
+        String nextCursor
+) {}
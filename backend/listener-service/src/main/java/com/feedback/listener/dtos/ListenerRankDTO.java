@@ -0,0 +1,13 @@
+package com.feedback.listener.dtos;
+
+// rank is null when the listener has nothing played yet and so is not on the leaderboard.
+// beyondMaxRank is set when more listeners are ahead than are counted exactly; rank is then the first
+// rank past that limit, and the listener is somewhere at or below it
+public record ListenerRankDTO(
+        String listenerId,
+        String by,
+        String country,
+        Long rank,
+        boolean beyondMaxRank,
+        long value
+) {}
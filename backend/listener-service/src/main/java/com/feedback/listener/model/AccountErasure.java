@@ -0,0 +1,72 @@
+package com.feedback.listener.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// progress of deleting one listener's account: the step it is on and how much it has deleted so far.
+// Saved in the same transaction as each chunk of deletes, so a restarted job picks up exactly where it stopped
+@Entity
+@Data
+@Table(name = "account_erasure", indexes = {
+    @Index(name = "idx_account_erasure_status", columnList = "status")
+})
+@NoArgsConstructor
+public class AccountErasure {
+
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    // in the order they run. The listener row goes after the tables here, so the account stays consistent until
+    // then; what history-service derived from the plays goes after it, once no new play can be recorded
+    public enum Step {
+        HISTORY, PLAYLIST_SONGS, PLAYLISTS, PROFILE, HISTORY_DATA, DONE;
+
+        public Step next() {
+            return this == DONE ? DONE : values()[ordinal() + 1];
+        }
+    }
+
+    @Id
+    @Column(name = "listener_id", length = 64)
+    private String listenerId;
+
+    @Column(name = "status", nullable = false, length = 16)
+    private String status = PENDING;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "step", nullable = false, length = 16)
+    private Step step = Step.HISTORY;
+
+    @Column(name = "history_deleted", nullable = false)
+    private Long historyDeleted = 0L;
+
+    @Column(name = "playlist_songs_deleted", nullable = false)
+    private Long playlistSongsDeleted = 0L;
+
+    @Column(name = "playlists_deleted", nullable = false)
+    private Long playlistsDeleted = 0L;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "requested_at")
+    private LocalDateTime requestedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public AccountErasure(String listenerId) {
+        this.listenerId = listenerId;
+    }
+}
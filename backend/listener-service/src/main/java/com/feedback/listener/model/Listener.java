@@ -3,9 +3,9 @@ package com.feedback.listener.model;
 import java.util.HashSet;
 import java.util.Set;
 
-import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import jakarta.persistence.Entity;
 import jakarta.persistence.OneToMany;
@@ -14,7 +14,13 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "listener")
+@Table(name = "listener", indexes = {
+    // leaderboards: scanned backwards for highest first, with listener_id as the keyset tie-breaker
+    @Index(name = "idx_listener_listening_time", columnList = "total_listening_time_ms, listener_id"),
+    @Index(name = "idx_listener_songs_played", columnList = "total_songs_played, listener_id"),
+    @Index(name = "idx_listener_country_listening_time", columnList = "country, total_listening_time_ms, listener_id"),
+    @Index(name = "idx_listener_country_songs_played", columnList = "country, total_songs_played, listener_id")
+})
 @Data
 @NoArgsConstructor
 public class Listener {
@@ -44,7 +50,8 @@ public class Listener {
     @OneToMany(mappedBy = "owner")
     private Set<Playlist> playlists = new HashSet<>(); 
     
-    @OneToMany(mappedBy = "listener", cascade = CascadeType.ALL)
+    // no cascade: deleting an account goes through AccountErasureService, which removes history in chunks
+    @OneToMany(mappedBy = "listener")
     private Set<History> history = new HashSet<>();
 
     public Listener(String listenerId, String displayName, String email, String country, String href) {
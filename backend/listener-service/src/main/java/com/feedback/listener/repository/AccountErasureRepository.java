@@ -0,0 +1,43 @@
+package com.feedback.listener.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.feedback.listener.model.AccountErasure;
+
+public interface AccountErasureRepository extends JpaRepository<AccountErasure, String> {
+
+    List<AccountErasure> findByStatusNot(String status);
+
+    // Set-based deletes for an account erasure, each bounded to :limit rows so no single transaction
+    // holds locks on more than a chunk of a shared table. A chunk that deletes fewer than :limit rows
+    // is the last one for that table. Nothing is loaded into memory.
+    @Modifying
+    @Query(value = "DELETE FROM history WHERE history_id IN ("
+            + "SELECT history_id FROM history WHERE listener_id = :listenerId LIMIT :limit)", nativeQuery = true)
+    int deleteHistoryChunk(@Param("listenerId") String listenerId, @Param("limit") int limit);
+
+    // the join table has no key of its own, so rows are picked out by their physical location
+    @Modifying
+    @Query(value = "DELETE FROM playlists_songs WHERE ctid IN ("
+            + "SELECT ps.ctid FROM playlists_songs ps JOIN playlists p ON p.playlist_id = ps.playlist_id "
+            + "WHERE p.owner_id = :listenerId LIMIT :limit)", nativeQuery = true)
+    int deletePlaylistSongsChunk(@Param("listenerId") String listenerId, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM playlists WHERE playlist_id IN ("
+            + "SELECT playlist_id FROM playlists WHERE owner_id = :listenerId LIMIT :limit)", nativeQuery = true)
+    int deletePlaylistsChunk(@Param("listenerId") String listenerId, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM listener_stats WHERE listener_id = :listenerId", nativeQuery = true)
+    int deleteStats(@Param("listenerId") String listenerId);
+
+    @Modifying
+    @Query(value = "DELETE FROM listener WHERE listener_id = :listenerId", nativeQuery = true)
+    int deleteListener(@Param("listenerId") String listenerId);
+}
@@ -2,6 +2,8 @@ package com.feedback.listener.repository;
 
 import com.feedback.listener.model.Listener;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
@@ -17,4 +19,52 @@ public interface ListenerRepository extends JpaRepository<Listener, String> {
 
     // Find listeners by country
     List<Listener> findByCountry(String country);
-}
\ No newline at end of file
+
+    // Leaderboards, highest first. Each page continues strictly after the last row of the previous one,
+    // (value, listener_id) < (afterValue, afterId), so it is an index range scan however deep it goes.
+    // Listeners with nothing played are left off.
+    @Query(value = "SELECT * FROM listener WHERE total_listening_time_ms > 0 "
+            + "AND (total_listening_time_ms, listener_id) < (:afterValue, :afterId) "
+            + "ORDER BY total_listening_time_ms DESC, listener_id DESC LIMIT :limit", nativeQuery = true)
+    List<Listener> findTopByListeningTime(@Param("afterValue") long afterValue, @Param("afterId") String afterId,
+            @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM listener WHERE country = :country AND total_listening_time_ms > 0 "
+            + "AND (total_listening_time_ms, listener_id) < (:afterValue, :afterId) "
+            + "ORDER BY total_listening_time_ms DESC, listener_id DESC LIMIT :limit", nativeQuery = true)
+    List<Listener> findTopByListeningTimeInCountry(@Param("country") String country, @Param("afterValue") long afterValue,
+            @Param("afterId") String afterId, @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM listener WHERE total_songs_played > 0 "
+            + "AND (total_songs_played, listener_id) < (:afterValue, :afterId) "
+            + "ORDER BY total_songs_played DESC, listener_id DESC LIMIT :limit", nativeQuery = true)
+    List<Listener> findTopBySongsPlayed(@Param("afterValue") long afterValue, @Param("afterId") String afterId,
+            @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM listener WHERE country = :country AND total_songs_played > 0 "
+            + "AND (total_songs_played, listener_id) < (:afterValue, :afterId) "
+            + "ORDER BY total_songs_played DESC, listener_id DESC LIMIT :limit", nativeQuery = true)
+    List<Listener> findTopBySongsPlayedInCountry(@Param("country") String country, @Param("afterValue") long afterValue,
+            @Param("afterId") String afterId, @Param("limit") int limit);
+
+    // How many listeners are strictly ahead of a value, counting no more than :cap of them; a rank is this
+    // plus one. Answered from the same indexes without reading any rows, but an index-only count still
+    // walks every entry ahead, so it costs O(rank): the cap bounds that walk for listeners far down the board
+    @Query(value = "SELECT COUNT(*) FROM (SELECT 1 FROM listener WHERE total_listening_time_ms > :value "
+            + "LIMIT :cap) ahead", nativeQuery = true)
+    long countAheadByListeningTime(@Param("value") long value, @Param("cap") long cap);
+
+    @Query(value = "SELECT COUNT(*) FROM (SELECT 1 FROM listener WHERE country = :country "
+            + "AND total_listening_time_ms > :value LIMIT :cap) ahead", nativeQuery = true)
+    long countAheadByListeningTimeInCountry(@Param("country") String country, @Param("value") long value,
+            @Param("cap") long cap);
+
+    @Query(value = "SELECT COUNT(*) FROM (SELECT 1 FROM listener WHERE total_songs_played > :value "
+            + "LIMIT :cap) ahead", nativeQuery = true)
+    long countAheadBySongsPlayed(@Param("value") long value, @Param("cap") long cap);
+
+    @Query(value = "SELECT COUNT(*) FROM (SELECT 1 FROM listener WHERE country = :country "
+            + "AND total_songs_played > :value LIMIT :cap) ahead", nativeQuery = true)
+    long countAheadBySongsPlayedInCountry(@Param("country") String country, @Param("value") long value,
+            @Param("cap") long cap);
+}
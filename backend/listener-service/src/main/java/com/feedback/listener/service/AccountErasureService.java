@@ -0,0 +1,225 @@
+package com.feedback.listener.service;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.feedback.listener.dtos.AccountErasureDTO;
+import com.feedback.listener.exception.InvalidRequestException;
+import com.feedback.listener.exception.ResourceNotFoundException;
+import com.feedback.listener.model.AccountErasure;
+import com.feedback.listener.model.AccountErasure.Step;
+import com.feedback.listener.repository.AccountErasureRepository;
+import com.feedback.listener.repository.ListenerRepository;
+
+/**
+ * Deletes listener accounts in the background. A request only records the erasure and returns; the
+ * job then works through the listener's history, playlists and stats in fixed-size chunks, each its
+ * own short transaction with a pause in between, so a heavy account never holds long locks on tables
+ * every other listener is writing to. Last, history-service is asked, a chunk at a time, to purge what it
+ * derived from the plays. The progress row is saved with each chunk; unfinished erasures (crashed or
+ * failed) are picked up again on startup and then periodically. From the time an erasure starts until it
+ * completes, the listener's dashboard is neither served nor cached.
+ */
+@Service
+public class AccountErasureService {
+
+    private final AccountErasureRepository erasureRepository;
+    private final ListenerRepository listenerRepository;
+    private final HistoryService historyService;
+    private final DashboardCache dashboardCache;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor executor;
+    private final int chunkSize;
+    private final long chunkPauseMs;
+    // erasures running on this instance, so a resume sweep does not start a second copy
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public AccountErasureService(AccountErasureRepository erasureRepository, ListenerRepository listenerRepository,
+            HistoryService historyService, DashboardCache dashboardCache, PlatformTransactionManager transactionManager,
+            @Value("${listener.erasure.chunk-size:1000}") int chunkSize,
+            @Value("${listener.erasure.chunk-pause-ms:50}") long chunkPauseMs) {
+        this(erasureRepository, listenerRepository, historyService, dashboardCache, transactionManager,
+                Executors.newVirtualThreadPerTaskExecutor(), chunkSize, chunkPauseMs);
+    }
+
+    AccountErasureService(AccountErasureRepository erasureRepository, ListenerRepository listenerRepository,
+            HistoryService historyService, DashboardCache dashboardCache, PlatformTransactionManager transactionManager,
+            Executor executor, int chunkSize, long chunkPauseMs) {
+        this.erasureRepository = erasureRepository;
+        this.listenerRepository = listenerRepository;
+        this.historyService = historyService;
+        this.dashboardCache = dashboardCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.chunkPauseMs = chunkPauseMs;
+    }
+
+    // records the erasure and starts it; asking again while one is unfinished just restarts that one
+    public AccountErasureDTO requestErasure(String listenerId) {
+        if (listenerId == null || listenerId.isBlank()) {
+            throw new InvalidRequestException("Listener ID cannot be null or blank");
+        }
+        AccountErasure erasure = erasureRepository.findById(listenerId)
+                .filter(existing -> !AccountErasure.COMPLETED.equals(existing.getStatus()))
+                .orElse(null);
+        if (erasure == null) {
+            if (!listenerRepository.existsById(listenerId)) {
+                throw new ResourceNotFoundException("Listener", listenerId);
+            }
+            erasure = new AccountErasure(listenerId);
+            erasure.setRequestedAt(LocalDateTime.now());
+            erasure.setUpdatedAt(erasure.getRequestedAt());
+            erasure = erasureRepository.save(erasure);
+        }
+        start(listenerId);
+        return erasureToDto(erasure);
+    }
+
+    public AccountErasureDTO getStatus(String listenerId) {
+        return erasureRepository.findById(listenerId)
+                .map(this::erasureToDto)
+                .orElseThrow(() -> new ResourceNotFoundException("Account erasure", listenerId));
+    }
+
+    // first run is at startup, which resumes anything a crash or restart interrupted
+    @Scheduled(fixedDelayString = "${listener.erasure.resume-interval-ms:300000}")
+    public void resumeUnfinished() {
+        for (AccountErasure erasure : erasureRepository.findByStatusNot(AccountErasure.COMPLETED)) {
+            start(erasure.getListenerId());
+        }
+    }
+
+    private void start(String listenerId) {
+        dashboardCache.erasureStarted(listenerId);
+        if (!running.add(listenerId)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                run(listenerId);
+            } finally {
+                running.remove(listenerId);
+            }
+        });
+    }
+
+    // runs the erasure from its saved step to the end
+    void run(String listenerId) {
+        AccountErasure erasure = erasureRepository.findById(listenerId).orElse(null);
+        if (erasure == null || AccountErasure.COMPLETED.equals(erasure.getStatus())) {
+            // finished elsewhere (e.g. by another instance) since it was started here
+            dashboardCache.erasureFinished(listenerId);
+            return;
+        }
+        erasure.setStatus(AccountErasure.RUNNING);
+        erasure.setLastError(null);
+        erasure.setUpdatedAt(LocalDateTime.now());
+        erasure = erasureRepository.save(erasure);
+        try {
+            while (erasure.getStep() != Step.DONE) {
+                erasure = deleteChunk(erasure);
+                if (erasure.getStep() != Step.DONE && chunkPauseMs > 0) {
+                    // let other writers at the tables between chunks
+                    Thread.sleep(chunkPauseMs);
+                }
+            }
+            dashboardCache.erasureFinished(listenerId);
+            System.out.println("[" + LocalDateTime.now() + "] Deleted account " + listenerId + ": "
+                    + erasure.getHistoryDeleted() + " history entries, " + erasure.getPlaylistsDeleted() + " playlists");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            markFailed(listenerId, "interrupted");
+        } catch (RuntimeException e) {
+            System.err.println("[" + LocalDateTime.now() + "] Account erasure for " + listenerId + " stopped at "
+                    + erasure.getStep() + ": " + e.getMessage());
+            markFailed(listenerId, e.getMessage());
+        }
+    }
+
+    // one bounded delete plus the progress update, committed together. history-service's chunk is deleted by a
+    // call made before our transaction opens; if saving the progress then fails, repeating the call is harmless
+    private AccountErasure deleteChunk(AccountErasure erasure) {
+        int purged = erasure.getStep() == Step.HISTORY_DATA
+                ? historyService.purgeListenerData(erasure.getListenerId(), chunkSize)
+                : 0;
+        return transactionTemplate.execute(status -> {
+            String listenerId = erasure.getListenerId();
+            int deleted;
+            switch (erasure.getStep()) {
+                case HISTORY -> {
+                    deleted = erasureRepository.deleteHistoryChunk(listenerId, chunkSize);
+                    erasure.setHistoryDeleted(erasure.getHistoryDeleted() + deleted);
+                }
+                case PLAYLIST_SONGS -> {
+                    deleted = erasureRepository.deletePlaylistSongsChunk(listenerId, chunkSize);
+                    erasure.setPlaylistSongsDeleted(erasure.getPlaylistSongsDeleted() + deleted);
+                }
+                case PLAYLISTS -> {
+                    deleted = erasureRepository.deletePlaylistsChunk(listenerId, chunkSize);
+                    erasure.setPlaylistsDeleted(erasure.getPlaylistsDeleted() + deleted);
+                }
+                case PROFILE -> {
+                    // plays synced since the history step are caught here, before the listener row goes
+                    deleted = erasureRepository.deleteHistoryChunk(listenerId, chunkSize);
+                    erasure.setHistoryDeleted(erasure.getHistoryDeleted() + deleted);
+                    if (deleted < chunkSize) {
+                        erasureRepository.deleteStats(listenerId);
+                        erasureRepository.deleteListener(listenerId);
+                    }
+                }
+                case HISTORY_DATA -> deleted = purged;
+                default -> deleted = 0;
+            }
+            if (deleted < chunkSize) {
+                erasure.setStep(erasure.getStep().next());
+                if (erasure.getStep() == Step.DONE) {
+                    erasure.setStatus(AccountErasure.COMPLETED);
+                }
+            }
+            erasure.setUpdatedAt(LocalDateTime.now());
+            return erasureRepository.save(erasure);
+        });
+    }
+
+    // the failed chunk was rolled back, so the saved progress is re-read rather than taken from memory
+    private void markFailed(String listenerId, String error) {
+        try {
+            erasureRepository.findById(listenerId).ifPresent(erasure -> {
+                erasure.setStatus(AccountErasure.FAILED);
+                erasure.setLastError(error);
+                erasure.setUpdatedAt(LocalDateTime.now());
+                erasureRepository.save(erasure);
+            });
+        } catch (RuntimeException e) {
+            // still unfinished in the database, so the next sweep retries it either way
+            System.err.println("[" + LocalDateTime.now() + "] Could not record failed erasure for " + listenerId
+                    + ": " + e.getMessage());
+        }
+    }
+
+    private AccountErasureDTO erasureToDto(AccountErasure erasure) {
+        return new AccountErasureDTO(
+                erasure.getListenerId(),
+                erasure.getStatus(),
+                erasure.getStep().name(),
+                erasure.getHistoryDeleted(),
+                erasure.getPlaylistSongsDeleted(),
+                erasure.getPlaylistsDeleted(),
+                erasure.getLastError(),
+                erasure.getRequestedAt(),
+                erasure.getUpdatedAt()
+        );
+    }
+}
@@ -0,0 +1,198 @@
+package com.feedback.listener.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Last computed dashboard per listener, served stale-while-revalidate. A snapshot younger than the
+ * soft TTL is returned as is; an older or invalidated one is still returned straight away while a
+ * refresh runs in the background. Only a listener with no snapshot, or one past the max age, waits
+ * for the dashboard to be built. At most one build runs per listener at a time; concurrent callers
+ * share it. Only the most recently read listeners keep a snapshot. A listener whose account is being
+ * deleted is treated as gone: no dashboard is served or cached for them until the erasure finishes.
+ */
+@Service
+public class DashboardCache {
+
+    private final DashboardService dashboardService;
+    private final Duration softTtl;
+    private final Duration maxAge;
+    private final int maxListeners;
+    private final Clock clock;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // all guarded by this. Snapshots are least recently read first, at most maxListeners of them
+    private final LinkedHashMap<String, Snapshot> snapshots = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<Snapshot>> inFlight = new HashMap<>();
+    // last invalidation and eviction of each listener that has a snapshot or a build running: a build
+    // started before an invalidation is stale, and one started before an eviction is not cached at all
+    private final Map<String, Marks> marks = new HashMap<>();
+    // listeners with an account erasure running on this instance
+    private final Set<String> erasing = new HashSet<>();
+    private long sequence;
+
+    private record Snapshot(Map<String, Object> dashboard, Instant computedAt, long sequence) {}
+
+    private record Marks(long invalidatedAt, long evictedAt) {}
+
+    @Autowired
+    public DashboardCache(DashboardService dashboardService,
+            @Value("${listener.dashboard.soft-ttl-seconds:60}") long softTtlSeconds,
+            @Value("${listener.dashboard.max-age-seconds:3600}") long maxAgeSeconds,
+            @Value("${listener.dashboard.max-listeners:10000}") int maxListeners) {
+        this(dashboardService, Duration.ofSeconds(softTtlSeconds), Duration.ofSeconds(maxAgeSeconds), maxListeners,
+                Clock.systemUTC());
+    }
+
+    DashboardCache(DashboardService dashboardService, Duration softTtl, Duration maxAge, int maxListeners, Clock clock) {
+        this.dashboardService = dashboardService;
+        this.softTtl = softTtl;
+        this.maxAge = maxAge;
+        this.maxListeners = maxListeners;
+        this.clock = clock;
+    }
+
+    // null when the listener does not exist or is being deleted
+    public Map<String, Object> get(String listenerId, String spotifyToken) {
+        Instant now = clock.instant();
+        Snapshot snapshot;
+        boolean stale;
+        synchronized (this) {
+            if (erasing.contains(listenerId)) {
+                return null;
+            }
+            snapshot = snapshots.get(listenerId);
+            stale = snapshot != null && isStale(listenerId, snapshot, now);
+        }
+        if (snapshot == null || snapshot.computedAt().plus(maxAge).isBefore(now)) {
+            try {
+                snapshot = refresh(listenerId, spotifyToken).join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+            return snapshot != null ? snapshot.dashboard() : null;
+        }
+        if (stale) {
+            refresh(listenerId, spotifyToken);
+        }
+        return snapshot.dashboard();
+    }
+
+    // something the dashboard shows has changed (e.g. a new play): the next read refreshes it
+    public synchronized void invalidate(String listenerId) {
+        long at = ++sequence;
+        // with nothing cached or building, the next read builds a fresh dashboard anyway
+        if (snapshots.containsKey(listenerId) || inFlight.containsKey(listenerId)) {
+            Marks previous = marks.get(listenerId);
+            marks.put(listenerId, new Marks(at, previous != null ? previous.evictedAt() : 0));
+        }
+    }
+
+    // the listener was changed or removed: the next read waits for a fresh dashboard, and a build
+    // already running is not cached
+    public synchronized void evict(String listenerId) {
+        long at = ++sequence;
+        snapshots.remove(listenerId);
+        if (inFlight.containsKey(listenerId)) {
+            marks.put(listenerId, new Marks(at, at));
+        } else {
+            marks.remove(listenerId);
+        }
+    }
+
+    // the listener's account is being deleted: their dashboard goes, and a build already running is not cached
+    public synchronized void erasureStarted(String listenerId) {
+        erasing.add(listenerId);
+        evict(listenerId);
+    }
+
+    // the account is gone; evicted again in case anything was cached around the start of the erasure
+    public synchronized void erasureFinished(String listenerId) {
+        erasing.remove(listenerId);
+        evict(listenerId);
+    }
+
+    // called holding the lock
+    private boolean isStale(String listenerId, Snapshot snapshot, Instant now) {
+        Marks listenerMarks = marks.get(listenerId);
+        return snapshot.computedAt().plus(softTtl).isBefore(now)
+                || (listenerMarks != null && snapshot.sequence() < listenerMarks.invalidatedAt());
+    }
+
+    // starts a build unless one is already running for this listener, and returns it
+    private CompletableFuture<Snapshot> refresh(String listenerId, String spotifyToken) {
+        CompletableFuture<Snapshot> created = new CompletableFuture<>();
+        long startedAt;
+        synchronized (this) {
+            CompletableFuture<Snapshot> running = inFlight.putIfAbsent(listenerId, created);
+            if (running != null) {
+                return running;
+            }
+            startedAt = sequence;
+        }
+        executor.execute(() -> {
+            try {
+                Map<String, Object> dashboard = dashboardService.buildDashboard(listenerId, spotifyToken);
+                created.complete(finish(listenerId, created, dashboard, startedAt));
+            } catch (Throwable e) {
+                synchronized (this) {
+                    inFlight.remove(listenerId, created);
+                    dropMarksIfIdle(listenerId);
+                }
+                System.err.println("Failed to build dashboard for " + listenerId + ": " + e.getMessage());
+                created.completeExceptionally(e);
+            }
+        });
+        return created;
+    }
+
+    // caches a finished build unless the listener was evicted after it started, and returns it to its callers
+    private synchronized Snapshot finish(String listenerId, CompletableFuture<Snapshot> build,
+            Map<String, Object> dashboard, long startedAt) {
+        inFlight.remove(listenerId, build);
+        Snapshot snapshot = dashboard != null ? new Snapshot(dashboard, clock.instant(), startedAt) : null;
+        Marks listenerMarks = marks.get(listenerId);
+        if (snapshot == null) {
+            snapshots.remove(listenerId);
+        } else if (listenerMarks == null || listenerMarks.evictedAt() <= startedAt) {
+            snapshots.put(listenerId, snapshot);
+            Iterator<String> eldest = snapshots.keySet().iterator();
+            while (snapshots.size() > maxListeners) {
+                String evicted = eldest.next();
+                eldest.remove();
+                dropMarksIfIdle(evicted);
+            }
+        }
+        dropMarksIfIdle(listenerId);
+        return snapshot;
+    }
+
+    // called holding the lock: marks only matter while there is a snapshot or a build to compare them with
+    private void dropMarksIfIdle(String listenerId) {
+        if (!snapshots.containsKey(listenerId) && !inFlight.containsKey(listenerId)) {
+            marks.remove(listenerId);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,24 @@
+package com.feedback.listener.service;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+
+@FeignClient("history-service")
+public interface HistoryService {
+
+    // top songs/artists/albums counted from our own history (no Spotify call)
+    @GetMapping("/api/history/top")
+    public List<Map<String, Object>> getTopItems(@RequestParam String listenerId, @RequestParam String type,
+            @RequestParam("time_range") String timeRange, @RequestParam int limit);
+
+    // account erasure: deletes up to limit rows history-service derived from the listener's plays (counters,
+    // sessions, heatmaps, Wrapped results, ...); fewer than limit means nothing is left
+    @DeleteMapping("/api/history/listeners/{listenerId}/data")
+    public int purgeListenerData(@PathVariable String listenerId, @RequestParam int limit);
+}
@@ -0,0 +1,212 @@
+package com.feedback.listener.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.feedback.listener.dtos.LeaderboardEntryDTO;
+import com.feedback.listener.dtos.LeaderboardPageDTO;
+import com.feedback.listener.dtos.ListenerRankDTO;
+import com.feedback.listener.exception.InvalidRequestException;
+import com.feedback.listener.exception.ResourceNotFoundException;
+import com.feedback.listener.model.Listener;
+import com.feedback.listener.repository.ListenerRepository;
+
+/**
+ * Top listeners by total listening time or songs played, worldwide or per country. Pages are read
+ * with keyset pagination on the leaderboard indexes: the cursor carries the last row's value and ID,
+ * plus its position and rank so the next page's ranks follow on without counting. Pages near the top
+ * are cached for a few seconds, since that is where nearly all reads land.
+ *
+ * A single listener's rank is a count of the listeners ahead of them, which grows with the rank, so
+ * it is exact only down to a configured depth; below that it is reported as beyond it.
+ */
+@Service
+@Transactional(readOnly = true)
+public class LeaderboardService {
+
+    public static final int DEFAULT_LIMIT = 25;
+    public static final int MAX_LIMIT = 100;
+
+    // pages starting before this position are cached
+    private static final long CACHED_DEPTH = 200;
+    private static final int MAX_CACHED_PAGES = 1000;
+
+    private final ListenerRepository repository;
+    private final Duration pageTtl;
+    private final long maxExactRank;
+    private final Clock clock;
+    private final Map<String, CachedPage> pages = new ConcurrentHashMap<>();
+
+    public enum Metric {
+        TIME, SONGS;
+
+        static Metric parse(String by) {
+            if (by == null || by.isBlank() || by.equalsIgnoreCase("time")) {
+                return TIME;
+            }
+            if (by.equalsIgnoreCase("songs")) {
+                return SONGS;
+            }
+            throw new InvalidRequestException("by", by);
+        }
+
+        long valueOf(Listener listener) {
+            return this == TIME ? listener.getTotalListeningTimeMs() : listener.getTotalSongsPlayed();
+        }
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    // where the previous page stopped: the last row, how many rows came before it, and its rank
+    record Cursor(long value, String listenerId, long position, long rank) {
+        static final Cursor START = new Cursor(Long.MAX_VALUE, "", 0, 0);
+
+        String encode() {
+            String raw = value + ":" + position + ":" + rank + ":" + listenerId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                String[] parts = raw.split(":", 4);
+                return new Cursor(Long.parseLong(parts[0]), parts[3], Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            } catch (RuntimeException e) {
+                throw new InvalidRequestException("after", cursor);
+            }
+        }
+    }
+
+    private record CachedPage(LeaderboardPageDTO page, Instant expiresAt) {}
+
+    @Autowired
+    public LeaderboardService(ListenerRepository repository,
+            @Value("${listener.leaderboard.page-ttl-seconds:30}") long pageTtlSeconds,
+            @Value("${listener.leaderboard.max-exact-rank:10000}") long maxExactRank) {
+        this(repository, Duration.ofSeconds(pageTtlSeconds), maxExactRank, Clock.systemUTC());
+    }
+
+    LeaderboardService(ListenerRepository repository, Duration pageTtl, long maxExactRank, Clock clock) {
+        this.repository = repository;
+        this.pageTtl = pageTtl;
+        this.maxExactRank = maxExactRank;
+        this.clock = clock;
+    }
+
+    // country null or blank for the worldwide leaderboard; after is the previous page's nextCursor
+    public LeaderboardPageDTO getLeaderboard(String by, String country, Integer limit, String after) {
+        Metric metric = Metric.parse(by);
+        String scope = normalizeCountry(country);
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        Cursor cursor = after == null || after.isBlank() ? Cursor.START : Cursor.decode(after);
+
+        if (cursor.position() >= CACHED_DEPTH) {
+            return readPage(metric, scope, pageSize, cursor);
+        }
+        String key = metric + "|" + scope + "|" + pageSize + "|" + (after == null ? "" : after);
+        Instant now = clock.instant();
+        CachedPage cached = pages.get(key);
+        if (cached != null && cached.expiresAt().isAfter(now)) {
+            return cached.page();
+        }
+        LeaderboardPageDTO page = readPage(metric, scope, pageSize, cursor);
+        if (pages.size() >= MAX_CACHED_PAGES) {
+            pages.values().removeIf(entry -> !entry.expiresAt().isAfter(now));
+        }
+        if (pages.size() < MAX_CACHED_PAGES) {
+            pages.put(key, new CachedPage(page, now.plus(pageTtl)));
+        }
+        return page;
+    }
+
+    // the listener's rank worldwide, or within their own country when inCountry is set
+    public ListenerRankDTO getRank(String listenerId, String by, boolean inCountry) {
+        if (listenerId == null || listenerId.isBlank()) {
+            throw new InvalidRequestException("Listener ID cannot be null or blank");
+        }
+        Metric metric = Metric.parse(by);
+        Listener listener = repository.findById(listenerId)
+                .orElseThrow(() -> new ResourceNotFoundException("Listener", listenerId));
+        String scope = inCountry ? normalizeCountry(listener.getCountry()) : null;
+        if (inCountry && scope == null) {
+            throw new InvalidRequestException("Listener '" + listenerId + "' has no country");
+        }
+        long value = metric.valueOf(listener);
+        if (value <= 0) {
+            return new ListenerRankDTO(listenerId, metric.label(), scope, null, false, value);
+        }
+        // counting stops at the cap: reaching it means at least that many are ahead
+        long ahead = countAhead(metric, scope, value);
+        boolean beyond = ahead >= maxExactRank;
+        return new ListenerRankDTO(listenerId, metric.label(), scope, ahead + 1, beyond, value);
+    }
+
+    private LeaderboardPageDTO readPage(Metric metric, String country, int pageSize, Cursor cursor) {
+        // one extra row tells us whether there is another page without a count query
+        List<Listener> rows = findAfter(metric, country, cursor, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+
+        List<LeaderboardEntryDTO> entries = new ArrayList<>(Math.min(rows.size(), pageSize));
+        long position = cursor.position();
+        long rank = cursor.rank();
+        long previousValue = cursor.value();
+        for (Listener listener : rows.subList(0, Math.min(rows.size(), pageSize))) {
+            long value = metric.valueOf(listener);
+            position++;
+            // ties share the rank of the first listener with that value, even across pages
+            if (value != previousValue) {
+                rank = position;
+                previousValue = value;
+            }
+            entries.add(new LeaderboardEntryDTO(rank, listener.getListenerId(), listener.getDisplayName(),
+                    listener.getCountry(), value));
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            LeaderboardEntryDTO last = entries.get(entries.size() - 1);
+            nextCursor = new Cursor(last.value(), last.listenerId(), position, rank).encode();
+        }
+        return new LeaderboardPageDTO(metric.label(), country, entries, nextCursor);
+    }
+
+    private List<Listener> findAfter(Metric metric, String country, Cursor cursor, int limit) {
+        if (metric == Metric.TIME) {
+            return country == null
+                    ? repository.findTopByListeningTime(cursor.value(), cursor.listenerId(), limit)
+                    : repository.findTopByListeningTimeInCountry(country, cursor.value(), cursor.listenerId(), limit);
+        }
+        return country == null
+                ? repository.findTopBySongsPlayed(cursor.value(), cursor.listenerId(), limit)
+                : repository.findTopBySongsPlayedInCountry(country, cursor.value(), cursor.listenerId(), limit);
+    }
+
+    private long countAhead(Metric metric, String country, long value) {
+        if (metric == Metric.TIME) {
+            return country == null
+                    ? repository.countAheadByListeningTime(value, maxExactRank)
+                    : repository.countAheadByListeningTimeInCountry(country, value, maxExactRank);
+        }
+        return country == null
+                ? repository.countAheadBySongsPlayed(value, maxExactRank)
+                : repository.countAheadBySongsPlayedInCountry(country, value, maxExactRank);
+    }
+
+    private static String normalizeCountry(String country) {
+        return country == null || country.isBlank() ? null : country.trim().toUpperCase(Locale.ROOT);
+    }
+}
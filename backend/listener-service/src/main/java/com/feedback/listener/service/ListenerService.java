@@ -9,12 +9,19 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
 public class ListenerService {
 
+    // most IDs one batch lookup may ask for
+    public static final int MAX_BATCH_IDS = 200;
+
     private final ListenerRepository repository;
 
     public ListenerService(ListenerRepository repository) {
@@ -43,6 +50,21 @@ public class ListenerService {
         }
         return repository.existsById(id);
     }
+
+    // listeners for the given IDs in one query, in the order asked for; unknown IDs are left out
+    public List<ListenerDTO> getByIds(List<String> ids) {
+        List<String> wanted = batchIds(ids);
+        if (wanted.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Listener> listeners = repository.findAllById(wanted).stream()
+                .collect(Collectors.toMap(Listener::getListenerId, Function.identity()));
+        return wanted.stream()
+                .map(listeners::get)
+                .filter(Objects::nonNull)
+                .map(this::listenerToDto)
+                .toList();
+    }
     
     public List<ListenerDTO> findByDisplayName(String displayName) {
         if (displayName == null || displayName.isBlank()) {
@@ -140,18 +162,6 @@ public class ListenerService {
         return listenerToDto(repository.save(listener));
     }
 
-    
-    @Transactional
-    public void delete(String id) {
-        if (id == null || id.isBlank()) {
-            throw new InvalidRequestException("Listener ID cannot be null or blank");
-        }
-        if (!repository.existsById(id)) {
-            throw new ResourceNotFoundException("Listener", id);
-        }
-        repository.deleteById(id);
-    }
-    
     private void validateListenerDTO(ListenerDTO dto) {
         if (dto == null) {
             throw new InvalidRequestException("Listener data cannot be null");
@@ -186,6 +196,21 @@ public class ListenerService {
                 && email.substring(atIndex + 1).contains(".");
     }
     
+    // the distinct non-blank IDs of a batch lookup, in the order given
+    private static List<String> batchIds(List<String> ids) {
+        if (ids == null) {
+            return List.of();
+        }
+        List<String> wanted = ids.stream()
+                .filter(id -> id != null && !id.isBlank())
+                .distinct()
+                .toList();
+        if (wanted.size() > MAX_BATCH_IDS) {
+            throw new InvalidRequestException("At most " + MAX_BATCH_IDS + " IDs can be looked up at once");
+        }
+        return wanted;
+    }
+
     private ListenerDTO listenerToDto(Listener listener) {
         return new ListenerDTO(
                 listener.getListenerId(),
@@ -0,0 +1,30 @@
+package com.feedback.listener.service;
+
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Service;
+
+// history-service publishes every committed play keyed by listener ID; a new play makes that
+// listener's cached dashboard stale. Each instance has its own group, named after its host, so every
+// cache sees every play
+@Service
+public class PlayEventListener {
+
+    private final DashboardCache dashboardCache;
+
+    public PlayEventListener(DashboardCache dashboardCache) {
+        this.dashboardCache = dashboardCache;
+    }
+
+    @KafkaListener(
+        topics = "${listener.dashboard.plays-topic:play-events}",
+        groupId = "${listener.dashboard.plays-group:listener-dashboard-${HOSTNAME:local}}",
+        properties = "auto.offset.reset=latest"
+    )
+    public void onPlay(@Header(KafkaHeaders.RECEIVED_KEY) String listenerId) {
+        if (listenerId != null) {
+            dashboardCache.invalidate(listenerId);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.feedback.listener.service;
+
+import com.feedback.listener.dtos.AccountErasureDTO;
+import com.feedback.listener.exception.InvalidRequestException;
+import com.feedback.listener.exception.ResourceNotFoundException;
+import com.feedback.listener.model.AccountErasure;
+import com.feedback.listener.model.AccountErasure.Step;
+import com.feedback.listener.repository.AccountErasureRepository;
+import com.feedback.listener.repository.ListenerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@ExtendWith(MockitoExtension.class)
+public class AccountErasureServiceTest {
+
+    @Mock
+    private AccountErasureRepository erasureRepository;
+
+    @Mock
+    private ListenerRepository listenerRepository;
+
+    @Mock
+    private HistoryService historyService;
+
+    @Mock
+    private DashboardCache dashboardCache;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    // jobs handed to the executor; the tests run them when they choose
+    private final List<Runnable> started = new ArrayList<>();
+
+    private AccountErasureService service;
+
+    @BeforeEach
+    public void setUp() {
+        service = new AccountErasureService(erasureRepository, listenerRepository, historyService, dashboardCache,
+                transactionManager, started::add, 2, 0);
+    }
+
+    // the saved erasure row, as findById would read it back
+    private AccountErasure stored(AccountErasure erasure) {
+        when(erasureRepository.findById(erasure.getListenerId())).thenReturn(Optional.of(erasure));
+        when(erasureRepository.save(any(AccountErasure.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        return erasure;
+    }
+
+    @Test
+    public void testRequestRecordsErasureAndReturnsBeforeDeleting() {
+        when(erasureRepository.findById("L1")).thenReturn(Optional.empty());
+        when(listenerRepository.existsById("L1")).thenReturn(true);
+        when(erasureRepository.save(any(AccountErasure.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        AccountErasureDTO result = service.requestErasure("L1");
+
+        assertEquals(AccountErasure.PENDING, result.status());
+        assertEquals("HISTORY", result.step());
+        assertNotNull(result.requestedAt());
+        assertEquals(1, started.size());
+        verify(dashboardCache).erasureStarted("L1");
+        verify(erasureRepository, never()).deleteHistoryChunk(anyString(), anyInt());
+        verify(erasureRepository, never()).deleteListener(anyString());
+    }
+
+    @Test
+    public void testRunDeletesInChunksUntilEachTableIsEmpty() {
+        AccountErasure erasure = stored(new AccountErasure("L1"));
+        when(erasureRepository.deleteHistoryChunk("L1", 2)).thenReturn(2, 2, 1, 0);
+        when(erasureRepository.deletePlaylistSongsChunk("L1", 2)).thenReturn(2, 0);
+        when(erasureRepository.deletePlaylistsChunk("L1", 2)).thenReturn(1);
+        when(historyService.purgeListenerData("L1", 2)).thenReturn(2, 1);
+
+        service.run("L1");
+
+        assertEquals(AccountErasure.COMPLETED, erasure.getStatus());
+        assertEquals(Step.DONE, erasure.getStep());
+        assertEquals(5L, erasure.getHistoryDeleted());
+        assertEquals(2L, erasure.getPlaylistSongsDeleted());
+        assertEquals(1L, erasure.getPlaylistsDeleted());
+        // three history chunks, then one more sweep before the listener row goes
+        verify(erasureRepository, times(4)).deleteHistoryChunk("L1", 2);
+        verify(erasureRepository).deleteStats("L1");
+        verify(erasureRepository).deleteListener("L1");
+        // history-service's derived data goes after the listener row, until a chunk comes back short
+        verify(historyService, times(2)).purgeListenerData("L1", 2);
+        verify(dashboardCache).erasureFinished("L1");
+    }
+
+    @Test
+    public void testHistoryServicePurgeFailureIsRetriedFromThatStep() {
+        AccountErasure erasure = new AccountErasure("L1");
+        erasure.setStep(Step.HISTORY_DATA);
+        stored(erasure);
+        when(historyService.purgeListenerData("L1", 2)).thenThrow(new RuntimeException("history-service unavailable"));
+
+        service.run("L1");
+
+        assertEquals(AccountErasure.FAILED, erasure.getStatus());
+        assertEquals(Step.HISTORY_DATA, erasure.getStep());
+        verify(dashboardCache, never()).erasureFinished(anyString());
+    }
+
+    @Test
+    public void testListenerIsKeptWhilePlaysAreStillArriving() {
+        AccountErasure erasure = new AccountErasure("L1");
+        erasure.setStep(Step.PROFILE);
+        stored(erasure);
+        when(erasureRepository.deleteHistoryChunk("L1", 2)).thenReturn(2, 1);
+
+        service.run("L1");
+
+        verify(erasureRepository, times(2)).deleteHistoryChunk("L1", 2);
+        verify(erasureRepository, times(1)).deleteListener("L1");
+        assertEquals(AccountErasure.COMPLETED, erasure.getStatus());
+    }
+
+    @Test
+    public void testRestartedErasureResumesFromSavedStep() {
+        AccountErasure erasure = new AccountErasure("L1");
+        erasure.setStatus(AccountErasure.RUNNING);
+        erasure.setStep(Step.PLAYLISTS);
+        erasure.setHistoryDeleted(500L);
+        stored(erasure);
+        when(erasureRepository.findByStatusNot(AccountErasure.COMPLETED)).thenReturn(List.of(erasure));
+        when(erasureRepository.deletePlaylistsChunk("L1", 2)).thenReturn(0);
+        when(erasureRepository.deleteHistoryChunk("L1", 2)).thenReturn(0);
+
+        service.resumeUnfinished();
+        started.forEach(Runnable::run);
+
+        verify(erasureRepository, never()).deletePlaylistSongsChunk(anyString(), anyInt());
+        verify(erasureRepository, times(1)).deleteHistoryChunk("L1", 2);
+        assertEquals(500L, erasure.getHistoryDeleted());
+        assertEquals(AccountErasure.COMPLETED, erasure.getStatus());
+    }
+
+    @Test
+    public void testFailedChunkIsRecordedAndPickedUpAgain() {
+        AccountErasure erasure = stored(new AccountErasure("L1"));
+        when(erasureRepository.deleteHistoryChunk("L1", 2)).thenThrow(new RuntimeException("lock timeout"));
+        when(erasureRepository.findByStatusNot(AccountErasure.COMPLETED)).thenReturn(List.of(erasure));
+
+        service.run("L1");
+
+        assertEquals(AccountErasure.FAILED, erasure.getStatus());
+        assertEquals("lock timeout", erasure.getLastError());
+        assertEquals(Step.HISTORY, erasure.getStep());
+        verify(erasureRepository, never()).deleteListener(anyString());
+
+        service.resumeUnfinished();
+        assertEquals(1, started.size());
+        verify(dashboardCache).erasureStarted("L1");
+    }
+
+    @Test
+    public void testRepeatedRequestReturnsUnfinishedErasure() {
+        AccountErasure erasure = new AccountErasure("L1");
+        erasure.setStatus(AccountErasure.FAILED);
+        erasure.setStep(Step.PLAYLISTS);
+        when(erasureRepository.findById("L1")).thenReturn(Optional.of(erasure));
+
+        AccountErasureDTO result = service.requestErasure("L1");
+
+        assertEquals("PLAYLISTS", result.step());
+        assertEquals(1, started.size());
+        verify(erasureRepository, never()).save(any());
+        verify(listenerRepository, never()).existsById(anyString());
+    }
+
+    @Test
+    public void testOnlyOneRunPerListenerAtATime() {
+        when(erasureRepository.findById("L1")).thenReturn(Optional.of(new AccountErasure("L1")));
+
+        service.requestErasure("L1");
+        service.requestErasure("L1");
+
+        assertEquals(1, started.size());
+    }
+
+    @Test
+    public void testRequestForUnknownListenerThrows() {
+        when(erasureRepository.findById("UNKNOWN")).thenReturn(Optional.empty());
+        when(listenerRepository.existsById("UNKNOWN")).thenReturn(false);
+
+        assertThrows(ResourceNotFoundException.class, () -> service.requestErasure("UNKNOWN"));
+        assertTrue(started.isEmpty());
+    }
+
+    @Test
+    public void testRequestInvalidInputThrows() {
+        assertThrows(InvalidRequestException.class, () -> service.requestErasure(""));
+        assertThrows(InvalidRequestException.class, () -> service.requestErasure(null));
+    }
+}
@@ -0,0 +1,210 @@
+package com.feedback.listener.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@ExtendWith(MockitoExtension.class)
+public class DashboardCacheTest {
+
+    @Mock
+    private DashboardService dashboardService;
+
+    private MutableClock clock;
+
+    private DashboardCache cache;
+
+    // a clock the test can move forward
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-06-01T12:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        clock = new MutableClock();
+        cache = new DashboardCache(dashboardService, Duration.ofSeconds(60), Duration.ofHours(1), 2, clock);
+    }
+
+    private Map<String, Object> dashboard(String username) {
+        return Map.of("userId", "L1", "username", username);
+    }
+
+    @Test
+    public void testFirstReadBuildsAndLaterReadsAreCached() {
+        when(dashboardService.buildDashboard("L1", "token")).thenReturn(dashboard("v1"));
+
+        assertEquals("v1", cache.get("L1", "token").get("username"));
+        clock.advance(Duration.ofSeconds(30));
+        assertEquals("v1", cache.get("L1", "token").get("username"));
+
+        verify(dashboardService, times(1)).buildDashboard(any(), any());
+    }
+
+    @Test
+    public void testUnknownListenerIsNotCached() {
+        when(dashboardService.buildDashboard("NOPE", null)).thenReturn(null);
+
+        assertNull(cache.get("NOPE", null));
+        assertNull(cache.get("NOPE", null));
+
+        verify(dashboardService, times(2)).buildDashboard("NOPE", null);
+    }
+
+    @Test
+    public void testStaleSnapshotIsServedWhileOneRefreshRuns() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(dashboardService.buildDashboard("L1", null))
+                .thenReturn(dashboard("v1"))
+                .thenAnswer(invocation -> {
+                    release.await(5, TimeUnit.SECONDS);
+                    return dashboard("v2");
+                });
+        cache.get("L1", null);
+        clock.advance(Duration.ofSeconds(61));
+
+        // every read during the refresh gets the old snapshot, and only one refresh starts
+        for (int i = 0; i < 5; i++) {
+            assertEquals("v1", cache.get("L1", null).get("username"));
+        }
+        release.countDown();
+
+        verify(dashboardService, timeout(2000).times(2)).buildDashboard("L1", null);
+        waitForUsername("v2");
+        verify(dashboardService, times(2)).buildDashboard("L1", null);
+    }
+
+    @Test
+    public void testInvalidateRefreshesOnNextRead() throws Exception {
+        when(dashboardService.buildDashboard("L1", null)).thenReturn(dashboard("v1")).thenReturn(dashboard("v2"));
+        cache.get("L1", null);
+
+        cache.invalidate("L1");
+
+        assertEquals("v1", cache.get("L1", null).get("username"));
+        waitForUsername("v2");
+    }
+
+    @Test
+    public void testEvictWaitsForFreshDashboard() {
+        when(dashboardService.buildDashboard("L1", null)).thenReturn(dashboard("v1")).thenReturn(dashboard("v2"));
+        cache.get("L1", null);
+
+        cache.evict("L1");
+
+        assertEquals("v2", cache.get("L1", null).get("username"));
+    }
+
+    @Test
+    public void testListenerBeingErasedIsNotServedOrCached() {
+        when(dashboardService.buildDashboard("L1", null)).thenReturn(dashboard("v1")).thenReturn(dashboard("v2"));
+        cache.get("L1", null);
+
+        cache.erasureStarted("L1");
+
+        assertNull(cache.get("L1", null));
+        verify(dashboardService, times(1)).buildDashboard("L1", null);
+
+        cache.erasureFinished("L1");
+
+        assertEquals("v2", cache.get("L1", null).get("username"));
+    }
+
+    @Test
+    public void testBuildRunningDuringEvictIsNotCached() throws Exception {
+        CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(dashboardService.buildDashboard("L1", null))
+                .thenAnswer(invocation -> {
+                    building.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return dashboard("before");
+                })
+                .thenReturn(dashboard("after"));
+        Thread reader = Thread.ofVirtual().start(() -> cache.get("L1", null));
+        assertTrue(building.await(2, TimeUnit.SECONDS));
+
+        cache.evict("L1");
+        release.countDown();
+        reader.join();
+
+        // the build read the listener before the eviction, so the next read builds again
+        assertEquals("after", cache.get("L1", null).get("username"));
+    }
+
+    @Test
+    public void testLeastRecentlyReadListenerIsDropped() {
+        when(dashboardService.buildDashboard(any(), any())).thenAnswer(invocation -> dashboard(invocation.getArgument(0)));
+        cache.get("L1", null);
+        cache.get("L2", null);
+        cache.get("L1", null);
+
+        // L2 is the least recently read of the two kept
+        cache.get("L3", null);
+        cache.get("L1", null);
+        cache.get("L2", null);
+
+        verify(dashboardService, times(1)).buildDashboard("L1", null);
+        verify(dashboardService, times(2)).buildDashboard("L2", null);
+    }
+
+    @Test
+    public void testSnapshotPastMaxAgeIsRebuiltBeforeReturning() {
+        when(dashboardService.buildDashboard("L1", null)).thenReturn(dashboard("v1")).thenReturn(dashboard("v2"));
+        cache.get("L1", null);
+
+        clock.advance(Duration.ofHours(2));
+
+        assertEquals("v2", cache.get("L1", null).get("username"));
+    }
+
+    @Test
+    public void testBuildFailureIsRethrownOnMiss() {
+        when(dashboardService.buildDashboard("L1", null)).thenThrow(new IllegalStateException("db down"));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> cache.get("L1", null));
+        assertEquals("db down", e.getMessage());
+    }
+
+    private void waitForUsername(String username) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!username.equals(cache.get("L1", null).get("username"))) {
+            assertTrue(System.nanoTime() < deadline, "dashboard was not refreshed to " + username);
+            Thread.sleep(10);
+        }
+    }
+}
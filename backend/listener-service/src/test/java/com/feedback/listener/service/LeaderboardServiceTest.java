@@ -0,0 +1,189 @@
+package com.feedback.listener.service;
+
+import com.feedback.listener.dtos.LeaderboardEntryDTO;
+import com.feedback.listener.dtos.LeaderboardPageDTO;
+import com.feedback.listener.dtos.ListenerRankDTO;
+import com.feedback.listener.exception.InvalidRequestException;
+import com.feedback.listener.exception.ResourceNotFoundException;
+import com.feedback.listener.model.Listener;
+import com.feedback.listener.repository.ListenerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+@ExtendWith(MockitoExtension.class)
+public class LeaderboardServiceTest {
+
+    @Mock
+    private ListenerRepository repository;
+
+    private MutableClock clock;
+
+    private LeaderboardService service;
+
+    // a clock the test can move forward
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-06-01T12:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        clock = new MutableClock();
+        service = new LeaderboardService(repository, Duration.ofSeconds(30), 1000, clock);
+    }
+
+    private Listener listener(String id, String country, long listeningTimeMs, int songsPlayed) {
+        Listener listener = new Listener(id, "Name " + id, id + "@example.com", country, "href");
+        listener.setTotalListeningTimeMs(listeningTimeMs);
+        listener.setTotalSongsPlayed(songsPlayed);
+        return listener;
+    }
+
+    private List<Long> ranks(LeaderboardPageDTO page) {
+        return page.entries().stream().map(LeaderboardEntryDTO::rank).toList();
+    }
+
+    @Test
+    public void testFirstPageRanksTiesTogether() {
+        when(repository.findTopByListeningTime(Long.MAX_VALUE, "", 4)).thenReturn(List.of(
+                listener("L4", "US", 9000, 1),
+                listener("L3", "US", 5000, 1),
+                listener("L2", "GB", 5000, 1),
+                listener("L1", "GB", 1000, 1)));
+
+        LeaderboardPageDTO page = service.getLeaderboard(null, null, 3, null);
+
+        assertEquals("time", page.by());
+        assertNull(page.country());
+        assertEquals(List.of("L4", "L3", "L2"), page.entries().stream().map(LeaderboardEntryDTO::listenerId).toList());
+        assertEquals(List.of(1L, 2L, 2L), ranks(page));
+        assertEquals(9000, page.entries().get(0).value());
+        assertNotNull(page.nextCursor());
+    }
+
+    @Test
+    public void testNextPageContinuesAfterCursorAndCarriesRanks() {
+        when(repository.findTopBySongsPlayedInCountry("US", Long.MAX_VALUE, "", 3)).thenReturn(List.of(
+                listener("L9", "US", 1, 40),
+                listener("L8", "US", 1, 30),
+                listener("L7", "US", 1, 30)));
+        LeaderboardPageDTO first = service.getLeaderboard("songs", " us ", 2, null);
+        assertEquals(List.of(1L, 2L), ranks(first));
+
+        // L7 ties with L8, the last row of the first page, so it keeps rank 2
+        when(repository.findTopBySongsPlayedInCountry("US", 30, "L8", 3)).thenReturn(List.of(
+                listener("L7", "US", 1, 30),
+                listener("L6", "US", 1, 10)));
+        LeaderboardPageDTO second = service.getLeaderboard("songs", "US", 2, first.nextCursor());
+
+        assertEquals("US", second.country());
+        assertEquals(List.of(2L, 4L), ranks(second));
+        assertNull(second.nextCursor());
+    }
+
+    @Test
+    public void testTopPagesAreCachedUntilTheyExpire() {
+        when(repository.findTopByListeningTime(Long.MAX_VALUE, "", 26))
+                .thenReturn(List.of(listener("L1", "US", 1000, 1)))
+                .thenReturn(List.of(listener("L2", "US", 2000, 1)));
+
+        assertEquals("L1", service.getLeaderboard("time", null, null, null).entries().get(0).listenerId());
+        clock.advance(Duration.ofSeconds(10));
+        assertEquals("L1", service.getLeaderboard("time", null, null, null).entries().get(0).listenerId());
+        clock.advance(Duration.ofSeconds(30));
+        assertEquals("L2", service.getLeaderboard("time", null, null, null).entries().get(0).listenerId());
+
+        verify(repository, times(2)).findTopByListeningTime(Long.MAX_VALUE, "", 26);
+    }
+
+    @Test
+    public void testDeepPagesAreNotCached() {
+        String deep = new LeaderboardService.Cursor(500, "L500", 500, 480).encode();
+        when(repository.findTopByListeningTime(500, "L500", 11)).thenReturn(List.of(listener("L501", "US", 500, 1)));
+
+        LeaderboardPageDTO page = service.getLeaderboard("time", null, 10, deep);
+        service.getLeaderboard("time", null, 10, deep);
+
+        assertEquals(List.of(480L), ranks(page));
+        verify(repository, times(2)).findTopByListeningTime(500, "L500", 11);
+    }
+
+    @Test
+    public void testRankCountsListenersAhead() {
+        when(repository.findById("L1")).thenReturn(Optional.of(listener("L1", "gb", 5000, 12)));
+        when(repository.countAheadByListeningTime(5000, 1000)).thenReturn(41L);
+        when(repository.countAheadBySongsPlayedInCountry("GB", 12, 1000)).thenReturn(2L);
+
+        ListenerRankDTO global = service.getRank("L1", "time", false);
+        ListenerRankDTO country = service.getRank("L1", "songs", true);
+
+        assertEquals(42L, global.rank());
+        assertFalse(global.beyondMaxRank());
+        assertNull(global.country());
+        assertEquals(3L, country.rank());
+        assertEquals("GB", country.country());
+        assertEquals(12, country.value());
+    }
+
+    @Test
+    public void testRankPastTheCapIsReportedAsBeyondIt() {
+        when(repository.findById("L1")).thenReturn(Optional.of(listener("L1", "US", 5000, 12)));
+        // the count stops at the cap
+        when(repository.countAheadByListeningTime(5000, 1000)).thenReturn(1000L);
+
+        ListenerRankDTO rank = service.getRank("L1", "time", false);
+
+        assertEquals(1001L, rank.rank());
+        assertTrue(rank.beyondMaxRank());
+    }
+
+    @Test
+    public void testListenerWithNothingPlayedHasNoRank() {
+        when(repository.findById("L1")).thenReturn(Optional.of(listener("L1", "US", 0, 0)));
+
+        assertNull(service.getRank("L1", "time", false).rank());
+        verify(repository, never()).countAheadByListeningTime(anyLong(), anyLong());
+    }
+
+    @Test
+    public void testInvalidInputThrows() {
+        assertThrows(InvalidRequestException.class, () -> service.getLeaderboard("plays", null, null, null));
+        assertThrows(InvalidRequestException.class, () -> service.getLeaderboard("time", null, null, "not-a-cursor"));
+        when(repository.findById("NOPE")).thenReturn(Optional.empty());
+        assertThrows(ResourceNotFoundException.class, () -> service.getRank("NOPE", "time", false));
+    }
+}
@@ -17,8 +17,10 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
 @ExtendWith(MockitoExtension.class)
 public class ListenerServiceTest {
@@ -79,6 +81,35 @@ public class ListenerServiceTest {
         });
     }
 
+    @Test
+    public void testGetByIdsKeepsRequestedOrder() {
+        Listener other = new Listener("L2", "Other", "new@example.com", "USA", "href");
+        when(repository.findAllById(List.of("L2", "UNKNOWN", "L1"))).thenReturn(List.of(sampleListener, other));
+
+        List<ListenerDTO> result = service.getByIds(List.of("L2", "UNKNOWN", "L1"));
+
+        assertEquals(List.of("L2", "L1"), result.stream().map(ListenerDTO::listenerId).toList());
+        assertEquals(List.of(), service.getByIds(List.of()));
+    }
+
+    @Test
+    public void testGetByIdsQueriesEachIdOnce() {
+        when(repository.findAllById(List.of("L1"))).thenReturn(List.of(sampleListener));
+
+        List<ListenerDTO> result = service.getByIds(Arrays.asList("L1", "L1", null, " "));
+
+        assertEquals(1, result.size());
+    }
+
+    @Test
+    public void testGetByIdsTooManyThrows() {
+        List<String> ids = IntStream.rangeClosed(0, ListenerService.MAX_BATCH_IDS)
+                .mapToObj(i -> "L" + i)
+                .toList();
+
+        assertThrows(InvalidRequestException.class, () -> service.getByIds(ids));
+    }
+
     @Test
     public void testFindByDisplayNameSuccess() {
         when(repository.findByDisplayName("Test Listener")).thenReturn(List.of(sampleListener));
@@ -216,26 +247,4 @@ public class ListenerServiceTest {
         assertThrows(InvalidRequestException.class, () -> service.update("", dto));
         assertThrows(InvalidRequestException.class, () -> service.update(null, dto));
     }
-
-    @Test
-    public void testDeleteListenerSuccess() {
-        when(repository.existsById("L1")).thenReturn(true);
-
-        service.delete("L1");
-
-        verify(repository).deleteById("L1");
-    }
-
-    @Test
-    public void testDeleteListenerNotFoundThrows() {
-        when(repository.existsById("UNKNOWN")).thenReturn(false);
-
-        assertThrows(ResourceNotFoundException.class, () -> service.delete("UNKNOWN"));
-    }
-
-    @Test
-    public void testDeleteListenerInvalidInputThrows() {
-        assertThrows(InvalidRequestException.class, () -> service.delete(""));
-        assertThrows(InvalidRequestException.class, () -> service.delete(null));
-    }
 }
@@ -18,9 +18,15 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.feedback.playlist.dtos.AddTracksRequest;
+import com.feedback.playlist.dtos.MoveTracksRequest;
 import com.feedback.playlist.dtos.PlaylistDTO;
+import com.feedback.playlist.dtos.PlaylistPageDTO;
+import com.feedback.playlist.dtos.PlaylistTrackDTO;
+import com.feedback.playlist.dtos.PlaylistTrackPageDTO;
 import com.feedback.playlist.service.KafkaLogger;
 import com.feedback.playlist.service.PlaylistService;
+import com.feedback.playlist.service.PlaylistTrackService;
 import com.feedback.playlist.service.SpotifyApiService;
 
 @RestController
@@ -28,11 +34,14 @@ import com.feedback.playlist.service.SpotifyApiService;
 public class PlaylistController {
 
     private final PlaylistService playlistService;
+    private final PlaylistTrackService trackService;
     private final SpotifyApiService spotifyApiService;
     private final KafkaLogger kafkaLogger;
 
-    public PlaylistController(PlaylistService playlistService, SpotifyApiService spotifyApiService, KafkaLogger kafkaLogger) {
+    public PlaylistController(PlaylistService playlistService, PlaylistTrackService trackService,
+            SpotifyApiService spotifyApiService, KafkaLogger kafkaLogger) {
         this.playlistService = playlistService;
+        this.trackService = trackService;
         this.spotifyApiService = spotifyApiService;
         this.kafkaLogger = kafkaLogger;
     }
@@ -190,14 +199,31 @@ public class PlaylistController {
         }
     }
 
-    // Get all playlists for a user
+    // Get a user's playlists or every playlist, a page at a time (pass the returned nextCursor as after)
     @GetMapping
-    public ResponseEntity<List<PlaylistDTO>> getAllPlaylists(@RequestParam(required = false) String userId) {
+    public ResponseEntity<PlaylistPageDTO> getAllPlaylists(@RequestParam(required = false) String userId,
+            @RequestParam(required = false) Integer size, @RequestParam(required = false) String after) {
         if (userId != null && !userId.isBlank()) {
-            return ResponseEntity.ok(playlistService.findByOwnerId(userId));
+            return ResponseEntity.ok(playlistService.findByOwnerId(userId, size, after));
         }
         kafkaLogger.log("Fetched all playlists.");
-        return ResponseEntity.ok(playlistService.getAllPlaylists());
+        return ResponseEntity.ok(playlistService.getAllPlaylists(size, after));
+    }
+
+    // Get public playlists a page at a time (pass the returned nextCursor as after for the next page)
+    @GetMapping("/public")
+    public ResponseEntity<PlaylistPageDTO> getPublicPlaylists(@RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String after) {
+        kafkaLogger.log("Fetched public playlists.");
+        return ResponseEntity.ok(playlistService.findPublicPlaylists(size, after));
+    }
+
+    // Search playlists by name, best matches first (pass the returned nextCursor as after for the next page)
+    @GetMapping("/search")
+    public ResponseEntity<PlaylistPageDTO> searchPlaylists(@RequestParam String query,
+            @RequestParam(required = false) Integer size, @RequestParam(required = false) String after) {
+        kafkaLogger.log("Searched playlists with query: " + query);
+        return ResponseEntity.ok(playlistService.searchByName(query, size, after));
     }
 
     // Get specific playlist by ID
@@ -242,21 +268,60 @@ public class PlaylistController {
             .orElse(ResponseEntity.notFound().build());
     }
 
-    // Add a song to a playlist
+    // Get a playlist's tracks in order, a page at a time (pass the returned nextCursor as after for the next page)
+    @GetMapping("/{playlistId}/tracks")
+    public ResponseEntity<PlaylistTrackPageDTO> getPlaylistTracks(@PathVariable String playlistId,
+            @RequestParam(required = false) Integer size, @RequestParam(required = false) String after) {
+        kafkaLogger.log("Fetched tracks for playlist with ID: " + playlistId);
+        return ResponseEntity.ok(trackService.getTracks(playlistId, size, after));
+    }
+
+    // Add songs to a playlist, in order, before beforeEntryId or at the end when it is left out
+    @PostMapping("/{playlistId}/tracks")
+    public ResponseEntity<List<PlaylistTrackDTO>> addPlaylistTracks(@PathVariable String playlistId,
+            @RequestBody AddTracksRequest request) {
+        List<PlaylistTrackDTO> added = trackService.addTracks(playlistId, request.songIds(), request.beforeEntryId());
+        kafkaLogger.log("Added " + added.size() + " tracks to playlist " + playlistId + ".");
+        return ResponseEntity.status(201).body(added);
+    }
+
+    // Move tracks, in order, before beforeEntryId or to the end when it is left out
+    @PostMapping("/{playlistId}/tracks/move")
+    public ResponseEntity<List<PlaylistTrackDTO>> movePlaylistTracks(@PathVariable String playlistId,
+            @RequestBody MoveTracksRequest request) {
+        List<PlaylistTrackDTO> moved = trackService.moveTracks(playlistId, request.entryIds(), request.beforeEntryId());
+        kafkaLogger.log("Moved " + moved.size() + " tracks in playlist " + playlistId + ".");
+        return ResponseEntity.ok(moved);
+    }
+
+    // Remove one track; other occurrences of the same song stay
+    @DeleteMapping("/{playlistId}/tracks/{entryId}")
+    public ResponseEntity<Void> removePlaylistTrack(@PathVariable String playlistId, @PathVariable Long entryId) {
+        trackService.removeTrack(playlistId, entryId);
+        kafkaLogger.log("Removed track " + entryId + " from playlist " + playlistId + ".");
+        return ResponseEntity.noContent().build();
+    }
+
+    // Add a song to the end of a playlist
     @PostMapping("/{playlistId}/songs")
     public ResponseEntity<Map<String, Object>> addSongToPlaylist(@PathVariable String playlistId, @RequestBody Map<String, Object> songData) {
+        Object songId = songData.get("songId");
+        PlaylistTrackDTO added = trackService.addTracks(playlistId,
+                songId == null ? null : List.of(songId.toString()), null).get(0);
         Map<String, Object> response = Map.of(
             "playlistId", playlistId,
-            "songId", songData.get("songId"),
+            "songId", added.songId(),
+            "entryId", added.entryId(),
             "message", "Song added to playlist successfully"
         );
-        kafkaLogger.log("Added song " + songData.get("songId") + " to playlist " + playlistId + ".");
+        kafkaLogger.log("Added song " + added.songId() + " to playlist " + playlistId + ".");
         return ResponseEntity.ok(response);
     }
 
-    // Remove a song from a playlist
+    // Remove every occurrence of a song from a playlist
     @DeleteMapping("/{playlistId}/songs/{songId}")
     public ResponseEntity<Map<String, String>> removeSongFromPlaylist(@PathVariable String playlistId, @PathVariable String songId) {
+        trackService.removeSong(playlistId, songId);
         Map<String, String> response = Map.of("message", "Song " + songId + " removed from playlist " + playlistId);
         kafkaLogger.log("Removed song " + songId + " from playlist " + playlistId + ".");
         return ResponseEntity.ok(response);
@@ -0,0 +1,9 @@
+package com.feedback.playlist.dtos;
+
+import java.util.List;
+
+// songs to add, in order; they go just before beforeEntryId, or at the end when it is null
+public record AddTracksRequest(
+        List<String> songIds,
+        Long beforeEntryId
+) {}
@@ -0,0 +1,9 @@
+package com.feedback.playlist.dtos;
+
+import java.util.List;
+
+// tracks to move, in the order they should end up; they go just before beforeEntryId, or to the end when it is null
+public record MoveTracksRequest(
+        List<Long> entryIds,
+        Long beforeEntryId
+) {}
@@ -0,0 +1,7 @@
+package com.feedback.playlist.dtos;
+
+// one track of a playlist; entryId tells apart repeats of the same song and is what move and remove take
+public record PlaylistTrackDTO(
+        Long entryId,
+        String songId
+) {}
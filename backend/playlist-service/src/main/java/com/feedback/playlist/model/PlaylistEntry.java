@@ -0,0 +1,45 @@
+package com.feedback.playlist.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.ColumnDefault;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// one track of a playlist, stored in the existing playlists_songs table. Tracks are ordered by position
+// (then entry ID); positions are spaced PlaylistTrackService.POSITION_GAP apart, so inserting, moving or
+// removing a track writes only that track's row
+@Entity
+@Data
+@Table(name = "playlists_songs", indexes = {
+    @Index(name = "idx_playlists_songs_position", columnList = "playlist_id, position, entry_id")
+})
+@NoArgsConstructor
+public class PlaylistEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "entry_id")
+    private Long entryId;
+
+    @Column(name = "playlist_id", length = 64, nullable = false)
+    private String playlistId;
+
+    @Column(name = "song_id", length = 64, nullable = false)
+    private String songId;
+
+    // rows from before positions existed all read 0 and fall back to entry ID order
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long position;
+
+    public PlaylistEntry(String playlistId, String songId, long position) {
+        this.playlistId = playlistId;
+        this.songId = songId;
+        this.position = position;
+    }
+}
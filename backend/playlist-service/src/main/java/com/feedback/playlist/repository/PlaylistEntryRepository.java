@@ -0,0 +1,54 @@
+package com.feedback.playlist.repository;
+
+import com.feedback.playlist.model.PlaylistEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+// every query here runs off idx_playlists_songs_position (playlist_id, position, entry_id)
+public interface PlaylistEntryRepository extends JpaRepository<PlaylistEntry, Long> {
+
+    // A playlist's tracks a page at a time: the first page, then each page after the last (position, entry ID)
+    List<PlaylistEntry> findByPlaylistIdOrderByPositionAscEntryIdAsc(String playlistId, Limit limit);
+
+    @Query("SELECT e FROM PlaylistEntry e WHERE e.playlistId = :playlistId "
+            + "AND (e.position > :position OR (e.position = :position AND e.entryId > :entryId)) "
+            + "ORDER BY e.position, e.entryId")
+    List<PlaylistEntry> findPageAfter(@Param("playlistId") String playlistId, @Param("position") long position,
+            @Param("entryId") long entryId, Limit limit);
+
+    // the track just before another one, to insert between the two
+    @Query("SELECT e FROM PlaylistEntry e WHERE e.playlistId = :playlistId "
+            + "AND (e.position < :position OR (e.position = :position AND e.entryId < :entryId)) "
+            + "ORDER BY e.position DESC, e.entryId DESC")
+    List<PlaylistEntry> findBefore(@Param("playlistId") String playlistId, @Param("position") long position,
+            @Param("entryId") long entryId, Limit limit);
+
+    // the last track, to append after it
+    List<PlaylistEntry> findByPlaylistIdOrderByPositionDescEntryIdDesc(String playlistId, Limit limit);
+
+    // the whole playlist in order; only read to respace positions, which is rare
+    List<PlaylistEntry> findByPlaylistIdOrderByPositionAscEntryIdAsc(String playlistId);
+
+    // song IDs for a whole list of playlists in one query, each playlist's in track order
+    @Query("SELECT new com.feedback.playlist.repository.LinkedId(e.playlistId, e.songId) "
+            + "FROM PlaylistEntry e WHERE e.playlistId IN :playlistIds ORDER BY e.playlistId, e.position, e.entryId")
+    List<LinkedId> findSongIds(@Param("playlistIds") Collection<String> playlistIds);
+
+    // which of these songs exist, so a playlist never points at an unknown song
+    @Query("SELECT s.songId FROM Song s WHERE s.songId IN :songIds")
+    List<String> findExistingSongIds(@Param("songIds") Collection<String> songIds);
+
+    @Modifying
+    @Query("DELETE FROM PlaylistEntry e WHERE e.playlistId = :playlistId AND e.songId = :songId")
+    int deleteByPlaylistIdAndSongId(@Param("playlistId") String playlistId, @Param("songId") String songId);
+
+    @Modifying
+    @Query("DELETE FROM PlaylistEntry e WHERE e.playlistId = :playlistId")
+    int deleteByPlaylistId(@Param("playlistId") String playlistId);
+}
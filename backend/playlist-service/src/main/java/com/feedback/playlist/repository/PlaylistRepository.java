@@ -1,16 +1,46 @@
 package com.feedback.playlist.repository;
 
 import com.feedback.playlist.model.Playlist;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface PlaylistRepository extends JpaRepository<Playlist, String> {
+    // Catalog pages in playlist ID order: the first page, then each page after the last ID of the one before
+    List<Playlist> findAllByOrderByPlaylistIdAsc(Limit limit);
+
+    List<Playlist> findByPlaylistIdGreaterThanOrderByPlaylistIdAsc(String afterId, Limit limit);
+
+    // A listener's playlists a page at a time in playlist ID order, read from idx_playlists_owner_playlist (schema.sql)
+    List<Playlist> findByOwner_ListenerIdOrderByPlaylistIdAsc(String ownerId, Limit limit);
+
+    List<Playlist> findByOwner_ListenerIdAndPlaylistIdGreaterThanOrderByPlaylistIdAsc(String ownerId, String afterId, Limit limit);
+
+    // Public playlists a page at a time in playlist ID order, read from the partial idx_playlists_public (schema.sql)
+    List<Playlist> findByIsPublicTrueOrderByPlaylistIdAsc(Limit limit);
+
+    List<Playlist> findByIsPublicTrueAndPlaylistIdGreaterThanOrderByPlaylistIdAsc(String afterId, Limit limit);
+
     // Find playlists by name
     List<Playlist> findByName(String name);
 
-    // Find playlists by partial name (case-insensitive)
-    List<Playlist> findByNameContainingIgnoreCase(String namePart);
+    // Search by name, tolerant of typos: pg_trgm word similarity (:query <% name) is answered from the
+    // idx_playlists_name_trgm GIN index (schema.sql) instead of an ILIKE scan of the whole table. Matches are ranked
+    // by similarity, boosted logarithmically by all-time plays of their songs, with the ID as a stable tie-breaker
+    @Query(value = "SELECT p.* FROM playlists p "
+            + "CROSS JOIN LATERAL (SELECT COALESCE(SUM(s.play_count), 0) AS plays FROM playlists_songs x "
+            + "JOIN song s ON s.song_id = x.song_id WHERE x.playlist_id = p.playlist_id) popularity "
+            + "WHERE :query <% p.name "
+            + "ORDER BY word_similarity(:query, p.name) * (1 + :boost * ln(1 + popularity.plays)) DESC, p.playlist_id "
+            + "LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Playlist> search(@Param("query") String query, @Param("boost") double boost, @Param("limit") int limit,
+            @Param("offset") int offset);
 
     // Find playlists by description
     List<Playlist> findByDescription(String description);
@@ -24,4 +54,9 @@ public interface PlaylistRepository extends JpaRepository<Playlist, String> {
 
     // Find playlists by owner's email
     List<Playlist> findByOwner_Email(String email);
-}
\ No newline at end of file
+
+    // Locks the playlist row for the rest of the transaction, so edits of one playlist's tracks run one at a time
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Playlist p WHERE p.playlistId = :playlistId")
+    Optional<Playlist> findForUpdate(@Param("playlistId") String playlistId);
+}
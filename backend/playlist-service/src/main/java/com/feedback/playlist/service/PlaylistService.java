@@ -1,28 +1,44 @@
 package com.feedback.playlist.service;
 
 import com.feedback.playlist.dtos.PlaylistDTO;
+import com.feedback.playlist.dtos.PlaylistPageDTO;
 import com.feedback.playlist.dtos.ListenerDTO;
 import com.feedback.playlist.exception.InvalidRequestException;
 import com.feedback.playlist.exception.ResourceNotFoundException;
 import com.feedback.playlist.model.Listener;
 import com.feedback.playlist.model.Playlist;
+import com.feedback.playlist.repository.LinkedId;
+import com.feedback.playlist.repository.PlaylistEntryRepository;
 import com.feedback.playlist.repository.PlaylistRepository;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
 public class PlaylistService {
 
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+    // search is ranked, so it pages by offset; deeper than this nobody is still reading
+    public static final int MAX_SEARCH_RESULTS = 1000;
+    // how much all-time plays lift a match: score = similarity * (1 + boost * ln(1 + plays))
+    static final double POPULARITY_BOOST = 0.05;
+
     private final PlaylistRepository repository;
+    private final PlaylistEntryRepository entryRepository;
     private final ListenerService listenerService;
 
-    public PlaylistService(PlaylistRepository repository, ListenerService listenerService) {
+    public PlaylistService(PlaylistRepository repository, PlaylistEntryRepository entryRepository,
+            ListenerService listenerService) {
         this.repository = repository;
+        this.entryRepository = entryRepository;
         this.listenerService = listenerService;
     }
 
@@ -34,10 +50,19 @@ public class PlaylistService {
         return listener;
     }
     
-    public List<PlaylistDTO> getAllPlaylists() {
-        return repository.findAll().stream()
-                .map(this::playlistToDto)
-                .toList();
+    // one page of the catalog in playlist ID order; after is the previous page's nextCursor
+    public PlaylistPageDTO getAllPlaylists(Integer limit, String after) {
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        // one extra row tells us whether there is another page without a count query
+        Limit fetch = Limit.of(pageSize + 1);
+        List<Playlist> playlists = after == null || after.isBlank()
+                ? repository.findAllByOrderByPlaylistIdAsc(fetch)
+                : repository.findByPlaylistIdGreaterThanOrderByPlaylistIdAsc(decodeCursor(after), fetch);
+
+        boolean hasMore = playlists.size() > pageSize;
+        List<PlaylistDTO> page = playlistsToDtos(playlists.subList(0, Math.min(pageSize, playlists.size())));
+        String nextCursor = hasMore ? encodeCursor(page.get(page.size() - 1).playlistId()) : null;
+        return new PlaylistPageDTO(page, nextCursor);
     }
 
     
@@ -54,35 +79,51 @@ public class PlaylistService {
         if (name == null || name.isBlank()) {
             return List.of();
         }
-        return repository.findByName(name).stream()
-                .map(this::playlistToDto)
-                .toList();
+        return playlistsToDtos(repository.findByName(name));
     }
 
     
-    public List<PlaylistDTO> searchByName(String namePart) {
-        if (namePart == null || namePart.isBlank()) {
-            return List.of();
+    // typo-tolerant name search, best matches first (playlists with popular songs ahead among similar names);
+    // after is the previous page's nextCursor. Results stop after MAX_SEARCH_RESULTS
+    public PlaylistPageDTO searchByName(String query, Integer limit, String after) {
+        if (query == null || query.isBlank()) {
+            return new PlaylistPageDTO(List.of(), null);
         }
-        return repository.findByNameContainingIgnoreCase(namePart).stream()
-                .map(this::playlistToDto)
-                .toList();
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        int offset = after == null || after.isBlank() ? 0 : decodeOffset(after);
+        int fetch = Math.min(pageSize + 1, MAX_SEARCH_RESULTS - offset);
+        if (fetch <= 0) {
+            return new PlaylistPageDTO(List.of(), null);
+        }
+        List<Playlist> playlists = repository.search(query.trim(), POPULARITY_BOOST, fetch, offset);
+
+        boolean hasMore = playlists.size() > pageSize;
+        List<PlaylistDTO> page = playlistsToDtos(playlists.subList(0, Math.min(pageSize, playlists.size())));
+        String nextCursor = hasMore ? encodeCursor(String.valueOf(offset + pageSize)) : null;
+        return new PlaylistPageDTO(page, nextCursor);
     }
 
     
-    public List<PlaylistDTO> findByOwnerId(String ownerId) {
+    // one page of a listener's playlists in playlist ID order; after is the previous page's nextCursor.
+    // listener-service is only asked whether the owner exists when they have no playlists at all
+    public PlaylistPageDTO findByOwnerId(String ownerId, Integer limit, String after) {
         if (ownerId == null || ownerId.isBlank()) {
-            return List.of();
+            return new PlaylistPageDTO(List.of(), null);
         }
-        // Verify owner exists
-        if (!listenerService.existsById(ownerId)) {
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        Limit fetch = Limit.of(pageSize + 1);
+        boolean firstPage = after == null || after.isBlank();
+        List<Playlist> playlists = firstPage
+                ? repository.findByOwner_ListenerIdOrderByPlaylistIdAsc(ownerId, fetch)
+                : repository.findByOwner_ListenerIdAndPlaylistIdGreaterThanOrderByPlaylistIdAsc(ownerId, decodeCursor(after), fetch);
+        if (firstPage && playlists.isEmpty() && !listenerService.existsById(ownerId)) {
             throw new ResourceNotFoundException("Owner", ownerId);
         }
-        return repository.findAll().stream()
-                .filter(playlist -> playlist.getOwner() != null 
-                    && playlist.getOwner().getListenerId().equals(ownerId))
-                .map(this::playlistToDto)
-                .toList();
+
+        boolean hasMore = playlists.size() > pageSize;
+        List<PlaylistDTO> page = playlistsToDtos(playlists.subList(0, Math.min(pageSize, playlists.size())));
+        String nextCursor = hasMore ? encodeCursor(page.get(page.size() - 1).playlistId()) : null;
+        return new PlaylistPageDTO(page, nextCursor);
     }
 
     
@@ -90,17 +131,22 @@ public class PlaylistService {
         if (email == null || email.isBlank()) {
             return List.of();
         }
-        return repository.findByOwner_Email(email).stream()
-                .map(this::playlistToDto)
-                .toList();
+        return playlistsToDtos(repository.findByOwner_Email(email));
     }
 
     
-    public List<PlaylistDTO> findPublicPlaylists() {
-        return repository.findAll().stream()
-                .filter(playlist -> playlist.getIsPublic() != null && playlist.getIsPublic())
-                .map(this::playlistToDto)
-                .toList();
+    // one page of public playlists in playlist ID order; after is the previous page's nextCursor
+    public PlaylistPageDTO findPublicPlaylists(Integer limit, String after) {
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        Limit fetch = Limit.of(pageSize + 1);
+        List<Playlist> playlists = after == null || after.isBlank()
+                ? repository.findByIsPublicTrueOrderByPlaylistIdAsc(fetch)
+                : repository.findByIsPublicTrueAndPlaylistIdGreaterThanOrderByPlaylistIdAsc(decodeCursor(after), fetch);
+
+        boolean hasMore = playlists.size() > pageSize;
+        List<PlaylistDTO> page = playlistsToDtos(playlists.subList(0, Math.min(pageSize, playlists.size())));
+        String nextCursor = hasMore ? encodeCursor(page.get(page.size() - 1).playlistId()) : null;
+        return new PlaylistPageDTO(page, nextCursor);
     }
 
     
@@ -181,6 +227,8 @@ public class PlaylistService {
         if (!repository.existsById(id)) {
             throw new ResourceNotFoundException("Playlist", id);
         }
+        // tracks first: nothing maps them from Playlist any more, so they are not cascaded
+        entryRepository.deleteByPlaylistId(id);
         repository.deleteById(id);
     }
     
@@ -203,22 +251,54 @@ public class PlaylistService {
         }
     }
 
+    // cursors are opaque to clients: the last playlist ID of a page, base64url-encoded
+    private static String encodeCursor(String playlistId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(playlistId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("after", cursor);
+        }
+    }
+
+    // search cursors carry the offset of the next page
+    private static int decodeOffset(String cursor) {
+        try {
+            int offset = Integer.parseInt(decodeCursor(cursor));
+            if (offset < 0) {
+                throw new InvalidRequestException("after", cursor);
+            }
+            return offset;
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("after", cursor);
+        }
+    }
+
+    // DTOs for a list of playlists; song IDs, in track order, are read in one query per LinkedId.CHUNK_SIZE playlists
+    // rather than a query per playlist
+    private List<PlaylistDTO> playlistsToDtos(List<Playlist> playlists) {
+        if (playlists.isEmpty()) {
+            return List.of();
+        }
+        Map<String, List<String>> songIds = LinkedId.groupInChunks(
+                playlists.stream().map(Playlist::getPlaylistId).toList(), entryRepository::findSongIds);
+        return playlists.stream()
+                .map(playlist -> new PlaylistDTO(
+                        playlist.getPlaylistId(),
+                        playlist.getName(),
+                        playlist.getDescription(),
+                        playlist.getHref(),
+                        playlist.getIsPublic(),
+                        playlist.getOwner() != null ? playlist.getOwner().getListenerId() : null,
+                        songIds.getOrDefault(playlist.getPlaylistId(), List.of())
+                ))
+                .toList();
+    }
+
     private PlaylistDTO playlistToDto(Playlist playlist) {
-        String ownerId = playlist.getOwner() != null ? playlist.getOwner().getListenerId() : null;
-
-        List<String> songIds = playlist.getSongs().stream()
-                .map(song -> song.getSongId())
-                .collect(Collectors.toList());
-
-        return new PlaylistDTO(
-                playlist.getPlaylistId(),
-                playlist.getName(),
-                playlist.getDescription(),
-                playlist.getHref(),
-                playlist.getIsPublic(),
-                ownerId,
-                songIds
-        );
+        return playlistsToDtos(List.of(playlist)).get(0);
     }
 }
-
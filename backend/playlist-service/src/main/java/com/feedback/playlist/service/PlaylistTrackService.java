@@ -0,0 +1,268 @@
+package com.feedback.playlist.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.feedback.playlist.dtos.PlaylistTrackDTO;
+import com.feedback.playlist.dtos.PlaylistTrackPageDTO;
+import com.feedback.playlist.exception.InvalidRequestException;
+import com.feedback.playlist.exception.ResourceNotFoundException;
+import com.feedback.playlist.model.PlaylistEntry;
+import com.feedback.playlist.repository.PlaylistEntryRepository;
+import com.feedback.playlist.repository.PlaylistRepository;
+
+/**
+ * Ordered playlist tracks. Each track is a playlists_songs row with a sparse position key: new keys are
+ * picked halfway into the gap between the two neighbouring tracks, so adding, moving or removing a track
+ * writes only the rows being changed, however long the playlist is. Only when a gap has been split down
+ * to nothing is the whole playlist respaced, which is rare and amortised over many edits. Edits lock the
+ * playlist row first, so two edits of one playlist never pick keys from the same stale neighbours.
+ */
+@Service
+@Transactional(readOnly = true)
+public class PlaylistTrackService {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+    // most tracks one add or move may touch
+    public static final int MAX_TRACKS_PER_REQUEST = 200;
+    // spacing of freshly assigned positions: about twenty inserts into the same spot before a respace
+    static final long POSITION_GAP = 1L << 20;
+
+    private final PlaylistEntryRepository entryRepository;
+    private final PlaylistRepository playlistRepository;
+
+    public PlaylistTrackService(PlaylistEntryRepository entryRepository, PlaylistRepository playlistRepository) {
+        this.entryRepository = entryRepository;
+        this.playlistRepository = playlistRepository;
+    }
+
+    // one page of a playlist's tracks in order; after is the previous page's nextCursor
+    public PlaylistTrackPageDTO getTracks(String playlistId, Integer limit, String after) {
+        if (!playlistRepository.existsById(requireId(playlistId))) {
+            throw new ResourceNotFoundException("Playlist", playlistId);
+        }
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        // one extra row tells us whether there is another page without a count query
+        Limit fetch = Limit.of(pageSize + 1);
+        List<PlaylistEntry> entries;
+        if (after == null || after.isBlank()) {
+            entries = entryRepository.findByPlaylistIdOrderByPositionAscEntryIdAsc(playlistId, fetch);
+        } else {
+            long[] cursor = decodeCursor(after);
+            entries = entryRepository.findPageAfter(playlistId, cursor[0], cursor[1], fetch);
+        }
+
+        boolean hasMore = entries.size() > pageSize;
+        List<PlaylistEntry> page = entries.subList(0, Math.min(pageSize, entries.size()));
+        String nextCursor = hasMore ? encodeCursor(page.get(page.size() - 1)) : null;
+        return new PlaylistTrackPageDTO(page.stream().map(this::entryToDto).toList(), nextCursor);
+    }
+
+    // adds the songs in the given order just before beforeEntryId, or at the end when it is null
+    @Transactional
+    public List<PlaylistTrackDTO> addTracks(String playlistId, List<String> songIds, Long beforeEntryId) {
+        lockPlaylist(playlistId);
+        if (songIds == null || songIds.isEmpty() || songIds.stream().anyMatch(id -> id == null || id.isBlank())) {
+            throw new InvalidRequestException("Song IDs are required");
+        }
+        checkBatchSize(songIds.size());
+        Set<String> known = new HashSet<>(entryRepository.findExistingSongIds(new HashSet<>(songIds)));
+        for (String songId : songIds) {
+            if (!known.contains(songId)) {
+                throw new ResourceNotFoundException("Song", songId);
+            }
+        }
+
+        long[] positions = positionsFor(playlistId, songIds.size(), beforeEntryId, Set.of());
+        List<PlaylistEntry> entries = new ArrayList<>();
+        for (int i = 0; i < songIds.size(); i++) {
+            entries.add(new PlaylistEntry(playlistId, songIds.get(i), positions[i]));
+        }
+        return entryRepository.saveAll(entries).stream()
+                .map(this::entryToDto)
+                .toList();
+    }
+
+    // moves the tracks, in the given order, to just before beforeEntryId, or to the end when it is null;
+    // one track or many, only the moved rows are written
+    @Transactional
+    public List<PlaylistTrackDTO> moveTracks(String playlistId, List<Long> entryIds, Long beforeEntryId) {
+        lockPlaylist(playlistId);
+        if (entryIds == null || entryIds.isEmpty() || entryIds.stream().anyMatch(id -> id == null)) {
+            throw new InvalidRequestException("Entry IDs are required");
+        }
+        checkBatchSize(entryIds.size());
+        Set<Long> moving = new HashSet<>(entryIds);
+        if (moving.size() != entryIds.size()) {
+            throw new InvalidRequestException("Each entry can only be moved once");
+        }
+        if (beforeEntryId != null && moving.contains(beforeEntryId)) {
+            throw new InvalidRequestException("beforeEntryId", String.valueOf(beforeEntryId));
+        }
+        Map<Long, PlaylistEntry> entries = entryRepository.findAllById(entryIds).stream()
+                .filter(entry -> entry.getPlaylistId().equals(playlistId))
+                .collect(Collectors.toMap(PlaylistEntry::getEntryId, Function.identity()));
+        for (Long entryId : entryIds) {
+            if (!entries.containsKey(entryId)) {
+                throw new ResourceNotFoundException("Playlist entry", String.valueOf(entryId));
+            }
+        }
+
+        long[] positions = positionsFor(playlistId, entryIds.size(), beforeEntryId, moving);
+        List<PlaylistEntry> moved = new ArrayList<>();
+        for (int i = 0; i < entryIds.size(); i++) {
+            PlaylistEntry entry = entries.get(entryIds.get(i));
+            entry.setPosition(positions[i]);
+            moved.add(entry);
+        }
+        return entryRepository.saveAll(moved).stream()
+                .map(this::entryToDto)
+                .toList();
+    }
+
+    @Transactional
+    public void removeTrack(String playlistId, Long entryId) {
+        lockPlaylist(playlistId);
+        PlaylistEntry entry = entryId == null ? null : entryRepository.findById(entryId)
+                .filter(found -> found.getPlaylistId().equals(playlistId))
+                .orElse(null);
+        if (entry == null) {
+            throw new ResourceNotFoundException("Playlist entry", String.valueOf(entryId));
+        }
+        entryRepository.delete(entry);
+    }
+
+    // removes every occurrence of a song; returns how many tracks went
+    @Transactional
+    public int removeSong(String playlistId, String songId) {
+        lockPlaylist(playlistId);
+        if (songId == null || songId.isBlank()) {
+            throw new InvalidRequestException("Song ID cannot be null or blank");
+        }
+        int removed = entryRepository.deleteByPlaylistIdAndSongId(playlistId, songId);
+        if (removed == 0) {
+            throw new ResourceNotFoundException("Song in playlist " + playlistId, songId);
+        }
+        return removed;
+    }
+
+    // count free position keys, ascending, for tracks placed just before beforeEntryId (or at the end).
+    // Tracks in excluded are being moved, so they neither anchor the gap nor count as neighbours
+    private long[] positionsFor(String playlistId, int count, Long beforeEntryId, Set<Long> excluded) {
+        if (beforeEntryId == null) {
+            PlaylistEntry last = lastEntry(playlistId, excluded);
+            long start = last == null ? 0 : last.getPosition();
+            long[] positions = new long[count];
+            for (int i = 0; i < count; i++) {
+                positions[i] = start + POSITION_GAP * (i + 1);
+            }
+            return positions;
+        }
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            PlaylistEntry next = entryRepository.findById(beforeEntryId)
+                    .filter(entry -> entry.getPlaylistId().equals(playlistId))
+                    .orElseThrow(() -> new ResourceNotFoundException("Playlist entry", String.valueOf(beforeEntryId)));
+            PlaylistEntry previous = entryBefore(next, excluded);
+            long high = next.getPosition();
+            long low = previous != null ? previous.getPosition() : high - POSITION_GAP * (count + 1);
+            long step = (high - low) / (count + 1);
+            if (step > 0) {
+                long[] positions = new long[count];
+                for (int i = 0; i < count; i++) {
+                    positions[i] = low + step * (i + 1);
+                }
+                return positions;
+            }
+            // the gap is used up (or never existed, for rows from before positions); respace and retry
+            respace(playlistId, count);
+        }
+        throw new IllegalStateException("No room in playlist " + playlistId + " after respacing");
+    }
+
+    private PlaylistEntry lastEntry(String playlistId, Set<Long> excluded) {
+        // at most excluded.size() of the trailing rows can be ones being moved
+        for (PlaylistEntry entry : entryRepository.findByPlaylistIdOrderByPositionDescEntryIdDesc(
+                playlistId, Limit.of(excluded.size() + 1))) {
+            if (!excluded.contains(entry.getEntryId())) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private PlaylistEntry entryBefore(PlaylistEntry next, Set<Long> excluded) {
+        for (PlaylistEntry entry : entryRepository.findBefore(next.getPlaylistId(), next.getPosition(),
+                next.getEntryId(), Limit.of(excluded.size() + 1))) {
+            if (!excluded.contains(entry.getEntryId())) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    // spreads the playlist's positions POSITION_GAP * (room + 1) apart, keeping the order, so the next
+    // insert of up to room tracks anywhere fits; the only edit that writes every row
+    private void respace(String playlistId, int room) {
+        List<PlaylistEntry> entries = entryRepository.findByPlaylistIdOrderByPositionAscEntryIdAsc(playlistId);
+        long spacing = POSITION_GAP * (room + 1);
+        for (int i = 0; i < entries.size(); i++) {
+            entries.get(i).setPosition(spacing * (i + 1));
+        }
+        entryRepository.saveAll(entries);
+        entryRepository.flush();
+    }
+
+    private void lockPlaylist(String playlistId) {
+        if (playlistRepository.findForUpdate(requireId(playlistId)).isEmpty()) {
+            throw new ResourceNotFoundException("Playlist", playlistId);
+        }
+    }
+
+    private static String requireId(String playlistId) {
+        if (playlistId == null || playlistId.isBlank()) {
+            throw new InvalidRequestException("Playlist ID cannot be null or blank");
+        }
+        return playlistId;
+    }
+
+    private static void checkBatchSize(int size) {
+        if (size > MAX_TRACKS_PER_REQUEST) {
+            throw new InvalidRequestException("At most " + MAX_TRACKS_PER_REQUEST + " tracks can be changed at once");
+        }
+    }
+
+    // cursors are opaque to clients: the last track's position and entry ID, base64url-encoded
+    private static String encodeCursor(PlaylistEntry entry) {
+        String cursor = entry.getPosition() + ":" + entry.getEntryId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long[] decodeCursor(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (parts.length != 2) {
+                throw new InvalidRequestException("after", cursor);
+            }
+            return new long[] {Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("after", cursor);
+        }
+    }
+
+    private PlaylistTrackDTO entryToDto(PlaylistEntry entry) {
+        return new PlaylistTrackDTO(entry.getEntryId(), entry.getSongId());
+    }
+}
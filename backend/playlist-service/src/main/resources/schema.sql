@@ -0,0 +1,30 @@
+-- Runs after Hibernate has updated the schema (spring.jpa.defer-datasource-initialization).
+-- Every statement is idempotent, so it is safe on each startup. The catalog services share the database and
+-- create some of the same objects (pg_trgm, idx_album_artist), and two concurrent CREATE ... IF NOT EXISTS of
+-- one object can still fail, so each service holds the same advisory lock while its script runs.
+SELECT pg_advisory_lock(hashtext('catalog-schema'));
+
+-- trigram index for typo-tolerant name search (PlaylistRepository.search)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_playlists_name_trgm ON playlists USING gin (name gin_trgm_ops);
+
+-- a listener's playlists in playlist ID order (PlaylistRepository.findByOwner_ListenerId...). Also the
+-- only owner index: listener-service's account erasure finds a listener's playlists through it, so the
+-- owner_id-only index it used to declare is dropped
+CREATE INDEX IF NOT EXISTS idx_playlists_owner_playlist ON playlists (owner_id, playlist_id);
+DROP INDEX IF EXISTS idx_playlists_owner;
+-- public playlists in playlist ID order; private ones are left out of the index entirely
+CREATE INDEX IF NOT EXISTS idx_playlists_public ON playlists (playlist_id) WHERE is_public;
+
+-- ordered tracks (PlaylistEntry). Hibernate adds entry_id and position to the existing playlists_songs
+-- table; these repeat it for a table it has not touched yet. Rows from before ordering get position 0 and
+-- keep their entry_id order until the first insert between them respaces the playlist
+ALTER TABLE playlists_songs ADD COLUMN IF NOT EXISTS entry_id BIGINT GENERATED BY DEFAULT AS IDENTITY;
+ALTER TABLE playlists_songs ADD COLUMN IF NOT EXISTS position BIGINT NOT NULL DEFAULT 0;
+CREATE UNIQUE INDEX IF NOT EXISTS idx_playlists_songs_entry ON playlists_songs (entry_id);
+CREATE INDEX IF NOT EXISTS idx_playlists_songs_position ON playlists_songs (playlist_id, position, entry_id);
+-- it leads with playlist_id, so it also serves search summing the plays of each match's songs; the
+-- playlist_id-only index that used to do that is dropped
+DROP INDEX IF EXISTS idx_playlists_songs_playlist;
+
+SELECT pg_advisory_unlock(hashtext('catalog-schema'));
@@ -0,0 +1,94 @@
+package com.feedback.playlist.repository;
+
+import com.feedback.playlist.dtos.PlaylistDTO;
+import com.feedback.playlist.model.Listener;
+import com.feedback.playlist.model.Playlist;
+import com.feedback.playlist.model.PlaylistEntry;
+import com.feedback.playlist.model.Song;
+import com.feedback.playlist.service.ListenerService;
+import com.feedback.playlist.service.PlaylistService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// counts the statements a large result costs against an embedded database; schema.sql is Postgres-only
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class PlaylistRepositoryTest {
+
+    @Autowired
+    private PlaylistRepository playlistRepository;
+
+    @Autowired
+    private PlaylistEntryRepository entryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private PlaylistService service;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        service = new PlaylistService(playlistRepository, entryRepository, mock(ListenerService.class));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private void savePlaylists(int count) {
+        Listener owner = new Listener("L1", "Owner", "owner@example.com", "US", null);
+        entityManager.persist(owner);
+        entityManager.persist(new Song("S1", "One", 1000, null));
+        entityManager.persist(new Song("S2", "Two", 1000, null));
+        for (int i = 0; i < count; i++) {
+            String playlistId = String.format("P%05d", i);
+            entityManager.persist(new Playlist(playlistId, "Same Name", null, true, owner));
+            entityManager.persist(new PlaylistEntry(playlistId, "S2", 1024));
+            entityManager.persist(new PlaylistEntry(playlistId, "S1", 2048));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    public void testThousandPlaylistsCostTwoStatements() {
+        savePlaylists(LinkedId.CHUNK_SIZE);
+
+        List<PlaylistDTO> playlists = service.findByName("Same Name");
+
+        assertEquals(LinkedId.CHUNK_SIZE, playlists.size());
+        PlaylistDTO first = playlists.stream()
+                .filter(playlist -> playlist.playlistId().equals("P00000")).findFirst().orElseThrow();
+        assertEquals("L1", first.ownerId());
+        assertEquals(List.of("S2", "S1"), first.songIds());
+        // the playlists, then one query for their tracks; the owner ID comes from the lazy reference
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testOnePlaylistPastAChunkCostsOneMoreQuery() {
+        savePlaylists(LinkedId.CHUNK_SIZE + 1);
+
+        List<PlaylistDTO> playlists = service.findByName("Same Name");
+
+        assertEquals(LinkedId.CHUNK_SIZE + 1, playlists.size());
+        assertTrue(playlists.stream().allMatch(playlist -> playlist.songIds().size() == 2));
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+}
@@ -2,10 +2,13 @@ package com.feedback.playlist.service;
 
 import com.feedback.playlist.dtos.ListenerDTO;
 import com.feedback.playlist.dtos.PlaylistDTO;
+import com.feedback.playlist.dtos.PlaylistPageDTO;
 import com.feedback.playlist.exception.InvalidRequestException;
 import com.feedback.playlist.exception.ResourceNotFoundException;
 import com.feedback.playlist.model.Listener;
 import com.feedback.playlist.model.Playlist;
+import com.feedback.playlist.repository.LinkedId;
+import com.feedback.playlist.repository.PlaylistEntryRepository;
 import com.feedback.playlist.repository.PlaylistRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,13 +16,16 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,6 +34,9 @@ public class PlaylistServiceTest {
     @Mock
     private PlaylistRepository repository;
 
+    @Mock
+    private PlaylistEntryRepository entryRepository;
+
     @Mock
     private ListenerService listenerService;
 
@@ -49,13 +58,53 @@ public class PlaylistServiceTest {
         samplePlaylist.setHref("href");
         samplePlaylist.setIsPublic(true);
         samplePlaylist.setOwner(sampleListener);
-        samplePlaylist.setSongs(List.of());
     }
 
     private PlaylistDTO makeDTO() {
         return new PlaylistDTO("P1", "My Playlist", "desc", "href", true, "L1", List.of());
     }
 
+    @Test
+    public void testGetAllPlaylistsPagesByCursor() {
+        Playlist second = new Playlist();
+        second.setPlaylistId("P2");
+        second.setName("Second");
+        when(repository.findAllByOrderByPlaylistIdAsc(Limit.of(2))).thenReturn(List.of(samplePlaylist, second));
+        when(repository.findByPlaylistIdGreaterThanOrderByPlaylistIdAsc("P1", Limit.of(2))).thenReturn(List.of(second));
+
+        PlaylistPageDTO first = service.getAllPlaylists(1, null);
+        PlaylistPageDTO next = service.getAllPlaylists(1, first.nextCursor());
+
+        assertEquals("P1", first.playlists().get(0).playlistId());
+        assertEquals("P2", next.playlists().get(0).playlistId());
+        assertNull(next.nextCursor());
+    }
+
+    @Test
+    public void testGetAllPlaylistsReadsSongIdsOncePerPage() {
+        Playlist second = new Playlist();
+        second.setPlaylistId("P2");
+        second.setName("Second");
+        when(repository.findAllByOrderByPlaylistIdAsc(Limit.of(3))).thenReturn(List.of(samplePlaylist, second));
+        when(entryRepository.findSongIds(List.of("P1", "P2")))
+                .thenReturn(List.of(new LinkedId("P1", "S1"), new LinkedId("P1", "S2")));
+
+        PlaylistPageDTO result = service.getAllPlaylists(2, null);
+
+        assertEquals(List.of("S1", "S2"), result.playlists().get(0).songIds());
+        assertEquals("L1", result.playlists().get(0).ownerId());
+        assertEquals(List.of(), result.playlists().get(1).songIds());
+        // two statements however many playlists are on the page: the playlists, then their songs
+        verify(repository).findAllByOrderByPlaylistIdAsc(Limit.of(3));
+        verify(entryRepository).findSongIds(List.of("P1", "P2"));
+        verifyNoMoreInteractions(repository, entryRepository);
+    }
+
+    @Test
+    public void testGetAllPlaylistsInvalidCursorThrows() {
+        assertThrows(InvalidRequestException.class, () -> service.getAllPlaylists(10, "not a cursor!"));
+    }
+
     @Test
     public void testGetByIdSuccess() {
         when(repository.findById("P1")).thenReturn(Optional.of(samplePlaylist));
@@ -103,41 +152,70 @@ public class PlaylistServiceTest {
 
     @Test
     public void testSearchByNameSuccess() {
-        when(repository.findByNameContainingIgnoreCase("play")).thenReturn(List.of(samplePlaylist));
+        when(repository.search("play", PlaylistService.POPULARITY_BOOST, PlaylistService.DEFAULT_LIMIT + 1, 0)).thenReturn(List.of(samplePlaylist));
 
-        List<PlaylistDTO> results = service.searchByName("play");
+        PlaylistPageDTO result = service.searchByName(" play ", null, null);
 
-        assertEquals(1, results.size());
+        assertEquals(1, result.playlists().size());
+        assertNull(result.nextCursor());
     }
 
     @Test
-    public void testSearchByNameBlankReturnsEmpty() {
-        assertTrue(service.searchByName("").isEmpty());
-        assertTrue(service.searchByName(null).isEmpty());
+    public void testSearchByNamePagesByOffset() {
+        when(repository.search("play", PlaylistService.POPULARITY_BOOST, 2, 0)).thenReturn(List.of(samplePlaylist, samplePlaylist));
+        when(repository.search("play", PlaylistService.POPULARITY_BOOST, 2, 1)).thenReturn(List.of(samplePlaylist));
+
+        PlaylistPageDTO first = service.searchByName("play", 1, null);
+        PlaylistPageDTO next = service.searchByName("play", 1, first.nextCursor());
+
+        assertEquals(1, first.playlists().size());
+        assertNotNull(first.nextCursor());
+        assertNull(next.nextCursor());
     }
 
     @Test
-    public void testFindByOwnerIdSuccess() {
-        when(listenerService.existsById("L1")).thenReturn(true);
-        when(repository.findAll()).thenReturn(List.of(samplePlaylist));
+    public void testSearchByNameBlankReturnsEmpty() {
+        assertTrue(service.searchByName("", null, null).playlists().isEmpty());
+        assertTrue(service.searchByName(null, null, null).playlists().isEmpty());
+    }
 
-        List<PlaylistDTO> results = service.findByOwnerId("L1");
+    @Test
+    public void testSearchByNameInvalidCursorThrows() {
+        assertThrows(InvalidRequestException.class, () -> service.searchByName("play", 10, "bm90LWEtbnVtYmVy"));
+    }
 
-        assertEquals(1, results.size());
+    @Test
+    public void testFindByOwnerIdPagesWithoutAskingListenerService() {
+        Playlist second = new Playlist();
+        second.setPlaylistId("P2");
+        second.setName("Second");
+        when(repository.findByOwner_ListenerIdOrderByPlaylistIdAsc("L1", Limit.of(2))).thenReturn(List.of(samplePlaylist, second));
+        when(repository.findByOwner_ListenerIdAndPlaylistIdGreaterThanOrderByPlaylistIdAsc("L1", "P1", Limit.of(2)))
+                .thenReturn(List.of(second));
+
+        PlaylistPageDTO first = service.findByOwnerId("L1", 1, null);
+        PlaylistPageDTO next = service.findByOwnerId("L1", 1, first.nextCursor());
+
+        assertEquals("P1", first.playlists().get(0).playlistId());
+        assertEquals("P2", next.playlists().get(0).playlistId());
+        assertNull(next.nextCursor());
+        verify(listenerService, never()).existsById(any());
     }
 
     @Test
     public void testFindByOwnerIdBlankReturnsEmpty() {
-        assertTrue(service.findByOwnerId("").isEmpty());
-        assertTrue(service.findByOwnerId(null).isEmpty());
+        assertTrue(service.findByOwnerId("", null, null).playlists().isEmpty());
+        assertTrue(service.findByOwnerId(null, null, null).playlists().isEmpty());
     }
 
     @Test
     public void testFindByOwnerIdNotFoundThrows() {
+        when(repository.findByOwner_ListenerIdOrderByPlaylistIdAsc("L1", Limit.of(PlaylistService.DEFAULT_LIMIT + 1)))
+                .thenReturn(List.of());
         when(listenerService.existsById("L1")).thenReturn(false);
 
         assertThrows(ResourceNotFoundException.class, () -> {
-            service.findByOwnerId("L1");
+            service.findByOwnerId("L1", null, null);
         });
     }
 
@@ -160,16 +238,18 @@ public class PlaylistServiceTest {
     public void testFindPublicPlaylistsSuccess() {
         Playlist p2 = new Playlist();
         p2.setPlaylistId("P2");
-        p2.setName("Private");
-        p2.setIsPublic(false);
-        p2.setSongs(List.of());
+        p2.setName("Also Public");
+        p2.setIsPublic(true);
 
-        when(repository.findAll()).thenReturn(List.of(samplePlaylist, p2));
+        when(repository.findByIsPublicTrueOrderByPlaylistIdAsc(Limit.of(2))).thenReturn(List.of(samplePlaylist, p2));
+        when(repository.findByIsPublicTrueAndPlaylistIdGreaterThanOrderByPlaylistIdAsc("P1", Limit.of(2))).thenReturn(List.of(p2));
 
-        List<PlaylistDTO> result = service.findPublicPlaylists();
+        PlaylistPageDTO first = service.findPublicPlaylists(1, null);
+        PlaylistPageDTO next = service.findPublicPlaylists(1, first.nextCursor());
 
-        assertEquals(1, result.size());
-        assertEquals("P1", result.get(0).playlistId());
+        assertEquals("P1", first.playlists().get(0).playlistId());
+        assertEquals("P2", next.playlists().get(0).playlistId());
+        assertNull(next.nextCursor());
     }
 
     @Test
@@ -258,6 +338,7 @@ public class PlaylistServiceTest {
 
         service.delete("P1");
 
+        verify(entryRepository).deleteByPlaylistId("P1");
         verify(repository).deleteById("P1");
     }
 
@@ -0,0 +1,217 @@
+package com.feedback.playlist.service;
+
+import com.feedback.playlist.dtos.PlaylistTrackDTO;
+import com.feedback.playlist.dtos.PlaylistTrackPageDTO;
+import com.feedback.playlist.exception.InvalidRequestException;
+import com.feedback.playlist.exception.ResourceNotFoundException;
+import com.feedback.playlist.model.Playlist;
+import com.feedback.playlist.model.PlaylistEntry;
+import com.feedback.playlist.repository.PlaylistEntryRepository;
+import com.feedback.playlist.repository.PlaylistRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.feedback.playlist.service.PlaylistTrackService.POSITION_GAP;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PlaylistTrackServiceTest {
+
+    @Mock
+    private PlaylistEntryRepository entryRepository;
+
+    @Mock
+    private PlaylistRepository playlistRepository;
+
+    @InjectMocks
+    private PlaylistTrackService service;
+
+    // rows handed to saveAll, in the order they were written
+    private final List<PlaylistEntry> saved = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        Playlist playlist = new Playlist();
+        playlist.setPlaylistId("P1");
+        lenient().when(playlistRepository.findForUpdate("P1")).thenReturn(Optional.of(playlist));
+        lenient().when(entryRepository.saveAll(any())).thenAnswer(invocation -> {
+            List<PlaylistEntry> entries = invocation.getArgument(0);
+            saved.addAll(entries);
+            return entries;
+        });
+    }
+
+    private PlaylistEntry entry(long entryId, String songId, long position) {
+        PlaylistEntry entry = new PlaylistEntry("P1", songId, position);
+        entry.setEntryId(entryId);
+        return entry;
+    }
+
+    @Test
+    public void testAddTracksAppendsAfterLastTrack() {
+        when(entryRepository.findExistingSongIds(Set.of("S1", "S2"))).thenReturn(List.of("S1", "S2"));
+        when(entryRepository.findByPlaylistIdOrderByPositionDescEntryIdDesc("P1", Limit.of(1)))
+                .thenReturn(List.of(entry(3L, "S9", 3 * POSITION_GAP)));
+
+        List<PlaylistTrackDTO> result = service.addTracks("P1", List.of("S1", "S2"), null);
+
+        assertEquals(List.of("S1", "S2"), result.stream().map(PlaylistTrackDTO::songId).toList());
+        assertEquals(4 * POSITION_GAP, saved.get(0).getPosition());
+        assertEquals(5 * POSITION_GAP, saved.get(1).getPosition());
+    }
+
+    @Test
+    public void testAddTracksInsertsBetweenNeighboursWithoutTouchingThem() {
+        PlaylistEntry previous = entry(1L, "S1", POSITION_GAP);
+        PlaylistEntry next = entry(2L, "S2", 2 * POSITION_GAP);
+        when(entryRepository.findExistingSongIds(Set.of("S3"))).thenReturn(List.of("S3"));
+        when(entryRepository.findById(2L)).thenReturn(Optional.of(next));
+        when(entryRepository.findBefore("P1", 2 * POSITION_GAP, 2L, Limit.of(1))).thenReturn(List.of(previous));
+
+        service.addTracks("P1", List.of("S3"), 2L);
+
+        assertEquals(1, saved.size());
+        assertEquals(POSITION_GAP + POSITION_GAP / 2, saved.get(0).getPosition());
+        assertEquals(POSITION_GAP, previous.getPosition());
+        assertEquals(2 * POSITION_GAP, next.getPosition());
+        verify(entryRepository, never()).findByPlaylistIdOrderByPositionAscEntryIdAsc("P1");
+    }
+
+    @Test
+    public void testAddTracksRespacesWhenGapIsUsedUp() {
+        PlaylistEntry previous = entry(1L, "S1", 10);
+        PlaylistEntry next = entry(2L, "S2", 11);
+        when(entryRepository.findExistingSongIds(Set.of("S3"))).thenReturn(List.of("S3"));
+        when(entryRepository.findById(2L)).thenReturn(Optional.of(next));
+        when(entryRepository.findBefore("P1", 11, 2L, Limit.of(1))).thenReturn(List.of(previous));
+        when(entryRepository.findByPlaylistIdOrderByPositionAscEntryIdAsc("P1")).thenReturn(List.of(previous, next));
+        when(entryRepository.findBefore("P1", 4 * POSITION_GAP, 2L, Limit.of(1))).thenReturn(List.of(previous));
+
+        service.addTracks("P1", List.of("S3"), 2L);
+
+        // the whole playlist is spread out once, keeping its order, then the new track lands in the middle
+        assertEquals(2 * POSITION_GAP, previous.getPosition());
+        assertEquals(4 * POSITION_GAP, next.getPosition());
+        assertEquals(3 * POSITION_GAP, saved.get(saved.size() - 1).getPosition());
+        verify(entryRepository).flush();
+    }
+
+    @Test
+    public void testAddTracksUnknownSongThrows() {
+        when(entryRepository.findExistingSongIds(Set.of("S1", "UNKNOWN"))).thenReturn(List.of("S1"));
+
+        assertThrows(ResourceNotFoundException.class, () -> service.addTracks("P1", List.of("S1", "UNKNOWN"), null));
+        verify(entryRepository, never()).saveAll(any());
+    }
+
+    @Test
+    public void testAddTracksToUnknownPlaylistThrows() {
+        when(playlistRepository.findForUpdate("UNKNOWN")).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> service.addTracks("UNKNOWN", List.of("S1"), null));
+    }
+
+    @Test
+    public void testAddTracksInvalidInputThrows() {
+        assertThrows(InvalidRequestException.class, () -> service.addTracks("P1", List.of(), null));
+        assertThrows(InvalidRequestException.class, () -> service.addTracks("P1", null, null));
+        assertThrows(InvalidRequestException.class, () -> service.addTracks("", List.of("S1"), null));
+    }
+
+    @Test
+    public void testMoveTracksWritesOnlyMovedRows() {
+        PlaylistEntry first = entry(1L, "S1", POSITION_GAP);
+        PlaylistEntry last = entry(3L, "S3", 3 * POSITION_GAP);
+        when(entryRepository.findAllById(List.of(3L))).thenReturn(List.of(last));
+        when(entryRepository.findById(1L)).thenReturn(Optional.of(first));
+        when(entryRepository.findBefore("P1", POSITION_GAP, 1L, Limit.of(2))).thenReturn(List.of());
+
+        service.moveTracks("P1", List.of(3L), 1L);
+
+        assertEquals(List.of(last), saved);
+        assertTrue(last.getPosition() < first.getPosition());
+        assertEquals(POSITION_GAP, first.getPosition());
+    }
+
+    @Test
+    public void testMoveTracksBeforeItselfThrows() {
+        assertThrows(InvalidRequestException.class, () -> service.moveTracks("P1", List.of(1L, 2L), 2L));
+        assertThrows(InvalidRequestException.class, () -> service.moveTracks("P1", List.of(1L, 1L), null));
+    }
+
+    @Test
+    public void testMoveTracksFromOtherPlaylistThrows() {
+        PlaylistEntry foreign = entry(7L, "S1", POSITION_GAP);
+        foreign.setPlaylistId("P2");
+        when(entryRepository.findAllById(List.of(7L))).thenReturn(List.of(foreign));
+
+        assertThrows(ResourceNotFoundException.class, () -> service.moveTracks("P1", List.of(7L), null));
+        verify(entryRepository, never()).saveAll(any());
+    }
+
+    @Test
+    public void testGetTracksPagesByCursor() {
+        PlaylistEntry first = entry(1L, "S1", POSITION_GAP);
+        PlaylistEntry second = entry(2L, "S2", 2 * POSITION_GAP);
+        when(playlistRepository.existsById("P1")).thenReturn(true);
+        when(entryRepository.findByPlaylistIdOrderByPositionAscEntryIdAsc("P1", Limit.of(2)))
+                .thenReturn(List.of(first, second));
+        when(entryRepository.findPageAfter("P1", POSITION_GAP, 1L, Limit.of(2))).thenReturn(List.of(second));
+
+        PlaylistTrackPageDTO page = service.getTracks("P1", 1, null);
+        PlaylistTrackPageDTO next = service.getTracks("P1", 1, page.nextCursor());
+
+        assertEquals(List.of(new PlaylistTrackDTO(1L, "S1")), page.tracks());
+        assertEquals(List.of(new PlaylistTrackDTO(2L, "S2")), next.tracks());
+        assertNull(next.nextCursor());
+    }
+
+    @Test
+    public void testGetTracksInvalidCursorThrows() {
+        when(playlistRepository.existsById("P1")).thenReturn(true);
+
+        assertThrows(InvalidRequestException.class, () -> service.getTracks("P1", 10, "not a cursor!"));
+    }
+
+    @Test
+    public void testRemoveTrackDeletesOneRow() {
+        PlaylistEntry track = entry(1L, "S1", POSITION_GAP);
+        when(entryRepository.findById(1L)).thenReturn(Optional.of(track));
+
+        service.removeTrack("P1", 1L);
+
+        verify(entryRepository).delete(track);
+    }
+
+    @Test
+    public void testRemoveTrackFromOtherPlaylistThrows() {
+        PlaylistEntry foreign = entry(7L, "S1", POSITION_GAP);
+        foreign.setPlaylistId("P2");
+        when(entryRepository.findById(7L)).thenReturn(Optional.of(foreign));
+
+        assertThrows(ResourceNotFoundException.class, () -> service.removeTrack("P1", 7L));
+        verify(entryRepository, never()).delete(any());
+    }
+
+    @Test
+    public void testRemoveSongNotInPlaylistThrows() {
+        when(entryRepository.deleteByPlaylistIdAndSongId("P1", "S1")).thenReturn(0);
+
+        assertThrows(ResourceNotFoundException.class, () -> service.removeSong("P1", "S1"));
+    }
+}
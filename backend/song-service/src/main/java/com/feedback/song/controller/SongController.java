@@ -5,6 +5,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import feign.FeignException;
+
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -19,6 +21,8 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.feedback.song.dtos.SongDTO;
+import com.feedback.song.dtos.SongPageDTO;
+import com.feedback.song.service.HistoryService;
 import com.feedback.song.service.KafkaLogger;
 import com.feedback.song.service.SongService;
 import com.feedback.song.service.SpotifyApiService; // NEED TO FIX
@@ -30,22 +34,24 @@ public class SongController {
 	private final SongService songService;
 	private final SpotifyApiService spotifyApiService;
 	private final KafkaLogger kafkaLogger;
+	private final HistoryService historyService;
 
-	public SongController(SongService songService, SpotifyApiService spotifyApiService, KafkaLogger kafkaLogger) {
+	public SongController(SongService songService, SpotifyApiService spotifyApiService, KafkaLogger kafkaLogger, HistoryService historyService) {
 		this.songService = songService;
 		this.spotifyApiService = spotifyApiService;
 		this.kafkaLogger = kafkaLogger;
+		this.historyService = historyService;
 	}
 
-	// Get all songs with pagination
+	// Get songs a page at a time (pass the returned nextCursor as after for the next page), or search by name
 	@GetMapping
-	public ResponseEntity<List<SongDTO>> getAllSongs(@RequestParam(required = false) Integer page, @RequestParam(required = false) Integer size, @RequestParam(required = false) String query) {
+	public ResponseEntity<SongPageDTO> getAllSongs(@RequestParam(required = false) Integer size, @RequestParam(required = false) String after, @RequestParam(required = false) String query) {
 		if (query != null && !query.isBlank()) {
 			kafkaLogger.log("Searching songs with query: " + query);
-			return ResponseEntity.ok(songService.searchByName(query));
+			return ResponseEntity.ok(songService.searchByName(query, size, after));
 		}
 		kafkaLogger.log("Fetching all songs");
-		return ResponseEntity.ok(songService.getAllSongs());
+		return ResponseEntity.ok(songService.getAllSongs(size, after));
 	}
 
 	// Get specific song by ID
@@ -95,11 +101,11 @@ public class SongController {
 		return ResponseEntity.ok(List.of());
 	}
 
-	// Search for songs
+	// Search for songs by name, typos tolerated; best matches first, a page at a time
 	@GetMapping("/search")
-	public ResponseEntity<List<SongDTO>> searchSongs(@RequestParam String query) {
+	public ResponseEntity<SongPageDTO> searchSongs(@RequestParam String query, @RequestParam(required = false) Integer size, @RequestParam(required = false) String after) {
 		kafkaLogger.log("Searching songs with query: " + query);
-		return ResponseEntity.ok(songService.searchByName(query));
+		return ResponseEntity.ok(songService.searchByName(query, size, after));
 	}
 
 	// Like a song
@@ -118,13 +124,18 @@ public class SongController {
 		return ResponseEntity.ok(response);
 	}
 
-	// Get top songs (Spotify integration)
+	// Get top songs (Spotify integration, or our own play counts when listenerId is given and Spotify can't be used)
 	@GetMapping("/top")
 	public ResponseEntity<List<Map<String, Object>>> getTopSongs(
 			@RequestParam(required = false, defaultValue = "medium_term") String time_range,
+			@RequestParam(required = false) String listenerId,
+			@RequestParam(required = false, defaultValue = "20") int limit,
 			@RequestHeader(value = "X-Spotify-Token", required = false) String spotifyToken) {
 		
 		if (spotifyToken == null || spotifyToken.isBlank()) {
+			if (listenerId != null && !listenerId.isBlank()) {
+				return ResponseEntity.ok(getLocalTopSongs(listenerId, time_range, limit));
+			}
 			return ResponseEntity.status(401).body(List.of());
 		}
 		
@@ -189,10 +200,155 @@ public class SongController {
 			kafkaLogger.log("Fetched top songs for time range: " + time_range);
 			return ResponseEntity.ok(songs);
 		} catch (Exception e) {
+			// Spotify down or token expired: serve our own counts if we know who is asking
+			if (listenerId != null && !listenerId.isBlank()) {
+				return ResponseEntity.ok(getLocalTopSongs(listenerId, time_range, limit));
+			}
 			return ResponseEntity.status(500).body(List.of());
 		}
 	}
 
+	// Top songs from history-service's play counters, in the same format as the Spotify path
+	private List<Map<String, Object>> getLocalTopSongs(String listenerId, String timeRange, int limit) {
+		List<Map<String, Object>> items = historyService.getTopItems(listenerId, "songs", timeRange, limit);
+		List<Map<String, Object>> songs = new ArrayList<>();
+		if (items == null) {
+			return songs;
+		}
+		for (Map<String, Object> item : items) {
+			Map<String, Object> song = new HashMap<>();
+			song.put("id", item.get("id"));
+			song.put("name", item.get("name"));
+			Object artistName = item.get("artistName") != null ? item.get("artistName") : "Unknown Artist";
+			song.put("artist", artistName);
+			song.put("artistName", artistName);
+			song.put("plays", item.get("plays"));
+			songs.add(song);
+		}
+		kafkaLogger.log("Fetched local top songs for listener " + listenerId + ", time range: " + timeRange);
+		return songs;
+	}
+
+	// Top songs over the last day or week, worldwide or for one country
+	@GetMapping("/charts")
+	public ResponseEntity<Map<String, Object>> getCharts(@RequestParam(required = false) String country,
+			@RequestParam(required = false, defaultValue = "day") String window,
+			@RequestParam(required = false, defaultValue = "50") int limit) {
+		Map<String, Object> chart;
+		try {
+			chart = historyService.getChart(country, window, "songs", limit);
+		} catch (FeignException e) {
+			return ResponseEntity.status(e.status() > 0 ? e.status() : 503).build();
+		}
+
+		@SuppressWarnings("unchecked")
+		List<Map<String, Object>> entries = chart != null && chart.get("entries") != null
+				? (List<Map<String, Object>>) chart.get("entries")
+				: List.of();
+		Map<String, SongDTO> songs = new HashMap<>();
+		for (SongDTO song : songService.getByIds(entries.stream().map(entry -> (String) entry.get("id")).toList())) {
+			songs.put(song.songId(), song);
+		}
+		List<Map<String, Object>> ranked = new ArrayList<>();
+		for (Map<String, Object> entry : entries) {
+			Map<String, Object> song = new HashMap<>();
+			SongDTO details = songs.get((String) entry.get("id"));
+			song.put("rank", entry.get("rank"));
+			song.put("id", entry.get("id"));
+			song.put("name", details != null ? details.name() : null);
+			song.put("href", details != null ? details.href() : null);
+			song.put("plays", entry.get("plays"));
+			ranked.add(song);
+		}
+
+		Map<String, Object> response = new HashMap<>();
+		response.put("country", chart != null ? chart.get("country") : country);
+		response.put("window", chart != null ? chart.get("window") : window);
+		response.put("computedAt", chart != null ? chart.get("computedAt") : null);
+		response.put("songs", ranked);
+		kafkaLogger.log("Fetched " + window + " song chart" + (country != null ? " for " + country : ""));
+		return ResponseEntity.ok(response);
+	}
+
+	// Songs whose plays are rising fastest, worldwide or for one country
+	@GetMapping("/trending")
+	public ResponseEntity<Map<String, Object>> getTrending(@RequestParam(required = false) String country,
+			@RequestParam(required = false, defaultValue = "50") int limit) {
+		Map<String, Object> trending;
+		try {
+			trending = historyService.getTrending(country, limit);
+		} catch (FeignException e) {
+			return ResponseEntity.status(e.status() > 0 ? e.status() : 503).build();
+		}
+
+		@SuppressWarnings("unchecked")
+		List<Map<String, Object>> entries = trending != null && trending.get("entries") != null
+				? (List<Map<String, Object>>) trending.get("entries")
+				: List.of();
+		Map<String, SongDTO> songs = new HashMap<>();
+		for (SongDTO song : songService.getByIds(entries.stream().map(entry -> (String) entry.get("id")).toList())) {
+			songs.put(song.songId(), song);
+		}
+		List<Map<String, Object>> ranked = new ArrayList<>();
+		for (Map<String, Object> entry : entries) {
+			Map<String, Object> song = new HashMap<>();
+			SongDTO details = songs.get((String) entry.get("id"));
+			song.put("rank", entry.get("rank"));
+			song.put("id", entry.get("id"));
+			song.put("name", details != null ? details.name() : null);
+			song.put("href", details != null ? details.href() : null);
+			song.put("score", entry.get("score"));
+			ranked.add(song);
+		}
+
+		Map<String, Object> response = new HashMap<>();
+		response.put("country", trending != null ? trending.get("country") : country);
+		response.put("halfLifeHours", trending != null ? trending.get("halfLifeHours") : null);
+		response.put("computedAt", trending != null ? trending.get("computedAt") : null);
+		response.put("songs", ranked);
+		kafkaLogger.log("Fetched trending songs" + (country != null ? " for " + country : ""));
+		return ResponseEntity.ok(response);
+	}
+
+	// Suggested songs to play next, ranked by how often they follow this one in our listeners' history
+	@GetMapping("/{id}/next")
+	public ResponseEntity<List<Map<String, Object>>> getNextSongs(@PathVariable String id,
+			@RequestParam(required = false) String listenerId,
+			@RequestParam(required = false, defaultValue = "10") int limit) {
+		List<Map<String, Object>> ranked;
+		try {
+			ranked = historyService.getNextSongs(id, listenerId, limit);
+		} catch (FeignException e) {
+			// 503 while history-service is still loading its transition model
+			return ResponseEntity.status(e.status() > 0 ? e.status() : 503).body(List.of());
+		}
+		if (ranked == null || ranked.isEmpty()) {
+			return ResponseEntity.ok(List.of());
+		}
+
+		List<String> songIds = ranked.stream().map(item -> (String) item.get("songId")).toList();
+		Map<String, SongDTO> songs = new HashMap<>();
+		for (SongDTO song : songService.getByIds(songIds)) {
+			songs.put(song.songId(), song);
+		}
+		List<Map<String, Object>> suggestions = new ArrayList<>();
+		for (Map<String, Object> item : ranked) {
+			SongDTO song = songs.get((String) item.get("songId"));
+			if (song == null) {
+				continue;
+			}
+			Map<String, Object> suggestion = new HashMap<>();
+			suggestion.put("id", song.songId());
+			suggestion.put("name", song.name());
+			suggestion.put("href", song.href());
+			suggestion.put("duration_ms", song.durationMs());
+			suggestion.put("score", item.get("score"));
+			suggestions.add(suggestion);
+		}
+		kafkaLogger.log("Fetched next-song suggestions for song " + id);
+		return ResponseEntity.ok(suggestions);
+	}
+
 	// Get currently playing song (Spotify integration)
 	@GetMapping("/currently-playing")
 	public ResponseEntity<Map<String, Object>> getCurrentlyPlaying(@RequestHeader(value = "X-Spotify-Token", required = false) String spotifyToken) {
@@ -276,4 +432,10 @@ public class SongController {
 	public SongDTO findById(@PathVariable String id) {
 		return songService.getById(id).orElse(null);
 	}
+
+	// Songs for up to SongService.MAX_BATCH_IDS IDs in one call, in the order given; unknown IDs are left out
+	@PostMapping("/batch-get")
+	public List<SongDTO> batchGet(@RequestBody List<String> ids) {
+		return songService.getByIds(ids);
+	}
 }
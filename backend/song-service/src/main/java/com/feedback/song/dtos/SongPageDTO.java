@@ -0,0 +1,9 @@
+package com.feedback.song.dtos;
+
+import java.util.List;
+
+// nextCursor is passed back as ?after= for the next page; null when there are no more
+public record SongPageDTO(
+        List<SongDTO> songs,
+        String nextCursor
+) {}
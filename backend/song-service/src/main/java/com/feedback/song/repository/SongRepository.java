@@ -1,16 +1,41 @@
 package com.feedback.song.repository;
 
 import com.feedback.song.model.Song;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface SongRepository extends JpaRepository<Song, String> {
+    // Catalog pages in song ID order: the first page, then each page after the last ID of the one before
+    List<Song> findAllByOrderBySongIdAsc(Limit limit);
+
+    List<Song> findBySongIdGreaterThanOrderBySongIdAsc(String afterId, Limit limit);
+
     // Find songs by name
     List<Song> findByName(String name);
 
-    // Find songs by partial name (case-insensitive)
-    List<Song> findByNameContainingIgnoreCase(String namePart);
+    // Search by name, tolerant of typos: pg_trgm word similarity (:query <% name) is answered from the
+    // idx_song_name_trgm GIN index (schema.sql) instead of an ILIKE scan of the whole table. Matches are
+    // ranked by similarity, boosted logarithmically by all-time plays, with the ID as a stable tie-breaker
+    @Query(value = "SELECT * FROM song WHERE :query <% name "
+            + "ORDER BY word_similarity(:query, name) * (1 + :boost * ln(1 + play_count)) DESC, song_id "
+            + "LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Song> search(@Param("query") String query, @Param("boost") double boost, @Param("limit") int limit,
+            @Param("offset") int offset);
+
+    // Sets every song's play_count to its plays summed from history-service's play_count counters, in one
+    // pass over them; only songs whose count changed are written. Returns how many were
+    @Modifying
+    @Query(value = "UPDATE song s SET play_count = t.plays FROM ("
+            + "SELECT x.song_id, COALESCE(SUM(c.play_count), 0) AS plays FROM song x "
+            + "LEFT JOIN play_count c ON c.item_type = 'SONG' AND c.item_id = x.song_id GROUP BY x.song_id) t "
+            + "WHERE s.song_id = t.song_id AND s.play_count <> t.plays", nativeQuery = true)
+    int refreshPlayCounts();
 
     // Find songs by duration
     List<Song> findByDurationMs(Integer duration);
@@ -29,4 +54,14 @@ public interface SongRepository extends JpaRepository<Song, String> {
 
     // Find songs by a specific artist's name
     List<Song> findByArtists_Name(String artistName);
-}
\ No newline at end of file
+
+    // artist IDs for a whole list of songs in one query, instead of loading each song's artists lazily
+    @Query("SELECT new com.feedback.song.repository.LinkedId(s.songId, a.artistId) "
+            + "FROM Song s JOIN s.artists a WHERE s.songId IN :songIds")
+    List<LinkedId> findArtistIds(@Param("songIds") Collection<String> songIds);
+
+    // album IDs for a whole list of songs in one query, instead of loading each song's albums lazily
+    @Query("SELECT new com.feedback.song.repository.LinkedId(s.songId, al.albumId) "
+            + "FROM Song s JOIN s.albums al WHERE s.songId IN :songIds")
+    List<LinkedId> findAlbumIds(@Param("songIds") Collection<String> songIds);
+}
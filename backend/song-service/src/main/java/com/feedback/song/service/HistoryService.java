@@ -0,0 +1,32 @@
+package com.feedback.song.service;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+
+@FeignClient("history-service")
+public interface HistoryService {
+
+    // top items counted from our own history, used when Spotify can't be asked
+    @GetMapping("/api/history/top")
+    public List<Map<String, Object>> getTopItems(@RequestParam String listenerId, @RequestParam String type,
+            @RequestParam("time_range") String timeRange, @RequestParam int limit);
+
+    // songs most often played right after this one (scored 0 to 1), optionally blended with the listener's habits
+    @GetMapping("/api/history/transitions/{songId}/next")
+    public List<Map<String, Object>> getNextSongs(@PathVariable String songId,
+            @RequestParam(required = false) String listenerId, @RequestParam int limit);
+
+    // chart snapshot: {country, window, type, computedAt, entries: [{rank, id, plays, error}]}
+    @GetMapping("/api/history/charts")
+    public Map<String, Object> getChart(@RequestParam(required = false) String country, @RequestParam String window,
+            @RequestParam String type, @RequestParam int limit);
+
+    // trending songs: {country, halfLifeHours, computedAt, entries: [{rank, id, score}]}
+    @GetMapping("/api/history/trending")
+    public Map<String, Object> getTrending(@RequestParam(required = false) String country, @RequestParam int limit);
+}
@@ -0,0 +1,37 @@
+package com.feedback.song.service;
+
+import java.time.LocalDateTime;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.feedback.song.repository.SongRepository;
+
+// Copies each song's all-time plays into song.play_count, which search uses to rank popular songs first.
+// The plays come from history-service's play_count counters, which are written in the same transaction as
+// the history row, corrected when a play is revised and backfilled from older history, so the ranking is
+// recomputed from them rather than counted a second time here. Runs at startup and then periodically.
+@Service
+public class SongPopularityRefresh {
+
+    private final SongRepository repository;
+    private final TransactionTemplate transactionTemplate;
+
+    public SongPopularityRefresh(SongRepository repository, PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${song.popularity.refresh-ms:3600000}")
+    public void refresh() {
+        try {
+            Integer changed = transactionTemplate.execute(status -> repository.refreshPlayCounts());
+            System.out.println("[" + LocalDateTime.now() + "] Song popularity refreshed: " + changed + " songs changed");
+        } catch (RuntimeException e) {
+            // e.g. history-service has not created play_count yet; the next run tries again
+            System.err.println("[" + LocalDateTime.now() + "] Song popularity refresh failed: " + e.getMessage());
+        }
+    }
+}
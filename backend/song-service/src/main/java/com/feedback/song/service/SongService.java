@@ -1,21 +1,38 @@
 package com.feedback.song.service;
 
 import com.feedback.song.dtos.SongDTO;
+import com.feedback.song.dtos.SongPageDTO;
 import com.feedback.song.exception.InvalidRequestException;
 import com.feedback.song.exception.ResourceNotFoundException;
 import com.feedback.song.model.Song;
+import com.feedback.song.repository.LinkedId;
 import com.feedback.song.repository.SongRepository;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
 public class SongService {
 
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+    // most IDs one batch lookup may ask for
+    public static final int MAX_BATCH_IDS = 200;
+    // search is ranked, so it pages by offset; deeper than this nobody is still reading
+    public static final int MAX_SEARCH_RESULTS = 1000;
+    // how much all-time plays lift a match: score = similarity * (1 + boost * ln(1 + plays))
+    static final double POPULARITY_BOOST = 0.05;
+
     private final SongRepository repository;
 
     public SongService(SongRepository repository) {
@@ -23,10 +40,19 @@ public class SongService {
     }
 
     
-    public List<SongDTO> getAllSongs() {
-        return repository.findAll().stream()
-                .map(this::songToDto)
-                .toList();
+    // one page of the catalog in song ID order; after is the previous page's nextCursor
+    public SongPageDTO getAllSongs(Integer limit, String after) {
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        // one extra row tells us whether there is another page without a count query
+        Limit fetch = Limit.of(pageSize + 1);
+        List<Song> songs = after == null || after.isBlank()
+                ? repository.findAllByOrderBySongIdAsc(fetch)
+                : repository.findBySongIdGreaterThanOrderBySongIdAsc(decodeCursor(after), fetch);
+
+        boolean hasMore = songs.size() > pageSize;
+        List<SongDTO> page = songsToDtos(songs.subList(0, Math.min(pageSize, songs.size())));
+        String nextCursor = hasMore ? encodeCursor(page.get(page.size() - 1).songId()) : null;
+        return new SongPageDTO(page, nextCursor);
     }
 
     
@@ -38,24 +64,47 @@ public class SongService {
                 .map(this::songToDto);
     }
 
+    // songs for the given IDs in one query, in the order asked for; unknown IDs are left out
+    public List<SongDTO> getByIds(List<String> ids) {
+        List<String> wanted = batchIds(ids);
+        if (wanted.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Song> songs = repository.findAllById(wanted).stream()
+                .collect(Collectors.toMap(Song::getSongId, Function.identity()));
+        return songsToDtos(wanted.stream()
+                .map(songs::get)
+                .filter(Objects::nonNull)
+                .toList());
+    }
+
     
     public List<SongDTO> findByName(String name) {
         if (name == null || name.isBlank()) {
             return List.of();
         }
-        return repository.findByName(name).stream()
-                .map(this::songToDto)
-                .toList();
+        return songsToDtos(repository.findByName(name));
     }
 
     
-    public List<SongDTO> searchByName(String namePart) {
-        if (namePart == null || namePart.isBlank()) {
-            return List.of();
+    // typo-tolerant name search, best matches first (popular songs ahead among similar names);
+    // after is the previous page's nextCursor. Results stop after MAX_SEARCH_RESULTS
+    public SongPageDTO searchByName(String query, Integer limit, String after) {
+        if (query == null || query.isBlank()) {
+            return new SongPageDTO(List.of(), null);
         }
-        return repository.findByNameContainingIgnoreCase(namePart).stream()
-                .map(this::songToDto)
-                .toList();
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        int offset = after == null || after.isBlank() ? 0 : decodeOffset(after);
+        int fetch = Math.min(pageSize + 1, MAX_SEARCH_RESULTS - offset);
+        if (fetch <= 0) {
+            return new SongPageDTO(List.of(), null);
+        }
+        List<Song> songs = repository.search(query.trim(), POPULARITY_BOOST, fetch, offset);
+
+        boolean hasMore = songs.size() > pageSize;
+        List<SongDTO> page = songsToDtos(songs.subList(0, Math.min(pageSize, songs.size())));
+        String nextCursor = hasMore ? encodeCursor(String.valueOf(offset + pageSize)) : null;
+        return new SongPageDTO(page, nextCursor);
     }
 
     
@@ -63,9 +112,7 @@ public class SongService {
         if (artistName == null || artistName.isBlank()) {
             return List.of();
         }
-        return repository.findByArtists_Name(artistName).stream()
-                .map(this::songToDto)
-                .toList();
+        return songsToDtos(repository.findByArtists_Name(artistName));
     }
 
     
@@ -73,9 +120,7 @@ public class SongService {
         if (duration == null || duration <= 0) {
             return List.of();
         }
-        return repository.findByDurationMs(duration).stream()
-                .map(this::songToDto)
-                .toList();
+        return songsToDtos(repository.findByDurationMs(duration));
     }
 
     
@@ -89,9 +134,7 @@ public class SongService {
         if (minDuration > maxDuration) {
             throw new InvalidRequestException("Min duration must be less than or equal to max duration");
         }
-        return repository.findByDurationMsBetween(minDuration, maxDuration).stream()
-                .map(this::songToDto)
-                .toList();
+        return songsToDtos(repository.findByDurationMsBetween(minDuration, maxDuration));
     }
 
     
@@ -167,6 +210,68 @@ public class SongService {
         }
     }
 
+    // cursors are opaque to clients: the last song ID of a page, base64url-encoded
+    private static String encodeCursor(String songId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(songId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("after", cursor);
+        }
+    }
+
+    // search cursors carry the offset of the next page
+    private static int decodeOffset(String cursor) {
+        try {
+            int offset = Integer.parseInt(decodeCursor(cursor));
+            if (offset < 0) {
+                throw new InvalidRequestException("after", cursor);
+            }
+            return offset;
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("after", cursor);
+        }
+    }
+
+    // the distinct non-blank IDs of a batch lookup, in the order given
+    private static List<String> batchIds(List<String> ids) {
+        if (ids == null) {
+            return List.of();
+        }
+        List<String> wanted = ids.stream()
+                .filter(id -> id != null && !id.isBlank())
+                .distinct()
+                .toList();
+        if (wanted.size() > MAX_BATCH_IDS) {
+            throw new InvalidRequestException("At most " + MAX_BATCH_IDS + " IDs can be looked up at once");
+        }
+        return wanted;
+    }
+
+    // DTOs for a list of songs; artist and album IDs are read in one query each per LinkedId.CHUNK_SIZE songs,
+    // where going through every song's lazy collections would cost two queries per song
+    private List<SongDTO> songsToDtos(List<Song> songs) {
+        if (songs.isEmpty()) {
+            return List.of();
+        }
+        List<String> songIds = songs.stream().map(Song::getSongId).toList();
+        Map<String, List<String>> artistIds = LinkedId.groupInChunks(songIds, repository::findArtistIds);
+        Map<String, List<String>> albumIds = LinkedId.groupInChunks(songIds, repository::findAlbumIds);
+        return songs.stream()
+                .map(song -> new SongDTO(
+                        song.getSongId(),
+                        song.getName(),
+                        song.getHref(),
+                        song.getDurationMs(),
+                        artistIds.getOrDefault(song.getSongId(), List.of()),
+                        albumIds.getOrDefault(song.getSongId(), List.of())
+                ))
+                .toList();
+    }
+
     private SongDTO songToDto(Song song) {
         List<String> artistIds = song.getArtists().stream()
                 .map(artist -> artist.getArtistId())
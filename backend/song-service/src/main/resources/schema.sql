@@ -0,0 +1,11 @@
+-- Runs after Hibernate has updated the schema (spring.jpa.defer-datasource-initialization).
+-- Every statement is idempotent, so it is safe on each startup. The catalog services share the database and
+-- create some of the same objects (pg_trgm, idx_album_artist), and two concurrent CREATE ... IF NOT EXISTS of
+-- one object can still fail, so each service holds the same advisory lock while its script runs.
+SELECT pg_advisory_lock(hashtext('catalog-schema'));
+
+-- trigram indexes for typo-tolerant name search (SongRepository.search)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_song_name_trgm ON song USING gin (name gin_trgm_ops);
+
+SELECT pg_advisory_unlock(hashtext('catalog-schema'));
@@ -0,0 +1,136 @@
+package com.feedback.song.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Song search on a generated catalog (a million songs by default): the old ILIKE '%x%' query against
+ * the trigram search in SongRepository.search, before and after idx_song_name_trgm exists. Prints
+ * each query plan and its median latency, and whether the plan used the trigram index.
+ *
+ * Needs a PostgreSQL it may create the pg_trgm extension in. Everything is created in a scratch
+ * schema (search_bench) that is dropped at the end. Run the main method (from the IDE, or with
+ * exec:java on the test classpath), optionally with the row count as the first argument:
+ *
+ *   BENCH_DB_URL=jdbc:postgresql://localhost:5432/spotifydb BENCH_DB_USER=... BENCH_DB_PASSWORD=...
+ */
+public class CatalogSearchBenchmark {
+
+    private static final String SCHEMA = "search_bench";
+    private static final int RUNS = 7;
+    // one word misspelled, the way people type into a search box
+    private static final String TYPO_QUERY = "midnigth";
+    private static final String SUBSTRING_QUERY = "midnight";
+
+    // same as SongRepository.search
+    private static final String TRIGRAM_SEARCH = "SELECT * FROM song WHERE ? <% name "
+            + "ORDER BY word_similarity(?, name) * (1 + 0.05 * ln(1 + play_count)) DESC, song_id LIMIT 50";
+    // what findByNameContainingIgnoreCase ran, with a limit added so only the scan is measured
+    private static final String ILIKE_SEARCH = "SELECT * FROM song WHERE name ILIKE '%' || ? || '%' LIMIT 50";
+
+    public static void main(String[] args) throws SQLException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String url = System.getenv().getOrDefault("BENCH_DB_URL", "jdbc:postgresql://localhost:5432/spotifydb");
+        String user = System.getenv().getOrDefault("BENCH_DB_USER", "postgres");
+        String password = System.getenv().getOrDefault("BENCH_DB_PASSWORD", "postgres");
+
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            try {
+                load(connection, rows);
+
+                System.out.println("== without a trigram index (" + rows + " songs)");
+                measure(connection, "ILIKE substring", ILIKE_SEARCH, SUBSTRING_QUERY);
+
+                long start = System.nanoTime();
+                execute(connection, "CREATE INDEX idx_song_name_trgm ON song USING gin (name gin_trgm_ops)");
+                execute(connection, "ANALYZE song");
+                System.out.printf("%n== built idx_song_name_trgm in %.0f ms%n", (System.nanoTime() - start) / 1e6);
+
+                measure(connection, "ILIKE substring", ILIKE_SEARCH, SUBSTRING_QUERY);
+                measure(connection, "trigram search", TRIGRAM_SEARCH, SUBSTRING_QUERY, SUBSTRING_QUERY);
+                measure(connection, "trigram search, typo", TRIGRAM_SEARCH, TYPO_QUERY, TYPO_QUERY);
+            } finally {
+                execute(connection, "DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+            }
+        }
+    }
+
+    // a song table shaped like the real one, with names built from common title words and skewed play counts
+    private static void load(Connection connection, int rows) throws SQLException {
+        execute(connection, "CREATE EXTENSION IF NOT EXISTS pg_trgm");
+        execute(connection, "DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        execute(connection, "CREATE SCHEMA " + SCHEMA);
+        execute(connection, "SET search_path TO " + SCHEMA + ", public");
+        execute(connection, "CREATE TABLE song (song_id VARCHAR(64) PRIMARY KEY, name TEXT NOT NULL, "
+                + "duration_ms INTEGER NOT NULL, play_count BIGINT NOT NULL DEFAULT 0)");
+
+        long start = System.nanoTime();
+        execute(connection, "SELECT setseed(0.42)");
+        execute(connection, "INSERT INTO song (song_id, name, duration_ms, play_count) "
+                + "SELECT 'S' || lpad(i::text, 9, '0'), "
+                + "w[1 + floor(random() * array_length(w, 1))::int] || ' ' "
+                + "|| w[1 + floor(random() * array_length(w, 1))::int] || ' ' "
+                + "|| w[1 + floor(random() * array_length(w, 1))::int] || ' ' || i, "
+                + "120000 + floor(random() * 240000)::int, "
+                + "floor(exp(random() * 12))::bigint "
+                + "FROM generate_series(1, " + rows + ") AS i, "
+                + "(SELECT ARRAY['love', 'night', 'heart', 'midnight', 'summer', 'dream', 'fire', 'rain', 'dance', "
+                + "'city', 'blue', 'gold', 'river', 'ghost', 'wild', 'home', 'light', 'shadow', 'echo', 'storm', "
+                + "'velvet', 'neon', 'silver', 'ocean', 'paper', 'stone', 'highway', 'garden', 'winter', 'moon'] AS w) words");
+        execute(connection, "ANALYZE song");
+        System.out.printf("loaded %d songs in %.0f ms%n", rows, (System.nanoTime() - start) / 1e6);
+    }
+
+    private static void measure(Connection connection, String label, String sql, String... params) throws SQLException {
+        System.out.println();
+        System.out.println("-- " + label + " ('" + params[0] + "')");
+        boolean usedIndex = false;
+        try (PreparedStatement explain = connection.prepareStatement("EXPLAIN (ANALYZE, BUFFERS) " + sql)) {
+            bind(explain, params);
+            try (ResultSet plan = explain.executeQuery()) {
+                while (plan.next()) {
+                    String line = plan.getString(1);
+                    usedIndex |= line.contains("idx_song_name_trgm");
+                    System.out.println("   " + line);
+                }
+            }
+        }
+
+        List<Double> timings = new ArrayList<>();
+        int matches = 0;
+        try (PreparedStatement query = connection.prepareStatement(sql)) {
+            bind(query, params);
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                matches = 0;
+                try (ResultSet results = query.executeQuery()) {
+                    while (results.next()) {
+                        matches++;
+                    }
+                }
+                timings.add((System.nanoTime() - start) / 1e6);
+            }
+        }
+        timings.sort(null);
+        System.out.printf("   median %.2f ms over %d runs, %d rows, trigram index used: %s%n",
+                timings.get(timings.size() / 2), RUNS, matches, usedIndex);
+    }
+
+    private static void bind(PreparedStatement statement, String... params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            statement.setString(i + 1, params[i]);
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.feedback.song.repository;
+
+import com.feedback.song.dtos.SongDTO;
+import com.feedback.song.model.Album;
+import com.feedback.song.model.Artist;
+import com.feedback.song.model.Song;
+import com.feedback.song.service.SongService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// counts the statements a large result costs against an embedded database; schema.sql is Postgres-only
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class SongRepositoryTest {
+
+    @Autowired
+    private SongRepository songRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private SongService service;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        service = new SongService(songRepository);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private void saveSongs(int count) {
+        Artist artist = new Artist("AR1", "Artist", null);
+        Album album = new Album("AL1", "Album", 2025, null);
+        entityManager.persist(artist);
+        entityManager.persist(album);
+        for (int i = 0; i < count; i++) {
+            Song song = new Song(String.format("S%05d", i), "Same Name", 1000, null);
+            song.getArtists().add(artist);
+            song.getAlbums().add(album);
+            entityManager.persist(song);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    public void testThousandSongsCostThreeStatements() {
+        saveSongs(LinkedId.CHUNK_SIZE);
+
+        List<SongDTO> songs = service.findByName("Same Name");
+
+        assertEquals(LinkedId.CHUNK_SIZE, songs.size());
+        assertEquals(List.of("AR1"), songs.get(0).artistIds());
+        assertEquals(List.of("AL1"), songs.get(LinkedId.CHUNK_SIZE - 1).albumIds());
+        // the songs, then one query each for their artist and album IDs
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testOneSongPastAChunkCostsOneMoreQueryPerLink() {
+        saveSongs(LinkedId.CHUNK_SIZE + 1);
+
+        List<SongDTO> songs = service.findByName("Same Name");
+
+        assertEquals(LinkedId.CHUNK_SIZE + 1, songs.size());
+        assertEquals(List.of("AR1"), songs.get(LinkedId.CHUNK_SIZE).artistIds());
+        assertEquals(5, statistics.getPrepareStatementCount());
+    }
+}
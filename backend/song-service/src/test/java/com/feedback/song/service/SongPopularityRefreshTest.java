@@ -0,0 +1,47 @@
+package com.feedback.song.service;
+
+import com.feedback.song.repository.SongRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SongPopularityRefreshTest {
+
+    @Mock
+    private SongRepository repository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SongPopularityRefresh refresh;
+
+    @BeforeEach
+    public void setUp() {
+        refresh = new SongPopularityRefresh(repository, transactionManager);
+    }
+
+    @Test
+    public void testRefreshRecomputesPlayCountsInOneTransaction() {
+        when(repository.refreshPlayCounts()).thenReturn(3);
+
+        refresh.refresh();
+
+        verify(repository).refreshPlayCounts();
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    public void testFailedRefreshIsLeftForTheNextRun() {
+        when(repository.refreshPlayCounts()).thenThrow(new RuntimeException("relation \"play_count\" does not exist"));
+
+        assertDoesNotThrow(() -> refresh.refresh());
+        verify(transactionManager).rollback(any());
+    }
+}
@@ -1,11 +1,13 @@
 package com.feedback.song.service;
 
 import com.feedback.song.dtos.SongDTO;
+import com.feedback.song.dtos.SongPageDTO;
 import com.feedback.song.exception.InvalidRequestException;
 import com.feedback.song.exception.ResourceNotFoundException;
 import com.feedback.song.model.Album;
 import com.feedback.song.model.Artist;
 import com.feedback.song.model.Song;
+import com.feedback.song.repository.LinkedId;
 import com.feedback.song.repository.SongRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,12 +15,18 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -42,18 +50,75 @@ public class SongServiceTest {
         sampleSong.setAlbums(Set.of(album));
     }
 
+    private String offsetCursor(int offset) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(offset).getBytes(StandardCharsets.UTF_8));
+    }
+
     public SongDTO makeDTO() {
         return new SongDTO("S1", "Song One", "songHref", 200000, List.of("AR1"), List.of("ALB1"));
     }
 
     @Test
-    public void testGetAllSongs() {
-        when(repository.findAll()).thenReturn(List.of(sampleSong));
+    public void testGetAllSongsFirstPage() {
+        Song second = new Song("S2", "Song Two", 180000, "songHref2");
+        Song third = new Song("S3", "Song Three", 180000, "songHref3");
+        when(repository.findAllByOrderBySongIdAsc(Limit.of(3))).thenReturn(List.of(sampleSong, second, third));
 
-        List<SongDTO> result = service.getAllSongs();
+        SongPageDTO result = service.getAllSongs(2, null);
 
-        assertEquals(1, result.size());
-        assertEquals("S1", result.get(0).songId());
+        assertEquals(List.of("S1", "S2"), result.songs().stream().map(SongDTO::songId).toList());
+        assertNotNull(result.nextCursor());
+    }
+
+    @Test
+    public void testGetAllSongsNextPageContinuesAfterCursor() {
+        Song second = new Song("S2", "Song Two", 180000, "songHref2");
+        Song third = new Song("S3", "Song Three", 180000, "songHref3");
+        when(repository.findAllByOrderBySongIdAsc(Limit.of(2))).thenReturn(List.of(sampleSong, second));
+        when(repository.findBySongIdGreaterThanOrderBySongIdAsc("S1", Limit.of(2))).thenReturn(List.of(third));
+
+        SongPageDTO first = service.getAllSongs(1, null);
+        SongPageDTO next = service.getAllSongs(1, first.nextCursor());
+
+        assertEquals("S3", next.songs().get(0).songId());
+        assertNull(next.nextCursor());
+    }
+
+    @Test
+    public void testGetAllSongsCapsPageSize() {
+        when(repository.findAllByOrderBySongIdAsc(Limit.of(SongService.MAX_LIMIT + 1))).thenReturn(List.of());
+
+        SongPageDTO result = service.getAllSongs(100_000, null);
+
+        assertTrue(result.songs().isEmpty());
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    public void testGetAllSongsReadsLinkedIdsOncePerPage() {
+        Song second = new Song("S2", "Song Two", 180000, "songHref2");
+        when(repository.findAllByOrderBySongIdAsc(Limit.of(3))).thenReturn(List.of(sampleSong, second));
+        when(repository.findArtistIds(List.of("S1", "S2")))
+                .thenReturn(List.of(new LinkedId("S1", "AR1"), new LinkedId("S2", "AR1"), new LinkedId("S2", "AR2")));
+        when(repository.findAlbumIds(List.of("S1", "S2"))).thenReturn(List.of(new LinkedId("S1", "ALB1")));
+
+        SongPageDTO result = service.getAllSongs(2, null);
+
+        assertEquals(List.of("AR1"), result.songs().get(0).artistIds());
+        assertEquals(List.of("ALB1"), result.songs().get(0).albumIds());
+        assertEquals(List.of("AR1", "AR2"), result.songs().get(1).artistIds());
+        assertEquals(List.of(), result.songs().get(1).albumIds());
+        // three statements however many songs are on the page: the songs, their artists, their albums
+        verify(repository).findAllByOrderBySongIdAsc(Limit.of(3));
+        verify(repository).findArtistIds(List.of("S1", "S2"));
+        verify(repository).findAlbumIds(List.of("S1", "S2"));
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    public void testGetAllSongsInvalidCursorThrows() {
+        assertThrows(InvalidRequestException.class, () -> service.getAllSongs(10, "not a cursor!"));
     }
 
     @Test
@@ -66,6 +131,17 @@ public class SongServiceTest {
         assertEquals("S1", result.get().songId());
     }
 
+    @Test
+    public void testGetByIdsKeepsRequestedOrder() {
+        Song other = new Song("S2", "Song Two", 180000, "otherHref");
+        when(repository.findAllById(List.of("S2", "UNKNOWN", "S1"))).thenReturn(List.of(sampleSong, other));
+
+        List<SongDTO> result = service.getByIds(List.of("S2", "UNKNOWN", "S1"));
+
+        assertEquals(List.of("S2", "S1"), result.stream().map(SongDTO::songId).toList());
+        assertEquals(List.of(), service.getByIds(List.of()));
+    }
+
     @Test
     public void testGetByIdNotFoundReturnsEmptyOptional() {
         when(repository.findById("UNKNOWN")).thenReturn(Optional.empty());
@@ -81,6 +157,24 @@ public class SongServiceTest {
         assertThrows(InvalidRequestException.class, () -> service.getById(null));
     }
 
+    @Test
+    public void testGetByIdsQueriesEachIdOnce() {
+        when(repository.findAllById(List.of("S1"))).thenReturn(List.of(sampleSong));
+
+        List<SongDTO> result = service.getByIds(Arrays.asList("S1", "S1", null, " "));
+
+        assertEquals(1, result.size());
+    }
+
+    @Test
+    public void testGetByIdsTooManyThrows() {
+        List<String> ids = IntStream.rangeClosed(0, SongService.MAX_BATCH_IDS)
+                .mapToObj(i -> "S" + i)
+                .toList();
+
+        assertThrows(InvalidRequestException.class, () -> service.getByIds(ids));
+    }
+
     @Test
     public void testFindByNameSuccess() {
         when(repository.findByName("Song One")).thenReturn(List.of(sampleSong));
@@ -99,17 +193,53 @@ public class SongServiceTest {
 
     @Test
     public void testSearchByNameSuccess() {
-        when(repository.findByNameContainingIgnoreCase("song")).thenReturn(List.of(sampleSong));
+        when(repository.search("song", SongService.POPULARITY_BOOST, SongService.DEFAULT_LIMIT + 1, 0))
+                .thenReturn(List.of(sampleSong));
 
-        List<SongDTO> result = service.searchByName("song");
+        SongPageDTO result = service.searchByName(" song ", null, null);
 
-        assertEquals(1, result.size());
+        assertEquals(1, result.songs().size());
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    public void testSearchByNamePagesByOffset() {
+        Song second = new Song("S2", "Song Two", 180000, "songHref2");
+        Song third = new Song("S3", "Song Three", 180000, "songHref3");
+        when(repository.search("sogn", SongService.POPULARITY_BOOST, 3, 0)).thenReturn(List.of(sampleSong, second, third));
+        when(repository.search("sogn", SongService.POPULARITY_BOOST, 3, 2)).thenReturn(List.of(third));
+
+        SongPageDTO first = service.searchByName("sogn", 2, null);
+        SongPageDTO next = service.searchByName("sogn", 2, first.nextCursor());
+
+        assertEquals(List.of("S1", "S2"), first.songs().stream().map(SongDTO::songId).toList());
+        assertEquals(List.of("S3"), next.songs().stream().map(SongDTO::songId).toList());
+        assertNull(next.nextCursor());
+    }
+
+    @Test
+    public void testSearchByNameStopsAtMaxResults() {
+        int lastOffset = SongService.MAX_SEARCH_RESULTS - 1;
+        when(repository.search("song", SongService.POPULARITY_BOOST, 1, lastOffset)).thenReturn(List.of(sampleSong));
+
+        SongPageDTO last = service.searchByName("song", 5, offsetCursor(lastOffset));
+        SongPageDTO pastEnd = service.searchByName("song", 5, offsetCursor(SongService.MAX_SEARCH_RESULTS));
+
+        assertEquals(1, last.songs().size());
+        assertNull(last.nextCursor());
+        assertTrue(pastEnd.songs().isEmpty());
+        verify(repository, never()).search("song", SongService.POPULARITY_BOOST, 0, SongService.MAX_SEARCH_RESULTS);
     }
 
     @Test
     public void testSearchByNameBlankReturnsEmpty() {
-        assertTrue(service.searchByName("").isEmpty());
-        assertTrue(service.searchByName(null).isEmpty());
+        assertTrue(service.searchByName("", null, null).songs().isEmpty());
+        assertTrue(service.searchByName(null, null, null).songs().isEmpty());
+    }
+
+    @Test
+    public void testSearchByNameInvalidCursorThrows() {
+        assertThrows(InvalidRequestException.class, () -> service.searchByName("song", 10, "bm90LWEtbnVtYmVy"));
     }
 
     @Test
@@ -152,6 +282,26 @@ public class SongServiceTest {
         assertEquals(1, result.size());
     }
 
+    @Test
+    public void testLargeResultReadsLinksInChunks() {
+        List<Song> songs = IntStream.range(0, LinkedId.CHUNK_SIZE + 1)
+                .mapToObj(i -> new Song("S" + i, "Song " + i, 200000, null))
+                .toList();
+        List<String> ids = songs.stream().map(Song::getSongId).toList();
+        when(repository.findByDurationMsBetween(1000, 300000)).thenReturn(songs);
+        when(repository.findArtistIds(ids.subList(0, LinkedId.CHUNK_SIZE))).thenReturn(List.of());
+        when(repository.findArtistIds(ids.subList(LinkedId.CHUNK_SIZE, ids.size())))
+                .thenReturn(List.of(new LinkedId("S" + LinkedId.CHUNK_SIZE, "A1")));
+
+        List<SongDTO> result = service.findByDurationRange(1000, 300000);
+
+        assertEquals(LinkedId.CHUNK_SIZE + 1, result.size());
+        assertEquals(List.of("A1"), result.get(LinkedId.CHUNK_SIZE).artistIds());
+        // one query per chunk, so no statement binds more than CHUNK_SIZE IDs
+        verify(repository, times(2)).findArtistIds(anyList());
+        verify(repository, times(2)).findAlbumIds(anyList());
+    }
+
     @Test
     public void testFindByDurationRangeInvalidThrows() {
         assertThrows(InvalidRequestException.class, () -> service.findByDurationRange(null, 100));
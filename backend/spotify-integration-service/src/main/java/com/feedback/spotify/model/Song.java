@@ -39,9 +39,6 @@ public class Song {
     )
     private Set<Artist> artists = new HashSet<>();
 
-    @ManyToMany(mappedBy = "songs")
-    private Set<Playlist> playlists = new HashSet<>();
-
     // kenneth added this: many:many for albums and songs
     @ManyToMany
     @JoinTable(
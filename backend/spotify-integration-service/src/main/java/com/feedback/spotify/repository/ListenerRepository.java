@@ -2,6 +2,9 @@ package com.feedback.spotify.repository;
 
 import com.feedback.spotify.model.Listener;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
@@ -17,4 +20,21 @@ public interface ListenerRepository extends JpaRepository<Listener, String> {
 
     // Find listeners by country
     List<Listener> findByCountry(String country);
-}
\ No newline at end of file
+
+    // Add to the cumulative stats in the database, so concurrent writers never overwrite each other
+    @Modifying
+    @Query("UPDATE Listener l SET l.totalListeningTimeMs = COALESCE(l.totalListeningTimeMs, 0) + :listeningTimeMs, "
+            + "l.totalSongsPlayed = COALESCE(l.totalSongsPlayed, 0) + :songsPlayed WHERE l.listenerId = :listenerId")
+    int incrementStats(@Param("listenerId") String listenerId, @Param("listeningTimeMs") long listeningTimeMs,
+            @Param("songsPlayed") int songsPlayed);
+
+    // Replace the cumulative stats with a recount of the listener's history in one statement, so there
+    // is no read-then-save window for a concurrent increment to fall into
+    @Modifying
+    @Query(value = "UPDATE listener SET "
+            + "total_songs_played = (SELECT COUNT(*) FROM history h WHERE h.listener_id = :listenerId), "
+            + "total_listening_time_ms = (SELECT COALESCE(SUM(s.duration_ms), 0) FROM history h "
+            + "JOIN song s ON s.song_id = h.song_id WHERE h.listener_id = :listenerId) "
+            + "WHERE listener_id = :listenerId", nativeQuery = true)
+    int recountStats(@Param("listenerId") String listenerId);
+}
@@ -120,9 +120,8 @@ public class SpotifySyncService {
         
         System.out.println("[" + LocalDateTime.now() + "] Found " + items.size() + " items in recently played");
         
-        // Get listener entity to update cumulative stats
-        Listener listener = listenerRepository.findById(listenerId).orElse(null);
-        if (listener == null) {
+        // Cumulative stats are only kept for known listeners
+        if (!listenerRepository.existsById(listenerId)) {
             System.err.println("Listener not found: " + listenerId);
             return;
         }
@@ -174,12 +173,8 @@ public class SpotifySyncService {
         System.out.println("[" + LocalDateTime.now() + "] Sync completed - new songs: " + newSongsCount + ", new listening time: " + (newListeningTime / 60000) + " minutes");
         
         if (newSongsCount > 0 || newListeningTime > 0) {
-            long currentTotalTime = listener.getTotalListeningTimeMs() != null ? listener.getTotalListeningTimeMs() : 0L;
-            int currentSongsPlayed = listener.getTotalSongsPlayed() != null ? listener.getTotalSongsPlayed() : 0;
-            
-            listener.setTotalListeningTimeMs(currentTotalTime + newListeningTime);
-            listener.setTotalSongsPlayed(currentSongsPlayed + newSongsCount);
-            listenerRepository.save(listener);
+            // Added with an atomic increment, so a concurrent sync for the same listener can't overwrite it
+            listenerRepository.incrementStats(listenerId, newListeningTime, newSongsCount);
             
             System.out.println("[" + LocalDateTime.now() + "] Updated stats for listener " + listenerId + 
                 ": +" + newSongsCount + " songs, +" + (newListeningTime / 60000) + " minutes");
@@ -369,8 +364,7 @@ public class SpotifySyncService {
     public void updateStatsFromCurrentlyPlaying(String listenerId, Map<String, Object> trackData) {
         if (trackData == null) return;
         
-        Listener listener = listenerRepository.findById(listenerId).orElse(null);
-        if (listener == null) return;
+        if (!listenerRepository.existsById(listenerId)) return;
         
         String songId = (String) trackData.get("id");
         if (songId == null) return;
@@ -400,12 +394,7 @@ public class SpotifySyncService {
             // Update cumulative stats
             Song song = songRepository.findById(songId).orElse(null);
             if (song != null && song.getDurationMs() != null) {
-                long currentTotalTime = listener.getTotalListeningTimeMs() != null ? listener.getTotalListeningTimeMs() : 0L;
-                int currentSongsPlayed = listener.getTotalSongsPlayed() != null ? listener.getTotalSongsPlayed() : 0;
-                
-                listener.setTotalListeningTimeMs(currentTotalTime + song.getDurationMs());
-                listener.setTotalSongsPlayed(currentSongsPlayed + 1);
-                listenerRepository.save(listener);
+                listenerRepository.incrementStats(listenerId, song.getDurationMs(), 1);
                 
                 System.out.println("Updated stats from currently playing: +1 song, +" + (song.getDurationMs() / 60000) + " minutes");
             }
@@ -414,44 +403,20 @@ public class SpotifySyncService {
     
     /**
      * Recalculate cumulative stats from all existing history records for a listener.
-     * This ensures stats are accurate even if they were reset or not properly maintained.
+     * A repair tool for stats that were reset or drifted; syncs keep them current on their own.
+     * The recount is a single UPDATE: increments committed before it are replaced by the recount,
+     * and increments committed after it add to it.
      */
     @Transactional
     public void recalculateStatsFromHistory(String listenerId) {
         System.out.println("[" + LocalDateTime.now() + "] Recalculating stats from history for listener: " + listenerId);
         
-        Listener listener = listenerRepository.findById(listenerId).orElse(null);
-        if (listener == null) {
+        if (listenerRepository.recountStats(listenerId) == 0) {
             System.err.println("[" + LocalDateTime.now() + "] Listener not found for stats recalculation: " + listenerId);
             return;
         }
         
-        // Get all history records for this listener
-        List<HistoryDTO> allHistory = historyService.findByListenerId(listenerId).getBody();
-        System.out.println("[" + LocalDateTime.now() + "] Found " + allHistory.size() + " history records for recalculation");
-        
-        long totalListeningTime = 0L;
-        int totalSongsPlayed = allHistory.size();
-        
-        // Calculate total listening time from all history records
-        for (HistoryDTO history : allHistory) {
-            if (history.songId() != null) {
-                Song song = songRepository.findById(history.songId()).orElse(null);
-                if (song != null && song.getDurationMs() != null) {
-                    totalListeningTime += song.getDurationMs();
-                } else {
-                    System.out.println("[" + LocalDateTime.now() + "] Warning: Song not found or has no duration for songId: " + history.songId());
-                }
-            }
-        }
-        
-        // Update listener stats
-        listener.setTotalListeningTimeMs(totalListeningTime);
-        listener.setTotalSongsPlayed(totalSongsPlayed);
-        listenerRepository.save(listener);
-        
-        System.out.println("[" + LocalDateTime.now() + "] Recalculated stats for listener " + listenerId + 
-            ": " + totalSongsPlayed + " songs, " + (totalListeningTime / 60000) + " minutes");
+        System.out.println("[" + LocalDateTime.now() + "] Recalculated stats for listener " + listenerId);
     }
     
     private LocalDateTime parseSpotifyTimestamp(String timestamp) {
@@ -0,0 +1,116 @@
+package com.feedback.spotify.repository;
+
+import com.feedback.spotify.model.History;
+import com.feedback.spotify.model.Listener;
+import com.feedback.spotify.model.Song;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// runs the stats statements against an embedded database rather than a mock
+@DataJpaTest
+public class ListenerRepositoryTest {
+
+    @Autowired
+    private ListenerRepository listenerRepository;
+
+    @Autowired
+    private SongRepository songRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Listener listener(String listenerId) {
+        return new Listener(listenerId, listenerId, listenerId + "@example.com", "US", null);
+    }
+
+    @Test
+    public void testRecountReplacesTotalsWithHistory() {
+        Listener l1 = listenerRepository.save(listener("L1"));
+        Listener l2 = listenerRepository.save(listener("L2"));
+        Song s1 = songRepository.save(new Song("S1", "One", 1000, null));
+        Song s2 = songRepository.save(new Song("S2", "Two", 2500, null));
+        LocalDateTime now = LocalDateTime.now();
+        entityManager.persist(new History(now, l1, s1));
+        entityManager.persist(new History(now, l1, s2));
+        entityManager.persist(new History(now, l1, s1));
+        entityManager.persist(new History(now, l2, s1));
+        listenerRepository.incrementStats("L1", 99_999, 42);
+        entityManager.flush();
+
+        assertEquals(1, listenerRepository.recountStats("L1"));
+        assertEquals(0, listenerRepository.recountStats("UNKNOWN"));
+        entityManager.clear();
+
+        Listener recounted = listenerRepository.findById("L1").orElseThrow();
+        assertEquals(3, recounted.getTotalSongsPlayed());
+        assertEquals(4500L, recounted.getTotalListeningTimeMs());
+    }
+
+    @Test
+    public void testRecountOfListenerWithoutHistoryIsZero() {
+        listenerRepository.save(listener("L1"));
+        listenerRepository.incrementStats("L1", 5000, 2);
+        entityManager.flush();
+
+        listenerRepository.recountStats("L1");
+        entityManager.clear();
+
+        Listener recounted = listenerRepository.findById("L1").orElseThrow();
+        assertEquals(0, recounted.getTotalSongsPlayed());
+        assertEquals(0L, recounted.getTotalListeningTimeMs());
+    }
+
+    // every sync commits its own transaction here, as in production, so the increments really race
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testConcurrentSyncsLoseNoUpdates() throws Exception {
+        listenerRepository.save(listener("RACE"));
+        TransactionTemplate sync = new TransactionTemplate(transactionManager);
+        int writers = 8;
+        int playsPerWriter = 200;
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < playsPerWriter; i++) {
+                        sync.executeWithoutResult(status -> listenerRepository.incrementStats("RACE", 1000, 1));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            Listener stored = listenerRepository.findById("RACE").orElseThrow();
+            assertEquals(writers * playsPerWriter, stored.getTotalSongsPlayed());
+            assertEquals(writers * playsPerWriter * 1000L, stored.getTotalListeningTimeMs());
+        } finally {
+            pool.shutdown();
+            listenerRepository.deleteById("RACE");
+        }
+    }
+}
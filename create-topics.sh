@@ -23,5 +23,8 @@ create_topic logs.playlist-service 3 1
 create_topic logs.listener-service 3 1
 create_topic logs.song-service 3 1
 
+# play events from history-service, keyed by listener ID
+create_topic play-events 3 1
+
 echo "Successfully created topics:"
 /usr/bin/kafka-topics --bootstrap-server $KAFKA_BROKER --list
\ No newline at end of file